@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.benchmark;
+
+import org.gbif.frictionless.metadata.FrictionlessBinary;
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Encoding and decoding of metadata (sized by contributors) as JSON, Smile, the binary codec and Java serialization.
+ * The encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryBenchmark {
+
+  @Param({"1", "1000", "100000"})
+  public int size;
+
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json =
+      FrictionlessJson.getDefault();
+  private final FrictionlessBinary<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> binary = json.binary();
+
+  private FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata;
+  private ObjectReader smileReader;
+  private ObjectWriter smileWriter;
+  private byte[] jsonBytes;
+  private byte[] smileBytes;
+  private byte[] binaryBytes;
+  private byte[] javaBytes;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    ObjectMapper smile = new ObjectMapper(new SmileFactory());
+    smileReader = smile.readerFor(json.getMetadataType());
+    smileWriter = smile.writerFor(json.getMetadataType());
+
+    metadata = new DescriptorGenerator(size).metadata(size);
+    jsonBytes = json.writeMetadataAsBytes(metadata);
+    smileBytes = smileWriter.writeValueAsBytes(metadata);
+    binaryBytes = binary.writeMetadataAsBytes(metadata);
+    javaBytes = writeJava();
+    System.out.printf("%nEncoded sizes for %d contributors: JSON %d, Smile %d, binary %d, Java serialization %d bytes%n",
+        size, jsonBytes.length, smileBytes.length, binaryBytes.length, javaBytes.length);
+  }
+
+  @Benchmark
+  public Object readJson() throws Exception {
+    return json.readMetadata(jsonBytes);
+  }
+
+  @Benchmark
+  public byte[] writeJson() throws Exception {
+    return json.writeMetadataAsBytes(metadata);
+  }
+
+  @Benchmark
+  public Object readSmile() throws Exception {
+    return smileReader.readValue(smileBytes);
+  }
+
+  @Benchmark
+  public byte[] writeSmile() throws Exception {
+    return smileWriter.writeValueAsBytes(metadata);
+  }
+
+  @Benchmark
+  public Object readBinary() throws Exception {
+    return binary.readMetadata(binaryBytes);
+  }
+
+  @Benchmark
+  public byte[] writeBinary() throws Exception {
+    return binary.writeMetadataAsBytes(metadata);
+  }
+
+  @Benchmark
+  public Object readJava() throws Exception {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(javaBytes))) {
+      return in.readObject();
+    }
+  }
+
+  @Benchmark
+  public byte[] writeJava() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(metadata);
+    }
+    return bytes.toByteArray();
+  }
+}
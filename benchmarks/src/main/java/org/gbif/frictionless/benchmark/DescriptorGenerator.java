@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.benchmark;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates realistic, reproducible descriptors for the benchmarks.
+ * The same seed always produces the same descriptors, so runs can be compared offline.
+ */
+public class DescriptorGenerator {
+
+  private static final String[] LICENSES = {"CC0-1.0", "CC-BY-4.0", "CC-BY-NC-4.0"};
+  private static final String[] ROLES = {"author", "publisher", "maintainer", "wrangler", "contributor"};
+  private static final String[] KEYWORDS = {"occurrence", "observation", "specimen", "birds", "plants", "fungi", "insects"};
+
+  private final Random random;
+
+  public DescriptorGenerator(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Package metadata with the given number of contributors, and a proportional number of keywords and sources.
+   */
+  public FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata(int contributors) {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = new FrictionlessMetadata<>();
+    metadata.setName("dataset-" + random.nextInt(100_000));
+    metadata.setId("https://doi.org/10.15468/" + Integer.toHexString(random.nextInt()));
+    metadata.setTitle("Occurrence records of " + pick(KEYWORDS));
+    metadata.setDescription(text(40));
+    metadata.setHomepage(URI.create("https://www.gbif.org/dataset/" + random.nextInt(1_000_000)));
+    metadata.setCreated(new Date(1_600_000_000_000L + random.nextInt(Integer.MAX_VALUE)));
+    for (int i = 0; i < contributors; i++) {
+      metadata.getContributors().add(contributor(i));
+    }
+    for (int i = 0; i < Math.max(1, contributors / 10); i++) {
+      metadata.getKeywords().add(pick(KEYWORDS));
+      metadata.getSources().add(source(i));
+    }
+    metadata.getLicenses().add(license());
+    metadata.setAdditionalProperty("x-gbif-dataset-type", "OCCURRENCE");
+    return metadata;
+  }
+
+  public List<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> resources(int count) {
+    List<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> resources = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      resources.add(resource(i));
+    }
+    return resources;
+  }
+
+  /**
+   * A full datapackage.json with the given number of resources.
+   */
+  public byte[] packageJson(FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json,
+                            int contributors, int resources) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    json.writePackage(out, metadata(contributors), resources(resources));
+    return out.toByteArray();
+  }
+
+  public FrictionlessContributor contributor(int index) {
+    FrictionlessContributor contributor = new FrictionlessContributor();
+    contributor.setTitle("Contributor " + index);
+    contributor.setEmail("contributor" + index + "@example.org");
+    contributor.setOrganization("Institution " + random.nextInt(500));
+    contributor.setPath("https://orcid.org/0000-0002-" + (1000 + random.nextInt(9000)) + "-" + (1000 + random.nextInt(9000)));
+    contributor.setRole(pick(ROLES));
+    if (random.nextInt(20) == 0) {
+      contributor.setAdditionalProperty("userId", random.nextInt());
+    }
+    return contributor;
+  }
+
+  public FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource(int index) {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName("occurrence-" + index);
+    resource.setTitle("Occurrence part " + index);
+    resource.setDescription(text(10));
+    if (random.nextBoolean()) {
+      resource.setPath("data/occurrence-" + index + ".csv");
+    } else {
+      resource.setPath(Arrays.asList("data/occurrence-" + index + "-0.csv", "data/occurrence-" + index + "-1.csv"));
+    }
+    resource.setFormat("csv");
+    resource.setMediatype("text/csv");
+    resource.setBytes((long) random.nextInt(Integer.MAX_VALUE) * 4);
+    resource.setHash(hex(32));
+    resource.setSchema("schemas/occurrence.json");
+    resource.getLicenses().add(license());
+    return resource;
+  }
+
+  private FrictionlessLicense license() {
+    FrictionlessLicense license = new FrictionlessLicense();
+    license.setName(pick(LICENSES));
+    license.setTitle("Creative Commons " + license.getName());
+    license.setPath("https://creativecommons.org/licenses/");
+    return license;
+  }
+
+  private FrictionlessSource source(int index) {
+    FrictionlessSource source = new FrictionlessSource();
+    source.setTitle("Source " + index);
+    source.setPath("https://example.org/source/" + index);
+    return source;
+  }
+
+  private String text(int words) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      text.append(i == 0 ? "" : " ").append(pick(KEYWORDS));
+    }
+    return text.toString();
+  }
+
+  private String hex(int length) {
+    StringBuilder hex = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      hex.append(Character.forDigit(random.nextInt(16), 16));
+    }
+    return hex.toString();
+  }
+
+  private String pick(String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.benchmark;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessPackageReader;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Deserialization and serialization of metadata (sized by contributors) and resources (sized by resources).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+  @Param({"1", "1000", "100000"})
+  public int size;
+
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json =
+      FrictionlessJson.getDefault();
+
+  private FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata;
+  private List<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> resources;
+  private byte[] metadataJson;
+  private byte[] resourcesJson;
+  private byte[] packageJson;
+  private FrictionlessPackageReader<
+      FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource>,
+      FrictionlessResource<FrictionlessSource, FrictionlessLicense>> packageReader;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    packageReader = json.packageReader();
+
+    DescriptorGenerator generator = new DescriptorGenerator(size);
+    metadata = generator.metadata(size);
+    resources = generator.resources(size);
+    metadataJson = json.writeMetadataAsBytes(metadata);
+    resourcesJson = json.writeResourcesAsBytes(resources);
+    packageJson = generator.packageJson(json, 10, size);
+    json.warmUp();
+  }
+
+  @Benchmark
+  public Object readMetadata() throws Exception {
+    return json.readMetadata(metadataJson);
+  }
+
+  @Benchmark
+  public byte[] writeMetadata() throws Exception {
+    return json.writeMetadataAsBytes(metadata);
+  }
+
+  @Benchmark
+  public Object readResources() throws Exception {
+    return json.readResources(resourcesJson);
+  }
+
+  @Benchmark
+  public byte[] writeResources() throws Exception {
+    return json.writeResourcesAsBytes(resources);
+  }
+
+  @Benchmark
+  public void streamResources(Blackhole blackhole) throws Exception {
+    try (FrictionlessPackageReader.PackageStream<?, ?> stream = packageReader.open(() -> new ByteArrayInputStream(packageJson))) {
+      blackhole.consume(stream.getMetadata());
+      for (Object resource : stream) {
+        blackhole.consume(resource);
+      }
+    }
+  }
+}
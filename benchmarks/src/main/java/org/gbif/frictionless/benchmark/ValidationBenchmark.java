@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.benchmark;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+import org.gbif.frictionless.validation.BasicMetadata;
+import org.gbif.frictionless.validation.CompiledValidator;
+import org.gbif.frictionless.validation.InternalField;
+import org.gbif.frictionless.validation.KeywordsMetadata;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+
+import org.hibernate.validator.HibernateValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Validation per group, with Hibernate Validator and with the {@link CompiledValidator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+
+  @Param({"1", "1000", "100000"})
+  public int size;
+
+  private ValidatorFactory validatorFactory;
+  private Validator hibernate;
+  private CompiledValidator compiled;
+  private FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata;
+  private List<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> resources;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    validatorFactory = Validation.byProvider(HibernateValidator.class).configure().buildValidatorFactory();
+    hibernate = validatorFactory.getValidator();
+    compiled = CompiledValidator.getInstance();
+
+    DescriptorGenerator generator = new DescriptorGenerator(size);
+    metadata = generator.metadata(size);
+    resources = generator.resources(size);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    validatorFactory.close();
+  }
+
+  @Benchmark
+  public Object hibernateBasicMetadata() {
+    return hibernate.validate(metadata, BasicMetadata.class);
+  }
+
+  @Benchmark
+  public Object hibernateKeywordsMetadata() {
+    return hibernate.validate(metadata, KeywordsMetadata.class);
+  }
+
+  @Benchmark
+  public void hibernateInternalField(Blackhole blackhole) {
+    for (FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource : resources) {
+      blackhole.consume(hibernate.validate(resource, InternalField.class));
+    }
+  }
+
+  @Benchmark
+  public Object compiledBasicMetadata() {
+    return compiled.validate(metadata, BasicMetadata.class);
+  }
+
+  @Benchmark
+  public Object compiledKeywordsMetadata() {
+    return compiled.validate(metadata, KeywordsMetadata.class);
+  }
+
+  @Benchmark
+  public void compiledInternalField(Blackhole blackhole) {
+    for (FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource : resources) {
+      blackhole.consume(compiled.validate(resource, InternalField.class));
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.eml;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+import org.gbif.frictionless.metadata.MetadataInterner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Converts EML (Ecological Metadata Language) documents to and from the package metadata model.
+ * <p>
+ * Documents are read with a StAX stream reader in a single pass, mapping the dataset title, short name, abstract,
+ * parties, keywords, intellectual rights, distribution URL and GBIF bibliography straight into the model and skipping
+ * everything else. No document tree is built and nothing is retained between documents, so converting a large batch
+ * runs in a steady footprint, the more so with an interner sharing the repeated licenses and roles.
+ * <p>
+ * Parties map to contributors by role: {@code creator} to {@code author}, {@code contact} to {@code maintainer},
+ * {@code publisher} to {@code publisher}, {@code metadataProvider} to {@code wrangler} and {@code associatedParty} to
+ * its own role. Documents are written as EML 2.2.0 with the reverse mapping. DTDs and external entities are not
+ * processed.
+ * <p>
+ * Instances are immutable and thread-safe.
+ *
+ * @param <C> contributor type
+ * @param <L> license type
+ * @param <S> source type
+ */
+public final class EmlConverter<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+  private final XMLInputFactory inputFactory;
+  private final XMLOutputFactory outputFactory;
+  private final Constructor<C> contributorConstructor;
+  private final Constructor<L> licenseConstructor;
+  private final Constructor<S> sourceConstructor;
+  private final MetadataInterner interner;
+
+  private EmlConverter(Class<C> contributorClass, Class<L> licenseClass, Class<S> sourceClass, MetadataInterner interner) {
+    try {
+      this.contributorConstructor = contributorClass.getDeclaredConstructor();
+      this.licenseConstructor = licenseClass.getDeclaredConstructor();
+      this.sourceConstructor = sourceClass.getDeclaredConstructor();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Model classes must have a public no-args constructor", e);
+    }
+    this.interner = interner;
+    this.inputFactory = XMLInputFactory.newFactory();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    this.outputFactory = XMLOutputFactory.newFactory();
+  }
+
+  /**
+   * Converter for the default model classes.
+   */
+  public static EmlConverter<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  public static Builder<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> builder() {
+    return new Builder<>(FrictionlessContributor.class, FrictionlessLicense.class, FrictionlessSource.class, null);
+  }
+
+  /**
+   * Reads an EML document, the stream is left open.
+   */
+  public FrictionlessMetadata<C, L, S> read(InputStream in) throws IOException {
+    try {
+      return read(inputFactory.createXMLStreamReader(in));
+    } catch (XMLStreamException e) {
+      throw invalid(e);
+    }
+  }
+
+  /**
+   * Reads an EML document, the reader is left open.
+   */
+  public FrictionlessMetadata<C, L, S> read(Reader reader) throws IOException {
+    try {
+      return read(inputFactory.createXMLStreamReader(reader));
+    } catch (XMLStreamException e) {
+      throw invalid(e);
+    }
+  }
+
+  public FrictionlessMetadata<C, L, S> read(Path file) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      return read(in);
+    }
+  }
+
+  /**
+   * Writes the metadata as an EML document in UTF-8, the stream is left open.
+   */
+  public void write(OutputStream out, FrictionlessMetadata<C, L, S> metadata) throws IOException {
+    try {
+      XMLStreamWriter xml = outputFactory.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+      new EmlWriter(xml).write(metadata, StandardCharsets.UTF_8.name());
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not write EML: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Writes the metadata as an EML document, the writer is left open.
+   */
+  public void write(Writer writer, FrictionlessMetadata<C, L, S> metadata) throws IOException {
+    try {
+      new EmlWriter(outputFactory.createXMLStreamWriter(writer)).write(metadata, null);
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not write EML: " + e.getMessage(), e);
+    }
+  }
+
+  public String writeAsString(FrictionlessMetadata<C, L, S> metadata) throws IOException {
+    StringWriter writer = new StringWriter();
+    write(writer, metadata);
+    return writer.toString();
+  }
+
+  public MetadataInterner getInterner() {
+    return interner;
+  }
+
+  private FrictionlessMetadata<C, L, S> read(XMLStreamReader xml) throws IOException {
+    try {
+      return new EmlReader<>(xml, this).read();
+    } catch (XMLStreamException e) {
+      throw invalid(e);
+    } finally {
+      try {
+        xml.close();
+      } catch (XMLStreamException e) {
+        // closing a stream reader doesn't close the underlying input
+      }
+    }
+  }
+
+  C newContributor() {
+    return newInstance(contributorConstructor);
+  }
+
+  L newLicense() {
+    return newInstance(licenseConstructor);
+  }
+
+  S newSource() {
+    return newInstance(sourceConstructor);
+  }
+
+  /**
+   * The canonical instance of a value when an interner is configured, the value itself otherwise.
+   */
+  <T> T canonicalize(T value) {
+    return interner == null ? value : interner.canonicalize(value);
+  }
+
+  private static <T> T newInstance(Constructor<T> constructor) {
+    try {
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Model classes must have a public no-args constructor", e);
+    }
+  }
+
+  private static IOException invalid(XMLStreamException e) {
+    return new IOException("Invalid EML document: " + e.getMessage(), e);
+  }
+
+  /**
+   * Builder registering the extension subclasses of the model.
+   */
+  public static final class Builder<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+    private final Class<C> contributorClass;
+    private final Class<L> licenseClass;
+    private final Class<S> sourceClass;
+    private final MetadataInterner interner;
+
+    private Builder(Class<C> contributorClass, Class<L> licenseClass, Class<S> sourceClass, MetadataInterner interner) {
+      this.contributorClass = contributorClass;
+      this.licenseClass = licenseClass;
+      this.sourceClass = sourceClass;
+      this.interner = interner;
+    }
+
+    /**
+     * Canonicalizes repeated licenses, sources and roles while reading.
+     */
+    public Builder<C, L, S> interner(MetadataInterner interner) {
+      return new Builder<>(contributorClass, licenseClass, sourceClass, interner);
+    }
+
+    public <T extends FrictionlessContributor> Builder<T, L, S> contributor(Class<T> contributorClass) {
+      return new Builder<>(contributorClass, licenseClass, sourceClass, interner);
+    }
+
+    public <T extends FrictionlessLicense> Builder<C, T, S> license(Class<T> licenseClass) {
+      return new Builder<>(contributorClass, licenseClass, sourceClass, interner);
+    }
+
+    public <T extends FrictionlessSource> Builder<C, L, T> source(Class<T> sourceClass) {
+      return new Builder<>(contributorClass, licenseClass, sourceClass, interner);
+    }
+
+    public EmlConverter<C, L, S> build() {
+      return new EmlConverter<>(contributorClass, licenseClass, sourceClass, interner);
+    }
+  }
+
+  private static final class DefaultHolder {
+
+    private static final EmlConverter<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> INSTANCE =
+        builder().build();
+  }
+}
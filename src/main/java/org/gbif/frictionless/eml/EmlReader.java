@@ -0,0 +1,525 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.eml;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Single pass mapping of one EML document, see {@link EmlConverter}.
+ * <p>
+ * Every element handler is called on the start of its element and returns after consuming its end, so the
+ * handlers of a parent only ever see the start of their direct children.
+ */
+final class EmlReader<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+  private static final Pattern CREATIVE_COMMONS =
+      Pattern.compile("creativecommons\\.org/(licenses/([a-z-]+)|publicdomain/zero)/(\\d\\.\\d)");
+  private static final Pattern YEAR = Pattern.compile("\\d{4}");
+  private static final Set<String> BLOCKS =
+      Set.of("para", "section", "title", "listitem", "itemizedlist", "orderedlist", "literalLayout", "markdown");
+
+  private final XMLStreamReader xml;
+  private final EmlConverter<C, L, S> converter;
+  private final FrictionlessMetadata<C, L, S> metadata = new FrictionlessMetadata<>();
+  private final Set<String> keywords = new HashSet<>();
+
+  EmlReader(XMLStreamReader xml, EmlConverter<C, L, S> converter) {
+    this.xml = xml;
+    this.converter = converter;
+  }
+
+  FrictionlessMetadata<C, L, S> read() throws XMLStreamException {
+    xml.nextTag();
+    if (!xml.getLocalName().equals("eml")) {
+      throw new XMLStreamException("Expected an eml root element, found " + xml.getLocalName(), xml.getLocation());
+    }
+    metadata.setId(attribute("packageId"));
+    while (nextChild()) {
+      switch (xml.getLocalName()) {
+        case "dataset":
+          dataset();
+          break;
+        case "additionalMetadata":
+          additionalMetadata();
+          break;
+        default:
+          skip();
+      }
+    }
+    return converter.canonicalize(metadata);
+  }
+
+  private void dataset() throws XMLStreamException {
+    while (nextChild()) {
+      switch (xml.getLocalName()) {
+        case "title":
+          if (metadata.getTitle() == null) {
+            metadata.setTitle(text());
+          } else {
+            skip();
+          }
+          break;
+        case "shortName":
+          metadata.setName(text());
+          break;
+        case "creator":
+          contributor("author");
+          break;
+        case "metadataProvider":
+          contributor("wrangler");
+          break;
+        case "associatedParty":
+          contributor(null);
+          break;
+        case "contact":
+          contributor("maintainer");
+          break;
+        case "publisher":
+          contributor("publisher");
+          break;
+        case "pubDate":
+          metadata.setCreated(date(text()));
+          break;
+        case "abstract":
+          metadata.setDescription(paragraphs());
+          break;
+        case "keywordSet":
+          keywords();
+          break;
+        case "intellectualRights":
+          intellectualRights();
+          break;
+        case "licensed":
+          licensed();
+          break;
+        case "distribution":
+          distribution();
+          break;
+        default:
+          skip();
+      }
+    }
+  }
+
+  private void contributor(String role) throws XMLStreamException {
+    C contributor = converter.newContributor();
+    String givenName = null;
+    String surName = null;
+    String organization = null;
+    String position = null;
+    String partyRole = null;
+    while (nextChild()) {
+      switch (xml.getLocalName()) {
+        case "individualName":
+          while (nextChild()) {
+            if (xml.getLocalName().equals("givenName")) {
+              givenName = join(givenName, text());
+            } else if (xml.getLocalName().equals("surName")) {
+              surName = text();
+            } else {
+              skip();
+            }
+          }
+          break;
+        case "organizationName":
+          organization = text();
+          break;
+        case "positionName":
+          position = text();
+          break;
+        case "electronicMailAddress":
+          String email = text();
+          if (contributor.getEmail() == null) {
+            contributor.setEmail(email);
+          }
+          break;
+        case "onlineUrl":
+          String url = text();
+          if (contributor.getPath() == null) {
+            contributor.setPath(url);
+          }
+          break;
+        case "userId":
+          String directory = attribute("directory");
+          String userId = text();
+          if (userId != null && directory != null && directory.toLowerCase(Locale.ROOT).contains("orcid")) {
+            contributor.setAdditionalProperty("orcid", userId);
+          }
+          break;
+        case "role":
+          partyRole = text();
+          break;
+        default:
+          skip();
+      }
+    }
+    String person = join(givenName, surName);
+    String title = person != null ? person : organization != null ? organization : position;
+    if (title == null) {
+      return;
+    }
+    contributor.setTitle(title);
+    contributor.setOrganization(organization);
+    contributor.setRole(role != null ? role : partyRole != null ? partyRole : "contributor");
+    metadata.getContributors().add(converter.canonicalize(contributor));
+  }
+
+  private void keywords() throws XMLStreamException {
+    while (nextChild()) {
+      if (xml.getLocalName().equals("keyword")) {
+        String keyword = text();
+        if (keyword != null && keywords.add(keyword)) {
+          metadata.getKeywords().add(keyword);
+        }
+      } else {
+        skip();
+      }
+    }
+  }
+
+  /**
+   * One license per paragraph, taken from its link or text.
+   */
+  private void intellectualRights() throws XMLStreamException {
+    StringBuilder loose = new StringBuilder();
+    while (true) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if (xml.getLocalName().equals("para")) {
+          rightsParagraph();
+        } else {
+          skip();
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        break;
+      } else if (isText(event)) {
+        loose.append(xml.getText());
+      }
+    }
+    addLicense(null, null, normalize(loose));
+  }
+
+  private void rightsParagraph() throws XMLStreamException {
+    StringBuilder text = new StringBuilder();
+    String url = null;
+    String citeTitle = null;
+    int depth = 1;
+    while (depth > 0) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if (xml.getLocalName().equals("citetitle")) {
+          citeTitle = text();
+          text.append(' ').append(citeTitle == null ? "" : citeTitle).append(' ');
+        } else {
+          if (xml.getLocalName().equals("ulink") && url == null) {
+            url = attribute("url");
+          }
+          depth++;
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      } else if (isText(event)) {
+        text.append(xml.getText());
+      }
+    }
+    addLicense(url, citeTitle, normalize(text));
+  }
+
+  private void addLicense(String url, String citeTitle, String text) {
+    if (url == null && text == null) {
+      return;
+    }
+    L license = converter.newLicense();
+    if (url != null) {
+      license.setPath(url);
+      license.setTitle(citeTitle != null ? citeTitle : text);
+      license.setName(spdx(url));
+    } else {
+      license.setTitle(text);
+      license.setName(spdx(text));
+    }
+    for (L existing : metadata.getLicenses()) {
+      if (url != null && url.equals(existing.getPath())
+          || license.getName() != null && license.getName().equals(existing.getName())) {
+        return;
+      }
+    }
+    metadata.getLicenses().add(converter.canonicalize(license));
+  }
+
+  /**
+   * The EML 2.2 structured license.
+   */
+  private void licensed() throws XMLStreamException {
+    L license = converter.newLicense();
+    while (nextChild()) {
+      switch (xml.getLocalName()) {
+        case "licenseName":
+          license.setTitle(text());
+          break;
+        case "url":
+          license.setPath(text());
+          break;
+        case "identifier":
+          license.setName(text());
+          break;
+        default:
+          skip();
+      }
+    }
+    if (license.getName() == null) {
+      license.setName(spdx(license.getPath()));
+    }
+    if (license.getName() == null && license.getPath() == null && license.getTitle() == null) {
+      return;
+    }
+    // the same license is usually given in the intellectual rights as well
+    metadata.getLicenses().removeIf(existing -> existing.getPath() != null && existing.getPath().equals(license.getPath())
+        || existing.getName() != null && existing.getName().equals(license.getName()));
+    metadata.getLicenses().add(converter.canonicalize(license));
+  }
+
+  private void distribution() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if (xml.getLocalName().equals("url") && metadata.getHomepage() == null) {
+          metadata.setHomepage(uri(text()));
+        } else {
+          depth++;
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private void additionalMetadata() throws XMLStreamException {
+    while (nextChild()) {
+      if (xml.getLocalName().equals("metadata")) {
+        while (nextChild()) {
+          if (xml.getLocalName().equals("gbif")) {
+            gbif();
+          } else {
+            skip();
+          }
+        }
+      } else {
+        skip();
+      }
+    }
+  }
+
+  private void gbif() throws XMLStreamException {
+    while (nextChild()) {
+      switch (xml.getLocalName()) {
+        case "resourceLogoUrl":
+          metadata.setImage(text());
+          break;
+        case "bibliography":
+          while (nextChild()) {
+            if (xml.getLocalName().equals("citation")) {
+              S source = converter.newSource();
+              source.setPath(attribute("identifier"));
+              source.setTitle(text());
+              if (source.getTitle() != null || source.getPath() != null) {
+                metadata.getSources().add(converter.canonicalize(source));
+              }
+            } else {
+              skip();
+            }
+          }
+          break;
+        default:
+          skip();
+      }
+    }
+  }
+
+  /**
+   * The paragraphs of a text element, separated by blank lines.
+   */
+  private String paragraphs() throws XMLStreamException {
+    List<String> paragraphs = new ArrayList<>();
+    StringBuilder loose = new StringBuilder();
+    while (true) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        addParagraph(paragraphs, normalize(loose));
+        loose.setLength(0);
+        addParagraph(paragraphs, text());
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        break;
+      } else if (isText(event)) {
+        loose.append(xml.getText());
+      }
+    }
+    addParagraph(paragraphs, normalize(loose));
+    return paragraphs.isEmpty() ? null : String.join("\n\n", paragraphs);
+  }
+
+  private static void addParagraph(List<String> paragraphs, String paragraph) {
+    if (paragraph != null) {
+      paragraphs.add(paragraph);
+    }
+  }
+
+  /**
+   * Moves to the start of the next child of the current element.
+   *
+   * @return false once the end of the current element is reached
+   */
+  private boolean nextChild() throws XMLStreamException {
+    while (xml.hasNext()) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      }
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The text content of the current element with whitespace collapsed, null if blank. Moves to its end.
+   */
+  private String text() throws XMLStreamException {
+    StringBuilder text = new StringBuilder();
+    int depth = 1;
+    while (depth > 0) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+        if (BLOCKS.contains(xml.getLocalName())) {
+          text.append(' ');
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+        if (BLOCKS.contains(xml.getLocalName())) {
+          text.append(' ');
+        }
+      } else if (isText(event)) {
+        text.append(xml.getText());
+      }
+    }
+    return normalize(text);
+  }
+
+  private void skip() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private String attribute(String name) {
+    String value = xml.getAttributeValue(null, name);
+    return value == null || value.isBlank() ? null : value.trim();
+  }
+
+  private static boolean isText(int event) {
+    return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+        || event == XMLStreamConstants.SPACE;
+  }
+
+  private static String normalize(CharSequence text) {
+    String normalized = WHITESPACE.matcher(text).replaceAll(" ").trim();
+    return normalized.isEmpty() ? null : normalized;
+  }
+
+  private static String join(String first, String second) {
+    if (first == null || second == null) {
+      return first == null ? second : first;
+    }
+    return first + ' ' + second;
+  }
+
+  /**
+   * The SPDX identifier of a Creative Commons license URL.
+   */
+  static String spdx(String url) {
+    if (url == null) {
+      return null;
+    }
+    Matcher matcher = CREATIVE_COMMONS.matcher(url.toLowerCase(Locale.ROOT));
+    if (!matcher.find()) {
+      return null;
+    }
+    if (matcher.group(2) == null) {
+      return "CC0-" + matcher.group(3);
+    }
+    return "CC-" + matcher.group(2).toUpperCase(Locale.ROOT) + "-" + matcher.group(3);
+  }
+
+  private static URI uri(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return URI.create(value);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Accepts dates, years and date-times, null for anything else.
+   */
+  private static Date date(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      if (YEAR.matcher(value).matches()) {
+        return Date.from(LocalDate.of(Integer.parseInt(value), 1, 1).atStartOfDay(ZoneOffset.UTC).toInstant());
+      }
+      if (value.length() == 10) {
+        return Date.from(LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant());
+      }
+      return Date.from(value.endsWith("Z") ? Instant.parse(value) : OffsetDateTime.parse(value).toInstant());
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.eml;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes package metadata as an EML 2.2.0 document, the reverse of {@link EmlReader}.
+ */
+final class EmlWriter {
+
+  static final String EML_NAMESPACE = "https://eml.ecoinformatics.org/eml-2.2.0";
+  private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+  private static final String SCHEMA_LOCATION =
+      EML_NAMESPACE + " https://rs.gbif.org/schema/eml-gbif-profile/1.2/eml.xsd";
+  private static final String ORCID_DIRECTORY = "https://orcid.org/";
+
+  private static final Pattern PARAGRAPHS = Pattern.compile("\\n\\s*\\n");
+  private static final DateTimeFormatter DATE = DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+
+  private final XMLStreamWriter xml;
+  private int depth;
+
+  EmlWriter(XMLStreamWriter xml) {
+    this.xml = xml;
+  }
+
+  void write(FrictionlessMetadata<?, ?, ?> metadata, String encoding) throws XMLStreamException {
+    if (encoding == null) {
+      xml.writeStartDocument("1.0");
+    } else {
+      xml.writeStartDocument(encoding, "1.0");
+    }
+    xml.writeCharacters("\n");
+    xml.writeStartElement("eml", "eml", EML_NAMESPACE);
+    depth++;
+    xml.writeNamespace("eml", EML_NAMESPACE);
+    xml.writeNamespace("xsi", XSI_NAMESPACE);
+    xml.writeAttribute(XSI_NAMESPACE, "schemaLocation", SCHEMA_LOCATION);
+    xml.writeAttribute("packageId", metadata.getId() != null ? metadata.getId() : "");
+    xml.writeAttribute("system", "http://gbif.org");
+    xml.writeAttribute("scope", "system");
+
+    start("dataset");
+    leaf("shortName", metadata.getName());
+    leaf("title", metadata.getTitle());
+    List<? extends FrictionlessContributor> contributors = metadata.getContributors();
+    parties(contributors, "creator", role -> role.equals("author"));
+    parties(contributors, "metadataProvider", role -> role.equals("wrangler"));
+    parties(contributors, "associatedParty", EmlWriter::isAssociated);
+    if (metadata.getCreated() != null) {
+      leaf("pubDate", DATE.format(metadata.getCreated().toInstant()));
+    }
+    if (metadata.getDescription() != null) {
+      start("abstract");
+      for (String paragraph : PARAGRAPHS.split(metadata.getDescription().trim())) {
+        leaf("para", paragraph.trim());
+      }
+      end();
+    }
+    if (!metadata.getKeywords().isEmpty()) {
+      start("keywordSet");
+      for (String keyword : metadata.getKeywords()) {
+        leaf("keyword", keyword);
+      }
+      end();
+    }
+    if (!metadata.getLicenses().isEmpty()) {
+      start("intellectualRights");
+      for (FrictionlessLicense license : metadata.getLicenses()) {
+        license(license);
+      }
+      end();
+    }
+    if (metadata.getHomepage() != null) {
+      start("distribution");
+      xml.writeAttribute("scope", "document");
+      start("online");
+      start("url");
+      xml.writeAttribute("function", "information");
+      xml.writeCharacters(metadata.getHomepage().toString());
+      endInline();
+      end();
+      end();
+    }
+    parties(contributors, "contact", role -> role.equals("maintainer"));
+    parties(contributors, "publisher", role -> role.equals("publisher"));
+    end();
+
+    if (!metadata.getSources().isEmpty() || metadata.getImage() != null) {
+      start("additionalMetadata");
+      start("metadata");
+      start("gbif");
+      if (!metadata.getSources().isEmpty()) {
+        start("bibliography");
+        for (FrictionlessSource source : metadata.getSources()) {
+          start("citation");
+          if (source.getPath() != null) {
+            xml.writeAttribute("identifier", source.getPath());
+          }
+          if (source.getTitle() != null) {
+            xml.writeCharacters(source.getTitle());
+          }
+          endInline();
+        }
+        end();
+      }
+      leaf("resourceLogoUrl", metadata.getImage());
+      end();
+      end();
+      end();
+    }
+    end();
+    xml.writeCharacters("\n");
+    xml.writeEndDocument();
+    xml.flush();
+  }
+
+  private void parties(List<? extends FrictionlessContributor> contributors, String element, Predicate<String> roles)
+      throws XMLStreamException {
+    for (FrictionlessContributor contributor : contributors) {
+      if (contributor.getTitle() != null && roles.test(role(contributor))) {
+        start(element);
+        party(contributor);
+        if (element.equals("associatedParty")) {
+          leaf("role", role(contributor));
+        }
+        end();
+      }
+    }
+  }
+
+  private void party(FrictionlessContributor contributor) throws XMLStreamException {
+    String title = contributor.getTitle().trim();
+    String organization = contributor.getOrganization();
+    // a contributor titled after its organization is the organization itself
+    if (!title.equals(organization)) {
+      start("individualName");
+      int space = title.lastIndexOf(' ');
+      if (space > 0) {
+        leaf("givenName", title.substring(0, space));
+      }
+      leaf("surName", title.substring(space + 1));
+      end();
+    }
+    leaf("organizationName", organization);
+    leaf("electronicMailAddress", contributor.getEmail());
+    leaf("onlineUrl", contributor.getPath());
+    Map<String, Object> properties = contributor.additionalPropertiesOrNull();
+    Object orcid = properties == null ? null : properties.get("orcid");
+    if (orcid != null) {
+      start("userId");
+      xml.writeAttribute("directory", ORCID_DIRECTORY);
+      xml.writeCharacters(orcid.toString());
+      endInline();
+    }
+  }
+
+  private void license(FrictionlessLicense license) throws XMLStreamException {
+    String title = license.getTitle() != null ? license.getTitle() : license.getName();
+    if (license.getPath() != null) {
+      start("para");
+      start("ulink");
+      xml.writeAttribute("url", license.getPath());
+      leaf("citetitle", title != null ? title : license.getPath());
+      end();
+      end();
+    } else {
+      leaf("para", title);
+    }
+  }
+
+  private static String role(FrictionlessContributor contributor) {
+    return contributor.getRole() == null ? "contributor" : contributor.getRole();
+  }
+
+  private static boolean isAssociated(String role) {
+    return !role.equals("author") && !role.equals("wrangler") && !role.equals("maintainer") && !role.equals("publisher");
+  }
+
+  private void start(String name) throws XMLStreamException {
+    indent();
+    xml.writeStartElement(name);
+    depth++;
+  }
+
+  /**
+   * Ends an element holding child elements.
+   */
+  private void end() throws XMLStreamException {
+    depth--;
+    indent();
+    xml.writeEndElement();
+  }
+
+  /**
+   * Ends an element holding text only.
+   */
+  private void endInline() throws XMLStreamException {
+    depth--;
+    xml.writeEndElement();
+  }
+
+  private void leaf(String name, String text) throws XMLStreamException {
+    if (text != null) {
+      start(name);
+      xml.writeCharacters(text);
+      endInline();
+    }
+  }
+
+  private void indent() throws XMLStreamException {
+    xml.writeCharacters("\n" + "  ".repeat(depth));
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.instrumentation;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener keeping a histogram of the durations of each operation, and the totals of its counts, e.g. to export
+ * percentiles to a metrics system.
+ * <p>
+ * Durations are counted in log-linear buckets: 8 buckets per power of two, so a percentile is within 12.5% of the
+ * actual duration, with a fixed footprint of about 4 kB per operation. Recording allocates nothing and takes no lock.
+ * <pre>{@code
+ * HistogramRecorder recorder = new HistogramRecorder();
+ * Instrumentation.register(recorder);
+ * ...
+ * HistogramRecorder.Snapshot reads = recorder.snapshot(Operation.READ_METADATA);
+ * long p99 = reads.getPercentile(0.99);
+ * }</pre>
+ */
+public class HistogramRecorder implements OperationListener {
+
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+  private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+
+  public HistogramRecorder() {
+    // all operations up front, so the map is only read once shared
+    for (Operation operation : Operation.values()) {
+      histograms.put(operation, new Histogram());
+    }
+  }
+
+  @Override
+  public void onOperation(Operation operation, long nanos, long bytes, long objects, long violations) {
+    histograms.get(operation).record(Math.max(nanos, 0), bytes, objects, violations);
+  }
+
+  /**
+   * Current state of the histogram of an operation. Operations completing while the snapshot is taken may be
+   * partially included.
+   */
+  public Snapshot snapshot(Operation operation) {
+    return histograms.get(operation).snapshot();
+  }
+
+  /**
+   * Clears all histograms.
+   */
+  public void reset() {
+    for (Histogram histogram : histograms.values()) {
+      histogram.reset();
+    }
+  }
+
+  /**
+   * Bucket of a duration: durations below {@code SUB_BUCKETS} have their own bucket, longer ones share a bucket with
+   * the durations having the same highest bits.
+   */
+  static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Highest duration of a bucket.
+   */
+  static long bucketMax(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  private static final class Histogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder objects = new LongAdder();
+    private final LongAdder violations = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    private void record(long duration, long bytes, long objects, long violations) {
+      buckets.incrementAndGet(bucket(duration));
+      nanos.add(duration);
+      if (bytes > 0) {
+        this.bytes.add(bytes);
+      }
+      this.objects.add(objects);
+      this.violations.add(violations);
+      long current = min.get();
+      while (duration < current && !min.compareAndSet(current, duration)) {
+        current = min.get();
+      }
+      current = max.get();
+      while (duration > current && !max.compareAndSet(current, duration)) {
+        current = max.get();
+      }
+    }
+
+    private Snapshot snapshot() {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = buckets.get(i);
+        total += counts[i];
+      }
+      long lowest = min.get();
+      return new Snapshot(counts, total, total == 0 ? 0 : lowest, max.get(), nanos.sum(), bytes.sum(), objects.sum(),
+          violations.sum());
+    }
+
+    private void reset() {
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets.set(i, 0);
+      }
+      nanos.reset();
+      bytes.reset();
+      objects.reset();
+      violations.reset();
+      min.set(Long.MAX_VALUE);
+      max.set(0);
+    }
+  }
+
+  /**
+   * Durations and totals of an operation. Durations are in nanoseconds.
+   */
+  public static final class Snapshot {
+
+    private final long[] buckets;
+    private final long count;
+    private final long min;
+    private final long max;
+    private final long totalNanos;
+    private final long bytes;
+    private final long objects;
+    private final long violations;
+
+    private Snapshot(long[] buckets, long count, long min, long max, long totalNanos, long bytes, long objects,
+                     long violations) {
+      this.buckets = buckets;
+      this.count = count;
+      this.min = min;
+      this.max = max;
+      this.totalNanos = totalNanos;
+      this.bytes = bytes;
+      this.objects = objects;
+      this.violations = violations;
+    }
+
+    /**
+     * Number of operations.
+     */
+    public long getCount() {
+      return count;
+    }
+
+    public long getMin() {
+      return min;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public double getMean() {
+      return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * Duration below which the given fraction of the operations completed, 0 if there were none.
+     *
+     * @param quantile fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+     */
+    public long getPercentile(double quantile) {
+      if (quantile < 0 || quantile > 1) {
+        throw new IllegalArgumentException("quantile must be between 0 and 1: " + quantile);
+      }
+      if (count == 0) {
+        return 0;
+      } else if (quantile == 0) {
+        return min;
+      }
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank) {
+          return Math.max(min, Math.min(max, bucketMax(i)));
+        }
+      }
+      return max;
+    }
+
+    /**
+     * Bytes read or written by the operations reporting them.
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getObjects() {
+      return objects;
+    }
+
+    public long getViolations() {
+      return violations;
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + count + ", min=" + min + ", p50=" + getPercentile(0.5) + ", p99=" + getPercentile(0.99)
+          + ", max=" + max + ", bytes=" + bytes + ", objects=" + objects + ", violations=" + violations;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.instrumentation;
+
+import java.util.Arrays;
+
+/**
+ * Registry of the {@link OperationListener}s, called by the instrumented code.
+ * <p>
+ * Instrumented code brackets an operation with {@link #start()} and {@link #record}. Without a registered listener
+ * this costs a volatile read at each end: the clock is not read and the counts are not computed, so callers only
+ * compute counts which aren't free when {@link #isEnabled(long)} says so.
+ */
+public final class Instrumentation {
+
+  /**
+   * Start time returned by {@link #start()} when no listener is registered.
+   */
+  public static final long DISABLED = Long.MIN_VALUE;
+
+  private static final OperationListener[] NONE = new OperationListener[0];
+
+  private static volatile OperationListener[] listeners = NONE;
+
+  private Instrumentation() {
+  }
+
+  /**
+   * Registers a listener for the operations of all codecs and validators. Registering a listener twice has no effect.
+   */
+  public static synchronized void register(OperationListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("listener must not be null");
+    }
+    OperationListener[] current = listeners;
+    for (OperationListener registered : current) {
+      if (registered == listener) {
+        return;
+      }
+    }
+    OperationListener[] updated = Arrays.copyOf(current, current.length + 1);
+    updated[current.length] = listener;
+    listeners = updated;
+  }
+
+  /**
+   * Unregisters a listener, doing nothing if it isn't registered.
+   */
+  public static synchronized void unregister(OperationListener listener) {
+    OperationListener[] current = listeners;
+    for (int i = 0; i < current.length; i++) {
+      if (current[i] == listener) {
+        OperationListener[] updated = new OperationListener[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, i);
+        System.arraycopy(current, i + 1, updated, i, updated.length - i);
+        listeners = updated.length == 0 ? NONE : updated;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Start of an operation, {@link #DISABLED} when no listener is registered.
+   */
+  public static long start() {
+    return listeners.length == 0 ? DISABLED : System.nanoTime();
+  }
+
+  /**
+   * Whether the operation started at {@code start} will be recorded.
+   */
+  public static boolean isEnabled(long start) {
+    return start != DISABLED;
+  }
+
+  /**
+   * Reports a completed operation to the listeners. Does nothing if no listener was registered when the operation
+   * started.
+   *
+   * @param start value of {@link #start()} when the operation started
+   */
+  public static void record(Operation operation, long start, long bytes, long objects, long violations) {
+    if (start == DISABLED) {
+      return;
+    }
+    long nanos = System.nanoTime() - start;
+    for (OperationListener listener : listeners) {
+      try {
+        listener.onOperation(operation, nanos, bytes, objects, violations);
+      } catch (RuntimeException e) {
+        // a broken listener must not fail the operation it observes
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.instrumentation;
+
+/**
+ * Operations reported to the {@link OperationListener}s.
+ */
+public enum Operation {
+
+  /**
+   * Package metadata parsed from JSON, one object.
+   */
+  READ_METADATA,
+
+  /**
+   * Package metadata written as JSON, one object.
+   */
+  WRITE_METADATA,
+
+  /**
+   * Resource parsed from JSON, one object, also for each resource of a streamed package.
+   */
+  READ_RESOURCE,
+
+  /**
+   * Resource written as JSON, one object.
+   */
+  WRITE_RESOURCE,
+
+  /**
+   * Complete descriptor written as JSON, the metadata and each resource counting as one object.
+   */
+  WRITE_PACKAGE,
+
+  /**
+   * Metadata or resource decoded from the binary encoding, one object.
+   */
+  READ_BINARY,
+
+  /**
+   * Metadata or resource encoded in the binary encoding, one object.
+   */
+  WRITE_BINARY,
+
+  /**
+   * Bean validated, one object, with its violations.
+   */
+  VALIDATE,
+
+  /**
+   * Batch of beans validated, the items counting as objects.
+   */
+  VALIDATE_BATCH,
+
+  /**
+   * Table data validated against its schema, the rows counting as objects.
+   */
+  VALIDATE_TABLE,
+
+  /**
+   * Descriptor validated against its profile schema, one object, with its violations.
+   */
+  VALIDATE_PROFILE,
+
+  /**
+   * Files of a resource hashed, one object.
+   */
+  HASH_RESOURCE,
+
+  /**
+   * Declared size and hash of a resource checked, one object, with one violation if they don't match.
+   */
+  VERIFY_RESOURCE,
+
+  /**
+   * Directory scanned into a package, the resources counting as objects.
+   */
+  SCAN_DIRECTORY,
+
+  /**
+   * Remote part downloaded into a resource cache, one object, with one violation if its hash doesn't match.
+   */
+  FETCH_RESOURCE
+}
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.instrumentation;
+
+/**
+ * Receives the completed operations of the codecs, validators and resource I/O, see {@link Instrumentation}.
+ * <p>
+ * Listeners are called synchronously from the thread which ran the operation, often concurrently, and must be
+ * thread-safe and quick. Only operations completing normally are reported.
+ */
+@FunctionalInterface
+public interface OperationListener {
+
+  /**
+   * @param operation  completed operation
+   * @param nanos      duration of the operation
+   * @param bytes      number of bytes read or written, -1 if not known without extra work
+   * @param objects    number of objects read, written or checked, see {@link Operation}
+   * @param violations number of violations found, 0 for the operations which don't validate
+   */
+  void onOperation(Operation operation, long nanos, long bytes, long objects, long violations);
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compression of the files of a resource.
+ */
+public enum Compression {
+
+  NONE,
+
+  /**
+   * Gzip, including concatenated members and block gzip (BGZF).
+   */
+  GZIP;
+
+  /**
+   * The compression declared by a resource: its {@code compression} property, a gzip {@code format} or
+   * {@code mediatype}, or paths all ending with {@code .gz}. Null if it declares none.
+   */
+  public static Compression of(FrictionlessResource<?, ?> resource) {
+    Map<String, Object> properties = resource.additionalPropertiesOrNull();
+    Object compression = properties == null ? null : properties.get("compression");
+    if (compression instanceof CharSequence) {
+      String value = compression.toString().toLowerCase(Locale.ROOT);
+      if (value.equals("gz") || value.equals("gzip")) {
+        return GZIP;
+      }
+      if (value.equals("no") || value.equals("none")) {
+        return NONE;
+      }
+    }
+    String format = resource.getFormat() == null ? "" : resource.getFormat().toLowerCase(Locale.ROOT);
+    String mediatype = resource.getMediatype() == null ? "" : resource.getMediatype().toLowerCase(Locale.ROOT);
+    if (format.equals("gz") || format.equals("gzip") || mediatype.equals("application/gzip")
+        || mediatype.equals("application/x-gzip")) {
+      return GZIP;
+    }
+    List<String> parts = ResourcePaths.parts(resource);
+    if (!parts.isEmpty() && parts.stream().allMatch(Compression::isGzipName)) {
+      return GZIP;
+    }
+    return null;
+  }
+
+  /**
+   * The compression of a file, from its magic number.
+   */
+  public static Compression detect(Path file) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      return in.read() == 0x1f && in.read() == 0x8b ? GZIP : NONE;
+    }
+  }
+
+  private static boolean isGzipName(String path) {
+    String name = path.toLowerCase(Locale.ROOT);
+    return name.endsWith(".gz") || name.endsWith(".gzip");
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Guesses the {@code format}, {@code mediatype} and {@code encoding} of a file from its name and first bytes.
+ * <p>
+ * Binary formats are recognised by their magic numbers, whatever their extension. Text is told apart from binary
+ * content by the absence of NUL bytes (outside UTF-16), its encoding from a byte order mark or by validating it as
+ * UTF-8, and its format from the extension, or for files without a known one from the shape of the first line.
+ */
+final class FileSniffer {
+
+  /**
+   * Number of first bytes needed for a reliable guess.
+   */
+  static final int HEAD_SIZE = 8192;
+
+  private static final String OCTET_STREAM = "application/octet-stream";
+  private static final Map<String, String> MEDIA_TYPES = new HashMap<>();
+  private static final Map<String, String> EXTENSIONS = new HashMap<>();
+
+  static {
+    mediaType("csv", "text/csv");
+    mediaType("tsv", "text/tab-separated-values");
+    mediaType("txt", "text/plain");
+    mediaType("json", "application/json");
+    mediaType("geojson", "application/geo+json");
+    mediaType("ndjson", "application/x-ndjson");
+    mediaType("xml", "application/xml");
+    mediaType("html", "text/html");
+    mediaType("md", "text/markdown");
+    mediaType("zip", "application/zip");
+    mediaType("gz", "application/gzip");
+    mediaType("bz2", "application/x-bzip2");
+    mediaType("pdf", "application/pdf");
+    mediaType("png", "image/png");
+    mediaType("jpg", "image/jpeg");
+    mediaType("gif", "image/gif");
+    mediaType("parquet", "application/vnd.apache.parquet");
+    mediaType("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    extension("tab", "tsv");
+    extension("text", "txt");
+    extension("jsonl", "ndjson");
+    extension("eml", "xml");
+    extension("htm", "html");
+    extension("jpeg", "jpg");
+    extension("gzip", "gz");
+  }
+
+  private FileSniffer() {
+  }
+
+  private static void mediaType(String format, String mediaType) {
+    MEDIA_TYPES.put(format, mediaType);
+    EXTENSIONS.put(format, format);
+  }
+
+  private static void extension(String extension, String format) {
+    EXTENSIONS.put(extension, format);
+  }
+
+  /**
+   * Guesses the type of a file.
+   *
+   * @param fileName name of the file, for its extension
+   * @param head     first bytes of the file, up to {@link #HEAD_SIZE}
+   * @param length   number of bytes in {@code head}
+   */
+  static FileType sniff(String fileName, byte[] head, int length) {
+    String extension = extension(fileName);
+    String binary = binaryFormat(head, length);
+    if (binary != null) {
+      // zip based formats are identified by their extension
+      String format = "zip".equals(binary) && "xlsx".equals(extension) ? extension : binary;
+      return new FileType(format, MEDIA_TYPES.get(format), null);
+    }
+    String encoding = textEncoding(head, length);
+    if (encoding == null) {
+      String format = EXTENSIONS.get(extension);
+      return new FileType(format, format == null ? OCTET_STREAM : MEDIA_TYPES.get(format), null);
+    }
+    String format = EXTENSIONS.get(extension);
+    if (format == null || "txt".equals(format)) {
+      format = textFormat(head, length, encoding);
+    }
+    return new FileType(format, MEDIA_TYPES.get(format), encoding);
+  }
+
+  private static String extension(String fileName) {
+    int dot = fileName.lastIndexOf('.');
+    return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+  }
+
+  private static String binaryFormat(byte[] b, int n) {
+    if (startsWith(b, n, 0x1F, 0x8B)) {
+      return "gz";
+    } else if (startsWith(b, n, 'P', 'K', 0x03, 0x04) || startsWith(b, n, 'P', 'K', 0x05, 0x06)) {
+      return "zip";
+    } else if (startsWith(b, n, 'B', 'Z', 'h')) {
+      return "bz2";
+    } else if (startsWith(b, n, '%', 'P', 'D', 'F', '-')) {
+      return "pdf";
+    } else if (startsWith(b, n, 0x89, 'P', 'N', 'G')) {
+      return "png";
+    } else if (startsWith(b, n, 0xFF, 0xD8, 0xFF)) {
+      return "jpg";
+    } else if (startsWith(b, n, 'G', 'I', 'F', '8')) {
+      return "gif";
+    } else if (startsWith(b, n, 'P', 'A', 'R', '1')) {
+      return "parquet";
+    }
+    return null;
+  }
+
+  /**
+   * Encoding of text content, null for binary content.
+   */
+  private static String textEncoding(byte[] b, int n) {
+    if (startsWith(b, n, 0xEF, 0xBB, 0xBF)) {
+      return "utf-8";
+    } else if (startsWith(b, n, 0xFF, 0xFE)) {
+      return "utf-16le";
+    } else if (startsWith(b, n, 0xFE, 0xFF)) {
+      return "utf-16be";
+    }
+    boolean utf8 = true;
+    boolean c1Controls = false;
+    int i = 0;
+    while (i < n) {
+      int c = b[i] & 0xFF;
+      if (c == 0) {
+        return null;
+      } else if (c < 0x80) {
+        i++;
+        continue;
+      }
+      c1Controls |= c < 0xA0;
+      int continuation = c >= 0xC2 && c <= 0xDF ? 1 : c >= 0xE0 && c <= 0xEF ? 2 : c >= 0xF0 && c <= 0xF4 ? 3 : -1;
+      if (continuation < 0) {
+        utf8 = false;
+        i++;
+        continue;
+      }
+      int end = i + 1 + continuation;
+      for (int j = i + 1; j < Math.min(end, n) && utf8; j++) {
+        utf8 = (b[j] & 0xC0) == 0x80;
+      }
+      i = utf8 ? end : i + 1;
+    }
+    if (utf8) {
+      return "utf-8";
+    }
+    // bytes 0x80-0x9F are printable in windows-1252 but control characters in iso-8859-1
+    return c1Controls ? "windows-1252" : "iso-8859-1";
+  }
+
+  /**
+   * Format of text content without a known extension, from its first non-blank character or first line.
+   */
+  private static String textFormat(byte[] b, int n, String encoding) {
+    // only the ASCII characters matter: every other byte of UTF-16, after the byte order mark
+    int step = 1;
+    int offset = startsWith(b, n, 0xEF, 0xBB, 0xBF) ? 3 : 0;
+    if ("utf-16le".equals(encoding)) {
+      step = 2;
+      offset = 2;
+    } else if ("utf-16be".equals(encoding)) {
+      step = 2;
+      offset = 3;
+    }
+    int i = offset;
+    while (i < n && Character.isWhitespace(b[i])) {
+      i += step;
+    }
+    if (i < n) {
+      if (b[i] == '{' || b[i] == '[') {
+        return "json";
+      } else if (b[i] == '<') {
+        return "xml";
+      }
+    }
+    int tabs = 0;
+    int commas = 0;
+    int semicolons = 0;
+    for (int j = offset; j < n && b[j] != '\n' && b[j] != '\r'; j += step) {
+      if (b[j] == '\t') {
+        tabs++;
+      } else if (b[j] == ',') {
+        commas++;
+      } else if (b[j] == ';') {
+        semicolons++;
+      }
+    }
+    if (tabs > 0 && tabs >= commas && tabs >= semicolons) {
+      return "tsv";
+    } else if (commas > 0 || semicolons > 0) {
+      return "csv";
+    }
+    return "txt";
+  }
+
+  private static boolean startsWith(byte[] b, int n, int... prefix) {
+    if (n < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if ((b[i] & 0xFF) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Guessed type of a file. The encoding is null for binary content.
+   */
+  static final class FileType {
+
+    private final String format;
+    private final String mediaType;
+    private final String encoding;
+
+    FileType(String format, String mediaType, String encoding) {
+      this.format = format;
+      this.mediaType = mediaType;
+      this.encoding = encoding;
+    }
+
+    String getFormat() {
+      return format;
+    }
+
+    String getMediaType() {
+      return mediaType;
+    }
+
+    String getEncoding() {
+      return encoding;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashing algorithms of the resource {@code hash}: MD5 as a bare hex string, the others in the
+ * {@code {algorithm}:{hash}} format.
+ */
+public enum HashAlgorithm {
+
+  MD5("md5", "MD5"),
+  SHA1("sha1", "SHA-1"),
+  SHA256("sha256", "SHA-256");
+
+  private final String prefix;
+  private final String jcaName;
+
+  HashAlgorithm(String prefix, String jcaName) {
+    this.prefix = prefix;
+    this.jcaName = jcaName;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(jcaName);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(jcaName + " is not supported by the JVM", e);
+    }
+  }
+
+  /**
+   * Formats a digest the way the {@code hash} property expects it.
+   */
+  public String format(byte[] digest) {
+    StringBuilder hash = new StringBuilder(prefix.length() + 1 + digest.length * 2);
+    if (this != MD5) {
+      hash.append(prefix).append(':');
+    }
+    for (byte b : digest) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hash.toString();
+  }
+
+  /**
+   * The algorithm of a {@code hash} value.
+   *
+   * @throws IllegalArgumentException if the algorithm is not supported
+   */
+  public static HashAlgorithm of(String hash) {
+    int separator = hash.indexOf(':');
+    if (separator < 0) {
+      return MD5;
+    }
+    String prefix = hash.substring(0, separator);
+    for (HashAlgorithm algorithm : values()) {
+      if (algorithm.prefix.equalsIgnoreCase(prefix)) {
+        return algorithm;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported hash algorithm " + prefix);
+  }
+
+  /**
+   * Whether two {@code hash} values are the same digest, ignoring the case and the optional {@code md5:} prefix.
+   */
+  public static boolean matches(String expected, String actual) {
+    if (expected == null || actual == null) {
+      return expected == actual;
+    }
+    return of(expected) == of(actual) && digest(expected).equalsIgnoreCase(digest(actual));
+  }
+
+  private static String digest(String hash) {
+    return hash.substring(hash.indexOf(':') + 1);
+  }
+}
@@ -0,0 +1,511 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessResource;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Reads the parts of a local resource, a single file or an array of files, as one dataset.
+ * <p>
+ * The parts can be read in order as one byte or line stream, or cut into {@link Split}s, byte ranges aligned to
+ * line boundaries, which are processed independently on different cores.
+ * <p>
+ * Gzip compressed parts are decompressed as they are read, on several cores by {@link ParallelGzipInputStream}. They
+ * can't be cut, so each is a single split.
+ * <p>
+ * Readers over cached copies of remote parts, from {@link ResourceOpener#reader}, must be closed to release them.
+ */
+public class MultipartResourceReader implements Closeable {
+
+  /**
+   * Default size of a split, 64 MiB.
+   */
+  public static final long DEFAULT_SPLIT_SIZE = 64L << 20;
+
+  private static final int SCAN_BUFFER = 8192;
+
+  private final List<Path> parts;
+  private final Charset charset;
+  private final Compression compression;
+  private final Executor executor;
+  private final int parallelism;
+  // releases the cached copies of remote parts, null for local parts
+  private final Closeable release;
+
+  /**
+   * Reader detecting the compression of each part from its magic number.
+   */
+  public MultipartResourceReader(List<Path> parts, Charset charset) {
+    this(parts, charset, null);
+  }
+
+  /**
+   * Reader decompressing on the common fork-join pool.
+   *
+   * @param compression compression of all parts, null to detect it from the magic number of each part
+   */
+  public MultipartResourceReader(List<Path> parts, Charset charset, Compression compression) {
+    this(parts, charset, compression, null);
+  }
+
+  /**
+   * Reader over cached copies of remote parts, released on close.
+   */
+  MultipartResourceReader(List<Path> parts, Charset charset, Compression compression, Closeable release) {
+    this(parts, charset, compression, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), release);
+  }
+
+  private MultipartResourceReader(List<Path> parts, Charset charset, Compression compression, Executor executor,
+                                  int parallelism, Closeable release) {
+    this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+    this.charset = charset;
+    this.compression = compression;
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.release = release;
+  }
+
+  /**
+   * Reader for the parts of a resource, relative to the descriptor directory, decoded with the resource encoding and
+   * decompressed as the resource declares, see {@link Compression#of}.
+   */
+  public static MultipartResourceReader of(FrictionlessResource<?, ?> resource, Path baseDirectory) {
+    List<Path> parts = new ArrayList<>();
+    for (String part : ResourcePaths.parts(resource)) {
+      parts.add(ResourcePaths.resolveLocal(baseDirectory, part));
+    }
+    return new MultipartResourceReader(parts, charset(resource), Compression.of(resource));
+  }
+
+  /**
+   * Copy of this reader decompressing on the given executor.
+   *
+   * @param parallelism number of chunks of a compressed part inflated at the same time, see
+   *                    {@link ParallelGzipInputStream}
+   */
+  public MultipartResourceReader withDecompression(Executor executor, int parallelism) {
+    return new MultipartResourceReader(parts, charset, compression, executor, parallelism, release);
+  }
+
+  static Charset charset(FrictionlessResource<?, ?> resource) {
+    return resource.getEncoding() == null || resource.getEncoding().isEmpty()
+        ? StandardCharsets.UTF_8
+        : Charset.forName(resource.getEncoding());
+  }
+
+  public List<Path> getParts() {
+    return parts;
+  }
+
+  public Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * Compression of all parts, null if it is detected for each part.
+   */
+  public Compression getCompression() {
+    return compression;
+  }
+
+  /**
+   * Compression of a part.
+   */
+  public Compression compression(Path part) throws IOException {
+    return compression != null ? compression : Compression.detect(part);
+  }
+
+  /**
+   * The bytes of a part, decompressed.
+   */
+  public InputStream open(Path part) throws IOException {
+    return compression(part) == Compression.GZIP
+        ? new ParallelGzipInputStream(part, executor, parallelism)
+        : Files.newInputStream(part);
+  }
+
+  /**
+   * Total size of the parts as stored, compressed or not.
+   */
+  public long size() throws IOException {
+    long size = 0;
+    for (Path part : parts) {
+      size += Files.size(part);
+    }
+    return size;
+  }
+
+  /**
+   * All parts in order as one decompressed stream. Parts are opened lazily. A line break is added after a part whose
+   * last line has none, so that it doesn't run into the first line of the next part, as with {@link #splits}.
+   */
+  public InputStream openStream() {
+    Iterator<Path> iterator = parts.iterator();
+    byte[] lineBreak = encoded('\n');
+    byte[] carriageReturn = encoded('\r');
+    return new SequenceInputStream(new Enumeration<InputStream>() {
+      @Override
+      public boolean hasMoreElements() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public InputStream nextElement() {
+        if (!iterator.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        try {
+          InputStream part = open(iterator.next());
+          return iterator.hasNext() ? new LineTerminatedStream(part, lineBreak, carriageReturn) : part;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    });
+  }
+
+  /**
+   * All lines of all parts in order. The stream must be closed.
+   */
+  public Stream<String> lines() {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(openStream(), charset));
+    return reader.lines().onClose(() -> closeUnchecked(reader));
+  }
+
+  /**
+   * A character in the charset of the parts, without the byte order mark some charsets start with.
+   */
+  private byte[] encoded(char c) {
+    byte[] one = String.valueOf(c).getBytes(charset);
+    byte[] two = (String.valueOf(c) + c).getBytes(charset);
+    return Arrays.copyOfRange(two, one.length, two.length);
+  }
+
+  /**
+   * Cuts the parts into splits of about the given size, each starting at the beginning of a line and ending after a
+   * line break or at the end of its part. Compressed parts, and all parts in encodings whose line break is not a single
+   * byte, are split by part only.
+   */
+  public List<Split> splits(long splitSize) throws IOException {
+    if (splitSize <= 0) {
+      throw new IllegalArgumentException("Split size must be positive");
+    }
+    boolean byteAligned = "\n".getBytes(charset).length == 1;
+    List<Split> splits = new ArrayList<>();
+    for (Path part : parts) {
+      boolean compressed = compression(part) != Compression.NONE;
+      try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+        long size = channel.size();
+        long start = 0;
+        while (start < size) {
+          long end = byteAligned && !compressed && size - start > splitSize
+              ? lineEnd(channel, start + splitSize, size)
+              : size;
+          splits.add(new Split(this, part, start, end, compressed));
+          start = end;
+        }
+      }
+    }
+    return splits;
+  }
+
+  /**
+   * Lines of all parts, as a parallel stream over splits of the given size. The order of the lines is kept for
+   * ordered terminal operations. The stream must be closed.
+   */
+  public Stream<String> parallelLines(long splitSize) throws IOException {
+    return splits(splitSize).parallelStream().flatMap(Split::lines);
+  }
+
+  /**
+   * Position after the first line break at or after the given position, or the end of the part.
+   */
+  private static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  /**
+   * Releases the cached copies of the parts of a reader from {@link ResourceOpener#reader}, does nothing for local
+   * parts.
+   */
+  @Override
+  public void close() throws IOException {
+    if (release != null) {
+      release.close();
+    }
+  }
+
+  private static void closeUnchecked(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * A part followed by a line break if it doesn't end with one. Empty parts are left empty.
+   */
+  private static final class LineTerminatedStream extends FilterInputStream {
+
+    private final byte[] lineBreak;
+    private final byte[] carriageReturn;
+    // the last bytes read, as many as a line break takes
+    private final byte[] tail;
+    private long count;
+    // bytes of the added line break returned so far, -1 until the end of the part
+    private int appended = -1;
+
+    private LineTerminatedStream(InputStream in, byte[] lineBreak, byte[] carriageReturn) {
+      super(in);
+      this.lineBreak = lineBreak;
+      this.carriageReturn = carriageReturn;
+      this.tail = new byte[lineBreak.length];
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int n = read(b, 0, 1);
+      return n < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (appended < 0) {
+        int n = in.read(b, off, len);
+        if (n >= 0) {
+          remember(b, off, n);
+          return n;
+        }
+        boolean terminated = count == 0 || count >= tail.length
+            && (Arrays.equals(tail, lineBreak) || Arrays.equals(tail, carriageReturn));
+        appended = terminated ? lineBreak.length : 0;
+      }
+      if (appended == lineBreak.length) {
+        return -1;
+      }
+      int n = Math.min(len, lineBreak.length - appended);
+      System.arraycopy(lineBreak, appended, b, off, n);
+      appended += n;
+      return n;
+    }
+
+    private void remember(byte[] b, int off, int n) {
+      count += n;
+      if (n >= tail.length) {
+        System.arraycopy(b, off + n - tail.length, tail, 0, tail.length);
+      } else {
+        System.arraycopy(tail, n, tail, 0, tail.length - n);
+        System.arraycopy(b, off, tail, tail.length - n, n);
+      }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      if (n <= 0) {
+        return 0;
+      }
+      byte[] buffer = new byte[(int) Math.min(n, SCAN_BUFFER)];
+      long skipped = 0;
+      while (skipped < n) {
+        int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+        if (read < 0) {
+          break;
+        }
+        skipped += read;
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return appended < 0 ? in.available() : lineBreak.length - appended;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+
+  /**
+   * A byte range of a part, starting at the beginning of a line and holding whole lines only.
+   */
+  public static final class Split {
+
+    private final MultipartResourceReader reader;
+    private final Path part;
+    private final long start;
+    private final long end;
+    private final boolean compressed;
+
+    Split(MultipartResourceReader reader, Path part, long start, long end, boolean compressed) {
+      this.reader = reader;
+      this.part = part;
+      this.start = start;
+      this.end = end;
+      this.compressed = compressed;
+    }
+
+    public Path getPart() {
+      return part;
+    }
+
+    public long getStart() {
+      return start;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+
+    /**
+     * Length of the split as stored, compressed or not.
+     */
+    public long length() {
+      return end - start;
+    }
+
+    /**
+     * Whether the split is a whole compressed part.
+     */
+    public boolean isCompressed() {
+      return compressed;
+    }
+
+    /**
+     * The split extended to the end of its part.
+     */
+    public Split toEndOfPart() throws IOException {
+      return new Split(reader, part, start, Files.size(part), compressed);
+    }
+
+    /**
+     * The bytes of this split, decompressed.
+     */
+    public InputStream openStream() throws IOException {
+      if (compressed) {
+        return reader.open(part);
+      }
+      FileChannel channel = FileChannel.open(part, StandardOpenOption.READ);
+      channel.position(start);
+      return new RangeInputStream(Channels.newInputStream(channel), end - start);
+    }
+
+    /**
+     * The lines of this split. The stream must be closed.
+     */
+    public Stream<String> lines() {
+      try {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(openStream(), reader.charset));
+        return lines.lines().onClose(() -> closeUnchecked(lines));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return part + "[" + start + ", " + end + ")";
+    }
+  }
+
+  /**
+   * Stops after a number of bytes.
+   */
+  private static final class RangeInputStream extends InputStream {
+
+    private final InputStream in;
+    private long remaining;
+
+    private RangeInputStream(InputStream in, long length) {
+      this.in = in;
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int b = in.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int read = in.read(b, off, (int) Math.min(len, remaining));
+      if (read > 0) {
+        remaining -= read;
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a data package from the files of a directory tree: one resource per file, with its {@code format},
+ * {@code mediatype} and {@code encoding} guessed from its first bytes and its {@code bytes} and {@code hash} computed
+ * by {@link ResourceIntegrity}.
+ * <p>
+ * Directories are listed and files read in parallel on a bounded pool of I/O threads, the calling thread only hands
+ * out the work. Symbolic links are not followed. Resources are named after their path relative to the directory,
+ * without the extension, lower-cased and with the characters not allowed in resource names replaced by {@code -},
+ * e.g. {@code Occurrence Data/Part 1.csv} becomes {@code occurrence-data/part-1}. Names clashing once converted keep
+ * their extension, then get a number. The result is sorted by path so it doesn't depend on the order of the listings.
+ */
+public class PackageScanner implements Closeable {
+
+  /**
+   * Default filter: skips hidden files and directories, and the descriptor of the package itself.
+   */
+  public static final Predicate<String> VISIBLE_FILES = path -> !path.equals(ZipPackage.DESCRIPTOR)
+      && !path.startsWith(".") && !path.contains("/.");
+
+  private static final Pattern NOT_ALLOWED = Pattern.compile("[^-a-z0-9._/]+");
+
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+
+  /**
+   * @param ioThreads number of directories and files processed at the same time
+   */
+  public PackageScanner(int ioThreads) {
+    this(Executors.newFixedThreadPool(ioThreads, daemonThreads()), true);
+  }
+
+  /**
+   * @param executor executor for the listings and the files, not shut down by {@link #close()}
+   */
+  public PackageScanner(ExecutorService executor) {
+    this(executor, false);
+  }
+
+  private PackageScanner(ExecutorService executor, boolean ownsExecutor) {
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+  }
+
+  /**
+   * Scans all visible files of a directory, see {@link #VISIBLE_FILES}.
+   */
+  public <C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource>
+      ScannedPackage<C, L, S> scan(Path directory, HashAlgorithm algorithm) throws IOException {
+    return scan(directory, algorithm, VISIBLE_FILES);
+  }
+
+  /**
+   * Scans the files of a directory into a package. The package is named and titled after the directory, the other
+   * metadata is left to the caller.
+   *
+   * @param directory directory of the package, the resource paths are relative to it
+   * @param algorithm algorithm of the resource hashes
+   * @param filter    accepts the files and directories to scan, by their POSIX path relative to the directory
+   */
+  public <C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource>
+      ScannedPackage<C, L, S> scan(Path directory, HashAlgorithm algorithm, Predicate<String> filter) throws IOException {
+    long start = Instrumentation.start();
+    Path base = directory.toAbsolutePath().normalize();
+    if (!Files.isDirectory(base)) {
+      throw new IOException("Not a directory: " + directory);
+    }
+    List<FrictionlessResource<S, L>> resources = new ArrayList<>();
+    ResourceIntegrity integrity = new ResourceIntegrity(base, executor);
+    CompletionService<Object> completion = new ExecutorCompletionService<>(executor);
+    List<Future<Object>> futures = new ArrayList<>();
+    try {
+      futures.add(completion.submit(() -> list(base, base, filter)));
+      int pending = 1;
+      while (pending > 0) {
+        Object result = completion.take().get();
+        pending--;
+        if (result instanceof Listing) {
+          Listing listing = (Listing) result;
+          for (Path subdirectory : listing.directories) {
+            futures.add(completion.submit(() -> list(base, subdirectory, filter)));
+            pending++;
+          }
+          for (Path file : listing.files) {
+            futures.add(completion.submit(() -> resource(base, file, integrity, algorithm)));
+            pending++;
+          }
+        } else {
+          @SuppressWarnings("unchecked")
+          FrictionlessResource<S, L> resource = (FrictionlessResource<S, L>) result;
+          resources.add(resource);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while scanning " + directory, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      for (Future<Object> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    resources.sort(Comparator.comparing(resource -> (String) resource.getPath()));
+    assignNames(resources);
+    FrictionlessMetadata<C, L, S> metadata = new FrictionlessMetadata<>();
+    String directoryName = base.getFileName() == null ? "package" : base.getFileName().toString();
+    metadata.setName(name(directoryName, "package"));
+    metadata.setTitle(directoryName);
+    if (Instrumentation.isEnabled(start)) {
+      long bytes = resources.stream().mapToLong(FrictionlessResource::getBytes).sum();
+      Instrumentation.record(Operation.SCAN_DIRECTORY, start, bytes, resources.size(), 0);
+    }
+    return new ScannedPackage<>(metadata, Collections.unmodifiableList(resources));
+  }
+
+  /**
+   * Lists a directory, keeping the regular files and directories accepted by the filter.
+   */
+  private static Listing list(Path base, Path directory, Predicate<String> filter) throws IOException {
+    Listing listing = new Listing();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+      for (Path entry : entries) {
+        if (!filter.test(relativePath(base, entry))) {
+          continue;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (attributes.isDirectory()) {
+          listing.directories.add(entry);
+        } else if (attributes.isRegularFile()) {
+          listing.files.add(entry);
+        }
+      }
+    }
+    return listing;
+  }
+
+  /**
+   * Resource of a file, with its type guessed and its size and hash computed. The name is assigned later.
+   */
+  private static FrictionlessResource<?, ?> resource(Path base, Path file, ResourceIntegrity integrity,
+                                                     HashAlgorithm algorithm) throws IOException {
+    byte[] head = new byte[FileSniffer.HEAD_SIZE];
+    int length = 0;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.wrap(head);
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        length = buffer.position();
+      }
+    }
+    FileSniffer.FileType type = FileSniffer.sniff(file.getFileName().toString(), head, length);
+
+    FrictionlessResource<?, ?> resource = new FrictionlessResource<>();
+    resource.setPath(relativePath(base, file));
+    resource.setFormat(type.getFormat());
+    resource.setMediatype(type.getMediaType());
+    resource.setEncoding(type.getEncoding());
+    integrity.fill(resource, algorithm);
+    return resource;
+  }
+
+  /**
+   * Names the resources after their paths, in order, so clashes are resolved the same way on every scan.
+   */
+  private static void assignNames(List<? extends FrictionlessResource<?, ?>> resources) {
+    Set<String> names = new HashSet<>();
+    for (FrictionlessResource<?, ?> resource : resources) {
+      String path = (String) resource.getPath();
+      int slash = path.lastIndexOf('/');
+      int dot = path.lastIndexOf('.');
+      String withoutExtension = dot > slash + 1 ? path.substring(0, dot) : path;
+      String name = name(withoutExtension, "resource");
+      if (!names.add(name)) {
+        name = name(path, "resource");
+        for (int i = 2; !names.add(name); i++) {
+          name = name(path, "resource") + "-" + i;
+        }
+      }
+      resource.setName(name);
+    }
+  }
+
+  /**
+   * A name matching the pattern of the resource and package names.
+   */
+  static String name(String path, String fallback) {
+    String name = NOT_ALLOWED.matcher(path.toLowerCase(Locale.ROOT)).replaceAll("-");
+    return name.isEmpty() ? fallback : name;
+  }
+
+  private static String relativePath(Path base, Path path) {
+    return base.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+  }
+
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ThreadFactory daemonThreads() {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "frictionless-scan-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static final class Listing {
+
+    private final List<Path> directories = new ArrayList<>();
+    private final List<Path> files = new ArrayList<>();
+  }
+
+  /**
+   * Package metadata and resources built from a directory, e.g. for
+   * {@link org.gbif.frictionless.metadata.FrictionlessJson#writePackage}.
+   */
+  public static final class ScannedPackage<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+    private final FrictionlessMetadata<C, L, S> metadata;
+    private final List<FrictionlessResource<S, L>> resources;
+
+    ScannedPackage(FrictionlessMetadata<C, L, S> metadata, List<FrictionlessResource<S, L>> resources) {
+      this.metadata = metadata;
+      this.resources = resources;
+    }
+
+    public FrictionlessMetadata<C, L, S> getMetadata() {
+      return metadata;
+    }
+
+    /**
+     * Resources sorted by path.
+     */
+    public List<FrictionlessResource<S, L>> getResources() {
+      return resources;
+    }
+  }
+}
@@ -0,0 +1,783 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses a gzip file on several cores, with the output in order.
+ * <p>
+ * A gzip file made of several members, e.g. block gzip (BGZF) or concatenated gzip files, is cut into chunks of
+ * compressed bytes which are inflated in parallel: each chunk starts at the first member header found in it, and
+ * inflates the members starting in it. As member headers can also occur by chance in compressed data, a chunk is only
+ * used if it starts exactly where the members before it end; a chunk starting at a false header fails its checksum
+ * and is discarded. Chunks are inflated a few ahead of the reader, and a chunk inflating to more than
+ * {@link #MAX_CHUNK_OUTPUT} is abandoned.
+ * <p>
+ * Members which can't be inflated from chunks, a plain single member file being one large member, are inflated by a
+ * dedicated thread reading ahead of the consumer, so that decompression and parsing at least run on two cores. A file
+ * not starting with a BGZF block starts that way, switching to the parallel chunks at the first member boundary where
+ * one is ready.
+ * <p>
+ * As with {@link java.util.zip.GZIPInputStream}, whatever follows the last member without being a member header is
+ * ignored. Not thread-safe.
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+  /**
+   * Default size of the chunks of compressed bytes, 1 MiB.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  /**
+   * Output above which a chunk is abandoned, 32 MiB.
+   */
+  public static final int MAX_CHUNK_OUTPUT = 32 << 20;
+
+  private static final int BLOCK_SIZE = 64 << 10;
+  private static final int QUEUE_CAPACITY = 8;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  private static final int FHCRC = 2;
+  private static final AtomicInteger THREADS = new AtomicInteger();
+
+  private final FileChannel channel;
+  private final long size;
+  private final Executor executor;
+  private final int window;
+  private final long chunkSize;
+  private final long chunkCount;
+  private final Deque<Chunk> chunks = new ArrayDeque<>();
+  private long nextChunk;
+
+  // compressed offset up to which the output was handed out, always a member boundary
+  private long position;
+  private boolean finished;
+  private boolean closed;
+  private IOException failure;
+  private Producer producer;
+  private Iterator<byte[]> blocks;
+  private byte[] block;
+  private int blockPosition;
+  private int blockLimit;
+  private final byte[] single = new byte[1];
+
+  /**
+   * @param file        gzip file
+   * @param executor    executor inflating the chunks, a fork-join pool if the caller itself runs on it
+   * @param parallelism number of chunks inflated ahead of the reader, 1 or less to inflate on one thread only
+   */
+  public ParallelGzipInputStream(Path file, Executor executor, int parallelism) throws IOException {
+    this(file, executor, parallelism, DEFAULT_CHUNK_SIZE);
+  }
+
+  ParallelGzipInputStream(Path file, Executor executor, int parallelism, int chunkSize) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      this.size = channel.size();
+      this.executor = executor;
+      this.window = Math.max(parallelism, 1) + 1;
+      this.chunkSize = chunkSize;
+      this.chunkCount = parallelism > 1 && size > 2L * chunkSize ? (size + chunkSize - 1) / chunkSize : 0;
+      Input in = new Input(channel, size);
+      Header header = Header.read(in);
+      if (!header.bgzf || chunkCount == 0) {
+        // the first chunk would only duplicate the work of the thread
+        nextChunk = 1;
+        producer = new Producer(0);
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    if (len == 0) {
+      return 0;
+    }
+    while (blockPosition == blockLimit) {
+      if (!nextBlock()) {
+        return -1;
+      }
+    }
+    int n = Math.min(len, blockLimit - blockPosition);
+    System.arraycopy(block, blockPosition, b, off, n);
+    blockPosition += n;
+    return n;
+  }
+
+  /**
+   * Moves to the next block of output, from the current chunk, the thread or the next chunk.
+   *
+   * @return false at the end of the data
+   */
+  private boolean nextBlock() throws IOException {
+    while (true) {
+      if (blocks != null) {
+        if (blocks.hasNext()) {
+          block = blocks.next();
+          blockPosition = 0;
+          blockLimit = block.length;
+          return true;
+        }
+        blocks = null;
+      } else if (producer != null) {
+        Item item = producer.take();
+        if (item.error != null) {
+          stopProducer();
+          failure = item.error;
+          throw failure;
+        }
+        if (item.data != null) {
+          block = item.data;
+          blockPosition = 0;
+          blockLimit = item.length;
+          return true;
+        }
+        position = item.memberEnd;
+        if (item.last) {
+          stopProducer();
+          finished = true;
+        } else if (position < size) {
+          Chunk chunk = chunkAt(position);
+          if (chunk != null && chunk.startsAt(position)) {
+            stopProducer();
+            use(chunk);
+          }
+        }
+      } else if (finished || position >= size) {
+        return false;
+      } else {
+        Chunk chunk = chunkAt(position);
+        if (chunk != null && chunk.startsAt(position)) {
+          use(chunk);
+        } else {
+          producer = new Producer(position);
+        }
+      }
+    }
+  }
+
+  private void use(Chunk chunk) {
+    chunks.remove(chunk);
+    Result result = chunk.result();
+    blocks = result.blocks.iterator();
+    position = result.end;
+    finished = result.last;
+  }
+
+  /**
+   * The chunk in which the given offset falls, dropping the chunks before it and scheduling the following ones.
+   */
+  private Chunk chunkAt(long offset) {
+    while (!chunks.isEmpty() && chunks.peekFirst().end <= offset) {
+      chunks.removeFirst().cancel();
+    }
+    nextChunk = Math.max(nextChunk, offset / chunkSize);
+    while (chunks.size() < window && nextChunk < chunkCount) {
+      long start = nextChunk++ * chunkSize;
+      chunks.addLast(new Chunk(start, Math.min(start + chunkSize, size)));
+    }
+    Chunk first = chunks.peekFirst();
+    return first != null && first.start <= offset && offset < first.end ? first : null;
+  }
+
+  private void stopProducer() {
+    if (producer != null) {
+      producer.stop();
+      producer = null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    stopProducer();
+    for (Chunk chunk : chunks) {
+      chunk.cancel();
+    }
+    chunks.clear();
+    channel.close();
+  }
+
+  /**
+   * Inflates the members from the first one found in a chunk, up to the last one starting in it.
+   */
+  private Result inflateChunk(Chunk chunk) throws IOException {
+    Input in = new Input(channel, size);
+    Inflater inflater = new Inflater(true);
+    CRC32 crc = new CRC32();
+    try {
+      ChunkOutput output = new ChunkOutput();
+      long start = -1;
+      for (long candidate = chunk.start; start < 0 && !chunk.cancelled; candidate++) {
+        candidate = findHeader(in, candidate, chunk.end);
+        if (candidate < 0) {
+          break;
+        }
+        in.seek(candidate);
+        try {
+          inflateMember(in, inflater, crc, output);
+          start = candidate;
+        } catch (ZipException | EOFException e) {
+          // a header by chance in compressed data
+          output.clear();
+        }
+      }
+      if (start < 0) {
+        return Result.NONE;
+      }
+      while (in.position() < chunk.end && in.position() < size && !chunk.cancelled) {
+        if (!Header.follows(in)) {
+          return new Result(start, in.position(), output.blocks(), true);
+        }
+        inflateMember(in, inflater, crc, output);
+      }
+      return new Result(start, in.position(), output.blocks(), in.position() >= size);
+    } catch (Overflow | ZipException | EOFException e) {
+      // left to the thread, which reports the error if it is one
+      return Result.NONE;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Inflates one member, checking its CRC and size.
+   */
+  private static void inflateMember(Input in, Inflater inflater, CRC32 crc, Output output) throws IOException {
+    Header.read(in);
+    inflater.reset();
+    crc.reset();
+    long length = 0;
+    while (!inflater.finished()) {
+      if (inflater.needsInput()) {
+        if (in.available() == 0 && !in.fill()) {
+          throw new EOFException("Unexpected end of gzip member");
+        }
+        inflater.setInput(in.buffer, in.pos, in.available());
+        in.pos = in.limit;
+      }
+      byte[] target = output.target();
+      int offset = output.length();
+      int n;
+      try {
+        n = inflater.inflate(target, offset, target.length - offset);
+      } catch (DataFormatException e) {
+        throw new ZipException("Invalid gzip data: " + e.getMessage());
+      }
+      if (n > 0) {
+        crc.update(target, offset, n);
+        length += n;
+        output.commit(n);
+      } else if (inflater.needsDictionary()) {
+        throw new ZipException("Invalid gzip data: preset dictionary");
+      }
+    }
+    in.pos -= inflater.getRemaining();
+    if (in.readInt() != (int) crc.getValue()) {
+      throw new ZipException("Corrupt gzip member: CRC mismatch");
+    }
+    if (in.readInt() != (int) length) {
+      throw new ZipException("Corrupt gzip member: size mismatch");
+    }
+    output.endOfMember(in.position());
+  }
+
+  /**
+   * Offset of the first possible member header at or after {@code from} and before {@code to}, -1 if there is none.
+   */
+  private static long findHeader(Input in, long from, long to) throws IOException {
+    in.seek(from);
+    while (in.position() < to) {
+      if (in.available() < 4 && !in.fill()) {
+        return -1;
+      }
+      if (in.available() < 4) {
+        continue;
+      }
+      byte[] b = in.buffer;
+      int i = in.pos;
+      for (int last = in.limit - 4; i <= last && in.offsetOf(i) < to; i++) {
+        if (b[i] == 0x1f && b[i + 1] == (byte) 0x8b && b[i + 2] == 8 && (b[i + 3] & 0xE0) == 0) {
+          return in.offsetOf(i);
+        }
+      }
+      in.pos = i;
+    }
+    return -1;
+  }
+
+  /**
+   * A member header, of which only the BGZF extra field matters.
+   */
+  private static final class Header {
+
+    private final boolean bgzf;
+
+    private Header(boolean bgzf) {
+      this.bgzf = bgzf;
+    }
+
+    /**
+     * Whether a member header follows, without consuming it.
+     */
+    private static boolean follows(Input in) throws IOException {
+      while (in.available() < 4) {
+        if (!in.fill()) {
+          return false;
+        }
+      }
+      byte[] b = in.buffer;
+      int i = in.pos;
+      return b[i] == 0x1f && b[i + 1] == (byte) 0x8b && b[i + 2] == 8 && (b[i + 3] & 0xE0) == 0;
+    }
+
+    private static Header read(Input in) throws IOException {
+      if (in.readByte() != 0x1f || in.readByte() != 0x8b) {
+        throw new ZipException("Not in gzip format");
+      }
+      if (in.readByte() != 8) {
+        throw new ZipException("Unsupported gzip compression method");
+      }
+      int flags = in.readByte();
+      if ((flags & 0xE0) != 0) {
+        throw new ZipException("Invalid gzip header flags");
+      }
+      // modification time, extra flags, operating system
+      in.skip(6);
+      boolean bgzf = false;
+      if ((flags & FEXTRA) != 0) {
+        int remaining = in.readShort();
+        while (remaining >= 4) {
+          int id1 = in.readByte();
+          int id2 = in.readByte();
+          int length = in.readShort();
+          remaining -= 4;
+          if (length > remaining) {
+            throw new ZipException("Invalid gzip extra field");
+          }
+          bgzf |= id1 == 'B' && id2 == 'C' && length == 2;
+          in.skip(length);
+          remaining -= length;
+        }
+        in.skip(remaining);
+      }
+      if ((flags & FNAME) != 0) {
+        while (in.readByte() != 0) {
+          // skip the name
+        }
+      }
+      if ((flags & FCOMMENT) != 0) {
+        while (in.readByte() != 0) {
+          // skip the comment
+        }
+      }
+      if ((flags & FHCRC) != 0) {
+        in.skip(2);
+      }
+      return new Header(bgzf);
+    }
+  }
+
+  /**
+   * Buffered positional reads of the file, so that any number of them can share the channel.
+   */
+  private static final class Input {
+
+    private final FileChannel channel;
+    private final long size;
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    // file offset of the first byte of the buffer
+    private long offset;
+    private int pos;
+    private int limit;
+
+    private Input(FileChannel channel, long size) {
+      this.channel = channel;
+      this.size = size;
+    }
+
+    private long position() {
+      return offset + pos;
+    }
+
+    private long offsetOf(int index) {
+      return offset + index;
+    }
+
+    private int available() {
+      return limit - pos;
+    }
+
+    private void seek(long position) {
+      offset = position;
+      pos = 0;
+      limit = 0;
+    }
+
+    /**
+     * Reads more bytes after the available ones.
+     *
+     * @return false at the end of the file
+     */
+    private boolean fill() throws IOException {
+      if (pos > 0) {
+        System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+        limit -= pos;
+        offset += pos;
+        pos = 0;
+      }
+      long at = offset + limit;
+      if (at >= size || limit == buffer.length) {
+        return false;
+      }
+      int n = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit), at);
+      if (n <= 0) {
+        return false;
+      }
+      limit += n;
+      return true;
+    }
+
+    private int readByte() throws IOException {
+      if (pos == limit && !fill()) {
+        throw new EOFException("Unexpected end of gzip file");
+      }
+      return buffer[pos++] & 0xFF;
+    }
+
+    private int readShort() throws IOException {
+      return readByte() | readByte() << 8;
+    }
+
+    private int readInt() throws IOException {
+      return readShort() | readShort() << 16;
+    }
+
+    private void skip(int n) throws IOException {
+      for (int i = 0; i < n; i++) {
+        readByte();
+      }
+    }
+  }
+
+  /**
+   * Receives the inflated bytes directly in its blocks.
+   */
+  private abstract static class Output {
+
+    private byte[] target = new byte[BLOCK_SIZE];
+    private int length;
+
+    byte[] target() {
+      return target;
+    }
+
+    int length() {
+      return length;
+    }
+
+    void commit(int n) throws IOException {
+      length += n;
+      if (length == target.length) {
+        flush();
+      }
+    }
+
+    void flush() throws IOException {
+      if (length > 0) {
+        emit(target, length);
+        target = new byte[BLOCK_SIZE];
+        length = 0;
+      }
+    }
+
+    void clear() {
+      length = 0;
+    }
+
+    abstract void emit(byte[] block, int length) throws IOException;
+
+    abstract void endOfMember(long end) throws IOException;
+  }
+
+  /**
+   * Collects the output of a chunk.
+   */
+  private static final class ChunkOutput extends Output {
+
+    private final List<byte[]> blocks = new ArrayList<>();
+    private long total;
+
+    @Override
+    void emit(byte[] block, int length) throws IOException {
+      total += length;
+      if (total > MAX_CHUNK_OUTPUT) {
+        throw Overflow.INSTANCE;
+      }
+      blocks.add(length == block.length ? block : Arrays.copyOf(block, length));
+    }
+
+    @Override
+    void endOfMember(long end) {
+    }
+
+    @Override
+    void clear() {
+      super.clear();
+      blocks.clear();
+      total = 0;
+    }
+
+    private List<byte[]> blocks() throws IOException {
+      flush();
+      return blocks;
+    }
+  }
+
+  private static final class Overflow extends IOException {
+
+    private static final Overflow INSTANCE = new Overflow();
+
+    private Overflow() {
+      super("Chunk output too large", null);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  /**
+   * Output of a chunk: the members from {@code start} to {@code end}.
+   */
+  private static final class Result {
+
+    private static final Result NONE = new Result(-1, -1, List.of(), false);
+
+    private final long start;
+    private final long end;
+    private final List<byte[]> blocks;
+    // no member follows
+    private final boolean last;
+
+    private Result(long start, long end, List<byte[]> blocks, boolean last) {
+      this.start = start;
+      this.end = end;
+      this.blocks = blocks;
+      this.last = last;
+    }
+  }
+
+  /**
+   * A range of compressed bytes being inflated.
+   */
+  private final class Chunk {
+
+    private final long start;
+    private final long end;
+    private final CompletableFuture<Result> result;
+    private volatile boolean cancelled;
+
+    private Chunk(long start, long end) {
+      this.start = start;
+      this.end = end;
+      this.result = CompletableFuture.supplyAsync(() -> {
+        try {
+          return inflateChunk(this);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, executor);
+    }
+
+    /**
+     * Whether the chunk inflated successfully from the given member boundary.
+     */
+    private boolean startsAt(long offset) throws IOException {
+      try {
+        Result r = result.join();
+        return r.start == offset;
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof UncheckedIOException) {
+          throw ((UncheckedIOException) e.getCause()).getCause();
+        }
+        throw e;
+      }
+    }
+
+    private Result result() {
+      return result.join();
+    }
+
+    private void cancel() {
+      cancelled = true;
+      result.cancel(false);
+    }
+  }
+
+  /**
+   * An item of the thread: a block of output, the end of a member, or an error.
+   */
+  private static final class Item {
+
+    private final byte[] data;
+    private final int length;
+    private final long memberEnd;
+    private final boolean last;
+    private final IOException error;
+
+    private Item(byte[] data, int length, long memberEnd, boolean last, IOException error) {
+      this.data = data;
+      this.length = length;
+      this.memberEnd = memberEnd;
+      this.last = last;
+      this.error = error;
+    }
+  }
+
+  /**
+   * Inflates the members one after the other from a member boundary, on its own thread.
+   */
+  private final class Producer extends Output implements Runnable {
+
+    private final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final long start;
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    private Producer(long start) {
+      this.start = start;
+      this.thread = new Thread(this, "frictionless-gunzip-" + THREADS.incrementAndGet());
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    public void run() {
+      Input in = new Input(channel, size);
+      Inflater inflater = new Inflater(true);
+      CRC32 crc = new CRC32();
+      in.seek(start);
+      try {
+        // only the first member of the file is required, anything else may be followed by garbage
+        boolean required = start == 0;
+        while (!stopped) {
+          if (!required && (in.position() >= size || !Header.follows(in))) {
+            put(new Item(null, 0, in.position(), true, null));
+            return;
+          }
+          inflateMember(in, inflater, crc, this);
+          required = false;
+        }
+      } catch (IOException e) {
+        if (!stopped) {
+          try {
+            put(new Item(null, 0, -1, true, e));
+          } catch (IOException stoppedMeanwhile) {
+            // nobody to report to
+          }
+        }
+      } finally {
+        inflater.end();
+      }
+    }
+
+    @Override
+    void emit(byte[] block, int length) throws IOException {
+      put(new Item(block, length, -1, false, null));
+    }
+
+    @Override
+    void endOfMember(long end) throws IOException {
+      flush();
+      put(new Item(null, 0, end, false, null));
+    }
+
+    /**
+     * Waits for room in the queue. The thread is never interrupted, which would close the channel shared with the
+     * chunks, but polls for the stop instead.
+     */
+    private void put(Item item) throws IOException {
+      try {
+        while (!stopped) {
+          if (queue.offer(item, 50, TimeUnit.MILLISECONDS)) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new InterruptedIOException("Stopped");
+    }
+
+    private Item take() throws IOException {
+      try {
+        return queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while inflating");
+      }
+    }
+
+    private void stop() {
+      stopped = true;
+      queue.clear();
+    }
+  }
+}
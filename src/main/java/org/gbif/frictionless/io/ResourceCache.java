@@ -0,0 +1,433 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded on-disk cache of remote resource parts, used by {@link ResourceOpener}.
+ * <p>
+ * Each URL is downloaded once into a temporary file, checked against the expected hash if there is one, then moved
+ * in place, so the cache never holds partial or corrupt content. A URL is cached separately for each expected hash,
+ * and content without one is assumed not to change: stale entries have to be {@link #invalidate invalidated}.
+ * Concurrent requests for the same URL share one download. The least recently used entries are deleted once the
+ * cache grows past its size, except the one just downloaded, which is kept even if it is larger than the cache.
+ * <p>
+ * Cached files are handed out as {@link Lease}s. An entry is neither evicted nor deleted while a lease on it is open,
+ * so it can't disappear between the lookup and the read, and the cache may grow past its size until the leases are
+ * closed.
+ * <p>
+ * The entries survive the cache: a new cache over the same directory picks them up, oldest first. A directory must
+ * not be shared by two caches at the same time.
+ */
+public class ResourceCache {
+
+  private static final String TEMPORARY_SUFFIX = ".part";
+  private static final int BUFFER = 64 << 10;
+
+  private final Path directory;
+  private final long maxBytes;
+  // file name to size, in access order
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // file name to number of open leases, guarded by this
+  private final Map<String, Integer> leases = new HashMap<>();
+  private final Map<String, CompletableFuture<Void>> downloads = new ConcurrentHashMap<>();
+  private long bytes;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param directory cache directory, created if needed
+   * @param maxBytes  size above which the least recently used entries are deleted
+   */
+  public ResourceCache(Path directory, long maxBytes) throws IOException {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive");
+    }
+    this.directory = Files.createDirectories(directory);
+    this.maxBytes = maxBytes;
+    load();
+  }
+
+  /**
+   * Local copy of the content of a URL, downloaded with the fetcher if it isn't cached yet. The copy is kept until
+   * the lease is closed.
+   *
+   * @param expectedHash declared hash of the content, in the format of the {@code hash} property, null if unknown
+   * @throws IOException if the download fails or the content doesn't match the expected hash
+   */
+  public Lease get(URI uri, String expectedHash, ResourceOpener.Fetcher fetcher) throws IOException {
+    String key = key(uri, expectedHash);
+    while (true) {
+      Lease cached = lookup(key);
+      if (cached != null) {
+        return cached;
+      }
+      CompletableFuture<Void> download = new CompletableFuture<>();
+      CompletableFuture<Void> running = downloads.putIfAbsent(key, download);
+      if (running != null) {
+        // the shared download is leased by the next lookup, unless it has been evicted already
+        await(running, uri);
+        continue;
+      }
+      try {
+        // another download may have completed between the lookup and the registration of this one
+        cached = lookup(key);
+        if (cached == null) {
+          misses.increment();
+          cached = download(key, uri, expectedHash, fetcher);
+        }
+        download.complete(null);
+        return cached;
+      } catch (IOException | RuntimeException e) {
+        download.completeExceptionally(e);
+        throw e;
+      } finally {
+        downloads.remove(key, download);
+      }
+    }
+  }
+
+  /**
+   * Local copy of the content of a URL, null if it isn't cached. The copy is kept until the lease is closed.
+   */
+  public Lease getIfPresent(URI uri, String expectedHash) {
+    return lookup(key(uri, expectedHash));
+  }
+
+  /**
+   * Deletes the cached content of a URL. A leased copy is deleted once its leases are closed.
+   *
+   * @return false if it wasn't cached
+   */
+  public boolean invalidate(URI uri, String expectedHash) throws IOException {
+    String key = key(uri, expectedHash);
+    synchronized (this) {
+      Long size = entries.remove(key);
+      if (size == null) {
+        return false;
+      }
+      bytes -= size;
+      if (!leases.containsKey(key)) {
+        Files.deleteIfExists(directory.resolve(key));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Deletes all entries, the leased ones once their leases are closed. The statistics are kept.
+   */
+  public synchronized void invalidateAll() throws IOException {
+    for (Iterator<String> keys = entries.keySet().iterator(); keys.hasNext(); ) {
+      String key = keys.next();
+      keys.remove();
+      if (!leases.containsKey(key)) {
+        Files.deleteIfExists(directory.resolve(key));
+      }
+    }
+    bytes = 0;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Total size of the entries.
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public Statistics getStatistics() {
+    return new Statistics(hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  private synchronized Lease lookup(String key) {
+    if (entries.get(key) == null) {
+      return null;
+    }
+    Path file = directory.resolve(key);
+    if (!Files.isRegularFile(file)) {
+      // deleted behind the back of the cache
+      bytes -= entries.remove(key);
+      return null;
+    }
+    hits.increment();
+    return lease(key);
+  }
+
+  /**
+   * Leases an entry, must be called holding the lock.
+   */
+  private Lease lease(String key) {
+    leases.merge(key, 1, Integer::sum);
+    return new Lease(key, directory.resolve(key));
+  }
+
+  /**
+   * Closes a lease: deletes the file if the entry was invalidated meanwhile, or makes room if the cache has grown
+   * past its size while the entry was leased.
+   */
+  private synchronized void release(String key) {
+    if (leases.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1) != null) {
+      return;
+    }
+    if (entries.containsKey(key)) {
+      evict(null);
+    } else {
+      deleteQuietly(key);
+    }
+  }
+
+  private Lease download(String key, URI uri, String expectedHash, ResourceOpener.Fetcher fetcher) throws IOException {
+    long start = Instrumentation.start();
+    HashAlgorithm algorithm = expectedHash == null ? null : HashAlgorithm.of(expectedHash);
+    MessageDigest digest = algorithm == null ? null : algorithm.newDigest();
+    Path temporary = Files.createTempFile(directory, key, TEMPORARY_SUFFIX);
+    try {
+      long size = 0;
+      try (InputStream in = fetcher.fetch(uri); OutputStream out = Files.newOutputStream(temporary)) {
+        byte[] buffer = new byte[BUFFER];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+          if (digest != null) {
+            digest.update(buffer, 0, n);
+          }
+          out.write(buffer, 0, n);
+          size += n;
+        }
+      }
+      if (digest != null) {
+        String actualHash = algorithm.format(digest.digest());
+        if (!HashAlgorithm.matches(expectedHash, actualHash)) {
+          Instrumentation.record(Operation.FETCH_RESOURCE, start, size, 1, 1);
+          throw new IOException("Hash mismatch for " + uri + ": expected " + expectedHash + ", found " + actualHash);
+        }
+      }
+      Lease lease = add(key, size, temporary);
+      Instrumentation.record(Operation.FETCH_RESOURCE, start, size, 1, 0);
+      return lease;
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Moves a download in place and leases it, then evicts the least recently used entries to make room. The files of
+   * the cache are only ever moved or deleted holding the lock, so that a file never changes under a lease.
+   */
+  private synchronized Lease add(String key, long size, Path download) throws IOException {
+    Files.move(download, directory.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+    Lease lease = lease(key);
+    add(key, size);
+    return lease;
+  }
+
+  private synchronized void add(String key, long size) {
+    Long previous = entries.put(key, size);
+    bytes += size - (previous == null ? 0 : previous);
+    evict(key);
+  }
+
+  /**
+   * Deletes the least recently used entries which aren't leased, until the cache fits its size. Must be called
+   * holding the lock.
+   *
+   * @param keep entry kept even if the cache doesn't fit, null if none
+   */
+  private void evict(String keep) {
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while (bytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<String, Long> eldest = iterator.next();
+      if (!eldest.getKey().equals(keep) && !leases.containsKey(eldest.getKey())) {
+        bytes -= eldest.getValue();
+        iterator.remove();
+        evictions.increment();
+        deleteQuietly(eldest.getKey());
+      }
+    }
+  }
+
+  private void deleteQuietly(String key) {
+    try {
+      Files.deleteIfExists(directory.resolve(key));
+    } catch (IOException e) {
+      // still open on platforms which can't delete open files, left for the next cache over the directory
+    }
+  }
+
+  private void load() throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path file : stream) {
+        if (file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+          // left by an interrupted download
+          Files.deleteIfExists(file);
+        } else if (Files.isRegularFile(file)) {
+          files.add(file);
+        }
+      }
+    }
+    try {
+      files.sort(Comparator.comparing(ResourceCache::lastModified));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    for (Path file : files) {
+      add(file.getFileName().toString(), Files.size(file));
+    }
+  }
+
+  private static FileTime lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void await(CompletableFuture<Void> download, URI uri) throws IOException {
+    try {
+      download.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for " + uri, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * File name of the content of a URL: a SHA-256 of the URL and the expected hash.
+   */
+  private static String key(URI uri, String expectedHash) {
+    String id = uri.toString() + '\n' + (expectedHash == null ? "" : expectedHash.toLowerCase(Locale.ROOT));
+    String hash = HashAlgorithm.SHA256.format(HashAlgorithm.SHA256.newDigest().digest(id.getBytes(StandardCharsets.UTF_8)));
+    return hash.substring(HashAlgorithm.SHA256.getPrefix().length() + 1);
+  }
+
+  /**
+   * A cached file, kept in the cache until the lease is closed. Closing it more than once has no effect.
+   */
+  public final class Lease implements Closeable {
+
+    private final String key;
+    private final Path file;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Lease(String key, Path file) {
+      this.key = key;
+      this.file = file;
+    }
+
+    public Path getFile() {
+      return file;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(key);
+      }
+    }
+  }
+
+  /**
+   * Cache counters since creation.
+   */
+  public static final class Statistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    Statistics(long hits, long misses, long evictions) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * Downloads, including the failed ones.
+     */
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * Entries deleted to make room for new ones.
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public double getHitRate() {
+      long requests = hits + misses;
+      return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+      return "Statistics(hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ")";
+    }
+  }
+}
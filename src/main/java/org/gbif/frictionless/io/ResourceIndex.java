@@ -0,0 +1,272 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessResource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Index of the resources of a package by name and by path, answering lookups in constant time whatever the number of
+ * resources.
+ * <p>
+ * Every part of a multipart resource is indexed, so the resource owning a part is found directly. Names and paths
+ * must be unique in the package, as required by the specification: adding a resource clashing with an indexed one
+ * fails and leaves the index unchanged. Resources without a name are indexed by path only.
+ * <p>
+ * Resources are kept in the order they were added, and held by identity. The keys of a resource are read when it is
+ * added: a resource renamed or moved while indexed has to be {@link #update updated}. Frozen resources, see
+ * {@link FrictionlessResource#freeze()}, can't change. Not thread-safe, but an index which is no longer modified can be
+ * read by any number of threads once safely published.
+ *
+ * @param <R> resource type
+ */
+public class ResourceIndex<R extends FrictionlessResource<?, ?>> implements Iterable<R> {
+
+  private final Map<String, Entry<R>> byName = new HashMap<>();
+  private final Map<String, Entry<R>> byPath = new HashMap<>();
+  private final Map<R, Entry<R>> entries = new IdentityHashMap<>();
+  private Entry<R> first;
+  private Entry<R> last;
+  private int modCount;
+
+  public ResourceIndex() {
+  }
+
+  /**
+   * Index of the resources, e.g. of a {@link PackageScanner.ScannedPackage} or a streamed package.
+   *
+   * @throws IllegalArgumentException if two resources have the same name or path
+   */
+  public static <R extends FrictionlessResource<?, ?>> ResourceIndex<R> of(Iterable<? extends R> resources) {
+    ResourceIndex<R> index = new ResourceIndex<>();
+    for (R resource : resources) {
+      index.add(resource);
+    }
+    return index;
+  }
+
+  /**
+   * Adds a resource after the indexed ones.
+   *
+   * @throws IllegalArgumentException if the resource is already indexed, or its name or one of its paths is taken
+   */
+  public void add(R resource) {
+    if (entries.containsKey(resource)) {
+      throw new IllegalArgumentException("Resource already indexed: " + resource.getName());
+    }
+    Entry<R> entry = new Entry<>(resource);
+    index(entry);
+    entries.put(resource, entry);
+    entry.previous = last;
+    if (last == null) {
+      first = entry;
+    } else {
+      last.next = entry;
+    }
+    last = entry;
+    modCount++;
+  }
+
+  /**
+   * Removes a resource, found by identity.
+   *
+   * @return false if the resource wasn't indexed
+   */
+  public boolean remove(R resource) {
+    Entry<R> entry = entries.remove(resource);
+    if (entry == null) {
+      return false;
+    }
+    unindex(entry);
+    if (entry.previous == null) {
+      first = entry.next;
+    } else {
+      entry.previous.next = entry.next;
+    }
+    if (entry.next == null) {
+      last = entry.previous;
+    } else {
+      entry.next.previous = entry.previous;
+    }
+    modCount++;
+    return true;
+  }
+
+  /**
+   * Removes the resource with the given name.
+   *
+   * @return the removed resource, null if there was none
+   */
+  public R removeByName(CharSequence name) {
+    R resource = byName(name);
+    if (resource != null) {
+      remove(resource);
+    }
+    return resource;
+  }
+
+  /**
+   * Indexes a resource again after its name or path changed, keeping its position.
+   *
+   * @throws IllegalArgumentException if the resource isn't indexed, or its new name or one of its new paths is taken
+   *                                  by another resource, in which case it stays indexed under its previous keys
+   */
+  public void update(R resource) {
+    Entry<R> entry = entries.get(resource);
+    if (entry == null) {
+      throw new IllegalArgumentException("Resource not indexed: " + resource.getName());
+    }
+    unindex(entry);
+    String name = entry.name;
+    List<String> paths = entry.paths;
+    try {
+      entry.readKeys();
+      index(entry);
+    } catch (IllegalArgumentException e) {
+      entry.name = name;
+      entry.paths = paths;
+      index(entry);
+      throw e;
+    }
+    modCount++;
+  }
+
+  /**
+   * Resource with the given name, null if there is none.
+   */
+  public R byName(CharSequence name) {
+    Entry<R> entry = name == null ? null : byName.get(name.toString());
+    return entry == null ? null : entry.resource;
+  }
+
+  /**
+   * Resource having the given path, or the given part among its paths, null if there is none.
+   */
+  public R byPath(String path) {
+    Entry<R> entry = path == null ? null : byPath.get(path);
+    return entry == null ? null : entry.resource;
+  }
+
+  public boolean contains(R resource) {
+    return entries.containsKey(resource);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  /**
+   * The indexed resources, in order, as a list which isn't updated by later changes of the index.
+   */
+  public List<R> resources() {
+    List<R> resources = new ArrayList<>(entries.size());
+    for (R resource : this) {
+      resources.add(resource);
+    }
+    return Collections.unmodifiableList(resources);
+  }
+
+  /**
+   * Iterates over the resources in order. Modifying the index during the iteration fails the iteration.
+   */
+  @Override
+  public Iterator<R> iterator() {
+    return new Iterator<R>() {
+
+      private final int expectedModCount = modCount;
+      private Entry<R> next = first;
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public R next() {
+        if (modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        R resource = next.resource;
+        next = next.next;
+        return resource;
+      }
+    };
+  }
+
+  /**
+   * Indexes an entry under its name and paths, leaving the index unchanged if one of them is taken.
+   */
+  private void index(Entry<R> entry) {
+    if (entry.name != null && byName.containsKey(entry.name)) {
+      throw new IllegalArgumentException("Duplicate resource name: " + entry.name);
+    }
+    int indexed = 0;
+    for (String path : entry.paths) {
+      if (byPath.putIfAbsent(path, entry) != null) {
+        for (int i = 0; i < indexed; i++) {
+          byPath.remove(entry.paths.get(i));
+        }
+        throw new IllegalArgumentException("Duplicate resource path: " + path);
+      }
+      indexed++;
+    }
+    if (entry.name != null) {
+      byName.put(entry.name, entry);
+    }
+  }
+
+  private void unindex(Entry<R> entry) {
+    if (entry.name != null) {
+      byName.remove(entry.name);
+    }
+    for (String path : entry.paths) {
+      byPath.remove(path);
+    }
+  }
+
+  private static final class Entry<R extends FrictionlessResource<?, ?>> {
+
+    private final R resource;
+    private String name;
+    private List<String> paths;
+    private Entry<R> previous;
+    private Entry<R> next;
+
+    private Entry(R resource) {
+      this.resource = resource;
+      readKeys();
+    }
+
+    private void readKeys() {
+      name = resource.getName() == null ? null : resource.getName().toString();
+      paths = ResourcePaths.parts(resource);
+    }
+  }
+}
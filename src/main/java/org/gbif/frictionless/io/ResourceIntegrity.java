@@ -0,0 +1,224 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes and verifies the {@code bytes} and {@code hash} of resources stored in local files.
+ * <p>
+ * Files are memory mapped and digested in windows of up to 1 GiB, parts of a multi-file resource are digested in
+ * order as one stream. Batches of resources are processed in parallel on a bounded pool of I/O threads.
+ */
+public class ResourceIntegrity implements Closeable {
+
+  private static final long MAP_WINDOW = 1L << 30;
+
+  private final Path baseDirectory;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+
+  /**
+   * @param baseDirectory directory of the descriptor, the resource paths are relative to it
+   * @param ioThreads     number of files processed at the same time
+   */
+  public ResourceIntegrity(Path baseDirectory, int ioThreads) {
+    this(baseDirectory, Executors.newFixedThreadPool(ioThreads, daemonThreads()), true);
+  }
+
+  /**
+   * @param baseDirectory directory of the descriptor, the resource paths are relative to it
+   * @param executor      executor for the batch operations, not shut down by {@link #close()}
+   */
+  public ResourceIntegrity(Path baseDirectory, ExecutorService executor) {
+    this(baseDirectory, executor, false);
+  }
+
+  private ResourceIntegrity(Path baseDirectory, ExecutorService executor, boolean ownsExecutor) {
+    this.baseDirectory = baseDirectory;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+  }
+
+  /**
+   * Total size of the files of the resource.
+   */
+  public long size(FrictionlessResource<?, ?> resource) throws IOException {
+    long size = 0;
+    for (String part : ResourcePaths.parts(resource)) {
+      try (FileChannel channel = FileChannel.open(ResourcePaths.resolveLocal(baseDirectory, part), StandardOpenOption.READ)) {
+        size += channel.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Hash of the resource, formatted for the {@code hash} property.
+   */
+  public String hash(FrictionlessResource<?, ?> resource, HashAlgorithm algorithm) throws IOException {
+    long start = Instrumentation.start();
+    MessageDigest digest = algorithm.newDigest();
+    long size = digest(resource, digest);
+    String hash = algorithm.format(digest.digest());
+    Instrumentation.record(Operation.HASH_RESOURCE, start, size, 1, 0);
+    return hash;
+  }
+
+  /**
+   * Sets the {@code bytes} and {@code hash} of the resource from its files.
+   */
+  public void fill(FrictionlessResource<?, ?> resource, HashAlgorithm algorithm) throws IOException {
+    long start = Instrumentation.start();
+    MessageDigest digest = algorithm.newDigest();
+    long size = digest(resource, digest);
+    resource.setBytes(size);
+    resource.setHash(algorithm.format(digest.digest()));
+    Instrumentation.record(Operation.HASH_RESOURCE, start, size, 1, 0);
+  }
+
+  /**
+   * Checks the declared {@code bytes} and {@code hash} of the resource against its files.
+   * The hash is computed with the algorithm of the declared one, and only when there is one.
+   */
+  public ResourceVerification verify(FrictionlessResource<?, ?> resource) throws IOException {
+    long start = Instrumentation.start();
+    String expectedHash = resource.getHash() == null || resource.getHash().isEmpty() ? null : resource.getHash();
+    long size;
+    String actualHash = null;
+    if (expectedHash != null) {
+      HashAlgorithm algorithm = HashAlgorithm.of(expectedHash);
+      MessageDigest digest = algorithm.newDigest();
+      size = digest(resource, digest);
+      actualHash = algorithm.format(digest.digest());
+    } else {
+      size = size(resource);
+    }
+    String name = resource.getName() == null ? null : resource.getName().toString();
+    ResourceVerification verification = new ResourceVerification(name, resource.getBytes(), size, expectedHash,
+        actualHash);
+    Instrumentation.record(Operation.VERIFY_RESOURCE, start, size, 1, verification.isValid() ? 0 : 1);
+    return verification;
+  }
+
+  /**
+   * Fills the {@code bytes} and {@code hash} of all resources in parallel.
+   */
+  public void fillAll(Collection<? extends FrictionlessResource<?, ?>> resources, HashAlgorithm algorithm) throws IOException {
+    List<Callable<Void>> tasks = new ArrayList<>(resources.size());
+    for (FrictionlessResource<?, ?> resource : resources) {
+      tasks.add(() -> {
+        fill(resource, algorithm);
+        return null;
+      });
+    }
+    invokeAll(tasks);
+  }
+
+  /**
+   * Verifies all resources in parallel.
+   *
+   * @return the verifications, in the order of the resources
+   */
+  public List<ResourceVerification> verifyAll(Collection<? extends FrictionlessResource<?, ?>> resources) throws IOException {
+    List<Callable<ResourceVerification>> tasks = new ArrayList<>(resources.size());
+    for (FrictionlessResource<?, ?> resource : resources) {
+      tasks.add(() -> verify(resource));
+    }
+    return invokeAll(tasks);
+  }
+
+  private long digest(FrictionlessResource<?, ?> resource, MessageDigest digest) throws IOException {
+    long size = 0;
+    for (String part : ResourcePaths.parts(resource)) {
+      try (FileChannel channel = FileChannel.open(ResourcePaths.resolveLocal(baseDirectory, part), StandardOpenOption.READ)) {
+        long length = channel.size();
+        for (long position = 0; position < length; position += MAP_WINDOW) {
+          MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, length - position));
+          digest.update(window);
+        }
+        size += length;
+      }
+    }
+    return size;
+  }
+
+  private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      List<T> results = new ArrayList<>(futures.size());
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while processing resources", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ThreadFactory daemonThreads() {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "frictionless-io-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
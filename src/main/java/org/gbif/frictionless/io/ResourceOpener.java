@@ -0,0 +1,494 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessResource;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opens the parts of a resource wherever they are: local files, paths relative to a local or remote descriptor, or
+ * URLs.
+ * <p>
+ * Remote parts are downloaded by a pluggable {@link Fetcher} into a {@link ResourceCache}, and read from there. While
+ * a part is being read, the next ones are downloaded in the background on a bounded pool of I/O threads, so a
+ * multipart resource is read at the speed of the slowest of the consumer and the network rather than the sum of
+ * the round trips.
+ * <p>
+ * The declared {@code hash} of a resource is checked whenever remote content is involved: as a single remote part is
+ * downloaded, so that corrupt content is never cached, and over all the parts of a multipart resource once they are
+ * read. Resources made of local files only are not checked, see {@link ResourceIntegrity} for that.
+ */
+public class ResourceOpener implements Closeable {
+
+  private static final int BUFFER = 64 << 10;
+
+  private final URI base;
+  private final Path baseDirectory;
+  private final ResourceCache cache;
+  private final Fetcher fetcher;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final int prefetch;
+
+  /**
+   * Opener fetching remote parts with {@link Fetcher#urlConnection}, prefetching as many parts as there are I/O
+   * threads.
+   *
+   * @param base      directory of the descriptor, as a {@code file:} URI or a URL; the resource paths are relative to it
+   * @param cache     cache of the remote parts
+   * @param ioThreads number of parts downloaded at the same time
+   */
+  public ResourceOpener(URI base, ResourceCache cache, int ioThreads) {
+    this(base, cache, Fetcher.urlConnection(30_000, 60_000), Executors.newFixedThreadPool(ioThreads, daemonThreads()),
+        true, ioThreads);
+  }
+
+  /**
+   * @param base     directory of the descriptor, as a {@code file:} URI or a URL; the resource paths are relative to it
+   * @param cache    cache of the remote parts
+   * @param fetcher  downloads the remote parts
+   * @param executor executor of the downloads, not shut down by {@link #close()}
+   * @param prefetch number of parts downloaded ahead of the one being read
+   */
+  public ResourceOpener(URI base, ResourceCache cache, Fetcher fetcher, ExecutorService executor, int prefetch) {
+    this(base, cache, fetcher, executor, false, prefetch);
+  }
+
+  private ResourceOpener(URI base, ResourceCache cache, Fetcher fetcher, ExecutorService executor, boolean ownsExecutor,
+                         int prefetch) {
+    if (prefetch < 0) {
+      throw new IllegalArgumentException("Prefetch must not be negative");
+    }
+    if (!base.isAbsolute()) {
+      throw new IllegalArgumentException("Base must be absolute: " + base);
+    }
+    if ("file".equalsIgnoreCase(base.getScheme())) {
+      this.baseDirectory = Path.of(base);
+      this.base = baseDirectory.toUri();
+    } else {
+      this.baseDirectory = null;
+      this.base = (base.getPath() == null || base.getPath().endsWith("/") ? base : URI.create(base + "/")).normalize();
+    }
+    this.cache = cache;
+    this.fetcher = fetcher;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * Absolute URI of a part.
+   *
+   * @throws IllegalArgumentException if the part escapes the directory of the descriptor, or is a local file
+   *                                  referenced by a remote descriptor
+   */
+  public URI resolve(String part) {
+    if (ResourcePaths.isUrl(part)) {
+      URI uri = URI.create(part);
+      if (!isRemote(uri)) {
+        if (baseDirectory == null) {
+          throw new IllegalArgumentException("Local path in a remote package: " + part);
+        }
+        return ResourcePaths.resolveLocal(baseDirectory, part).toUri();
+      }
+      return uri;
+    }
+    if (baseDirectory != null) {
+      return ResourcePaths.resolveLocal(baseDirectory, part).toUri();
+    }
+    URI resolved = base.resolve(part).normalize();
+    if (!resolved.toString().startsWith(base.toString())) {
+      throw new IllegalArgumentException("Resource path escapes the package directory: " + part);
+    }
+    return resolved;
+  }
+
+  /**
+   * All parts of the resource in order as one stream, the next parts being downloaded while one is read.
+   *
+   * @throws IllegalArgumentException if the resource has no path or one of its parts can't be resolved
+   */
+  public InputStream open(FrictionlessResource<?, ?> resource) throws IOException {
+    List<URI> parts = resolveAll(resource);
+    String hash = resource.getHash() == null || resource.getHash().isEmpty() ? null : resource.getHash();
+    if (parts.size() == 1) {
+      return open(parts.get(0), hash);
+    }
+    boolean remote = parts.stream().anyMatch(ResourceOpener::isRemote);
+    return new PrefetchingStream(resource.getName(), parts, remote ? hash : null);
+  }
+
+  /**
+   * Reader over local copies of the parts of the resource, all downloaded in parallel first. The copies are kept in
+   * the cache until the reader is closed.
+   *
+   * @throws IOException if a download fails or the parts don't match the declared hash
+   */
+  public MultipartResourceReader reader(FrictionlessResource<?, ?> resource) throws IOException {
+    List<URI> parts = resolveAll(resource);
+    String hash = resource.getHash() == null || resource.getHash().isEmpty() ? null : resource.getHash();
+    boolean remote = parts.stream().anyMatch(ResourceOpener::isRemote);
+    Leases release = new Leases();
+    try {
+      List<Callable<Path>> tasks = new ArrayList<>(parts.size());
+      for (URI part : parts) {
+        tasks.add(() -> {
+          if (!isRemote(part)) {
+            return Path.of(part);
+          }
+          return release.add(cache.get(part, parts.size() == 1 ? hash : null, fetcher)).getFile();
+        });
+      }
+      List<Path> files = invokeAll(tasks);
+      if (remote && hash != null && parts.size() > 1) {
+        HashAlgorithm algorithm = HashAlgorithm.of(hash);
+        MessageDigest digest = algorithm.newDigest();
+        byte[] buffer = new byte[BUFFER];
+        for (Path file : files) {
+          try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+              digest.update(buffer, 0, n);
+            }
+          }
+        }
+        checkHash(resource.getName(), parts, hash, algorithm.format(digest.digest()));
+      }
+      return new MultipartResourceReader(files, MultipartResourceReader.charset(resource), Compression.of(resource),
+          release);
+    } catch (IOException | RuntimeException e) {
+      release.close();
+      throw e;
+    }
+  }
+
+  private List<URI> resolveAll(FrictionlessResource<?, ?> resource) {
+    List<String> paths = ResourcePaths.parts(resource);
+    if (paths.isEmpty()) {
+      throw new IllegalArgumentException("Resource has no path: " + resource.getName());
+    }
+    List<URI> parts = new ArrayList<>(paths.size());
+    for (String path : paths) {
+      parts.add(resolve(path));
+    }
+    return parts;
+  }
+
+  /**
+   * Opens a part, downloaded into the cache if it is remote. The cached copy is kept until the stream is closed.
+   */
+  private InputStream open(URI part, String expectedHash) throws IOException {
+    if (!isRemote(part)) {
+      return Files.newInputStream(Path.of(part));
+    }
+    ResourceCache.Lease lease = cache.get(part, expectedHash, fetcher);
+    try {
+      return new FilterInputStream(Files.newInputStream(lease.getFile())) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            lease.close();
+          }
+        }
+      };
+    } catch (IOException | RuntimeException e) {
+      lease.close();
+      throw e;
+    }
+  }
+
+  private void checkHash(CharSequence name, List<URI> parts, String expectedHash, String actualHash) throws IOException {
+    if (HashAlgorithm.matches(expectedHash, actualHash)) {
+      return;
+    }
+    for (URI part : parts) {
+      if (isRemote(part)) {
+        cache.invalidate(part, null);
+      }
+    }
+    throw new IOException("Hash mismatch for resource " + name + ": expected " + expectedHash + ", found " + actualHash);
+  }
+
+  private static boolean isRemote(URI uri) {
+    return !"file".equalsIgnoreCase(uri.getScheme());
+  }
+
+  private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      List<T> results = new ArrayList<>(futures.size());
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while fetching resources", e);
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    } finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static IOException unwrap(Throwable cause) {
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    } else if (cause instanceof UncheckedIOException) {
+      return ((UncheckedIOException) cause).getCause();
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IOException(cause);
+  }
+
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ThreadFactory daemonThreads() {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "frictionless-fetch-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Downloads the content of remote URLs.
+   */
+  @FunctionalInterface
+  public interface Fetcher {
+
+    InputStream fetch(URI uri) throws IOException;
+
+    /**
+     * Fetcher using the {@link URLConnection} of the JVM, following redirects, failing on HTTP errors.
+     */
+    static Fetcher urlConnection(int connectTimeoutMillis, int readTimeoutMillis) {
+      return uri -> {
+        URLConnection connection = uri.toURL().openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        return connection.getInputStream();
+      };
+    }
+  }
+
+  /**
+   * Reads the parts in order, keeping up to {@link #prefetch} remote parts downloading ahead of the current one.
+   * Local parts are opened when they are reached.
+   */
+  private final class PrefetchingStream extends InputStream {
+
+    private final CharSequence name;
+    private final List<URI> parts;
+    private final String expectedHash;
+    private final HashAlgorithm algorithm;
+    private final MessageDigest digest;
+    private final Deque<Part> pending = new ArrayDeque<>();
+    private int scheduled;
+    private InputStream current;
+    private boolean finished;
+    private volatile boolean closed;
+
+    private PrefetchingStream(CharSequence name, List<URI> parts, String expectedHash) {
+      this.name = name;
+      this.parts = parts;
+      this.expectedHash = expectedHash;
+      this.algorithm = expectedHash == null ? null : HashAlgorithm.of(expectedHash);
+      this.digest = algorithm == null ? null : algorithm.newDigest();
+      schedule(prefetch + 1);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int n;
+      while ((n = read(b, 0, 1)) == 0) {
+        // retry until a byte or the end
+      }
+      return n < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      if (len == 0) {
+        return 0;
+      }
+      while (true) {
+        if (current == null && !advance()) {
+          return -1;
+        }
+        int n = current.read(b, off, len);
+        if (n >= 0) {
+          if (digest != null) {
+            digest.update(b, off, n);
+          }
+          return n;
+        }
+        current.close();
+        current = null;
+      }
+    }
+
+    private boolean advance() throws IOException {
+      if (pending.isEmpty()) {
+        if (!finished) {
+          finished = true;
+          if (digest != null) {
+            checkHash(name, parts, expectedHash, algorithm.format(digest.digest()));
+          }
+        }
+        return false;
+      }
+      Part next = pending.removeFirst();
+      schedule(prefetch + 1);
+      if (next.download == null) {
+        current = open(next.uri, null);
+        return true;
+      }
+      try {
+        current = next.download.join();
+      } catch (CompletionException e) {
+        throw unwrap(e.getCause());
+      }
+      return true;
+    }
+
+    /**
+     * Schedules the parts following the current one, up to the given number.
+     */
+    private void schedule(int ahead) {
+      while (pending.size() < ahead && scheduled < parts.size()) {
+        URI part = parts.get(scheduled++);
+        CompletableFuture<InputStream> download = null;
+        if (isRemote(part)) {
+          download = CompletableFuture.supplyAsync(() -> {
+            try {
+              return open(part, null);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }, executor);
+        }
+        pending.addLast(new Part(part, download));
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      // downloads in progress complete into the cache, their streams are closed once opened
+      for (Part part : pending) {
+        if (part.download != null) {
+          part.download.thenAccept(ResourceOpener::closeQuietly);
+        }
+      }
+      pending.clear();
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+    }
+  }
+
+  private static final class Part {
+
+    private final URI uri;
+    // null for local parts, opened when they are reached
+    private final CompletableFuture<InputStream> download;
+
+    private Part(URI uri, CompletableFuture<InputStream> download) {
+      this.uri = uri;
+      this.download = download;
+    }
+  }
+
+  /**
+   * Leases of the parts of a reader. Cancelling a failed read doesn't stop a download already running, so a lease
+   * added once released is closed right away rather than pinning its entry forever.
+   */
+  private static final class Leases implements Closeable {
+
+    private final List<ResourceCache.Lease> leases = new ArrayList<>();
+    private boolean released;
+
+    synchronized ResourceCache.Lease add(ResourceCache.Lease lease) {
+      if (released) {
+        lease.close();
+      } else {
+        leases.add(lease);
+      }
+      return lease;
+    }
+
+    @Override
+    public synchronized void close() {
+      released = true;
+      leases.forEach(ResourceCache.Lease::close);
+      leases.clear();
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // nothing to recover
+    }
+  }
+}
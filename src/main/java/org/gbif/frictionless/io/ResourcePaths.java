@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessResource;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers for the {@code path} of a {@link FrictionlessResource}, which is either a single path or an array of
+ * paths, each a POSIX path relative to the descriptor or a URL.
+ */
+public final class ResourcePaths {
+
+  private static final Pattern URL = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://.*");
+
+  private ResourcePaths() {
+  }
+
+  /**
+   * The parts of the resource in order, empty if it has no path (e.g. inline data).
+   */
+  public static List<String> parts(FrictionlessResource<?, ?> resource) {
+    Object path = resource.getPath();
+    if (path == null) {
+      return Collections.emptyList();
+    }
+    if (path instanceof CharSequence) {
+      return Collections.singletonList(path.toString());
+    }
+    if (path instanceof Collection) {
+      List<String> parts = new ArrayList<>(((Collection<?>) path).size());
+      for (Object part : (Collection<?>) path) {
+        if (!(part instanceof CharSequence)) {
+          throw new IllegalArgumentException("Resource path must be a string or an array of strings, found " + part);
+        }
+        parts.add(part.toString());
+      }
+      return parts;
+    }
+    if (path instanceof Object[]) {
+      List<String> parts = new ArrayList<>(((Object[]) path).length);
+      for (Object part : (Object[]) path) {
+        parts.add(String.valueOf(part));
+      }
+      return parts;
+    }
+    throw new IllegalArgumentException("Resource path must be a string or an array of strings, found " + path);
+  }
+
+  public static boolean isUrl(String path) {
+    return URL.matcher(path).matches();
+  }
+
+  /**
+   * Resolves a local part against the directory of the descriptor. A {@code file:} URL is accepted as long as it
+   * points inside that directory too.
+   *
+   * @throws IllegalArgumentException if the part is a URL other than {@code file:}, or escapes the base directory
+   */
+  public static Path resolveLocal(Path baseDirectory, String part) {
+    Path base = baseDirectory.toAbsolutePath().normalize();
+    Path resolved;
+    if (isUrl(part)) {
+      if (!part.regionMatches(true, 0, "file:", 0, 5)) {
+        throw new IllegalArgumentException("Not a local path: " + part);
+      }
+      resolved = Path.of(URI.create(part)).toAbsolutePath().normalize();
+    } else {
+      resolved = base.resolve(part).normalize();
+    }
+    if (!resolved.startsWith(base)) {
+      throw new IllegalArgumentException("Resource path escapes the package directory: " + part);
+    }
+    return resolved;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import lombok.Value;
+
+/**
+ * Outcome of checking the {@code bytes} and {@code hash} of a resource against its files.
+ */
+@Value
+public class ResourceVerification {
+
+  private final String resourceName;
+
+  /**
+   * Declared size, null if the resource has none.
+   */
+  private final Long expectedBytes;
+
+  private final long actualBytes;
+
+  /**
+   * Declared hash, null if the resource has none.
+   */
+  private final String expectedHash;
+
+  /**
+   * Computed hash with the algorithm of the declared one, null if the resource has none.
+   */
+  private final String actualHash;
+
+  public boolean isBytesValid() {
+    return expectedBytes == null || expectedBytes == actualBytes;
+  }
+
+  public boolean isHashValid() {
+    return expectedHash == null || HashAlgorithm.matches(expectedHash, actualHash);
+  }
+
+  public boolean isValid() {
+    return isBytesValid() && isHashValid();
+  }
+}
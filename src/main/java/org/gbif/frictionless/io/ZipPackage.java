@@ -0,0 +1,358 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessPackageReader;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * A data package stored in a zip archive, read in place without extracting it.
+ * <p>
+ * The entries are looked up through the central directory. The descriptor and the resource parts are opened as
+ * streams, entries stored without compression can also be memory mapped. The descriptor is either at the root of the
+ * archive or in a single top-level directory, resource paths are resolved relative to it.
+ */
+public class ZipPackage implements Closeable {
+
+  /**
+   * Name of the descriptor entry.
+   */
+  public static final String DESCRIPTOR = "datapackage.json";
+
+  private static final int EOCD_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int EOCD_SIZE = 22;
+  private static final int ZIP64_EXTRA = 0x0001;
+
+  /**
+   * Largest region of a part mapped at once, a single mapping is limited to 2 GiB.
+   */
+  static final long MAP_WINDOW = 1L << 30;
+
+  private final ZipFile zipFile;
+  private final FileChannel channel;
+  private final Map<String, Entry> entries;
+  private final String descriptorName;
+  private final String prefix;
+
+  private ZipPackage(ZipFile zipFile, FileChannel channel, Map<String, Entry> entries, String descriptorName) {
+    this.zipFile = zipFile;
+    this.channel = channel;
+    this.entries = entries;
+    this.descriptorName = descriptorName;
+    this.prefix = descriptorName.substring(0, descriptorName.length() - DESCRIPTOR.length());
+  }
+
+  /**
+   * Opens a zipped data package.
+   *
+   * @throws NoSuchFileException if the archive has no descriptor
+   */
+  public static ZipPackage open(Path zip) throws IOException {
+    ZipFile zipFile = new ZipFile(zip.toFile());
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(zip, StandardOpenOption.READ);
+      Map<String, Entry> entries = readCentralDirectory(channel);
+      String descriptorName = null;
+      for (String name : entries.keySet()) {
+        if (isDescriptor(name) && (descriptorName == null || name.length() < descriptorName.length())) {
+          descriptorName = name;
+        }
+      }
+      if (descriptorName == null) {
+        throw new NoSuchFileException(zip + "!/" + DESCRIPTOR);
+      }
+      return new ZipPackage(zipFile, channel, entries, descriptorName);
+    } catch (IOException | RuntimeException e) {
+      zipFile.close();
+      if (channel != null) {
+        channel.close();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * The descriptor at the root, or in a single top-level directory.
+   */
+  private static boolean isDescriptor(String name) {
+    int slash = name.indexOf('/');
+    return name.equals(DESCRIPTOR) || name.endsWith('/' + DESCRIPTOR) && slash == name.length() - DESCRIPTOR.length() - 1;
+  }
+
+  /**
+   * Opens the descriptor.
+   */
+  public InputStream openDescriptor() throws IOException {
+    return openEntry(descriptorName);
+  }
+
+  /**
+   * Reads the descriptor with a streaming package reader, resources are handed out one at a time.
+   */
+  public <M extends FrictionlessMetadata<?, ?, ?>, R extends FrictionlessResource<?, ?>> FrictionlessPackageReader.PackageStream<M, R> readPackage(
+      FrictionlessPackageReader<M, R> reader) throws IOException {
+    return reader.open(this::openDescriptor);
+  }
+
+  /**
+   * True if the archive holds the given resource part.
+   */
+  public boolean contains(String part) {
+    return entries.containsKey(prefix + part);
+  }
+
+  /**
+   * Names of the resource parts in the archive, relative to the descriptor.
+   */
+  public List<String> getParts() {
+    List<String> parts = new ArrayList<>();
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      String name = entry.getKey();
+      if (name.startsWith(prefix) && !name.equals(descriptorName) && !name.endsWith("/")) {
+        parts.add(name.substring(prefix.length()));
+      }
+    }
+    return Collections.unmodifiableList(parts);
+  }
+
+  /**
+   * Uncompressed size of a resource part.
+   */
+  public long size(String part) throws IOException {
+    return entry(part).size;
+  }
+
+  /**
+   * Opens a resource part, relative to the descriptor.
+   */
+  public InputStream openPart(String part) throws IOException {
+    entry(part);
+    return openEntry(prefix + part);
+  }
+
+  /**
+   * Opens all parts of a resource as one stream, in order.
+   */
+  public InputStream openResource(FrictionlessResource<?, ?> resource) throws IOException {
+    List<String> parts = ResourcePaths.parts(resource);
+    List<InputStream> streams = new ArrayList<>(parts.size());
+    try {
+      for (String part : parts) {
+        streams.add(openPart(part));
+      }
+    } catch (IOException e) {
+      for (InputStream stream : streams) {
+        stream.close();
+      }
+      throw e;
+    }
+    return new SequenceInputStream(Collections.enumeration(streams));
+  }
+
+  /**
+   * True if a part is stored without compression and can be mapped.
+   */
+  public boolean isStored(String part) throws IOException {
+    return entry(part).method == ZipEntry.STORED;
+  }
+
+  /**
+   * Maps a part stored without compression straight from the archive, as consecutive regions of at most 1 GiB since a
+   * single mapping is limited to 2 GiB. An empty part has no region.
+   *
+   * @throws ZipException if the part is compressed
+   */
+  public List<MappedByteBuffer> mapPart(String part) throws IOException {
+    Entry entry = entry(part);
+    if (entry.method != ZipEntry.STORED) {
+      throw new ZipException("Entry " + part + " is compressed and can't be mapped");
+    }
+    ByteBuffer header = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(channel, header, entry.localHeaderOffset);
+    if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+      throw new ZipException("Invalid local header for " + part);
+    }
+    long dataOffset = entry.localHeaderOffset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+    if (dataOffset + entry.compressedSize > channel.size()) {
+      throw new ZipException("Entry " + part + " extends past the end of the archive");
+    }
+    List<MappedByteBuffer> regions = new ArrayList<>((int) (entry.compressedSize / MAP_WINDOW) + 1);
+    for (long position = 0; position < entry.compressedSize; position += MAP_WINDOW) {
+      regions.add(channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + position,
+          Math.min(MAP_WINDOW, entry.compressedSize - position)));
+    }
+    return regions;
+  }
+
+  private Entry entry(String part) throws IOException {
+    Entry entry = entries.get(prefix + part);
+    if (entry == null) {
+      throw new NoSuchFileException(prefix + part);
+    }
+    return entry;
+  }
+
+  private InputStream openEntry(String name) throws IOException {
+    ZipEntry entry = zipFile.getEntry(name);
+    if (entry == null) {
+      throw new NoSuchFileException(name);
+    }
+    return zipFile.getInputStream(entry);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      zipFile.close();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads the central directory, including the ZIP64 extensions.
+   */
+  private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+    long fileSize = channel.size();
+    int tailSize = (int) Math.min(fileSize, EOCD_SIZE + 0xFFFF);
+    ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(channel, tail, fileSize - tailSize);
+    int eocd = -1;
+    for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+      if (tail.getInt(i) == EOCD_SIGNATURE) {
+        eocd = i;
+        break;
+      }
+    }
+    if (eocd < 0) {
+      throw new ZipException("End of central directory not found");
+    }
+    long count = tail.getShort(eocd + 10) & 0xFFFF;
+    long directorySize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+    long directoryOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+
+    if ((count == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) && eocd >= 20
+        && tail.getInt(eocd - 20) == ZIP64_LOCATOR_SIGNATURE) {
+      ByteBuffer zip64 = ByteBuffer.allocate(56).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(channel, zip64, tail.getLong(eocd - 20 + 8));
+      if (zip64.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+        throw new ZipException("Invalid ZIP64 end of central directory");
+      }
+      count = zip64.getLong(32);
+      directorySize = zip64.getLong(40);
+      directoryOffset = zip64.getLong(48);
+    }
+
+    if (directoryOffset + directorySize > fileSize) {
+      throw new ZipException("Central directory outside of the archive");
+    }
+    ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    Map<String, Entry> entries = new LinkedHashMap<>();
+    int position = 0;
+    for (long i = 0; i < count; i++) {
+      if (directory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+        throw new ZipException("Invalid central directory header");
+      }
+      int method = directory.getShort(position + 10) & 0xFFFF;
+      long compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+      long size = directory.getInt(position + 24) & 0xFFFFFFFFL;
+      int nameLength = directory.getShort(position + 28) & 0xFFFF;
+      int extraLength = directory.getShort(position + 30) & 0xFFFF;
+      int commentLength = directory.getShort(position + 32) & 0xFFFF;
+      long localHeaderOffset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+
+      byte[] name = new byte[nameLength];
+      directory.position(position + 46);
+      directory.get(name);
+
+      int extra = position + 46 + nameLength;
+      int extraEnd = extra + extraLength;
+      while (extra + 4 <= extraEnd) {
+        int id = directory.getShort(extra) & 0xFFFF;
+        int length = directory.getShort(extra + 2) & 0xFFFF;
+        if (id == ZIP64_EXTRA) {
+          int field = extra + 4;
+          if (size == 0xFFFFFFFFL) {
+            size = directory.getLong(field);
+            field += 8;
+          }
+          if (compressedSize == 0xFFFFFFFFL) {
+            compressedSize = directory.getLong(field);
+            field += 8;
+          }
+          if (localHeaderOffset == 0xFFFFFFFFL) {
+            localHeaderOffset = directory.getLong(field);
+          }
+        }
+        extra += 4 + length;
+      }
+
+      entries.put(new String(name, StandardCharsets.UTF_8), new Entry(method, compressedSize, size, localHeaderOffset));
+      position = extraEnd + commentLength;
+    }
+    return entries;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new ZipException("Unexpected end of archive");
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final int method;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
+
+    private Entry(int method, long compressedSize, long size, long localHeaderOffset) {
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a zipped data package in a single pass over the output.
+ * <p>
+ * Resource parts are copied into the archive while their size and hash are computed, so the descriptor written
+ * last can carry them without reading the data again.
+ */
+public class ZipPackageWriter implements Closeable {
+
+  /**
+   * Largest region mapped at once to compute the checksum of a stored part, a single mapping is limited to 2 GiB.
+   */
+  private static final long MAP_WINDOW = 1L << 30;
+
+  private final ZipOutputStream zip;
+  private final Set<String> names = new HashSet<>();
+
+  public ZipPackageWriter(OutputStream out) {
+    this.zip = new ZipOutputStream(out);
+  }
+
+  /**
+   * Compressed part from a stream.
+   *
+   * @return size and hash of the uncompressed part
+   */
+  public PartInfo addPart(String part, InputStream in, HashAlgorithm algorithm) throws IOException {
+    zip.putNextEntry(new ZipEntry(checkName(part)));
+    MessageDigest digest = algorithm.newDigest();
+    CountingOutputStream out = new CountingOutputStream(zip, digest);
+    in.transferTo(out);
+    zip.closeEntry();
+    return new PartInfo(out.count, algorithm.format(digest.digest()));
+  }
+
+  /**
+   * Part from a local file, compressed or stored as is so it can later be mapped from the archive.
+   * Stored parts are read twice, once for the checksum required upfront by the zip format.
+   *
+   * @return size and hash of the part
+   */
+  public PartInfo addPart(String part, Path file, HashAlgorithm algorithm, boolean stored) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ZipEntry entry = new ZipEntry(checkName(part));
+      if (stored) {
+        long size = channel.size();
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < size; position += MAP_WINDOW) {
+          MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+          crc.update(window);
+        }
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+      }
+      zip.putNextEntry(entry);
+      MessageDigest digest = algorithm.newDigest();
+      CountingOutputStream out = new CountingOutputStream(zip, digest);
+      Channels.newInputStream(channel.position(0)).transferTo(out);
+      zip.closeEntry();
+      return new PartInfo(out.count, algorithm.format(digest.digest()));
+    }
+  }
+
+  /**
+   * Adds all parts of a local resource under their paths, and sets its {@code bytes} and {@code hash}.
+   */
+  public void addResource(FrictionlessResource<?, ?> resource, Path baseDirectory, HashAlgorithm algorithm) throws IOException {
+    MessageDigest digest = algorithm.newDigest();
+    long size = 0;
+    for (String part : ResourcePaths.parts(resource)) {
+      zip.putNextEntry(new ZipEntry(checkName(part)));
+      CountingOutputStream out = new CountingOutputStream(zip, digest);
+      try (InputStream in = Channels.newInputStream(FileChannel.open(ResourcePaths.resolveLocal(baseDirectory, part), StandardOpenOption.READ))) {
+        in.transferTo(out);
+      }
+      zip.closeEntry();
+      size += out.count;
+    }
+    resource.setBytes(size);
+    resource.setHash(algorithm.format(digest.digest()));
+  }
+
+  /**
+   * Writes the descriptor: the package metadata with the given resources.
+   */
+  public <C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> void writeDescriptor(
+      FrictionlessJson<C, L, S> json, FrictionlessMetadata<C, L, S> metadata,
+      Iterable<? extends FrictionlessResource<S, L>> resources) throws IOException {
+    zip.putNextEntry(new ZipEntry(checkName(ZipPackage.DESCRIPTOR)));
+    json.writePackage(zip, metadata, resources);
+    zip.closeEntry();
+  }
+
+  private String checkName(String name) throws ZipException {
+    if (!names.add(name)) {
+      throw new ZipException("Duplicate entry " + name);
+    }
+    return name;
+  }
+
+  /**
+   * Finishes the archive and closes the output.
+   */
+  @Override
+  public void close() throws IOException {
+    zip.close();
+  }
+
+  /**
+   * Size and hash of a part written to the archive.
+   */
+  public static final class PartInfo {
+
+    private final long bytes;
+    private final String hash;
+
+    PartInfo(long bytes, String hash) {
+      this.bytes = bytes;
+      this.hash = hash;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public String getHash() {
+      return hash;
+    }
+  }
+
+  /**
+   * Forwards to the archive while counting and digesting, without closing it.
+   */
+  private static final class CountingOutputStream extends FilterOutputStream {
+
+    private final MessageDigest digest;
+    private long count;
+
+    CountingOutputStream(OutputStream out, MessageDigest digest) {
+      super(out);
+      this.digest = digest;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      digest.update((byte) b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      digest.update(b, off, len);
+      count += len;
+    }
+
+    @Override
+    public void close() {
+      // the entry is closed by the writer
+    }
+  }
+}
@@ -0,0 +1,519 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Field by field encoding of the default model classes, in the manner of {@code Externalizable}.
+ * <p>
+ * Fields are written in declaration order without names. Lengths and integers are variable length, so small
+ * descriptors stay small. Free-form values (paths, inline data, additional properties) are written with a type tag,
+ * values of other types than the ones produced by JSON deserialization fall back to the binary JSON encoding of the
+ * given mapper.
+ */
+final class BinaryModelCodec {
+
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int TRUE = 2;
+  private static final int FALSE = 3;
+  private static final int INT = 4;
+  private static final int LONG = 5;
+  private static final int DOUBLE = 6;
+  private static final int BIG_INTEGER = 7;
+  private static final int BIG_DECIMAL = 8;
+  private static final int LIST = 9;
+  private static final int MAP = 10;
+  private static final int INLINE_DATA = 11;
+  private static final int OTHER = 12;
+
+  private final ObjectMapper mapper;
+
+  BinaryModelCodec(ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * Whether the object graph only holds the default model classes, which this codec can write.
+   */
+  static boolean isSupported(FrictionlessMetadata<?, ?, ?> metadata) {
+    return (metadata.getClass() == FrictionlessMetadata.class || metadata instanceof FrozenMetadata)
+        && allOf(metadata.getContributors(), FrictionlessContributor.class, Frozen.FrozenContributor.class)
+        && allOf(metadata.getLicenses(), FrictionlessLicense.class, Frozen.FrozenLicense.class)
+        && allOf(metadata.getSources(), FrictionlessSource.class, Frozen.FrozenSource.class);
+  }
+
+  static boolean isSupported(FrictionlessResource<?, ?> resource) {
+    return (resource.getClass() == FrictionlessResource.class || resource instanceof FrozenResource)
+        && allOf(resource.getLicenses(), FrictionlessLicense.class, Frozen.FrozenLicense.class)
+        && allOf(resource.getSources(), FrictionlessSource.class, Frozen.FrozenSource.class);
+  }
+
+  private static boolean allOf(List<?> values, Class<?> type, Class<?> frozenType) {
+    if (values != null) {
+      for (Object value : values) {
+        if (value != null && value.getClass() != type && value.getClass() != frozenType) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  void writeMetadata(DataOutput out, FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata)
+      throws IOException {
+    writeString(out, metadata.getTitle());
+    writeString(out, metadata.getVersion());
+    writeString(out, metadata.getProfile());
+    writeString(out, metadata.getName());
+    writeString(out, metadata.getId());
+    writeString(out, metadata.getDescription());
+    writeUri(out, metadata.getHomepage());
+    writeDate(out, metadata.getCreated());
+    List<FrictionlessContributor> contributors = metadata.getContributors();
+    if (writeSize(out, contributors)) {
+      for (FrictionlessContributor contributor : contributors) {
+        writeContributor(out, contributor);
+      }
+    }
+    writeStrings(out, metadata.getKeywords());
+    writeString(out, metadata.getImage());
+    writeLicenses(out, metadata.getLicenses());
+    writeSources(out, metadata.getSources());
+    writeProperties(out, metadata.additionalPropertiesOrNull());
+  }
+
+  FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> readMetadata(DataInput in)
+      throws IOException {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = new FrictionlessMetadata<>();
+    metadata.setTitle(readString(in));
+    metadata.setVersion(readString(in));
+    metadata.setProfile(readString(in));
+    metadata.setName(readString(in));
+    metadata.setId(readString(in));
+    metadata.setDescription(readString(in));
+    metadata.setHomepage(readUri(in));
+    metadata.setCreated(readDate(in));
+    int contributors = readSize(in);
+    if (contributors < 0) {
+      metadata.setContributors(null);
+    } else {
+      List<FrictionlessContributor> list = new ArrayList<>(contributors);
+      for (int i = 0; i < contributors; i++) {
+        list.add(readContributor(in));
+      }
+      metadata.setContributors(list);
+    }
+    metadata.setKeywords(readStrings(in));
+    metadata.setImage(readString(in));
+    metadata.setLicenses(readLicenses(in));
+    metadata.setSources(readSources(in));
+    readProperties(in, metadata::setAdditionalProperty);
+    return metadata;
+  }
+
+  void writeResource(DataOutput out, FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource) throws IOException {
+    writeString(out, resource.getProfile());
+    writeString(out, resource.getName() == null ? null : resource.getName().toString());
+    writeValue(out, resource.getPath());
+    writeValue(out, resource.getData());
+    writeString(out, resource.getSchema());
+    writeString(out, resource.getTitle());
+    writeString(out, resource.getDescription());
+    writeUri(out, resource.getHomepage());
+    writeSources(out, resource.getSources());
+    writeLicenses(out, resource.getLicenses());
+    writeString(out, resource.getFormat());
+    writeString(out, resource.getMediatype());
+    writeString(out, resource.getEncoding());
+    if (resource.getBytes() == null) {
+      out.writeByte(NULL);
+    } else {
+      out.writeByte(LONG);
+      writeVarLong(out, resource.getBytes());
+    }
+    writeString(out, resource.getHash());
+    writeProperties(out, resource.additionalPropertiesOrNull());
+  }
+
+  FrictionlessResource<FrictionlessSource, FrictionlessLicense> readResource(DataInput in) throws IOException {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setProfile(readString(in));
+    resource.setName(readString(in));
+    resource.setPath(readValue(in));
+    resource.setData(readValue(in));
+    resource.setSchema(readString(in));
+    resource.setTitle(readString(in));
+    resource.setDescription(readString(in));
+    resource.setHomepage(readUri(in));
+    resource.setSources(readSources(in));
+    resource.setLicenses(readLicenses(in));
+    resource.setFormat(readString(in));
+    resource.setMediatype(readString(in));
+    resource.setEncoding(readString(in));
+    resource.setBytes(in.readByte() == NULL ? null : readVarLong(in));
+    resource.setHash(readString(in));
+    readProperties(in, resource::setAdditionalProperty);
+    return resource;
+  }
+
+  private void writeContributor(DataOutput out, FrictionlessContributor contributor) throws IOException {
+    if (contributor == null) {
+      out.writeBoolean(false);
+      return;
+    }
+    out.writeBoolean(true);
+    writeString(out, contributor.getTitle());
+    writeString(out, contributor.getPath());
+    writeString(out, contributor.getEmail());
+    writeString(out, contributor.getOrganization());
+    writeString(out, contributor.getRole());
+    writeProperties(out, contributor.additionalPropertiesOrNull());
+  }
+
+  private FrictionlessContributor readContributor(DataInput in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    FrictionlessContributor contributor = new FrictionlessContributor();
+    contributor.setTitle(readString(in));
+    contributor.setPath(readString(in));
+    contributor.setEmail(readString(in));
+    contributor.setOrganization(readString(in));
+    contributor.setRole(readString(in));
+    readProperties(in, contributor::setAdditionalProperty);
+    return contributor;
+  }
+
+  private void writeLicenses(DataOutput out, List<FrictionlessLicense> licenses) throws IOException {
+    if (writeSize(out, licenses)) {
+      for (FrictionlessLicense license : licenses) {
+        out.writeBoolean(license != null);
+        if (license != null) {
+          writeString(out, license.getName());
+          writeString(out, license.getPath());
+          writeString(out, license.getTitle());
+          writeProperties(out, license.additionalPropertiesOrNull());
+        }
+      }
+    }
+  }
+
+  private List<FrictionlessLicense> readLicenses(DataInput in) throws IOException {
+    int size = readSize(in);
+    if (size < 0) {
+      return null;
+    }
+    List<FrictionlessLicense> licenses = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      FrictionlessLicense license = null;
+      if (in.readBoolean()) {
+        license = new FrictionlessLicense();
+        license.setName(readString(in));
+        license.setPath(readString(in));
+        license.setTitle(readString(in));
+        readProperties(in, license::setAdditionalProperty);
+      }
+      licenses.add(license);
+    }
+    return licenses;
+  }
+
+  private void writeSources(DataOutput out, List<FrictionlessSource> sources) throws IOException {
+    if (writeSize(out, sources)) {
+      for (FrictionlessSource source : sources) {
+        out.writeBoolean(source != null);
+        if (source != null) {
+          writeString(out, source.getTitle());
+          writeString(out, source.getPath());
+          writeString(out, source.getEmail());
+          writeProperties(out, source.additionalPropertiesOrNull());
+        }
+      }
+    }
+  }
+
+  private List<FrictionlessSource> readSources(DataInput in) throws IOException {
+    int size = readSize(in);
+    if (size < 0) {
+      return null;
+    }
+    List<FrictionlessSource> sources = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      FrictionlessSource source = null;
+      if (in.readBoolean()) {
+        source = new FrictionlessSource();
+        source.setTitle(readString(in));
+        source.setPath(readString(in));
+        source.setEmail(readString(in));
+        readProperties(in, source::setAdditionalProperty);
+      }
+      sources.add(source);
+    }
+    return sources;
+  }
+
+  private void writeProperties(DataOutput out, Map<String, Object> properties) throws IOException {
+    if (properties == null) {
+      writeVarLong(out, 0);
+      return;
+    }
+    writeVarLong(out, properties.size());
+    for (Map.Entry<String, Object> property : properties.entrySet()) {
+      writeString(out, property.getKey());
+      writeValue(out, property.getValue());
+    }
+  }
+
+  private void readProperties(DataInput in, PropertySetter setter) throws IOException {
+    long size = readVarLong(in);
+    for (long i = 0; i < size; i++) {
+      setter.set(readString(in), readValue(in));
+    }
+  }
+
+  /**
+   * A JSON-like value: the types produced by untyped JSON deserialization, and inline data.
+   */
+  private void writeValue(DataOutput out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      out.writeByte(INT);
+      writeVarLong(out, ((Number) value).intValue());
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      writeVarLong(out, (Long) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof BigInteger) {
+      out.writeByte(BIG_INTEGER);
+      writeString(out, value.toString());
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(BIG_DECIMAL);
+      writeString(out, value.toString());
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      out.writeByte(LIST);
+      writeVarLong(out, list.size());
+      for (Object element : list) {
+        writeValue(out, element);
+      }
+    } else if (value instanceof Map && allStringKeys((Map<?, ?>) value)) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeByte(MAP);
+      writeVarLong(out, map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeString(out, (String) entry.getKey());
+        writeValue(out, entry.getValue());
+      }
+    } else if (value instanceof InlineData) {
+      out.writeByte(INLINE_DATA);
+      writeBytes(out, ((InlineData) value).toByteArray());
+    } else {
+      out.writeByte(OTHER);
+      writeBytes(out, mapper.writeValueAsBytes(value));
+    }
+  }
+
+  private Object readValue(DataInput in) throws IOException {
+    int tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case INT:
+        return (int) readVarLong(in);
+      case LONG:
+        return readVarLong(in);
+      case DOUBLE:
+        return in.readDouble();
+      case BIG_INTEGER:
+        return new BigInteger(readString(in));
+      case BIG_DECIMAL:
+        return new BigDecimal(readString(in));
+      case LIST:
+        int size = (int) readVarLong(in);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(in));
+        }
+        return list;
+      case MAP:
+        int entries = (int) readVarLong(in);
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < entries; i++) {
+          map.put(readString(in), readValue(in));
+        }
+        return map;
+      case INLINE_DATA:
+        return InlineData.of(readBytes(in));
+      case OTHER:
+        return mapper.readValue(readBytes(in), Object.class);
+      default:
+        throw new StreamCorruptedException("Unknown value tag " + tag);
+    }
+  }
+
+  private static boolean allStringKeys(Map<?, ?> map) {
+    for (Object key : map.keySet()) {
+      if (!(key instanceof String)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Size plus one, zero for a null list.
+   */
+  private static boolean writeSize(DataOutput out, List<?> list) throws IOException {
+    writeVarLong(out, list == null ? 0 : list.size() + 1L);
+    return list != null;
+  }
+
+  private static int readSize(DataInput in) throws IOException {
+    return (int) readVarLong(in) - 1;
+  }
+
+  private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+    if (writeSize(out, values)) {
+      for (String value : values) {
+        writeString(out, value);
+      }
+    }
+  }
+
+  private static List<String> readStrings(DataInput in) throws IOException {
+    int size = readSize(in);
+    if (size < 0) {
+      return null;
+    }
+    List<String> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(readString(in));
+    }
+    return values;
+  }
+
+  /**
+   * UTF-8 length plus one, zero for null, then the bytes. Unlike {@link DataOutput#writeUTF} not limited to 64 KiB.
+   */
+  private static void writeString(DataOutput out, String value) throws IOException {
+    if (value == null) {
+      out.writeByte(0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, bytes.length + 1L);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    int length = (int) readVarLong(in) - 1;
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInput in) throws IOException {
+    byte[] bytes = new byte[(int) readVarLong(in)];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static void writeUri(DataOutput out, URI uri) throws IOException {
+    writeString(out, uri == null ? null : uri.toString());
+  }
+
+  private static URI readUri(DataInput in) throws IOException {
+    String uri = readString(in);
+    return uri == null ? null : URI.create(uri);
+  }
+
+  private static void writeDate(DataOutput out, Date date) throws IOException {
+    out.writeBoolean(date != null);
+    if (date != null) {
+      out.writeLong(date.getTime());
+    }
+  }
+
+  private static Date readDate(DataInput in) throws IOException {
+    return in.readBoolean() ? new Date(in.readLong()) : null;
+  }
+
+  /**
+   * Zig-zag encoded, seven bits per byte.
+   */
+  private static void writeVarLong(DataOutput out, long value) throws IOException {
+    long zigZag = (value << 1) ^ (value >> 63);
+    while ((zigZag & ~0x7FL) != 0) {
+      out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+      zigZag >>>= 7;
+    }
+    out.writeByte((int) zigZag);
+  }
+
+  private static long readVarLong(DataInput in) throws IOException {
+    long zigZag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readByte();
+      zigZag |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+      }
+    }
+    throw new StreamCorruptedException("Malformed variable length integer");
+  }
+
+  @FunctionalInterface
+  private interface PropertySetter {
+
+    void set(String name, Object value);
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Insertion ordered map for a handful of entries, as the additional properties of the model usually are.
+ * <p>
+ * Keys and values are kept in one array and looked up linearly, which for a few entries is both smaller and faster
+ * than a {@link HashMap}. Above {@link #MAX_ARRAY_SIZE} entries it switches to a {@link LinkedHashMap}, keeping the
+ * order.
+ * Not thread-safe, null keys are not supported.
+ */
+public final class CompactMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+  private static final long serialVersionUID = 8154733129374604165L;
+
+  /**
+   * Number of entries kept in the array.
+   */
+  static final int MAX_ARRAY_SIZE = 8;
+
+  private static final Object[] EMPTY = {};
+
+  /**
+   * Keys at even, values at odd positions.
+   */
+  private Object[] table = EMPTY;
+  private int size;
+  private Map<K, V> large;
+  private transient int modCount;
+
+  public CompactMap() {
+  }
+
+  public CompactMap(Map<? extends K, ? extends V> map) {
+    putAll(map);
+  }
+
+  @Override
+  public int size() {
+    return large != null ? large.size() : size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return large != null ? large.containsKey(key) : indexOf(key) >= 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    if (large != null) {
+      return large.get(key);
+    }
+    int index = indexOf(key);
+    return index < 0 ? null : (V) table[index + 1];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V put(K key, V value) {
+    Objects.requireNonNull(key, "key");
+    if (large != null) {
+      return large.put(key, value);
+    }
+    int index = indexOf(key);
+    if (index >= 0) {
+      V previous = (V) table[index + 1];
+      table[index + 1] = value;
+      return previous;
+    }
+    if (size == MAX_ARRAY_SIZE) {
+      large = new LinkedHashMap<>(this);
+      table = EMPTY;
+      size = 0;
+      modCount++;
+      return large.put(key, value);
+    }
+    if (table.length == size * 2) {
+      table = Arrays.copyOf(table, Math.min(Math.max(4, size * 4), MAX_ARRAY_SIZE * 2));
+    }
+    table[size * 2] = key;
+    table[size * 2 + 1] = value;
+    size++;
+    modCount++;
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V remove(Object key) {
+    if (large != null) {
+      return large.remove(key);
+    }
+    int index = indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    V previous = (V) table[index + 1];
+    removeAt(index);
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    large = null;
+    table = EMPTY;
+    size = 0;
+    modCount++;
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return large != null ? large.entrySet() : new ArrayEntrySet();
+  }
+
+  private int indexOf(Object key) {
+    for (int i = 0; i < size * 2; i += 2) {
+      if (table[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void removeAt(int index) {
+    System.arraycopy(table, index + 2, table, index, size * 2 - index - 2);
+    size--;
+    table[size * 2] = null;
+    table[size * 2 + 1] = null;
+    modCount++;
+  }
+
+  private final class ArrayEntrySet extends AbstractSet<Entry<K, V>> {
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+      return new Iterator<Entry<K, V>>() {
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+          return next < size * 2;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+          if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+          }
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          last = next;
+          next += 2;
+          int index = last;
+          return new SimpleEntry<K, V>((K) table[index], (V) table[index + 1]) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public V setValue(V value) {
+              table[index + 1] = value;
+              return super.setValue(value);
+            }
+          };
+        }
+
+        @Override
+        public void remove() {
+          if (last < 0) {
+            throw new IllegalStateException();
+          }
+          if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+          }
+          removeAt(last);
+          next = last;
+          last = -1;
+          expectedModCount = modCount;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of parsed package descriptors, so descriptors served over and over are parsed once.
+ * <p>
+ * Descriptors are keyed by the SHA-256 of their content, or by path, modification time and size when read from a
+ * file. The cache is bounded by the estimated retained size of its entries. The least recently used entries are
+ * evicted first, and, in the manner of TinyLFU, a new descriptor only replaces them when it has been asked for more
+ * often recently than the entry it would evict, so a burst of one-off descriptors doesn't flush the popular ones.
+ * <p>
+ * Entries are never handed out: every call returns a deep copy, which callers are free to modify. Copies of the
+ * default model classes are made field by field, copies of extension subclasses through the
+ * {@link FrictionlessBinary binary codec}. Thread-safe. Concurrent misses on the same descriptor may both parse it.
+ *
+ * @param <C> contributor type
+ * @param <L> license type
+ * @param <S> source type
+ */
+public class DescriptorCache<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+  private final FrictionlessJson<C, L, S> json;
+  private final FrictionlessBinary<C, L, S> binary;
+  private final long maxWeight;
+  private final FrequencySketch sketch = new FrequencySketch();
+  private final LinkedHashMap<Object, Entry<C, L, S>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long weight;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+
+  /**
+   * @param json      codec parsing the descriptors
+   * @param maxWeight maximum estimated retained size of the cached descriptors, in bytes
+   */
+  public DescriptorCache(FrictionlessJson<C, L, S> json, long maxWeight) {
+    if (maxWeight <= 0) {
+      throw new IllegalArgumentException("Maximum weight must be positive");
+    }
+    this.json = json;
+    this.binary = json.binary();
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * Descriptor with the given content.
+   */
+  public FrictionlessMetadata<C, L, S> get(byte[] descriptor) throws IOException {
+    Object key = ByteBuffer.wrap(sha256(descriptor));
+    FrictionlessMetadata<C, L, S> metadata = lookup(key);
+    if (metadata == null) {
+      metadata = store(key, json.readMetadata(descriptor));
+    }
+    return copy(metadata);
+  }
+
+  /**
+   * Descriptor read from a file. A file modified since it was cached is read again.
+   */
+  public FrictionlessMetadata<C, L, S> get(Path descriptor) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(descriptor, BasicFileAttributes.class);
+    Object key = new SourceKey(descriptor.toAbsolutePath().normalize().toString(),
+        attributes.lastModifiedTime().toMillis(), attributes.size());
+    FrictionlessMetadata<C, L, S> metadata = lookup(key);
+    if (metadata == null) {
+      metadata = store(key, json.readMetadata(Files.readAllBytes(descriptor)));
+    }
+    return copy(metadata);
+  }
+
+  /**
+   * Drops all entries. The statistics are kept.
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    weight = 0;
+  }
+
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public Statistics getStatistics() {
+    return new Statistics(hits.sum(), misses.sum(), evictions.sum(), rejections.sum());
+  }
+
+  private synchronized FrictionlessMetadata<C, L, S> lookup(Object key) {
+    sketch.increment(key);
+    Entry<C, L, S> entry = entries.get(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.metadata;
+  }
+
+  /**
+   * Adds a parsed descriptor, evicting the least recently used entries as long as they were used less often than the
+   * new one.
+   */
+  private synchronized FrictionlessMetadata<C, L, S> store(Object key, FrictionlessMetadata<C, L, S> metadata) {
+    Entry<C, L, S> existing = entries.get(key);
+    if (existing != null) {
+      return existing.metadata;
+    }
+    long entryWeight = ModelCopier.estimateSize(metadata);
+    if (entryWeight > maxWeight) {
+      rejections.increment();
+      return metadata;
+    }
+    int frequency = sketch.frequency(key);
+    Iterator<Map.Entry<Object, Entry<C, L, S>>> eldest = entries.entrySet().iterator();
+    long available = maxWeight - weight;
+    // check first, so a rejected descriptor doesn't evict anything
+    for (Iterator<Entry<C, L, S>> victims = entries.values().iterator(); available < entryWeight; ) {
+      Entry<C, L, S> victim = victims.next();
+      if (sketch.frequency(victim.key) > frequency) {
+        rejections.increment();
+        return metadata;
+      }
+      available += victim.weight;
+    }
+    while (maxWeight - weight < entryWeight) {
+      Entry<C, L, S> victim = eldest.next().getValue();
+      eldest.remove();
+      weight -= victim.weight;
+      evictions.increment();
+    }
+    entries.put(key, new Entry<>(key, metadata, entryWeight));
+    weight += entryWeight;
+    return metadata;
+  }
+
+  private FrictionlessMetadata<C, L, S> copy(FrictionlessMetadata<C, L, S> metadata) {
+    if (ModelCopier.isSupported(metadata)) {
+      return ModelCopier.copy(metadata);
+    }
+    try {
+      return binary.readMetadata(binary.writeMetadataAsBytes(metadata));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static byte[] sha256(byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Cache counters since creation.
+   */
+  public static final class Statistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long rejections;
+
+    Statistics(long hits, long misses, long evictions, long rejections) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.rejections = rejections;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * Entries removed to make room for new ones.
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     * Parsed descriptors not cached, because they were too large or less popular than the entries they would evict.
+     */
+    public long getRejections() {
+      return rejections;
+    }
+
+    public double getHitRate() {
+      long requests = hits + misses;
+      return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+      return "Statistics(hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+          + ", rejections=" + rejections + ")";
+    }
+  }
+
+  private static final class Entry<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+    private final Object key;
+    private final FrictionlessMetadata<C, L, S> metadata;
+    private final long weight;
+
+    private Entry(Object key, FrictionlessMetadata<C, L, S> metadata, long weight) {
+      this.key = key;
+      this.metadata = metadata;
+      this.weight = weight;
+    }
+  }
+
+  private static final class SourceKey {
+
+    private final String path;
+    private final long lastModified;
+    private final long size;
+
+    private SourceKey(String path, long lastModified, long size) {
+      this.path = path;
+      this.lastModified = lastModified;
+      this.size = size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SourceKey)) {
+        return false;
+      }
+      SourceKey other = (SourceKey) o;
+      return lastModified == other.lastModified && size == other.size && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, lastModified, size);
+    }
+  }
+
+  /**
+   * Approximate recent access counts: a count-min sketch of counters capped at 15, halved once the number of increments
+   * reaches ten times its width so old popularity fades.
+   */
+  private static final class FrequencySketch {
+
+    private static final int WIDTH = 1 << 14;
+    private static final int DEPTH = 4;
+    private static final int MAX = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[][] counters = new byte[DEPTH][WIDTH];
+    private int additions;
+
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      for (int i = 0; i < DEPTH; i++) {
+        int index = index(hash, i);
+        if (counters[i][index] < MAX) {
+          counters[i][index]++;
+        }
+      }
+      if (++additions >= 10 * WIDTH) {
+        reset();
+      }
+    }
+
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      int frequency = MAX;
+      for (int i = 0; i < DEPTH; i++) {
+        frequency = Math.min(frequency, counters[i][index(hash, i)]);
+      }
+      return frequency;
+    }
+
+    private void reset() {
+      for (byte[] row : counters) {
+        for (int i = 0; i < row.length; i++) {
+          row[i] >>= 1;
+        }
+      }
+      additions /= 2;
+    }
+
+    private static int index(int hash, int row) {
+      int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+      return (h ^ (h >>> 15)) & (WIDTH - 1);
+    }
+
+    private static int spread(int hash) {
+      int h = hash * 0x45D9F3B;
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Compact binary codec for the metadata model, a smaller and faster alternative to Java serialization, e.g. for
+ * caches and distributed jobs.
+ * <p>
+ * Descriptors made of the default model classes are written field by field ({@link BinaryModelCodec}), descriptors
+ * using extension subclasses as Smile, the binary JSON format of Jackson, with the bindings of the
+ * {@link FrictionlessJson} codec this one was created from. Both decode to objects serializing to the same JSON as
+ * the originals.
+ * <p>
+ * Every encoded value starts with a header holding a version derived from the {@code serialVersionUID}s of the bound
+ * classes, so, as with Java serialization, changing one of them makes older encodings unreadable instead of
+ * silently misread. Thread-safe.
+ *
+ * @param <C> contributor type
+ * @param <L> license type
+ * @param <S> source type
+ */
+public final class FrictionlessBinary<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+  private static final int MAGIC = 0xFB;
+  private static final int FIELDS = 1;
+  private static final int SMILE = 2;
+
+  private final long version;
+  private final boolean defaultClasses;
+  private final BinaryModelCodec fields;
+  private final ObjectReader metadataReader;
+  private final ObjectWriter metadataWriter;
+  private final ObjectReader resourceReader;
+  private final ObjectWriter resourceWriter;
+
+  FrictionlessBinary(ObjectMapper jsonMapper, JavaType metadataType, JavaType resourceType,
+                     Class<C> contributorClass, Class<L> licenseClass, Class<S> sourceClass) {
+    ObjectMapper mapper = jsonMapper.copyWith(new SmileFactory());
+    this.version = version(FrictionlessMetadata.class, FrictionlessResource.class, contributorClass, licenseClass, sourceClass);
+    this.defaultClasses = contributorClass == FrictionlessContributor.class
+        && licenseClass == FrictionlessLicense.class
+        && sourceClass == FrictionlessSource.class;
+    this.fields = new BinaryModelCodec(mapper);
+    this.metadataReader = mapper.readerFor(metadataType).without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    this.metadataWriter = mapper.writerFor(metadataType).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    this.resourceReader = mapper.readerFor(resourceType).without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    this.resourceWriter = mapper.writerFor(resourceType).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  /**
+   * Version of the encoding, derived from the {@code serialVersionUID}s of the model classes.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  @SuppressWarnings("unchecked")
+  public void writeMetadata(OutputStream out, FrictionlessMetadata<C, L, S> metadata) throws IOException {
+    long start = Instrumentation.start();
+    DataOutputStream data = new DataOutputStream(out);
+    if (defaultClasses && BinaryModelCodec.isSupported(metadata)) {
+      writeHeader(data, FIELDS);
+      fields.writeMetadata(data, (FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource>) metadata);
+    } else {
+      writeHeader(data, SMILE);
+      metadataWriter.writeValue((OutputStream) data, metadata);
+    }
+    data.flush();
+    Instrumentation.record(Operation.WRITE_BINARY, start, data.size(), 1, 0);
+  }
+
+  public byte[] writeMetadataAsBytes(FrictionlessMetadata<C, L, S> metadata) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    writeMetadata(out, metadata);
+    return out.toByteArray();
+  }
+
+  public FrictionlessMetadata<C, L, S> readMetadata(InputStream in) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessMetadata<C, L, S> metadata = decodeMetadata(in);
+    Instrumentation.record(Operation.READ_BINARY, start, -1, 1, 0);
+    return metadata;
+  }
+
+  public FrictionlessMetadata<C, L, S> readMetadata(byte[] bytes) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessMetadata<C, L, S> metadata = decodeMetadata(new ByteArrayInputStream(bytes));
+    Instrumentation.record(Operation.READ_BINARY, start, bytes.length, 1, 0);
+    return metadata;
+  }
+
+  @SuppressWarnings("unchecked")
+  private FrictionlessMetadata<C, L, S> decodeMetadata(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (readHeader(data) == FIELDS) {
+      return (FrictionlessMetadata<C, L, S>) (FrictionlessMetadata<?, ?, ?>) fields.readMetadata(data);
+    }
+    return metadataReader.readValue((InputStream) data);
+  }
+
+  @SuppressWarnings("unchecked")
+  public void writeResource(OutputStream out, FrictionlessResource<S, L> resource) throws IOException {
+    long start = Instrumentation.start();
+    DataOutputStream data = new DataOutputStream(out);
+    if (defaultClasses && BinaryModelCodec.isSupported(resource)) {
+      writeHeader(data, FIELDS);
+      fields.writeResource(data, (FrictionlessResource<FrictionlessSource, FrictionlessLicense>) resource);
+    } else {
+      writeHeader(data, SMILE);
+      resourceWriter.writeValue((OutputStream) data, resource);
+    }
+    data.flush();
+    Instrumentation.record(Operation.WRITE_BINARY, start, data.size(), 1, 0);
+  }
+
+  public byte[] writeResourceAsBytes(FrictionlessResource<S, L> resource) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+    writeResource(out, resource);
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads one resource. The stream is left open and positioned after it when the resource was written field by
+   * field, so resources written one after the other can be read back the same way.
+   */
+  public FrictionlessResource<S, L> readResource(InputStream in) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessResource<S, L> resource = decodeResource(in);
+    Instrumentation.record(Operation.READ_BINARY, start, -1, 1, 0);
+    return resource;
+  }
+
+  public FrictionlessResource<S, L> readResource(byte[] bytes) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessResource<S, L> resource = decodeResource(new ByteArrayInputStream(bytes));
+    Instrumentation.record(Operation.READ_BINARY, start, bytes.length, 1, 0);
+    return resource;
+  }
+
+  @SuppressWarnings("unchecked")
+  private FrictionlessResource<S, L> decodeResource(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (readHeader(data) == FIELDS) {
+      return (FrictionlessResource<S, L>) (FrictionlessResource<?, ?>) fields.readResource(data);
+    }
+    return resourceReader.readValue((InputStream) data);
+  }
+
+  private void writeHeader(DataOutputStream out, int format) throws IOException {
+    out.writeByte(MAGIC);
+    out.writeByte(format);
+    out.writeLong(version);
+  }
+
+  private int readHeader(DataInputStream in) throws IOException {
+    int magic = in.readUnsignedByte();
+    int format = in.readUnsignedByte();
+    if (magic != MAGIC || (format != FIELDS && format != SMILE)) {
+      throw new StreamCorruptedException("Not a binary descriptor");
+    }
+    long found = in.readLong();
+    if (found != version) {
+      throw new InvalidClassException(FrictionlessMetadata.class.getName(),
+          "incompatible binary version, stream " + found + ", local " + version);
+    }
+    return format;
+  }
+
+  private static long version(Class<?>... types) {
+    long version = 1;
+    for (Class<?> type : types) {
+      ObjectStreamClass streamClass = ObjectStreamClass.lookup(type);
+      version = 31 * version + (streamClass == null ? 0 : streamClass.getSerialVersionUID());
+    }
+    return version;
+  }
+}
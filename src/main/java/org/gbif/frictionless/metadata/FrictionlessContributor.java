@@ -16,7 +16,7 @@ package org.gbif.frictionless.metadata;
 import org.gbif.frictionless.validation.BasicMetadata;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Pattern;
@@ -30,7 +30,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 /**
  * Contributor
@@ -38,6 +40,8 @@ import lombok.NoArgsConstructor;
  * A contributor to this descriptor.
  */
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -85,14 +89,39 @@ public class FrictionlessContributor implements Serializable {
   @JsonProperty("role")
   private String role = "contributor";
 
-  @SuppressWarnings("FieldMayBeFinal")
+  /**
+   * Properties not covered by the model. Only allocated once the first one is set, as most objects have none.
+   */
   @JsonIgnore
   @JsonAnyGetter
-  private Map<String, Object> additionalProperties = new HashMap<>();
+  private Map<String, Object> additionalProperties;
+
+  @JsonIgnore
+  public Map<String, Object> getAdditionalProperties() {
+    if (additionalProperties == null) {
+      additionalProperties = new CompactMap<>();
+    }
+    return additionalProperties;
+  }
+
+  /**
+   * The additional properties as they are, null until one is set, so reading them doesn't create the map.
+   */
+  public Map<String, Object> additionalPropertiesOrNull() {
+    return additionalProperties;
+  }
+
+  /**
+   * Compared instead of the field, unset additional properties being equal to empty ones.
+   */
+  @EqualsAndHashCode.Include(replaces = "additionalProperties")
+  private Map<String, Object> additionalPropertiesOrEmpty() {
+    return additionalProperties == null ? Collections.emptyMap() : additionalProperties;
+  }
 
   @JsonAnySetter
   public void setAdditionalProperty(String name, Object value) {
-    this.additionalProperties.put(name, value);
+    getAdditionalProperties().put(name, value);
   }
 
 }
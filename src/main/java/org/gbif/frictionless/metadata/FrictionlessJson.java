@@ -0,0 +1,498 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+import org.gbif.frictionless.validation.ProfileValidator;
+import org.gbif.frictionless.validation.Violation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Shared JSON codec for the metadata model.
+ * <p>
+ * Binds the metadata and resource classes to the registered contributor, license and source subclasses once,
+ * and keeps the resolved {@link JavaType}s together with the matching {@link ObjectReader}s and
+ * {@link ObjectWriter}s. Instances are immutable and thread-safe, they are meant to be created once per
+ * application and shared.
+ * <p>
+ * The default model classes are mapped by hand-written serializers and deserializers, producing and accepting the
+ * same JSON as the annotation-driven bean mapping used for subclasses.
+ *
+ * @param <C> contributor type
+ * @param <L> license type
+ * @param <S> source type
+ */
+public final class FrictionlessJson<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+  private static final Set<String> PACKAGE_LISTS =
+      Set.of("contributors", "keywords", "licenses", "sources", FrictionlessPackageReader.RESOURCES);
+  private static final Set<String> RESOURCE_LISTS = Set.of("licenses", "sources");
+
+  private final ObjectMapper mapper;
+  private final Class<C> contributorClass;
+  private final Class<L> licenseClass;
+  private final Class<S> sourceClass;
+  private final JavaType metadataType;
+  private final JavaType resourceType;
+  private final JavaType resourceListType;
+  private final ObjectReader metadataReader;
+  private final ObjectWriter metadataWriter;
+  private final ObjectReader resourceReader;
+  private final ObjectWriter resourceWriter;
+  private final ObjectReader resourceListReader;
+  private final ObjectWriter resourceListWriter;
+  private final MergePatch<FrictionlessMetadata<C, L, S>> metadataPatch;
+  private final MergePatch<FrictionlessResource<S, L>> resourcePatch;
+  private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  private FrictionlessJson(ObjectMapper mapper, Class<C> contributorClass, Class<L> licenseClass, Class<S> sourceClass) {
+    // a private copy, so later configuration changes of the caller's mapper can't leak into the cached readers
+    this.mapper = mapper.copy().registerModule(new ModelModule());
+    this.contributorClass = contributorClass;
+    this.licenseClass = licenseClass;
+    this.sourceClass = sourceClass;
+
+    TypeFactory typeFactory = this.mapper.getTypeFactory();
+    this.metadataType = typeFactory.constructParametricType(FrictionlessMetadata.class, contributorClass, licenseClass, sourceClass);
+    this.resourceType = typeFactory.constructParametricType(FrictionlessResource.class, sourceClass, licenseClass);
+    this.metadataReader = this.mapper.readerFor(metadataType);
+    this.metadataWriter = this.mapper.writerFor(metadataType);
+    this.resourceReader = this.mapper.readerFor(resourceType);
+    this.resourceWriter = this.mapper.writerFor(resourceType);
+    this.resourceListType = typeFactory.constructCollectionType(List.class, resourceType);
+    this.resourceListReader = this.mapper.readerFor(resourceListType);
+    this.resourceListWriter = this.mapper.writerFor(resourceListType);
+    this.metadataPatch = new MergePatch<>(this.mapper, metadataType);
+    this.resourcePatch = new MergePatch<>(this.mapper, resourceType);
+  }
+
+  /**
+   * Codec for the default model classes and a default {@link ObjectMapper}.
+   */
+  public static FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  public static Builder<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> builder() {
+    return new Builder<>(new ObjectMapper(), null, FrictionlessContributor.class, FrictionlessLicense.class,
+        FrictionlessSource.class);
+  }
+
+  public JavaType getMetadataType() {
+    return metadataType;
+  }
+
+  public JavaType getResourceType() {
+    return resourceType;
+  }
+
+  public ObjectReader getMetadataReader() {
+    return metadataReader;
+  }
+
+  public ObjectWriter getMetadataWriter() {
+    return metadataWriter;
+  }
+
+  public ObjectReader getResourceReader() {
+    return resourceReader;
+  }
+
+  public ObjectWriter getResourceWriter() {
+    return resourceWriter;
+  }
+
+  /**
+   * List of resources, e.g. the resources of a package without its metadata.
+   */
+  public JavaType getResourceListType() {
+    return resourceListType;
+  }
+
+  public ObjectReader getResourceListReader() {
+    return resourceListReader;
+  }
+
+  public ObjectWriter getResourceListWriter() {
+    return resourceListWriter;
+  }
+
+  /**
+   * Merge patches of the package metadata, e.g. for incremental edits.
+   */
+  public MergePatch<FrictionlessMetadata<C, L, S>> getMetadataPatch() {
+    return metadataPatch;
+  }
+
+  public MergePatch<FrictionlessResource<S, L>> getResourcePatch() {
+    return resourcePatch;
+  }
+
+  /**
+   * Cached reader for any other (non generic) class of the model, e.g. a single contributor.
+   */
+  public ObjectReader readerFor(Class<?> type) {
+    return readers.computeIfAbsent(type, mapper::readerFor);
+  }
+
+  /**
+   * Cached writer for any other (non generic) class of the model.
+   */
+  public ObjectWriter writerFor(Class<?> type) {
+    return writers.computeIfAbsent(type, mapper::writerFor);
+  }
+
+  public FrictionlessMetadata<C, L, S> readMetadata(InputStream in) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessMetadata<C, L, S> metadata = metadataReader.readValue(in);
+    Instrumentation.record(Operation.READ_METADATA, start, -1, 1, 0);
+    return metadata;
+  }
+
+  public FrictionlessMetadata<C, L, S> readMetadata(byte[] json) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessMetadata<C, L, S> metadata = metadataReader.readValue(json);
+    Instrumentation.record(Operation.READ_METADATA, start, json.length, 1, 0);
+    return metadata;
+  }
+
+  public FrictionlessMetadata<C, L, S> readMetadata(String json) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessMetadata<C, L, S> metadata = metadataReader.readValue(json);
+    Instrumentation.record(Operation.READ_METADATA, start, -1, 1, 0);
+    return metadata;
+  }
+
+  public void writeMetadata(OutputStream out, FrictionlessMetadata<C, L, S> metadata) throws IOException {
+    long start = Instrumentation.start();
+    metadataWriter.writeValue(out, metadata);
+    Instrumentation.record(Operation.WRITE_METADATA, start, -1, 1, 0);
+  }
+
+  public byte[] writeMetadataAsBytes(FrictionlessMetadata<C, L, S> metadata) throws IOException {
+    long start = Instrumentation.start();
+    byte[] json = metadataWriter.writeValueAsBytes(metadata);
+    Instrumentation.record(Operation.WRITE_METADATA, start, json.length, 1, 0);
+    return json;
+  }
+
+  public String writeMetadataAsString(FrictionlessMetadata<C, L, S> metadata) throws IOException {
+    long start = Instrumentation.start();
+    String json = metadataWriter.writeValueAsString(metadata);
+    Instrumentation.record(Operation.WRITE_METADATA, start, -1, 1, 0);
+    return json;
+  }
+
+  public FrictionlessResource<S, L> readResource(InputStream in) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessResource<S, L> resource = resourceReader.readValue(in);
+    Instrumentation.record(Operation.READ_RESOURCE, start, -1, 1, 0);
+    return resource;
+  }
+
+  public FrictionlessResource<S, L> readResource(byte[] json) throws IOException {
+    long start = Instrumentation.start();
+    FrictionlessResource<S, L> resource = resourceReader.readValue(json);
+    Instrumentation.record(Operation.READ_RESOURCE, start, json.length, 1, 0);
+    return resource;
+  }
+
+  public byte[] writeResourceAsBytes(FrictionlessResource<S, L> resource) throws IOException {
+    long start = Instrumentation.start();
+    byte[] json = resourceWriter.writeValueAsBytes(resource);
+    Instrumentation.record(Operation.WRITE_RESOURCE, start, json.length, 1, 0);
+    return json;
+  }
+
+  /**
+   * Reads a JSON array of resources.
+   */
+  public List<FrictionlessResource<S, L>> readResources(byte[] json) throws IOException {
+    long start = Instrumentation.start();
+    List<FrictionlessResource<S, L>> resources = resourceListReader.readValue(json);
+    Instrumentation.record(Operation.READ_RESOURCE, start, json.length, resources.size(), 0);
+    return resources;
+  }
+
+  /**
+   * Writes the resources as a JSON array.
+   */
+  public byte[] writeResourcesAsBytes(List<? extends FrictionlessResource<S, L>> resources) throws IOException {
+    long start = Instrumentation.start();
+    byte[] json = resourceListWriter.writeValueAsBytes(resources);
+    Instrumentation.record(Operation.WRITE_RESOURCE, start, json.length, resources.size(), 0);
+    return json;
+  }
+
+  /**
+   * Writes a complete descriptor, the package metadata followed by the resources, streaming the resources one at a
+   * time. The output is not closed.
+   */
+  public void writePackage(OutputStream out, FrictionlessMetadata<C, L, S> metadata,
+                           Iterable<? extends FrictionlessResource<S, L>> resources) throws IOException {
+    long start = Instrumentation.start();
+    long objects;
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+      generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+      objects = writePackage(generator, metadata, resources);
+    }
+    Instrumentation.record(Operation.WRITE_PACKAGE, start, -1, objects, 0);
+  }
+
+  /**
+   * Validates a complete descriptor, as written by {@link #writePackage}, against the schema of the profile of the
+   * metadata. The descriptor is validated as tokens, no JSON text is produced. The lists of the model left empty,
+   * like contributors or licenses, are not validated, like unset properties: the model writes unset lists as empty
+   * arrays. Other empty arrays, e.g. inline data, are validated.
+   *
+   * @throws IllegalArgumentException if the profile isn't one of the bundled ones
+   * @see ProfileValidator
+   */
+  public List<Violation> validatePackage(FrictionlessMetadata<C, L, S> metadata,
+                                         Iterable<? extends FrictionlessResource<S, L>> resources) throws IOException {
+    TokenBuffer buffer = new TokenBuffer(mapper, false);
+    writePackage(buffer, metadata, resources);
+    try (JsonParser parser = withoutEmptyLists(buffer, true).asParser()) {
+      return ProfileValidator.getInstance().validate(profile(metadata.getProfile(), "data-package"), parser);
+    }
+  }
+
+  /**
+   * Validates a resource against the schema of its profile, like {@link #validatePackage}.
+   *
+   * @throws IllegalArgumentException if the profile isn't one of the bundled ones
+   */
+  public List<Violation> validateResource(FrictionlessResource<S, L> resource) throws IOException {
+    TokenBuffer buffer = new TokenBuffer(mapper, false);
+    resourceWriter.writeValue(buffer, resource);
+    try (JsonParser parser = withoutEmptyLists(buffer, false).asParser()) {
+      return ProfileValidator.getInstance().validate(profile(resource.getProfile(), "data-resource"), parser);
+    }
+  }
+
+  private long writePackage(JsonGenerator generator, FrictionlessMetadata<C, L, S> metadata,
+                            Iterable<? extends FrictionlessResource<S, L>> resources) throws IOException {
+    long objects = 1;
+    TokenBuffer buffer = new TokenBuffer(mapper, false);
+    metadataWriter.writeValue(buffer, metadata);
+    try (JsonParser parser = buffer.asParser()) {
+      parser.nextToken();
+      generator.writeStartObject();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        parser.nextToken();
+        if (FrictionlessPackageReader.RESOURCES.equals(field)) {
+          parser.skipChildren();
+        } else {
+          generator.writeFieldName(field);
+          generator.copyCurrentStructure(parser);
+        }
+      }
+    }
+    generator.writeArrayFieldStart(FrictionlessPackageReader.RESOURCES);
+    for (FrictionlessResource<S, L> resource : resources) {
+      resourceWriter.writeValue(generator, resource);
+      objects++;
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+    return objects;
+  }
+
+  /**
+   * Copy of the tokens without the list properties of the model holding an empty array, i.e. the lists of the package
+   * and those of its resources, or of the resource when validating one alone. Empty arrays anywhere else, like inline
+   * data or extension properties, are set on purpose and kept.
+   */
+  private TokenBuffer withoutEmptyLists(TokenBuffer tokens, boolean isPackage) throws IOException {
+    TokenBuffer filtered = new TokenBuffer(mapper, false);
+    try (JsonParser parser = tokens.asParser()) {
+      String field = null;
+      JsonToken token;
+      while ((token = parser.nextToken()) != null) {
+        if (token == JsonToken.FIELD_NAME) {
+          field = parser.currentName();
+          if (!isModelList(parser.getParsingContext(), field, isPackage)) {
+            filtered.copyCurrentEvent(parser);
+            field = null;
+          }
+          continue;
+        }
+        if (field != null) {
+          if (token == JsonToken.START_ARRAY && parser.nextToken() == JsonToken.END_ARRAY) {
+            field = null;
+            continue;
+          }
+          filtered.writeFieldName(field);
+          field = null;
+          if (token == JsonToken.START_ARRAY) {
+            // the parser is on the first element already
+            filtered.writeStartArray();
+          }
+        }
+        filtered.copyCurrentEvent(parser);
+      }
+    }
+    return filtered;
+  }
+
+  /**
+   * Whether the field of the given object is one of the lists the model writes, even when empty.
+   */
+  private static boolean isModelList(JsonStreamContext object, String field, boolean isPackage) {
+    JsonStreamContext parent = object.getParent();
+    if (parent.inRoot()) {
+      return (isPackage ? PACKAGE_LISTS : RESOURCE_LISTS).contains(field);
+    }
+    // a resource of the package
+    return isPackage && parent.inArray() && parent.getParent().inObject() && parent.getParent().getParent().inRoot()
+        && FrictionlessPackageReader.RESOURCES.equals(parent.getParent().getCurrentName())
+        && RESOURCE_LISTS.contains(field);
+  }
+
+  private static String profile(String profile, String defaultProfile) {
+    return profile == null ? defaultProfile : profile;
+  }
+
+  /**
+   * Streaming package reader sharing the bindings of this codec.
+   */
+  public FrictionlessPackageReader<FrictionlessMetadata<C, L, S>, FrictionlessResource<S, L>> packageReader() {
+    return new FrictionlessPackageReader<>(mapper, metadataType, resourceType);
+  }
+
+  /**
+   * Binary codec sharing the bindings and configuration of this codec. Create once and share.
+   */
+  public FrictionlessBinary<C, L, S> binary() {
+    return new FrictionlessBinary<>(mapper, metadataType, resourceType, contributorClass, licenseClass, sourceClass);
+  }
+
+  /**
+   * Eagerly builds the serializers and deserializers of the bound types by round-tripping a sample descriptor
+   * which touches every property, so the first real call doesn't pay for it.
+   *
+   * @return this codec
+   */
+  public FrictionlessJson<C, L, S> warmUp() {
+    try {
+      FrictionlessMetadata<C, L, S> metadata = new FrictionlessMetadata<>();
+      metadata.setTitle("title");
+      metadata.setDescription("description");
+      metadata.setName("name");
+      metadata.setCreated(new Date(0));
+      metadata.setKeywords(Collections.singletonList("keyword"));
+      metadata.getContributors().add(contributorClass.getDeclaredConstructor().newInstance());
+      metadata.getLicenses().add(licenseClass.getDeclaredConstructor().newInstance());
+      metadata.getSources().add(sourceClass.getDeclaredConstructor().newInstance());
+      metadata.setAdditionalProperty("warmUp", Collections.singletonMap("key", 1));
+      readMetadata(writeMetadataAsBytes(metadata));
+
+      FrictionlessResource<S, L> resource = new FrictionlessResource<>();
+      resource.setName("name");
+      resource.setPath(Collections.singletonList("path"));
+      resource.getLicenses().add(licenseClass.getDeclaredConstructor().newInstance());
+      resource.getSources().add(sourceClass.getDeclaredConstructor().newInstance());
+      resource.setAdditionalProperty("warmUp", 1);
+      readResource(writeResourceAsBytes(resource));
+      readResources(writeResourcesAsBytes(Collections.singletonList(resource)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Model classes must have a public no-args constructor", e);
+    }
+    return this;
+  }
+
+  /**
+   * Builder registering the extension subclasses of the model.
+   */
+  public static final class Builder<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> {
+
+    private final ObjectMapper mapper;
+    private final MetadataInterner interner;
+    private final Class<C> contributorClass;
+    private final Class<L> licenseClass;
+    private final Class<S> sourceClass;
+
+    private Builder(ObjectMapper mapper, MetadataInterner interner, Class<C> contributorClass, Class<L> licenseClass,
+                    Class<S> sourceClass) {
+      this.mapper = mapper;
+      this.interner = interner;
+      this.contributorClass = contributorClass;
+      this.licenseClass = licenseClass;
+      this.sourceClass = sourceClass;
+    }
+
+    /**
+     * Mapper to take the configuration from. It is copied, later changes to it do not affect the codec.
+     */
+    public Builder<C, L, S> mapper(ObjectMapper mapper) {
+      return new Builder<>(mapper, interner, contributorClass, licenseClass, sourceClass);
+    }
+
+    /**
+     * Canonicalizes repeated licenses, sources and enum-like strings while deserializing, whichever mapper is used.
+     */
+    public Builder<C, L, S> interner(MetadataInterner interner) {
+      return new Builder<>(mapper, interner, contributorClass, licenseClass, sourceClass);
+    }
+
+    public <T extends FrictionlessContributor> Builder<T, L, S> contributor(Class<T> contributorClass) {
+      return new Builder<>(mapper, interner, contributorClass, licenseClass, sourceClass);
+    }
+
+    public <T extends FrictionlessLicense> Builder<C, T, S> license(Class<T> licenseClass) {
+      return new Builder<>(mapper, interner, contributorClass, licenseClass, sourceClass);
+    }
+
+    public <T extends FrictionlessSource> Builder<C, L, T> source(Class<T> sourceClass) {
+      return new Builder<>(mapper, interner, contributorClass, licenseClass, sourceClass);
+    }
+
+    public FrictionlessJson<C, L, S> build() {
+      ObjectMapper configured = interner == null ? mapper : mapper.copy().registerModule(interner.module());
+      return new FrictionlessJson<>(configured, contributorClass, licenseClass, sourceClass);
+    }
+  }
+
+  private static final class DefaultHolder {
+
+    private static final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> INSTANCE =
+        builder().build();
+  }
+}
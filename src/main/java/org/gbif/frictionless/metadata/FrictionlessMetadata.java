@@ -19,8 +19,8 @@ import org.gbif.frictionless.validation.KeywordsMetadata;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -34,7 +34,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -46,6 +48,8 @@ import javax.validation.constraints.Pattern;
  * Data Package is a simple specification for data access and delivery.
  */
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -172,14 +176,47 @@ public class FrictionlessMetadata<C extends FrictionlessContributor, L extends F
   @Valid
   private List<S> sources = new ArrayList<>();
 
-  @SuppressWarnings("FieldMayBeFinal")
+  /**
+   * Properties not covered by the model. Only allocated once the first one is set, as most objects have none.
+   */
   @JsonIgnore
   @JsonAnyGetter
-  private Map<String, Object> additionalProperties = new HashMap<>();
+  private Map<String, Object> additionalProperties;
+
+  @JsonIgnore
+  public Map<String, Object> getAdditionalProperties() {
+    if (additionalProperties == null) {
+      additionalProperties = new CompactMap<>();
+    }
+    return additionalProperties;
+  }
+
+  /**
+   * The additional properties as they are, null until one is set, so reading them doesn't create the map.
+   */
+  public Map<String, Object> additionalPropertiesOrNull() {
+    return additionalProperties;
+  }
+
+  /**
+   * Compared instead of the field, unset additional properties being equal to empty ones.
+   */
+  @EqualsAndHashCode.Include(replaces = "additionalProperties")
+  private Map<String, Object> additionalPropertiesOrEmpty() {
+    return additionalProperties == null ? Collections.emptyMap() : additionalProperties;
+  }
 
   @JsonAnySetter
   public void setAdditionalProperty(String name, Object value) {
-    this.additionalProperties.put(name, value);
+    getAdditionalProperties().put(name, value);
+  }
+
+  /**
+   * Deeply immutable snapshot of this metadata, which threads can share without copies or locks, see
+   * {@link FrozenMetadata}.
+   */
+  public FrozenMetadata<C, L, S> freeze() {
+    return FrozenMetadata.of(this);
   }
 
 }
@@ -0,0 +1,314 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Pull-style reader of a datapackage.json descriptor.
+ * <p>
+ * The package-level fields are bound first, the resources are then handed out one at a time, so only a single
+ * resource is held in memory regardless of the size of the {@code resources} array.
+ * Instances are immutable and can be shared between threads, each {@link #open} call returns its own
+ * {@link PackageStream}.
+ *
+ * @param <M> metadata type
+ * @param <R> resource type
+ */
+public class FrictionlessPackageReader<M extends FrictionlessMetadata<?, ?, ?>, R extends FrictionlessResource<?, ?>> {
+
+  /**
+   * Name of the descriptor property holding the resources.
+   */
+  public static final String RESOURCES = "resources";
+
+  private final ObjectMapper mapper;
+  private final ObjectReader metadataReader;
+  private final ObjectReader resourceReader;
+
+  public FrictionlessPackageReader(ObjectMapper mapper, JavaType metadataType, JavaType resourceType) {
+    this(mapper, mapper.readerFor(metadataType), mapper.readerFor(resourceType));
+  }
+
+  private FrictionlessPackageReader(ObjectMapper mapper, ObjectReader metadataReader, ObjectReader resourceReader) {
+    this.mapper = mapper;
+    this.metadataReader = metadataReader;
+    this.resourceReader = resourceReader;
+  }
+
+  /**
+   * Creates a reader binding the default model classes.
+   */
+  public static FrictionlessPackageReader<
+      FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource>,
+      FrictionlessResource<FrictionlessSource, FrictionlessLicense>> create(ObjectMapper mapper) {
+    TypeFactory typeFactory = mapper.getTypeFactory();
+    return new FrictionlessPackageReader<>(
+        mapper,
+        typeFactory.constructParametricType(
+            FrictionlessMetadata.class, FrictionlessContributor.class, FrictionlessLicense.class, FrictionlessSource.class),
+        typeFactory.constructParametricType(
+            FrictionlessResource.class, FrictionlessSource.class, FrictionlessLicense.class));
+  }
+
+  /**
+   * Reader handling the inline resource data as given, e.g. {@link InlineDataMode#RAW} to scan large inline tables
+   * without binding them to lists and maps.
+   */
+  public FrictionlessPackageReader<M, R> withInlineData(InlineDataMode mode) {
+    return new FrictionlessPackageReader<>(mapper, metadataReader, mode.applyTo(resourceReader));
+  }
+
+  /**
+   * Opens a descriptor file.
+   */
+  public PackageStream<M, R> open(Path descriptor) throws IOException {
+    return open(() -> Files.newInputStream(descriptor));
+  }
+
+  /**
+   * Opens a descriptor from a source which can be opened more than once.
+   * <p>
+   * The source is read twice: once for the package-level fields, skipping over the resources without binding them,
+   * and once for the resources. This keeps the package-level fields available before the first resource even when
+   * they follow the {@code resources} array in the document.
+   */
+  public PackageStream<M, R> open(DescriptorSource source) throws IOException {
+    M metadata = readMetadata(source);
+    InputStream in = source.open();
+    try {
+      JsonParser parser = mapper.getFactory().createParser(in);
+      return new PackageStream<>(metadata, parser, seekResources(parser) ? resourceReader : null);
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  private M readMetadata(DescriptorSource source) throws IOException {
+    long start = Instrumentation.start();
+    try (InputStream in = source.open();
+         JsonParser parser = mapper.getFactory().createParser(in);
+         TokenBuffer buffer = new TokenBuffer(parser)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Data package descriptor must be a JSON object");
+      }
+      buffer.writeStartObject();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        parser.nextToken();
+        if (RESOURCES.equals(field)) {
+          parser.skipChildren();
+        } else {
+          buffer.writeFieldName(field);
+          buffer.copyCurrentStructure(parser);
+        }
+      }
+      buffer.writeEndObject();
+      M metadata;
+      try (JsonParser bufferParser = buffer.asParser(parser.getCodec())) {
+        metadata = metadataReader.readValue(bufferParser);
+      }
+      Instrumentation.record(Operation.READ_METADATA, start, -1, 1, 0);
+      return metadata;
+    }
+  }
+
+  /**
+   * Moves the parser onto the first element of the resources array.
+   *
+   * @return false if the descriptor has no resources array
+   */
+  private static boolean seekResources(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IOException("Data package descriptor must be a JSON object");
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if (RESOURCES.equals(field)) {
+        if (value == JsonToken.START_ARRAY) {
+          return true;
+        }
+        if (value != JsonToken.VALUE_NULL) {
+          throw new IOException("Data package resources must be an array, found " + value);
+        }
+      }
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  /**
+   * Source of a descriptor which can be opened repeatedly.
+   */
+  @FunctionalInterface
+  public interface DescriptorSource {
+
+    InputStream open() throws IOException;
+  }
+
+  /**
+   * An opened descriptor: the package-level metadata and a one-shot cursor over its resources.
+   * Not thread-safe, must be closed to release the underlying stream.
+   */
+  public static class PackageStream<M, R> implements Closeable, Iterable<R> {
+
+    private final M metadata;
+    private final JsonParser parser;
+    private final ObjectReader resourceReader;
+    private boolean exhausted;
+    private boolean consumed;
+    private R next;
+
+    PackageStream(M metadata, JsonParser parser, ObjectReader resourceReader) {
+      this.metadata = metadata;
+      this.parser = parser;
+      this.resourceReader = resourceReader;
+      this.exhausted = resourceReader == null;
+    }
+
+    /**
+     * Package-level metadata. Resources are not part of it.
+     */
+    public M getMetadata() {
+      return metadata;
+    }
+
+    /**
+     * Iterator over the resources. Can be obtained only once.
+     */
+    @Override
+    public Iterator<R> iterator() {
+      markConsumed();
+      return new Iterator<R>() {
+        @Override
+        public boolean hasNext() {
+          return advance();
+        }
+
+        @Override
+        public R next() {
+          if (!advance()) {
+            throw new NoSuchElementException();
+          }
+          R result = next;
+          next = null;
+          return result;
+        }
+      };
+    }
+
+    /**
+     * Sequential, ordered spliterator over the resources. Can be obtained only once.
+     */
+    @Override
+    public Spliterator<R> spliterator() {
+      markConsumed();
+      return new Spliterators.AbstractSpliterator<R>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+          if (!advance()) {
+            return false;
+          }
+          R result = next;
+          next = null;
+          action.accept(result);
+          return true;
+        }
+      };
+    }
+
+    /**
+     * Stream of the resources, closing the stream closes this package stream.
+     */
+    public Stream<R> resources() {
+      return StreamSupport.stream(spliterator(), false).onClose(this::closeUnchecked);
+    }
+
+    @Override
+    public void close() throws IOException {
+      exhausted = true;
+      parser.close();
+    }
+
+    private void closeUnchecked() {
+      try {
+        close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void markConsumed() {
+      if (consumed) {
+        throw new IllegalStateException("Resources can be iterated only once");
+      }
+      consumed = true;
+    }
+
+    private boolean advance() {
+      if (next != null) {
+        return true;
+      }
+      if (exhausted) {
+        return false;
+      }
+      try {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY || token == null) {
+          exhausted = true;
+          return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+          throw new IOException("Data package resource must be an object, found " + token);
+        }
+        long start = Instrumentation.start();
+        long offset = Instrumentation.isEnabled(start) ? parser.currentTokenLocation().getByteOffset() : -1;
+        next = resourceReader.readValue(parser);
+        if (Instrumentation.isEnabled(start)) {
+          long bytes = offset < 0 ? -1 : parser.currentLocation().getByteOffset() - offset;
+          Instrumentation.record(Operation.READ_RESOURCE, start, bytes, 1, 0);
+        }
+        return true;
+      } catch (IOException e) {
+        exhausted = true;
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -18,7 +18,7 @@ import org.gbif.frictionless.validation.InternalField;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import javax.validation.Valid;
@@ -29,11 +29,14 @@ import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 /**
  * Data Resource
@@ -41,6 +44,8 @@ import lombok.NoArgsConstructor;
  * Data Resource.
  */
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -76,9 +81,11 @@ public class FrictionlessResource<S extends FrictionlessSource, L extends Fricti
   /**
    * Data
    * <p>
-   * Inline data for this resource.
+   * Inline data for this resource. Nested lists and maps, or an {@link InlineData} depending on the
+   * {@link InlineDataMode} of the reader.
    */
   @JsonProperty("data")
+  @JsonDeserialize(using = InlineDataDeserializer.class)
   private Object data;
 
   /**
@@ -164,7 +171,7 @@ public class FrictionlessResource<S extends FrictionlessSource, L extends Fricti
    * The size of this resource in bytes.
    */
   @JsonProperty("bytes")
-  private Integer bytes;
+  private Long bytes;
 
   /**
    * Hash
@@ -175,14 +182,46 @@ public class FrictionlessResource<S extends FrictionlessSource, L extends Fricti
   @Pattern(regexp = "^([^:]+:[a-fA-F0-9]+|[a-fA-F0-9]{32}|)$", groups = InternalField.class)
   private String hash;
 
-  @SuppressWarnings("FieldMayBeFinal")
+  /**
+   * Properties not covered by the model. Only allocated once the first one is set, as most objects have none.
+   */
   @JsonIgnore
   @JsonAnyGetter
-  private Map<String, Object> additionalProperties = new HashMap<>();
+  private Map<String, Object> additionalProperties;
+
+  @JsonIgnore
+  public Map<String, Object> getAdditionalProperties() {
+    if (additionalProperties == null) {
+      additionalProperties = new CompactMap<>();
+    }
+    return additionalProperties;
+  }
+
+  /**
+   * The additional properties as they are, null until one is set, so reading them doesn't create the map.
+   */
+  public Map<String, Object> additionalPropertiesOrNull() {
+    return additionalProperties;
+  }
+
+  /**
+   * Compared instead of the field, unset additional properties being equal to empty ones.
+   */
+  @EqualsAndHashCode.Include(replaces = "additionalProperties")
+  private Map<String, Object> additionalPropertiesOrEmpty() {
+    return additionalProperties == null ? Collections.emptyMap() : additionalProperties;
+  }
 
   @JsonAnySetter
   public void setAdditionalProperty(String name, Object value) {
-    this.additionalProperties.put(name, value);
+    getAdditionalProperties().put(name, value);
+  }
+
+  /**
+   * Deeply immutable snapshot of this resource, see {@link FrozenResource}.
+   */
+  public FrozenResource<S, L> freeze() {
+    return FrozenResource.of(this);
   }
 
 }
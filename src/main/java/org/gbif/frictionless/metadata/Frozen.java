@@ -0,0 +1,383 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.Serializable;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Freezing of the parts shared by {@link FrozenMetadata} and {@link FrozenResource}: the nested model objects, lists
+ * and JSON-like values.
+ * <p>
+ * Frozen parts are never copied again, so a snapshot derived from another one shares everything that didn't change.
+ * Lists and maps are copied into {@link FrozenList}s and {@link FrozenMap}s, other values, i.e. strings, numbers, URIs
+ * and {@link InlineData}, are immutable and shared.
+ */
+final class Frozen {
+
+  private Frozen() {
+  }
+
+  /**
+   * Frozen copy of a list, or {@code previous} if it holds the same elements once frozen.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> List<T> list(List<T> list, List<T> previous, UnaryOperator<T> freezer) {
+    if (list == null) {
+      return null;
+    }
+    if (list instanceof FrozenList) {
+      return list;
+    }
+    Object[] elements = new Object[list.size()];
+    int i = 0;
+    for (T element : list) {
+      elements[i++] = freezer.apply(element);
+    }
+    if (previous instanceof FrozenList && ((FrozenList<T>) previous).sameElements(elements)) {
+      return previous;
+    }
+    return new FrozenList<>(elements);
+  }
+
+  /**
+   * Frozen copy of the additional properties, or {@code previous} if they hold the same values once frozen.
+   */
+  @SuppressWarnings("unchecked")
+  static Map<String, Object> properties(Map<String, Object> properties, Map<String, Object> previous) {
+    if (properties == null || properties.isEmpty()) {
+      return FrozenMap.empty();
+    }
+    if (properties instanceof FrozenMap) {
+      return properties;
+    }
+    FrozenMap<String, Object> frozen = FrozenMap.copyOf(properties);
+    return previous instanceof FrozenMap && ((FrozenMap<String, Object>) previous).sameEntries(frozen) ? previous : frozen;
+  }
+
+  /**
+   * Deeply frozen JSON-like value.
+   */
+  @SuppressWarnings("unchecked")
+  static Object value(Object value) {
+    if (value instanceof FrozenList || value instanceof FrozenMap) {
+      return value;
+    } else if (value instanceof List) {
+      return list((List<Object>) value, null, Frozen::value);
+    } else if (value instanceof Map) {
+      return FrozenMap.copyOf((Map<?, ?>) value);
+    }
+    return value;
+  }
+
+  static FrictionlessContributor contributor(FrictionlessContributor contributor) {
+    if (contributor == null || contributor instanceof FrozenContributor) {
+      return contributor;
+    }
+    checkClass(contributor, FrictionlessContributor.class);
+    return new FrozenContributor(contributor);
+  }
+
+  /**
+   * Frozen license. The canonical licenses of a {@link MetadataInterner} are shared as they are, their additional
+   * properties being frozen the same way.
+   */
+  static FrictionlessLicense license(FrictionlessLicense license) {
+    if (license == null || license instanceof FrozenLicense || license instanceof MetadataInterner.SharedLicense) {
+      return license;
+    }
+    checkClass(license, FrictionlessLicense.class);
+    return new FrozenLicense(license);
+  }
+
+  /**
+   * Frozen source. The canonical sources of a {@link MetadataInterner} are shared as they are, their additional
+   * properties being frozen the same way.
+   */
+  static FrictionlessSource source(FrictionlessSource source) {
+    if (source == null || source instanceof FrozenSource || source instanceof MetadataInterner.SharedSource) {
+      return source;
+    }
+    checkClass(source, FrictionlessSource.class);
+    return new FrozenSource(source);
+  }
+
+  static void checkClass(Object value, Class<?> type) {
+    if (value.getClass() != type) {
+      throw new IllegalArgumentException("Only the default model classes can be frozen, not " + value.getClass().getName());
+    }
+  }
+
+  static UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException("Frozen instances can't be modified, derive a modified copy with with()");
+  }
+
+  /**
+   * Makes the fields set by a constructor visible to the threads the instance is handed to without synchronization,
+   * as if they were final.
+   */
+  static void publish() {
+    VarHandle.releaseFence();
+  }
+
+  /**
+   * Read-only list.
+   */
+  static final class FrozenList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = -2318120932659101346L;
+
+    private final Object[] elements;
+
+    private FrozenList(Object[] elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+      return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+      return elements.length;
+    }
+
+    private boolean sameElements(Object[] other) {
+      if (other.length != elements.length) {
+        return false;
+      }
+      for (int i = 0; i < other.length; i++) {
+        if (other[i] != elements[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Read-only map keeping the order of the map it was copied from.
+   */
+  static final class FrozenMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = 6305493160744185217L;
+
+    private static final FrozenMap<?, ?> EMPTY = new FrozenMap<>(Collections.emptyMap());
+
+    private final Map<K, V> map;
+
+    private FrozenMap(Map<K, V> map) {
+      this.map = map;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> FrozenMap<K, V> empty() {
+      return (FrozenMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> FrozenMap<K, V> copyOf(Map<? extends K, ?> map) {
+      if (map.isEmpty()) {
+        return empty();
+      }
+      Map<K, V> copy = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+      for (Map.Entry<? extends K, ?> entry : map.entrySet()) {
+        copy.put(entry.getKey(), (V) value(entry.getValue()));
+      }
+      return new FrozenMap<>(Collections.unmodifiableMap(copy));
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return map.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+      return map.get(key);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+      return map.entrySet();
+    }
+
+    private boolean sameEntries(FrozenMap<K, V> other) {
+      if (other.size() != size()) {
+        return false;
+      }
+      for (Map.Entry<K, V> entry : other.map.entrySet()) {
+        if (map.get(entry.getKey()) != entry.getValue() || !map.containsKey(entry.getKey())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Object readResolve() {
+      return map.isEmpty() ? EMPTY : this;
+    }
+  }
+
+  /**
+   * A contributor of a frozen snapshot.
+   */
+  static final class FrozenContributor extends FrictionlessContributor {
+
+    private static final long serialVersionUID = -1683452201236418224L;
+
+    FrozenContributor(FrictionlessContributor contributor) {
+      super.setTitle(contributor.getTitle());
+      super.setPath(contributor.getPath());
+      super.setEmail(contributor.getEmail());
+      super.setOrganization(contributor.getOrganization());
+      super.setRole(contributor.getRole());
+      super.setAdditionalProperties(properties(contributor.additionalPropertiesOrNull(), null));
+      publish();
+    }
+
+    @Override
+    public void setTitle(String title) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setPath(String path) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setEmail(String email) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setOrganization(String organization) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setRole(String role) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperties(Map<String, Object> additionalProperties) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperty(String name, Object value) {
+      throw readOnly();
+    }
+  }
+
+  /**
+   * A license of a frozen snapshot.
+   */
+  static final class FrozenLicense extends FrictionlessLicense {
+
+    private static final long serialVersionUID = 3570391651180329847L;
+
+    FrozenLicense(FrictionlessLicense license) {
+      super.setName(license.getName());
+      super.setPath(license.getPath());
+      super.setTitle(license.getTitle());
+      super.setAdditionalProperties(properties(license.additionalPropertiesOrNull(), null));
+      publish();
+    }
+
+    @Override
+    public void setName(String name) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setPath(String path) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setTitle(String title) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperties(Map<String, Object> additionalProperties) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperty(String name, Object value) {
+      throw readOnly();
+    }
+  }
+
+  /**
+   * A source of a frozen snapshot.
+   */
+  static final class FrozenSource extends FrictionlessSource {
+
+    private static final long serialVersionUID = -8848017935950127046L;
+
+    FrozenSource(FrictionlessSource source) {
+      super.setTitle(source.getTitle());
+      super.setPath(source.getPath());
+      super.setEmail(source.getEmail());
+      super.setAdditionalProperties(properties(source.additionalPropertiesOrNull(), null));
+      publish();
+    }
+
+    @Override
+    public void setTitle(String title) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setPath(String path) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setEmail(String email) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperties(Map<String, Object> additionalProperties) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperty(String name, Object value) {
+      throw readOnly();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Deeply immutable snapshot of package metadata, which any number of threads can read without copies or locks.
+ * <p>
+ * Snapshots are regular {@link FrictionlessMetadata}, so they can be serialized, validated and read like any other
+ * instance, but their setters, lists and maps throw {@link UnsupportedOperationException}. Modified versions are
+ * derived with {@link #with(Consumer)}, which copies only what changed and shares the rest, nested contributors,
+ * licenses and sources included, with this snapshot.
+ * <pre>{@code
+ * FrozenMetadata<...> shared = json.readMetadata(descriptor).freeze();
+ * FrozenMetadata<...> renamed = shared.with(m -> m.setTitle("New title"));
+ * }</pre>
+ * Only the default model classes can be frozen, not extension subclasses. Canonical licenses and sources of a
+ * {@link MetadataInterner} are shared as they are.
+ *
+ * @param <C> contributor type
+ * @param <L> license type
+ * @param <S> source type
+ */
+public final class FrozenMetadata<C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource>
+    extends FrictionlessMetadata<C, L, S> {
+
+  private static final long serialVersionUID = -6920356418436125329L;
+
+  private transient int hash;
+
+  @SuppressWarnings("unchecked")
+  private FrozenMetadata(FrictionlessMetadata<C, L, S> metadata, FrictionlessMetadata<C, L, S> previous) {
+    Frozen.checkClass(metadata, FrictionlessMetadata.class);
+    super.setTitle(metadata.getTitle());
+    super.setVersion(metadata.getVersion());
+    super.setProfile(metadata.getProfile());
+    super.setName(metadata.getName());
+    super.setId(metadata.getId());
+    super.setDescription(metadata.getDescription());
+    super.setHomepage(metadata.getHomepage());
+    super.setCreated(metadata.getCreated() == null ? null : new Date(metadata.getCreated().getTime()));
+    super.setContributors(Frozen.list(metadata.getContributors(), previous == null ? null : previous.getContributors(),
+        contributor -> (C) Frozen.contributor(contributor)));
+    super.setKeywords(Frozen.list(metadata.getKeywords(), previous == null ? null : previous.getKeywords(), k -> k));
+    super.setImage(metadata.getImage());
+    super.setLicenses(Frozen.list(metadata.getLicenses(), previous == null ? null : previous.getLicenses(),
+        license -> (L) Frozen.license(license)));
+    super.setSources(Frozen.list(metadata.getSources(), previous == null ? null : previous.getSources(),
+        source -> (S) Frozen.source(source)));
+    super.setAdditionalProperties(Frozen.properties(metadata.additionalPropertiesOrNull(),
+        previous == null ? null : previous.additionalPropertiesOrNull()));
+    Frozen.publish();
+  }
+
+  /**
+   * Frozen snapshot of the metadata, the metadata itself if it is already frozen.
+   *
+   * @throws IllegalArgumentException if the metadata holds extension subclasses of the model
+   */
+  public static <C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource>
+      FrozenMetadata<C, L, S> of(FrictionlessMetadata<C, L, S> metadata) {
+    if (metadata instanceof FrozenMetadata) {
+      return (FrozenMetadata<C, L, S>) metadata;
+    }
+    return new FrozenMetadata<>(metadata, null);
+  }
+
+  @Override
+  public FrozenMetadata<C, L, S> freeze() {
+    return this;
+  }
+
+  /**
+   * Derives a modified snapshot. The change is applied to a mutable copy of this snapshot, see {@link #thaw()}, which
+   * is frozen again afterwards, sharing whatever the change left as it was.
+   */
+  public FrozenMetadata<C, L, S> with(Consumer<? super FrictionlessMetadata<C, L, S>> change) {
+    FrictionlessMetadata<C, L, S> draft = thaw();
+    change.accept(draft);
+    return new FrozenMetadata<>(draft, this);
+  }
+
+  /**
+   * Mutable copy of this snapshot. Only the top level is copied: the lists and the additional properties can be
+   * modified, but the contributors, licenses, sources and nested values are still frozen and have to be replaced
+   * rather than modified.
+   */
+  public FrictionlessMetadata<C, L, S> thaw() {
+    FrictionlessMetadata<C, L, S> draft = new FrictionlessMetadata<>();
+    draft.setTitle(getTitle());
+    draft.setVersion(getVersion());
+    draft.setProfile(getProfile());
+    draft.setName(getName());
+    draft.setId(getId());
+    draft.setDescription(getDescription());
+    draft.setHomepage(getHomepage());
+    draft.setCreated(getCreated());
+    draft.setContributors(getContributors() == null ? null : new ArrayList<>(getContributors()));
+    draft.setKeywords(getKeywords() == null ? null : new ArrayList<>(getKeywords()));
+    draft.setImage(getImage());
+    draft.setLicenses(getLicenses() == null ? null : new ArrayList<>(getLicenses()));
+    draft.setSources(getSources() == null ? null : new ArrayList<>(getSources()));
+    for (Map.Entry<String, Object> property : getAdditionalProperties().entrySet()) {
+      draft.setAdditionalProperty(property.getKey(), property.getValue());
+    }
+    return draft;
+  }
+
+  /**
+   * A copy, the date itself being mutable.
+   */
+  @Override
+  public Date getCreated() {
+    Date created = super.getCreated();
+    return created == null ? null : new Date(created.getTime());
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = super.hashCode();
+      hash = h;
+    }
+    return h;
+  }
+
+  @Override
+  public void setTitle(String title) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setVersion(String version) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setProfile(String profile) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setName(String name) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setId(String id) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setDescription(String description) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setHomepage(URI homepage) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setCreated(Date created) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setContributors(List<C> contributors) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setKeywords(List<String> keywords) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setImage(String image) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setLicenses(List<L> licenses) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setSources(List<S> sources) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setAdditionalProperties(Map<String, Object> additionalProperties) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setAdditionalProperty(String name, Object value) {
+    throw Frozen.readOnly();
+  }
+}
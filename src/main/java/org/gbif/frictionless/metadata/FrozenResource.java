@@ -0,0 +1,211 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Deeply immutable snapshot of a resource, the counterpart of {@link FrozenMetadata}.
+ * <p>
+ * The name is kept as a {@link String}, the path and the inline data lists and maps are frozen, {@link InlineData} is
+ * immutable and shared.
+ *
+ * @param <S> source type
+ * @param <L> license type
+ */
+public final class FrozenResource<S extends FrictionlessSource, L extends FrictionlessLicense> extends FrictionlessResource<S, L> {
+
+  private static final long serialVersionUID = 2816641364318931720L;
+
+  private transient int hash;
+
+  @SuppressWarnings("unchecked")
+  private FrozenResource(FrictionlessResource<S, L> resource, FrictionlessResource<S, L> previous) {
+    Frozen.checkClass(resource, FrictionlessResource.class);
+    super.setProfile(resource.getProfile());
+    super.setName(resource.getName() == null ? null : resource.getName().toString());
+    super.setPath(Frozen.value(resource.getPath()));
+    super.setData(Frozen.value(resource.getData()));
+    super.setSchema(resource.getSchema());
+    super.setTitle(resource.getTitle());
+    super.setDescription(resource.getDescription());
+    super.setHomepage(resource.getHomepage());
+    super.setSources(Frozen.list(resource.getSources(), previous == null ? null : previous.getSources(),
+        source -> (S) Frozen.source(source)));
+    super.setLicenses(Frozen.list(resource.getLicenses(), previous == null ? null : previous.getLicenses(),
+        license -> (L) Frozen.license(license)));
+    super.setFormat(resource.getFormat());
+    super.setMediatype(resource.getMediatype());
+    super.setEncoding(resource.getEncoding());
+    super.setBytes(resource.getBytes());
+    super.setHash(resource.getHash());
+    super.setAdditionalProperties(Frozen.properties(resource.additionalPropertiesOrNull(),
+        previous == null ? null : previous.additionalPropertiesOrNull()));
+    Frozen.publish();
+  }
+
+  /**
+   * Frozen snapshot of the resource, the resource itself if it is already frozen.
+   *
+   * @throws IllegalArgumentException if the resource holds extension subclasses of the model
+   */
+  public static <S extends FrictionlessSource, L extends FrictionlessLicense> FrozenResource<S, L> of(
+      FrictionlessResource<S, L> resource) {
+    if (resource instanceof FrozenResource) {
+      return (FrozenResource<S, L>) resource;
+    }
+    return new FrozenResource<>(resource, null);
+  }
+
+  @Override
+  public FrozenResource<S, L> freeze() {
+    return this;
+  }
+
+  /**
+   * Derives a modified snapshot, see {@link FrozenMetadata#with(Consumer)}.
+   */
+  public FrozenResource<S, L> with(Consumer<? super FrictionlessResource<S, L>> change) {
+    FrictionlessResource<S, L> draft = thaw();
+    change.accept(draft);
+    return new FrozenResource<>(draft, this);
+  }
+
+  /**
+   * Mutable copy of this snapshot. Only the top level is copied: the lists and the additional properties can be
+   * modified, but the licenses, sources, path and inline data are still frozen and have to be replaced rather than
+   * modified.
+   */
+  public FrictionlessResource<S, L> thaw() {
+    FrictionlessResource<S, L> draft = new FrictionlessResource<>();
+    draft.setProfile(getProfile());
+    draft.setName(getName());
+    draft.setPath(getPath());
+    draft.setData(getData());
+    draft.setSchema(getSchema());
+    draft.setTitle(getTitle());
+    draft.setDescription(getDescription());
+    draft.setHomepage(getHomepage());
+    draft.setSources(getSources() == null ? null : new ArrayList<>(getSources()));
+    draft.setLicenses(getLicenses() == null ? null : new ArrayList<>(getLicenses()));
+    draft.setFormat(getFormat());
+    draft.setMediatype(getMediatype());
+    draft.setEncoding(getEncoding());
+    draft.setBytes(getBytes());
+    draft.setHash(getHash());
+    for (Map.Entry<String, Object> property : getAdditionalProperties().entrySet()) {
+      draft.setAdditionalProperty(property.getKey(), property.getValue());
+    }
+    return draft;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = super.hashCode();
+      hash = h;
+    }
+    return h;
+  }
+
+  @Override
+  public void setProfile(String profile) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setName(CharSequence name) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setPath(Object path) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setData(Object data) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setSchema(String schema) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setTitle(String title) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setDescription(String description) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setHomepage(URI homepage) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setSources(List<S> sources) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setLicenses(List<L> licenses) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setFormat(String format) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setMediatype(String mediatype) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setEncoding(String encoding) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setBytes(Long bytes) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setHash(String hash) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setAdditionalProperties(Map<String, Object> additionalProperties) {
+    throw Frozen.readOnly();
+  }
+
+  @Override
+  public void setAdditionalProperty(String name, Object value) {
+    throw Frozen.readOnly();
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * Inline resource data kept as raw UTF-8 JSON instead of nested lists and maps.
+ * <p>
+ * Rows are decoded on demand through a {@link RowCursor}, which reuses its buffers from row to row and exposes
+ * the values as primitives, so scanning the data allocates next to nothing.
+ * Serializes back to the same JSON it was read from.
+ */
+public final class InlineData implements JsonSerializable, Serializable {
+
+  private static final long serialVersionUID = -2203716447003592875L;
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  private final byte[] json;
+
+  private InlineData(byte[] json) {
+    this.json = json;
+  }
+
+  /**
+   * Copies the current value of the parser, typically the {@code data} array, without binding it.
+   */
+  public static InlineData copyOf(JsonParser parser) throws IOException {
+    try (ByteArrayBuilder bytes = new ByteArrayBuilder();
+         JsonGenerator generator = FACTORY.createGenerator(bytes, JsonEncoding.UTF8)) {
+      generator.copyCurrentStructure(parser);
+      generator.flush();
+      return new InlineData(bytes.toByteArray());
+    }
+  }
+
+  /**
+   * Inline data from a raw JSON array.
+   */
+  public static InlineData of(byte[] json) {
+    return new InlineData(json.clone());
+  }
+
+  /**
+   * Size of the raw JSON in bytes.
+   */
+  public int size() {
+    return json.length;
+  }
+
+  public byte[] toByteArray() {
+    return json.clone();
+  }
+
+  /**
+   * Opens a new cursor over the rows. Each cursor is independent and not thread-safe.
+   */
+  public RowCursor rows() {
+    try {
+      return new RowCursor(FACTORY.createParser(json));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    try (JsonParser parser = FACTORY.createParser(json)) {
+      parser.nextToken();
+      gen.copyCurrentStructure(parser);
+    }
+  }
+
+  @Override
+  public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+    serialize(gen, serializers);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o instanceof InlineData && Arrays.equals(json, ((InlineData) o).json);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(json);
+  }
+
+  @Override
+  public String toString() {
+    return "InlineData(" + json.length + " bytes)";
+  }
+
+  /**
+   * Forward-only cursor over the rows of the data, either arrays of values or objects keyed by field name.
+   * Values of the current row are valid until the next call of {@link #next()}.
+   */
+  public static final class RowCursor implements Closeable {
+
+    private final JsonParser parser;
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final List<String> columnNames = new ArrayList<>();
+    private JsonToken[] tokens = new JsonToken[8];
+    private int[] textStart = new int[8];
+    private int[] textLength = new int[8];
+    private long[] longs = new long[8];
+    private double[] doubles = new double[8];
+    private char[] text = new char[256];
+    private int textSize;
+    private int columnCount;
+    private long rowNumber;
+    private boolean started;
+    private boolean finished;
+
+    private RowCursor(JsonParser parser) {
+      this.parser = parser;
+    }
+
+    /**
+     * Moves to the next row.
+     *
+     * @return false when there are no more rows
+     */
+    public boolean next() {
+      if (finished) {
+        return false;
+      }
+      try {
+        if (!started) {
+          started = true;
+          if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Inline data must be an array");
+          }
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY || token == null) {
+          finished = true;
+          return false;
+        }
+        Arrays.fill(tokens, 0, columnCount, null);
+        textSize = 0;
+        columnCount = 0;
+        if (token == JsonToken.START_ARRAY) {
+          int column = 0;
+          while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            readValue(column++, token);
+          }
+        } else if (token == JsonToken.START_OBJECT) {
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            Integer column = columnIndex.get(name);
+            if (column == null) {
+              column = columnNames.size();
+              columnIndex.put(name, column);
+              columnNames.add(name);
+            }
+            readValue(column, parser.nextToken());
+          }
+        } else {
+          throw new IOException("Inline data row must be an array or an object, found " + token);
+        }
+        rowNumber++;
+        return true;
+      } catch (IOException e) {
+        finished = true;
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void readValue(int column, JsonToken token) throws IOException {
+      ensureColumn(column);
+      columnCount = Math.max(columnCount, column + 1);
+      tokens[column] = token;
+      switch (token) {
+        case VALUE_NUMBER_INT:
+          if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+            tokens[column] = JsonToken.VALUE_NUMBER_FLOAT;
+            doubles[column] = parser.getDoubleValue();
+          } else {
+            longs[column] = parser.getLongValue();
+          }
+          break;
+        case VALUE_NUMBER_FLOAT:
+          doubles[column] = parser.getDoubleValue();
+          break;
+        case START_ARRAY:
+        case START_OBJECT:
+          parser.skipChildren();
+          return;
+        default:
+          break;
+      }
+      appendText(column);
+    }
+
+    private void appendText(int column) throws IOException {
+      int length = parser.getTextLength();
+      if (textSize + length > text.length) {
+        text = Arrays.copyOf(text, Math.max(text.length * 2, textSize + length));
+      }
+      System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), text, textSize, length);
+      textStart[column] = textSize;
+      textLength[column] = length;
+      textSize += length;
+    }
+
+    private void ensureColumn(int column) {
+      if (column >= tokens.length) {
+        int size = Math.max(tokens.length * 2, column + 1);
+        int previous = tokens.length;
+        tokens = Arrays.copyOf(tokens, size);
+        textStart = Arrays.copyOf(textStart, size);
+        textLength = Arrays.copyOf(textLength, size);
+        longs = Arrays.copyOf(longs, size);
+        doubles = Arrays.copyOf(doubles, size);
+        Arrays.fill(tokens, previous, size, null);
+      }
+    }
+
+    /**
+     * Number of rows read so far, 1 for the first row.
+     */
+    public long getRowNumber() {
+      return rowNumber;
+    }
+
+    /**
+     * Number of columns of the current row.
+     */
+    public int getColumnCount() {
+      return columnCount;
+    }
+
+    /**
+     * Names of the columns seen so far when the rows are objects, in order of first appearance.
+     */
+    public List<String> getColumnNames() {
+      return Collections.unmodifiableList(columnNames);
+    }
+
+    /**
+     * Index of a named column, -1 if it has not been seen yet.
+     */
+    public int getColumnIndex(String name) {
+      Integer column = columnIndex.get(name);
+      return column == null ? -1 : column;
+    }
+
+    /**
+     * True if the value is missing or JSON null.
+     */
+    public boolean isNull(int column) {
+      JsonToken token = token(column);
+      return token == null || token == JsonToken.VALUE_NULL;
+    }
+
+    public long getLong(int column) {
+      JsonToken token = scalar(column);
+      if (token == JsonToken.VALUE_NUMBER_INT) {
+        return longs[column];
+      } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+        return (long) doubles[column];
+      }
+      throw typeMismatch(column, "number");
+    }
+
+    public int getInt(int column) {
+      return Math.toIntExact(getLong(column));
+    }
+
+    public double getDouble(int column) {
+      JsonToken token = scalar(column);
+      if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+        return doubles[column];
+      } else if (token == JsonToken.VALUE_NUMBER_INT) {
+        return longs[column];
+      }
+      throw typeMismatch(column, "number");
+    }
+
+    public boolean getBoolean(int column) {
+      JsonToken token = scalar(column);
+      if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+        return token == JsonToken.VALUE_TRUE;
+      }
+      throw typeMismatch(column, "boolean");
+    }
+
+    /**
+     * Text of a scalar value, as found in the JSON. The view is only valid until the next row.
+     *
+     * @return null if the value is missing or JSON null
+     */
+    public CharSequence getText(int column) {
+      if (isNull(column)) {
+        return null;
+      }
+      scalar(column);
+      return CharBuffer.wrap(text, textStart[column], textLength[column]);
+    }
+
+    /**
+     * Text of a scalar value as a new string.
+     *
+     * @return null if the value is missing or JSON null
+     */
+    public String getString(int column) {
+      if (isNull(column)) {
+        return null;
+      }
+      scalar(column);
+      return new String(text, textStart[column], textLength[column]);
+    }
+
+    private JsonToken token(int column) {
+      return column < columnCount ? tokens[column] : null;
+    }
+
+    private JsonToken scalar(int column) {
+      JsonToken token = token(column);
+      if (token == null || token == JsonToken.VALUE_NULL) {
+        throw new IllegalStateException("Column " + column + " of row " + rowNumber + " is null");
+      }
+      if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+        throw typeMismatch(column, "scalar");
+      }
+      return token;
+    }
+
+    private IllegalStateException typeMismatch(int column, String expected) {
+      return new IllegalStateException("Column " + column + " of row " + rowNumber + " is not a " + expected
+          + " but " + tokens[column]);
+    }
+
+    @Override
+    public void close() throws IOException {
+      finished = true;
+      parser.close();
+    }
+  }
+}
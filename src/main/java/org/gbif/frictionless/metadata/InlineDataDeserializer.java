@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Deserializer of the inline resource data, honouring the {@link InlineDataMode} attribute of the reader.
+ */
+public class InlineDataDeserializer extends StdDeserializer<Object> {
+
+  private static final long serialVersionUID = 4461739183806453392L;
+
+  public InlineDataDeserializer() {
+    super(Object.class);
+  }
+
+  @Override
+  public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+    Object mode = ctxt.getAttribute(InlineDataMode.class);
+    if (mode == InlineDataMode.RAW) {
+      return InlineData.copyOf(p);
+    } else if (mode == InlineDataMode.SKIP) {
+      p.skipChildren();
+      return null;
+    }
+    return ctxt.readValue(p, Object.class);
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * How the inline {@code data} of a {@link FrictionlessResource} is deserialized.
+ * <p>
+ * Set on a reader as an attribute, e.g. {@code InlineDataMode.RAW.applyTo(reader)}, or with
+ * {@link FrictionlessPackageReader#withInlineData(InlineDataMode)}.
+ */
+public enum InlineDataMode {
+
+  /**
+   * Untyped Jackson binding into nested lists and maps, the default.
+   */
+  OBJECT,
+
+  /**
+   * Kept as raw JSON in an {@link InlineData}, decoded lazily through its row cursor.
+   */
+  RAW,
+
+  /**
+   * Skipped without binding, {@code data} is left null.
+   */
+  SKIP;
+
+  public ObjectReader applyTo(ObjectReader reader) {
+    return reader.withAttribute(InlineDataMode.class, this);
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import org.gbif.frictionless.validation.CompiledValidator;
+import org.gbif.frictionless.validation.Violation;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * JSON merge patches (RFC 7386) applied to, and computed from, objects of the model.
+ * <p>
+ * A patch is applied property by property: the declared properties present in the patch are deserialized into the
+ * object, the others are merged into its additional properties. Arrays, e.g. the contributors, are replaced as a
+ * whole, objects are merged, {@code null} removes a property (an empty list for list properties). Only the
+ * properties touched by the patch are validated again, so the cost of an update follows the size of the patch and
+ * not the size of the descriptor.
+ * <p>
+ * Thread-safe, create once per type and share, e.g. {@link FrictionlessJson#getMetadataPatch()}.
+ *
+ * @param <T> patched type
+ */
+public class MergePatch<T> {
+
+  private final ObjectMapper mapper;
+  private final ObjectReader reader;
+  private final Map<String, BeanPropertyDefinition> properties = new LinkedHashMap<>();
+  private final List<BeanPropertyDefinition> serializedProperties;
+  private final AnnotatedMember anyGetter;
+  private final AnnotatedMember anySetter;
+
+  public MergePatch(ObjectMapper mapper, JavaType type) {
+    this.mapper = mapper;
+    this.reader = mapper.readerFor(type);
+
+    BeanDescription deserialization = mapper.getDeserializationConfig().introspect(type);
+    for (BeanPropertyDefinition property : deserialization.findProperties()) {
+      if (property.hasSetter() || property.hasField()) {
+        properties.put(property.getName(), property);
+      }
+    }
+    this.anySetter = deserialization.findAnySetterAccessor();
+    BeanDescription serialization = mapper.getSerializationConfig().introspect(type);
+    this.serializedProperties = serialization.findProperties();
+    this.anyGetter = serialization.findAnyGetter();
+    if (anyGetter != null) {
+      anyGetter.fixAccess(true);
+    }
+    if (anySetter != null) {
+      anySetter.fixAccess(true);
+    }
+  }
+
+  /**
+   * Applies the patch and validates the touched properties again.
+   *
+   * @param target object to update in place
+   * @param patch  merge patch, a JSON object
+   * @param groups validation groups, {@code Default} if none
+   * @return touched properties and their violations
+   */
+  public Result apply(T target, JsonNode patch, Class<?>... groups) throws IOException {
+    Set<String> touched = merge(target, patch);
+    return new Result(touched, CompiledValidator.getInstance().validateProperties(target, touched, groups));
+  }
+
+  /**
+   * Applies the patch without validation.
+   *
+   * @return the names of the touched fields
+   */
+  public Set<String> merge(T target, JsonNode patch) throws IOException {
+    if (!patch.isObject()) {
+      throw new IllegalArgumentException("A merge patch of an object must be a JSON object");
+    }
+    ObjectNode declared = mapper.createObjectNode();
+    Set<String> touched = new LinkedHashSet<>();
+    for (Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext(); ) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      BeanPropertyDefinition property = properties.get(field.getKey());
+      JsonNode value = field.getValue();
+      if (property != null) {
+        if (value.isNull() && property.getPrimaryType().isCollectionLikeType()) {
+          value = declared.arrayNode();
+        } else if (value.isObject()) {
+          AnnotatedMember accessor = property.getAccessor();
+          Object current = accessor == null ? null : accessor.getValue(target);
+          value = merge(current == null ? null : mapper.valueToTree(current), value);
+        }
+        declared.set(field.getKey(), value);
+        touched.add(property.getInternalName());
+      } else if (anySetter != null) {
+        mergeAdditionalProperty(target, field.getKey(), value);
+        touched.add(anyGetter != null ? anyGetter.getName() : anySetter.getName());
+      }
+    }
+    if (declared.size() > 0) {
+      reader.withValueToUpdate(target).readValue(declared);
+    }
+    return touched;
+  }
+
+  /**
+   * Computes the merge patch turning one object into the other. Applying it to {@code source} gives an object equal
+   * to {@code target}.
+   */
+  public ObjectNode diff(T source, T target) {
+    ObjectNode patch = mapper.createObjectNode();
+    JsonNode targetTree = null;
+    for (BeanPropertyDefinition property : serializedProperties) {
+      AnnotatedMember accessor = property.getAccessor();
+      Object before = accessor.getValue(source);
+      Object after = accessor.getValue(target);
+      if (!Objects.equals(before, after)) {
+        // the whole target is serialized, once, to honour the property annotations, e.g. date formats
+        if (targetTree == null) {
+          targetTree = mapper.valueToTree(target);
+        }
+        JsonNode value = targetTree.has(property.getName()) ? targetTree.get(property.getName()) : NullNode.getInstance();
+        if (value.isObject() && before != null) {
+          value = diff(mapper.valueToTree(before), value);
+        }
+        patch.set(property.getName(), value);
+      }
+    }
+
+    Map<String, Object> before = additionalProperties(source);
+    Map<String, Object> after = additionalProperties(target);
+    for (String name : before.keySet()) {
+      if (!after.containsKey(name)) {
+        patch.putNull(name);
+      }
+    }
+    for (Map.Entry<String, Object> entry : after.entrySet()) {
+      Object previous = before.get(entry.getKey());
+      if (previous == null || !previous.equals(entry.getValue())) {
+        JsonNode value = mapper.valueToTree(entry.getValue());
+        if (value.isObject() && previous != null) {
+          value = diff(mapper.valueToTree(previous), value);
+        }
+        patch.set(entry.getKey(), value);
+      }
+    }
+    return patch;
+  }
+
+  /**
+   * Applies a merge patch to a JSON value, as defined by RFC 7386. The target may be modified.
+   */
+  public static JsonNode merge(JsonNode target, JsonNode patch) {
+    if (!patch.isObject()) {
+      return patch;
+    }
+    ObjectNode result = target != null && target.isObject() ? (ObjectNode) target : ((ObjectNode) patch).objectNode();
+    for (Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext(); ) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      if (field.getValue().isNull()) {
+        result.remove(field.getKey());
+      } else {
+        result.set(field.getKey(), merge(result.get(field.getKey()), field.getValue()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes the merge patch turning one JSON value into another.
+   */
+  public static JsonNode diff(JsonNode source, JsonNode target) {
+    if (source == null || !source.isObject() || !target.isObject()) {
+      return target;
+    }
+    ObjectNode patch = ((ObjectNode) source).objectNode();
+    for (Iterator<String> names = source.fieldNames(); names.hasNext(); ) {
+      String name = names.next();
+      if (!target.has(name)) {
+        patch.putNull(name);
+      }
+    }
+    for (Iterator<Map.Entry<String, JsonNode>> fields = target.fields(); fields.hasNext(); ) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      JsonNode previous = source.get(field.getKey());
+      if (!field.getValue().equals(previous)) {
+        patch.set(field.getKey(), diff(previous, field.getValue()));
+      }
+    }
+    return patch;
+  }
+
+  private void mergeAdditionalProperty(T target, String name, JsonNode value) throws IOException {
+    Map<String, Object> additional = additionalProperties(target);
+    if (value.isNull()) {
+      if (additional.containsKey(name)) {
+        additional.remove(name);
+      }
+      return;
+    }
+    Object current = additional.get(name);
+    JsonNode merged = merge(current == null ? null : mapper.valueToTree(current), value);
+    Object converted = mapper.treeToValue(merged, Object.class);
+    if (anySetter instanceof AnnotatedMethod) {
+      try {
+        ((AnnotatedMethod) anySetter).callOnWith(target, name, converted);
+      } catch (Exception e) {
+        throw new IllegalStateException("Cannot set " + name, e);
+      }
+    } else {
+      additional.put(name, converted);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> additionalProperties(T bean) {
+    Object value = anyGetter == null ? null : anyGetter.getValue(bean);
+    return value == null ? Collections.emptyMap() : (Map<String, Object>) value;
+  }
+
+  /**
+   * Outcome of a patch: the touched fields, and the violations found validating them again.
+   */
+  public static final class Result {
+
+    private final Set<String> touchedProperties;
+    private final List<Violation> violations;
+
+    Result(Set<String> touchedProperties, List<Violation> violations) {
+      this.touchedProperties = Collections.unmodifiableSet(touchedProperties);
+      this.violations = violations;
+    }
+
+    public Set<String> getTouchedProperties() {
+      return touchedProperties;
+    }
+
+    public List<Violation> getViolations() {
+      return violations;
+    }
+
+    public boolean isValid() {
+      return violations.isEmpty();
+    }
+  }
+}
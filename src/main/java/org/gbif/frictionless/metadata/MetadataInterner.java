@@ -0,0 +1,311 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * Canonicalizes the values repeated across a corpus of descriptors.
+ * <p>
+ * Identical licenses and sources are replaced by one shared, read-only instance, and the enum-like strings
+ * (contributor roles, profiles, versions, formats, media types and encodings) by one shared string. Only the exact
+ * {@link FrictionlessLicense} and {@link FrictionlessSource} classes are shared, subclasses are left alone as they
+ * may carry state this class doesn't know about.
+ * <p>
+ * Used as a deserialization option by registering its {@link #module()} on the mapper, e.g. through
+ * {@link FrictionlessJson.Builder#interner(MetadataInterner)}. Thread-safe. Each pool is bounded, values seen once
+ * the pool is full are returned as they are.
+ */
+public class MetadataInterner {
+
+  /**
+   * Default maximum number of canonical values per pool.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+  private final int maxEntries;
+  private final Map<FrictionlessLicense, FrictionlessLicense> licenses = new ConcurrentHashMap<>();
+  private final Map<FrictionlessSource, FrictionlessSource> sources = new ConcurrentHashMap<>();
+  private final Map<String, String> strings = new ConcurrentHashMap<>();
+  private final LongAdder savedLicenses = new LongAdder();
+  private final LongAdder savedSources = new LongAdder();
+  private final LongAdder savedStrings = new LongAdder();
+
+  public MetadataInterner() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  public MetadataInterner(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Jackson module canonicalizing the model objects as they are deserialized.
+   */
+  public Module module() {
+    SimpleModule module = new SimpleModule("MetadataInterner");
+    module.setDeserializerModifier(new BeanDeserializerModifier() {
+      @Override
+      public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc,
+                                                    JsonDeserializer<?> deserializer) {
+        Class<?> type = beanDesc.getBeanClass();
+        if (FrictionlessLicense.class.isAssignableFrom(type)
+            || FrictionlessSource.class.isAssignableFrom(type)
+            || FrictionlessContributor.class.isAssignableFrom(type)
+            || FrictionlessResource.class.isAssignableFrom(type)
+            || FrictionlessMetadata.class.isAssignableFrom(type)) {
+          return new InterningDeserializer(deserializer);
+        }
+        return deserializer;
+      }
+    });
+    return module;
+  }
+
+  /**
+   * Canonicalizes a model object: shared instance for licenses and sources, shared strings for the others.
+   *
+   * @return the canonical instance, or the given object with its strings replaced
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T canonicalize(T value) {
+    if (value == null) {
+      return null;
+    }
+    Class<?> type = value.getClass();
+    if (type == FrictionlessLicense.class) {
+      return (T) intern((FrictionlessLicense) value);
+    } else if (type == FrictionlessSource.class) {
+      return (T) intern((FrictionlessSource) value);
+    } else if (value instanceof FrictionlessContributor) {
+      FrictionlessContributor contributor = (FrictionlessContributor) value;
+      contributor.setRole(intern(contributor.getRole()));
+    } else if (value instanceof FrictionlessResource) {
+      FrictionlessResource<?, ?> resource = (FrictionlessResource<?, ?>) value;
+      resource.setProfile(intern(resource.getProfile()));
+      resource.setFormat(intern(resource.getFormat()));
+      resource.setMediatype(intern(resource.getMediatype()));
+      resource.setEncoding(intern(resource.getEncoding()));
+    } else if (value instanceof FrictionlessMetadata) {
+      FrictionlessMetadata<?, ?, ?> metadata = (FrictionlessMetadata<?, ?, ?>) value;
+      metadata.setProfile(intern(metadata.getProfile()));
+      metadata.setVersion(intern(metadata.getVersion()));
+    }
+    return value;
+  }
+
+  public FrictionlessLicense intern(FrictionlessLicense license) {
+    FrictionlessLicense canonical = licenses.get(license);
+    if (canonical == null) {
+      if (licenses.size() >= maxEntries) {
+        return license;
+      }
+      SharedLicense shared = new SharedLicense(license, this);
+      canonical = licenses.putIfAbsent(shared, shared);
+      if (canonical == null) {
+        return shared;
+      }
+    }
+    savedLicenses.increment();
+    return canonical;
+  }
+
+  public FrictionlessSource intern(FrictionlessSource source) {
+    FrictionlessSource canonical = sources.get(source);
+    if (canonical == null) {
+      if (sources.size() >= maxEntries) {
+        return source;
+      }
+      SharedSource shared = new SharedSource(source);
+      canonical = sources.putIfAbsent(shared, shared);
+      if (canonical == null) {
+        return shared;
+      }
+    }
+    savedSources.increment();
+    return canonical;
+  }
+
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    String canonical = strings.get(value);
+    if (canonical == null) {
+      if (strings.size() >= maxEntries) {
+        return value;
+      }
+      canonical = strings.putIfAbsent(value, value);
+      if (canonical == null) {
+        return value;
+      }
+    }
+    if (canonical != value) {
+      savedStrings.increment();
+    }
+    return canonical;
+  }
+
+  /**
+   * Number of objects replaced by a canonical instance so far, per kind.
+   */
+  public Map<String, Long> getStatistics() {
+    Map<String, Long> statistics = new LinkedHashMap<>();
+    statistics.put("licenses", savedLicenses.sum());
+    statistics.put("sources", savedSources.sum());
+    statistics.put("strings", savedStrings.sum());
+    statistics.put("canonicalLicenses", (long) licenses.size());
+    statistics.put("canonicalSources", (long) sources.size());
+    statistics.put("canonicalStrings", (long) strings.size());
+    return statistics;
+  }
+
+  /**
+   * Total number of objects replaced by a canonical instance so far.
+   */
+  public long getSavedObjects() {
+    return savedLicenses.sum() + savedSources.sum() + savedStrings.sum();
+  }
+
+  /**
+   * Drops all canonical values and resets the statistics.
+   */
+  public void clear() {
+    licenses.clear();
+    sources.clear();
+    strings.clear();
+    savedLicenses.reset();
+    savedSources.reset();
+    savedStrings.reset();
+  }
+
+  private final class InterningDeserializer extends DelegatingDeserializer {
+
+    private static final long serialVersionUID = -6418523061624873411L;
+
+    InterningDeserializer(JsonDeserializer<?> delegatee) {
+      super(delegatee);
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+      return new InterningDeserializer(newDelegatee);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      return canonicalize(_delegatee.deserialize(p, ctxt));
+    }
+  }
+
+  /**
+   * A canonical license, shared between descriptors and therefore read-only, down to the nested values of its
+   * additional properties.
+   */
+  static final class SharedLicense extends FrictionlessLicense {
+
+    private static final long serialVersionUID = 1943380786305212236L;
+
+    SharedLicense(FrictionlessLicense license, MetadataInterner interner) {
+      super.setName(interner.intern(license.getName()));
+      super.setPath(license.getPath());
+      super.setTitle(license.getTitle());
+      super.setAdditionalProperties(Frozen.properties(license.additionalPropertiesOrNull(), null));
+    }
+
+    @Override
+    public void setName(String name) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setPath(String path) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setTitle(String title) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperties(Map<String, Object> additionalProperties) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperty(String name, Object value) {
+      throw readOnly();
+    }
+  }
+
+  /**
+   * A canonical source, shared between descriptors and therefore read-only, down to the nested values of its
+   * additional properties.
+   */
+  static final class SharedSource extends FrictionlessSource {
+
+    private static final long serialVersionUID = -5409245587733460411L;
+
+    SharedSource(FrictionlessSource source) {
+      super.setTitle(source.getTitle());
+      super.setPath(source.getPath());
+      super.setEmail(source.getEmail());
+      super.setAdditionalProperties(Frozen.properties(source.additionalPropertiesOrNull(), null));
+    }
+
+    @Override
+    public void setTitle(String title) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setPath(String path) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setEmail(String email) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperties(Map<String, Object> additionalProperties) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setAdditionalProperty(String name, Object value) {
+      throw readOnly();
+    }
+  }
+
+  private static UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException("Canonical instances are shared and can't be modified");
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deep copies and retained size estimates of the default model classes.
+ * <p>
+ * Copies share what can't be modified: strings, numbers, URIs, inline data and the canonical instances of
+ * {@link MetadataInterner}. Extension subclasses are not supported, see {@link #isSupported(FrictionlessMetadata)}.
+ */
+final class ModelCopier {
+
+  private static final long OBJECT = 16;
+  private static final long REFERENCE = 8;
+  private static final long STRING = 40;
+  private static final long LIST = 40;
+  private static final long MAP = 48;
+  private static final long ENTRY = 32;
+
+  private ModelCopier() {
+  }
+
+  static boolean isSupported(FrictionlessMetadata<?, ?, ?> metadata) {
+    return (metadata.getClass() == FrictionlessMetadata.class || metadata instanceof FrozenMetadata)
+        && allOf(metadata.getContributors(), FrictionlessContributor.class, Frozen.FrozenContributor.class)
+        && allLicenses(metadata.getLicenses())
+        && allSources(metadata.getSources());
+  }
+
+  static boolean isSupported(FrictionlessResource<?, ?> resource) {
+    return (resource.getClass() == FrictionlessResource.class || resource instanceof FrozenResource)
+        && allLicenses(resource.getLicenses())
+        && allSources(resource.getSources());
+  }
+
+  @SuppressWarnings("unchecked")
+  static <C extends FrictionlessContributor, L extends FrictionlessLicense, S extends FrictionlessSource> FrictionlessMetadata<C, L, S> copy(
+      FrictionlessMetadata<C, L, S> metadata) {
+    FrictionlessMetadata<C, L, S> copy = new FrictionlessMetadata<>();
+    copy.setTitle(metadata.getTitle());
+    copy.setVersion(metadata.getVersion());
+    copy.setProfile(metadata.getProfile());
+    copy.setName(metadata.getName());
+    copy.setId(metadata.getId());
+    copy.setDescription(metadata.getDescription());
+    copy.setHomepage(metadata.getHomepage());
+    copy.setCreated(metadata.getCreated() == null ? null : new Date(metadata.getCreated().getTime()));
+    if (metadata.getContributors() == null) {
+      copy.setContributors(null);
+    } else {
+      List<C> contributors = new ArrayList<>(metadata.getContributors().size());
+      for (C contributor : metadata.getContributors()) {
+        contributors.add((C) copy(contributor));
+      }
+      copy.setContributors(contributors);
+    }
+    copy.setKeywords(metadata.getKeywords() == null ? null : new ArrayList<>(metadata.getKeywords()));
+    copy.setImage(metadata.getImage());
+    copy.setLicenses(copyLicenses(metadata.getLicenses()));
+    copy.setSources(copySources(metadata.getSources()));
+    copyProperties(metadata.additionalPropertiesOrNull(), copy::setAdditionalProperty);
+    return copy;
+  }
+
+  static <S extends FrictionlessSource, L extends FrictionlessLicense> FrictionlessResource<S, L> copy(
+      FrictionlessResource<S, L> resource) {
+    FrictionlessResource<S, L> copy = new FrictionlessResource<>();
+    copy.setProfile(resource.getProfile());
+    copy.setName(resource.getName() == null ? null : resource.getName().toString());
+    copy.setPath(copyValue(resource.getPath()));
+    copy.setData(copyValue(resource.getData()));
+    copy.setSchema(resource.getSchema());
+    copy.setTitle(resource.getTitle());
+    copy.setDescription(resource.getDescription());
+    copy.setHomepage(resource.getHomepage());
+    copy.setSources(copySources(resource.getSources()));
+    copy.setLicenses(copyLicenses(resource.getLicenses()));
+    copy.setFormat(resource.getFormat());
+    copy.setMediatype(resource.getMediatype());
+    copy.setEncoding(resource.getEncoding());
+    copy.setBytes(resource.getBytes());
+    copy.setHash(resource.getHash());
+    copyProperties(resource.additionalPropertiesOrNull(), copy::setAdditionalProperty);
+    return copy;
+  }
+
+  /**
+   * Rough retained size in bytes, assuming compressed references are not used.
+   */
+  static long estimateSize(FrictionlessMetadata<?, ?, ?> metadata) {
+    return OBJECT + 14 * REFERENCE
+        + size(metadata.getTitle()) + size(metadata.getVersion()) + size(metadata.getProfile())
+        + size(metadata.getName()) + size(metadata.getId()) + size(metadata.getDescription())
+        + size(metadata.getImage()) + (metadata.getHomepage() == null ? 0 : 2 * size(metadata.getHomepage().toString()))
+        + (metadata.getCreated() == null ? 0 : OBJECT + REFERENCE + 8)
+        + sizeOf(metadata.getKeywords()) + sizeOf(metadata.getContributors()) + sizeOf(metadata.getLicenses())
+        + sizeOf(metadata.getSources()) + sizeOf(metadata.additionalPropertiesOrNull());
+  }
+
+  static long estimateSize(FrictionlessResource<?, ?> resource) {
+    return OBJECT + 16 * REFERENCE
+        + size(resource.getProfile()) + size(resource.getName() == null ? null : resource.getName().toString())
+        + sizeOf(resource.getPath()) + sizeOf(resource.getData()) + size(resource.getSchema())
+        + size(resource.getTitle()) + size(resource.getDescription())
+        + (resource.getHomepage() == null ? 0 : 2 * size(resource.getHomepage().toString()))
+        + sizeOf(resource.getSources()) + sizeOf(resource.getLicenses()) + size(resource.getFormat())
+        + size(resource.getMediatype()) + size(resource.getEncoding()) + (resource.getBytes() == null ? 0 : OBJECT + 8)
+        + size(resource.getHash()) + sizeOf(resource.additionalPropertiesOrNull());
+  }
+
+  private static FrictionlessContributor copy(FrictionlessContributor contributor) {
+    if (contributor == null) {
+      return null;
+    }
+    FrictionlessContributor copy = new FrictionlessContributor();
+    copy.setTitle(contributor.getTitle());
+    copy.setPath(contributor.getPath());
+    copy.setEmail(contributor.getEmail());
+    copy.setOrganization(contributor.getOrganization());
+    copy.setRole(contributor.getRole());
+    copyProperties(contributor.additionalPropertiesOrNull(), copy::setAdditionalProperty);
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <L extends FrictionlessLicense> List<L> copyLicenses(List<L> licenses) {
+    if (licenses == null) {
+      return null;
+    }
+    List<L> copy = new ArrayList<>(licenses.size());
+    for (L license : licenses) {
+      if (license == null || license instanceof MetadataInterner.SharedLicense) {
+        copy.add(license);
+      } else {
+        FrictionlessLicense licenseCopy = new FrictionlessLicense();
+        licenseCopy.setName(license.getName());
+        licenseCopy.setPath(license.getPath());
+        licenseCopy.setTitle(license.getTitle());
+        copyProperties(license.additionalPropertiesOrNull(), licenseCopy::setAdditionalProperty);
+        copy.add((L) licenseCopy);
+      }
+    }
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <S extends FrictionlessSource> List<S> copySources(List<S> sources) {
+    if (sources == null) {
+      return null;
+    }
+    List<S> copy = new ArrayList<>(sources.size());
+    for (S source : sources) {
+      if (source == null || source instanceof MetadataInterner.SharedSource) {
+        copy.add(source);
+      } else {
+        FrictionlessSource sourceCopy = new FrictionlessSource();
+        sourceCopy.setTitle(source.getTitle());
+        sourceCopy.setPath(source.getPath());
+        sourceCopy.setEmail(source.getEmail());
+        copyProperties(source.additionalPropertiesOrNull(), sourceCopy::setAdditionalProperty);
+        copy.add((S) sourceCopy);
+      }
+    }
+    return copy;
+  }
+
+  private static void copyProperties(Map<String, Object> properties, PropertySetter setter) {
+    if (properties == null) {
+      return;
+    }
+    for (Map.Entry<String, Object> property : properties.entrySet()) {
+      setter.set(property.getKey(), copyValue(property.getValue()));
+    }
+  }
+
+  /**
+   * Copies the lists and maps of a JSON-like value, other values are shared.
+   */
+  private static Object copyValue(Object value) {
+    if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      List<Object> copy = new ArrayList<>(list.size());
+      for (Object element : list) {
+        copy.add(copyValue(element));
+      }
+      return copy;
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      Map<Object, Object> copy = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        copy.put(entry.getKey(), copyValue(entry.getValue()));
+      }
+      return copy;
+    }
+    return value;
+  }
+
+  private static long sizeOf(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof String) {
+      return size((String) value);
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      long size = LIST + REFERENCE * list.size();
+      for (Object element : list) {
+        size += sizeOf(element);
+      }
+      return size;
+    } else if (value instanceof Map) {
+      long size = MAP;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size += ENTRY + sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+      }
+      return size;
+    } else if (value instanceof FrictionlessContributor) {
+      FrictionlessContributor contributor = (FrictionlessContributor) value;
+      return OBJECT + 6 * REFERENCE + size(contributor.getTitle()) + size(contributor.getPath())
+          + size(contributor.getEmail()) + size(contributor.getOrganization()) + size(contributor.getRole())
+          + sizeOf(contributor.additionalPropertiesOrNull());
+    } else if (value instanceof FrictionlessLicense) {
+      FrictionlessLicense license = (FrictionlessLicense) value;
+      return OBJECT + 4 * REFERENCE + size(license.getName()) + size(license.getPath()) + size(license.getTitle())
+          + sizeOf(license.additionalPropertiesOrNull());
+    } else if (value instanceof FrictionlessSource) {
+      FrictionlessSource source = (FrictionlessSource) value;
+      return OBJECT + 4 * REFERENCE + size(source.getTitle()) + size(source.getPath()) + size(source.getEmail())
+          + sizeOf(source.additionalPropertiesOrNull());
+    } else if (value instanceof InlineData) {
+      return OBJECT + REFERENCE + OBJECT + ((InlineData) value).size();
+    }
+    // boxed numbers and booleans
+    return OBJECT + 8;
+  }
+
+  private static long size(String value) {
+    return value == null ? 0 : STRING + value.length();
+  }
+
+  private static boolean allOf(List<?> values, Class<?> type, Class<?> frozenType) {
+    if (values != null) {
+      for (Object value : values) {
+        if (value != null && value.getClass() != type && value.getClass() != frozenType) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean allLicenses(List<?> licenses) {
+    if (licenses != null) {
+      for (Object license : licenses) {
+        if (license != null && license.getClass() != FrictionlessLicense.class
+            && license.getClass() != MetadataInterner.SharedLicense.class
+            && license.getClass() != Frozen.FrozenLicense.class) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean allSources(List<?> sources) {
+    if (sources != null) {
+      for (Object source : sources) {
+        if (source != null && source.getClass() != FrictionlessSource.class
+            && source.getClass() != MetadataInterner.SharedSource.class
+            && source.getClass() != Frozen.FrozenSource.class) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @FunctionalInterface
+  private interface PropertySetter {
+
+    void set(String name, Object value);
+  }
+}
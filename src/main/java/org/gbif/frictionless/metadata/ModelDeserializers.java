@@ -0,0 +1,482 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBase;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+
+/**
+ * Hand-written deserializers of the model classes, switching on the property names and calling the setters directly.
+ * <p>
+ * The values themselves are read with the deserializers the bean mapping resolved for each property, so coercions,
+ * date formats, the {@link InlineDataMode} of the resource data and the element classes of the lists behave as they
+ * do with the bean mapping. Unknown properties go to the additional properties. See {@link ModelModule}.
+ */
+final class ModelDeserializers {
+
+  private ModelDeserializers() {
+  }
+
+  /**
+   * Base deserializer, falling back to the bean deserializer for anything but a JSON object, e.g. a single-element
+   * array when unwrapping is enabled, and for views.
+   */
+  abstract static class ModelDeserializer<T> extends DelegatingDeserializer {
+
+    private static final long serialVersionUID = 4713307125606178123L;
+
+    /**
+     * Properties whose value deserializer is taken from the bean deserializer, indexed as in {@link #values}.
+     */
+    private final String[] properties;
+    private JsonDeserializer<Object>[] values;
+    private JsonDeserializer<Object> additionalValues;
+
+    ModelDeserializer(JsonDeserializer<?> beanDeserializer, String... properties) {
+      super(beanDeserializer);
+      this.properties = properties;
+    }
+
+    ModelDeserializer(JsonDeserializer<?> beanDeserializer, ModelDeserializer<T> resolved) {
+      super(beanDeserializer);
+      this.properties = resolved.properties;
+      this.values = resolved.values;
+      this.additionalValues = resolved.additionalValues;
+    }
+
+    abstract T create();
+
+    /**
+     * Reads the value of a property, the parser being on its first token.
+     */
+    abstract void readProperty(T bean, String name, JsonParser p, DeserializationContext ctxt) throws IOException;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+      super.resolve(ctxt);
+      BeanDeserializerBase bean = (BeanDeserializerBase) _delegatee;
+      JsonDeserializer<Object>[] resolved = new JsonDeserializer[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        SettableBeanProperty property = bean.findProperty(properties[i]);
+        if (property == null || !property.hasValueDeserializer()) {
+          throw JsonMappingException.from(ctxt, "No deserializer for property " + properties[i] + " of "
+              + bean.handledType().getName());
+        }
+        resolved[i] = (JsonDeserializer<Object>) property.getValueDeserializer();
+      }
+      values = resolved;
+      additionalValues = ctxt.findContextualValueDeserializer(ctxt.constructType(Object.class), null);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      if (!isObject(p, ctxt)) {
+        return _delegatee.deserialize(p, ctxt);
+      }
+      return readProperties(create(), p, ctxt);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object deserialize(JsonParser p, DeserializationContext ctxt, Object intoValue) throws IOException {
+      if (!isObject(p, ctxt)) {
+        return ((JsonDeserializer<Object>) _delegatee).deserialize(p, ctxt, intoValue);
+      }
+      return readProperties((T) intoValue, p, ctxt);
+    }
+
+    private static boolean isObject(JsonParser p, DeserializationContext ctxt) {
+      JsonToken token = p.currentToken();
+      return (token == JsonToken.START_OBJECT || token == JsonToken.FIELD_NAME || token == JsonToken.END_OBJECT)
+          && ctxt.getActiveView() == null;
+    }
+
+    private T readProperties(T bean, JsonParser p, DeserializationContext ctxt) throws IOException {
+      JsonToken token = p.currentToken();
+      if (token == JsonToken.START_OBJECT) {
+        token = p.nextToken();
+      }
+      for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+        String name = p.currentName();
+        p.nextToken();
+        readProperty(bean, name, p, ctxt);
+      }
+      return bean;
+    }
+
+    /**
+     * Value of a string property, without a call to the deserializer for the common case of a JSON string.
+     */
+    String string(JsonParser p, DeserializationContext ctxt, int property) throws IOException {
+      if (p.currentToken() == JsonToken.VALUE_STRING) {
+        return p.getText();
+      }
+      return (String) value(p, ctxt, property);
+    }
+
+    Object value(JsonParser p, DeserializationContext ctxt, int property) throws IOException {
+      JsonDeserializer<Object> deserializer = values[property];
+      if (p.currentToken() == JsonToken.VALUE_NULL) {
+        return deserializer.getNullValue(ctxt);
+      }
+      return deserializer.deserialize(p, ctxt);
+    }
+
+    Object additionalValue(JsonParser p, DeserializationContext ctxt) throws IOException {
+      if (p.currentToken() == JsonToken.VALUE_NULL) {
+        return additionalValues.getNullValue(ctxt);
+      }
+      return additionalValues.deserialize(p, ctxt);
+    }
+  }
+
+  static final class MetadataDeserializer extends ModelDeserializer<FrictionlessMetadata<?, ?, ?>> {
+
+    private static final long serialVersionUID = -4395046185232150791L;
+
+    private static final int TITLE = 0;
+    private static final int VERSION = 1;
+    private static final int PROFILE = 2;
+    private static final int NAME = 3;
+    private static final int ID = 4;
+    private static final int DESCRIPTION = 5;
+    private static final int HOMEPAGE = 6;
+    private static final int CREATED = 7;
+    private static final int CONTRIBUTORS = 8;
+    private static final int KEYWORDS = 9;
+    private static final int IMAGE = 10;
+    private static final int LICENSES = 11;
+    private static final int SOURCES = 12;
+
+    MetadataDeserializer(JsonDeserializer<?> beanDeserializer) {
+      super(beanDeserializer, "title", "version", "profile", "name", "id", "description", "homepage", "created",
+          "contributors", "keywords", "image", "licenses", "sources");
+    }
+
+    private MetadataDeserializer(JsonDeserializer<?> beanDeserializer, MetadataDeserializer resolved) {
+      super(beanDeserializer, resolved);
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+      return new MetadataDeserializer(newDelegatee, this);
+    }
+
+    @Override
+    FrictionlessMetadata<?, ?, ?> create() {
+      return new FrictionlessMetadata<>();
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void readProperty(FrictionlessMetadata<?, ?, ?> bean, String name, JsonParser p, DeserializationContext ctxt)
+        throws IOException {
+      FrictionlessMetadata metadata = bean;
+      switch (name) {
+        case "title":
+          metadata.setTitle(string(p, ctxt, TITLE));
+          break;
+        case "version":
+          metadata.setVersion(string(p, ctxt, VERSION));
+          break;
+        case "profile":
+          metadata.setProfile(string(p, ctxt, PROFILE));
+          break;
+        case "name":
+          metadata.setName(string(p, ctxt, NAME));
+          break;
+        case "id":
+          metadata.setId(string(p, ctxt, ID));
+          break;
+        case "description":
+          metadata.setDescription(string(p, ctxt, DESCRIPTION));
+          break;
+        case "homepage":
+          metadata.setHomepage((URI) value(p, ctxt, HOMEPAGE));
+          break;
+        case "created":
+          metadata.setCreated((Date) value(p, ctxt, CREATED));
+          break;
+        case "contributors":
+          metadata.setContributors((List) value(p, ctxt, CONTRIBUTORS));
+          break;
+        case "keywords":
+          metadata.setKeywords((List<String>) value(p, ctxt, KEYWORDS));
+          break;
+        case "image":
+          metadata.setImage(string(p, ctxt, IMAGE));
+          break;
+        case "licenses":
+          metadata.setLicenses((List) value(p, ctxt, LICENSES));
+          break;
+        case "sources":
+          metadata.setSources((List) value(p, ctxt, SOURCES));
+          break;
+        default:
+          metadata.setAdditionalProperty(name, additionalValue(p, ctxt));
+      }
+    }
+  }
+
+  static final class ResourceDeserializer extends ModelDeserializer<FrictionlessResource<?, ?>> {
+
+    private static final long serialVersionUID = 2035934779580244623L;
+
+    private static final int PROFILE = 0;
+    private static final int NAME = 1;
+    private static final int PATH = 2;
+    private static final int DATA = 3;
+    private static final int SCHEMA = 4;
+    private static final int TITLE = 5;
+    private static final int DESCRIPTION = 6;
+    private static final int HOMEPAGE = 7;
+    private static final int SOURCES = 8;
+    private static final int LICENSES = 9;
+    private static final int FORMAT = 10;
+    private static final int MEDIATYPE = 11;
+    private static final int ENCODING = 12;
+    private static final int BYTES = 13;
+    private static final int HASH = 14;
+
+    ResourceDeserializer(JsonDeserializer<?> beanDeserializer) {
+      super(beanDeserializer, "profile", "name", "path", "data", "schema", "title", "description", "homepage",
+          "sources", "licenses", "format", "mediatype", "encoding", "bytes", "hash");
+    }
+
+    private ResourceDeserializer(JsonDeserializer<?> beanDeserializer, ResourceDeserializer resolved) {
+      super(beanDeserializer, resolved);
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+      return new ResourceDeserializer(newDelegatee, this);
+    }
+
+    @Override
+    FrictionlessResource<?, ?> create() {
+      return new FrictionlessResource<>();
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void readProperty(FrictionlessResource<?, ?> bean, String name, JsonParser p, DeserializationContext ctxt)
+        throws IOException {
+      FrictionlessResource resource = bean;
+      switch (name) {
+        case "profile":
+          resource.setProfile(string(p, ctxt, PROFILE));
+          break;
+        case "name":
+          resource.setName((CharSequence) value(p, ctxt, NAME));
+          break;
+        case "path":
+          resource.setPath(value(p, ctxt, PATH));
+          break;
+        case "data":
+          resource.setData(value(p, ctxt, DATA));
+          break;
+        case "schema":
+          resource.setSchema(string(p, ctxt, SCHEMA));
+          break;
+        case "title":
+          resource.setTitle(string(p, ctxt, TITLE));
+          break;
+        case "description":
+          resource.setDescription(string(p, ctxt, DESCRIPTION));
+          break;
+        case "homepage":
+          resource.setHomepage((URI) value(p, ctxt, HOMEPAGE));
+          break;
+        case "sources":
+          resource.setSources((List) value(p, ctxt, SOURCES));
+          break;
+        case "licenses":
+          resource.setLicenses((List) value(p, ctxt, LICENSES));
+          break;
+        case "format":
+          resource.setFormat(string(p, ctxt, FORMAT));
+          break;
+        case "mediatype":
+          resource.setMediatype(string(p, ctxt, MEDIATYPE));
+          break;
+        case "encoding":
+          resource.setEncoding(string(p, ctxt, ENCODING));
+          break;
+        case "bytes":
+          resource.setBytes((Long) value(p, ctxt, BYTES));
+          break;
+        case "hash":
+          resource.setHash(string(p, ctxt, HASH));
+          break;
+        default:
+          resource.setAdditionalProperty(name, additionalValue(p, ctxt));
+      }
+    }
+  }
+
+  static final class ContributorDeserializer extends ModelDeserializer<FrictionlessContributor> {
+
+    private static final long serialVersionUID = -7606530385958817312L;
+
+    private static final int TITLE = 0;
+    private static final int PATH = 1;
+    private static final int EMAIL = 2;
+    private static final int ORGANIZATION = 3;
+    private static final int ROLE = 4;
+
+    ContributorDeserializer(JsonDeserializer<?> beanDeserializer) {
+      super(beanDeserializer, "title", "path", "email", "organization", "role");
+    }
+
+    private ContributorDeserializer(JsonDeserializer<?> beanDeserializer, ContributorDeserializer resolved) {
+      super(beanDeserializer, resolved);
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+      return new ContributorDeserializer(newDelegatee, this);
+    }
+
+    @Override
+    FrictionlessContributor create() {
+      return new FrictionlessContributor();
+    }
+
+    @Override
+    void readProperty(FrictionlessContributor contributor, String name, JsonParser p, DeserializationContext ctxt)
+        throws IOException {
+      switch (name) {
+        case "title":
+          contributor.setTitle(string(p, ctxt, TITLE));
+          break;
+        case "path":
+          contributor.setPath(string(p, ctxt, PATH));
+          break;
+        case "email":
+          contributor.setEmail(string(p, ctxt, EMAIL));
+          break;
+        case "organization":
+          contributor.setOrganization(string(p, ctxt, ORGANIZATION));
+          break;
+        case "role":
+          contributor.setRole(string(p, ctxt, ROLE));
+          break;
+        default:
+          contributor.setAdditionalProperty(name, additionalValue(p, ctxt));
+      }
+    }
+  }
+
+  static final class LicenseDeserializer extends ModelDeserializer<FrictionlessLicense> {
+
+    private static final long serialVersionUID = 5283405327612386149L;
+
+    private static final int NAME = 0;
+    private static final int PATH = 1;
+    private static final int TITLE = 2;
+
+    LicenseDeserializer(JsonDeserializer<?> beanDeserializer) {
+      super(beanDeserializer, "name", "path", "title");
+    }
+
+    private LicenseDeserializer(JsonDeserializer<?> beanDeserializer, LicenseDeserializer resolved) {
+      super(beanDeserializer, resolved);
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+      return new LicenseDeserializer(newDelegatee, this);
+    }
+
+    @Override
+    FrictionlessLicense create() {
+      return new FrictionlessLicense();
+    }
+
+    @Override
+    void readProperty(FrictionlessLicense license, String name, JsonParser p, DeserializationContext ctxt)
+        throws IOException {
+      switch (name) {
+        case "name":
+          license.setName(string(p, ctxt, NAME));
+          break;
+        case "path":
+          license.setPath(string(p, ctxt, PATH));
+          break;
+        case "title":
+          license.setTitle(string(p, ctxt, TITLE));
+          break;
+        default:
+          license.setAdditionalProperty(name, additionalValue(p, ctxt));
+      }
+    }
+  }
+
+  static final class SourceDeserializer extends ModelDeserializer<FrictionlessSource> {
+
+    private static final long serialVersionUID = -1748219624309586722L;
+
+    private static final int TITLE = 0;
+    private static final int PATH = 1;
+    private static final int EMAIL = 2;
+
+    SourceDeserializer(JsonDeserializer<?> beanDeserializer) {
+      super(beanDeserializer, "title", "path", "email");
+    }
+
+    private SourceDeserializer(JsonDeserializer<?> beanDeserializer, SourceDeserializer resolved) {
+      super(beanDeserializer, resolved);
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+      return new SourceDeserializer(newDelegatee, this);
+    }
+
+    @Override
+    FrictionlessSource create() {
+      return new FrictionlessSource();
+    }
+
+    @Override
+    void readProperty(FrictionlessSource source, String name, JsonParser p, DeserializationContext ctxt)
+        throws IOException {
+      switch (name) {
+        case "title":
+          source.setTitle(string(p, ctxt, TITLE));
+          break;
+        case "path":
+          source.setPath(string(p, ctxt, PATH));
+          break;
+        case "email":
+          source.setEmail(string(p, ctxt, EMAIL));
+          break;
+        default:
+          source.setAdditionalProperty(name, additionalValue(p, ctxt));
+      }
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBase;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+/**
+ * Replaces the generic bean (de)serializers of the model classes by the hand-written ones of {@link ModelSerializers}
+ * and {@link ModelDeserializers}, which produce and accept the same JSON without going through reflection.
+ * <p>
+ * Only the exact model classes and their read-only variants are replaced, subclasses may add properties and keep
+ * the bean mapping. So does any mapper configured to map the model differently, e.g. with a naming strategy, sorted
+ * properties, mix-ins or default typing: the hand-written code only knows the default mapping.
+ * Registered by {@link FrictionlessJson}.
+ */
+final class ModelModule extends SimpleModule {
+
+  private static final long serialVersionUID = 3171569409817464231L;
+
+  /**
+   * Declared types of the model properties, whose configuration overrides could change the mapping.
+   */
+  private static final Class<?>[] PROPERTY_TYPES = {
+      String.class, CharSequence.class, URI.class, Date.class, Long.class, List.class, Object.class};
+
+  ModelModule() {
+    super("FrictionlessModel");
+    setSerializerModifier(new BeanSerializerModifier() {
+      @Override
+      public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                                JsonSerializer<?> serializer) {
+        Class<?> type = beanDesc.getBeanClass();
+        if (!isDefaultMapping(config, type) || !isDefaultInclusion(config, type)) {
+          return serializer;
+        }
+        @SuppressWarnings("unchecked")
+        JsonSerializer<Object> beanSerializer = (JsonSerializer<Object>) serializer;
+        if (type == FrictionlessMetadata.class || type == FrozenMetadata.class) {
+          return new ModelSerializers.MetadataSerializer(beanSerializer);
+        } else if (type == FrictionlessResource.class || type == FrozenResource.class) {
+          return new ModelSerializers.ResourceSerializer(beanSerializer);
+        } else if (type == FrictionlessContributor.class || type == Frozen.FrozenContributor.class) {
+          return new ModelSerializers.ContributorSerializer(beanSerializer);
+        } else if (type == FrictionlessLicense.class || type == MetadataInterner.SharedLicense.class
+            || type == Frozen.FrozenLicense.class) {
+          return new ModelSerializers.LicenseSerializer(beanSerializer);
+        } else if (type == FrictionlessSource.class || type == MetadataInterner.SharedSource.class
+            || type == Frozen.FrozenSource.class) {
+          return new ModelSerializers.SourceSerializer(beanSerializer);
+        }
+        return serializer;
+      }
+    });
+    setDeserializerModifier(new BeanDeserializerModifier() {
+      @Override
+      public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc,
+                                                    JsonDeserializer<?> deserializer) {
+        Class<?> type = beanDesc.getBeanClass();
+        if (!(deserializer instanceof BeanDeserializerBase) || !isDefaultMapping(config, type)
+            || config.isEnabled(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)
+            || !JsonSetter.Value.empty().equals(config.getDefaultSetterInfo())
+            || Boolean.TRUE.equals(config.getDefaultMergeable())) {
+          return deserializer;
+        }
+        if (type == FrictionlessMetadata.class) {
+          return new ModelDeserializers.MetadataDeserializer(deserializer);
+        } else if (type == FrictionlessResource.class) {
+          return new ModelDeserializers.ResourceDeserializer(deserializer);
+        } else if (type == FrictionlessContributor.class) {
+          return new ModelDeserializers.ContributorDeserializer(deserializer);
+        } else if (type == FrictionlessLicense.class) {
+          return new ModelDeserializers.LicenseDeserializer(deserializer);
+        } else if (type == FrictionlessSource.class) {
+          return new ModelDeserializers.SourceDeserializer(deserializer);
+        }
+        return deserializer;
+      }
+    });
+  }
+
+  private static boolean isDefaultMapping(MapperConfig<?> config, Class<?> type) {
+    return config.isEnabled(MapperFeature.USE_ANNOTATIONS)
+        && !config.isEnabled(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+        && config.getPropertyNamingStrategy() == null
+        && config.getAnnotationIntrospector() != null
+        && config.getAnnotationIntrospector().getClass() == JacksonAnnotationIntrospector.class
+        && config.findMixInClassFor(type) == null
+        && config.getDefaultTyper(config.constructType(type)) == null;
+  }
+
+  private static boolean isDefaultInclusion(SerializationConfig config, Class<?> type) {
+    for (Class<?> propertyType : PROPERTY_TYPES) {
+      JsonInclude.Value inclusion = config.getDefaultInclusion(type, propertyType);
+      if (!isAlways(inclusion.getValueInclusion()) || !isAlways(inclusion.getContentInclusion())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAlways(JsonInclude.Include include) {
+    return include == JsonInclude.Include.ALWAYS || include == JsonInclude.Include.USE_DEFAULTS;
+  }
+}
@@ -0,0 +1,364 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.IOException;
+import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+
+/**
+ * Hand-written serializers of the model classes, writing the properties in the order and with the inclusion rules of
+ * the bean mapping through direct getter calls. See {@link ModelModule}.
+ */
+final class ModelSerializers {
+
+  /**
+   * Pattern of the {@code created} timestamp, as declared on {@link FrictionlessMetadata}.
+   */
+  static final String CREATED_PATTERN = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+  private ModelSerializers() {
+  }
+
+  /**
+   * Base serializer, falling back to the bean serializer for what the hand-written code doesn't cover: type
+   * information, views, unwrapping and sorted map entries.
+   */
+  abstract static class ModelSerializer<T> extends StdSerializer<T> implements ResolvableSerializer {
+
+    private static final long serialVersionUID = -2470196339531624183L;
+
+    private final JsonSerializer<Object> beanSerializer;
+
+    ModelSerializer(Class<T> type, JsonSerializer<Object> beanSerializer) {
+      super(type);
+      this.beanSerializer = beanSerializer;
+    }
+
+    abstract void writeProperties(T value, JsonGenerator gen, SerializerProvider provider) throws IOException;
+
+    @Override
+    public void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      if (provider.getActiveView() != null || provider.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)) {
+        beanSerializer.serialize(value, gen, provider);
+        return;
+      }
+      gen.writeStartObject(value);
+      writeProperties(value, gen, provider);
+      gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(T value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+        throws IOException {
+      beanSerializer.serializeWithType(value, gen, provider, typeSer);
+    }
+
+    @Override
+    public JsonSerializer<T> unwrappingSerializer(NameTransformer unwrapper) {
+      @SuppressWarnings("unchecked")
+      JsonSerializer<T> unwrapping = (JsonSerializer<T>) beanSerializer.unwrappingSerializer(unwrapper);
+      return unwrapping;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+      if (beanSerializer instanceof ResolvableSerializer) {
+        ((ResolvableSerializer) beanSerializer).resolve(provider);
+      }
+    }
+  }
+
+  static final class MetadataSerializer extends ModelSerializer<FrictionlessMetadata<?, ?, ?>> {
+
+    private static final long serialVersionUID = 6893157032841390576L;
+
+    private final CreatedFormat createdFormat = new CreatedFormat();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    MetadataSerializer(JsonSerializer<Object> beanSerializer) {
+      super((Class) FrictionlessMetadata.class, beanSerializer);
+    }
+
+    @Override
+    void writeProperties(FrictionlessMetadata<?, ?, ?> value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeString(gen, "title", value.getTitle());
+      writeString(gen, "version", value.getVersion());
+      writeString(gen, "profile", value.getProfile());
+      writeString(gen, "name", value.getName());
+      writeString(gen, "id", value.getId());
+      writeString(gen, "description", value.getDescription());
+      writeUri(gen, "homepage", value.getHomepage());
+      Date created = value.getCreated();
+      if (created == null) {
+        gen.writeNullField("created");
+      } else {
+        gen.writeStringField("created", createdFormat.format(created, provider));
+      }
+      writeList(gen, provider, "contributors", value.getContributors());
+      List<String> keywords = value.getKeywords();
+      if (keywords != null && !keywords.isEmpty()) {
+        writeList(gen, provider, "keywords", keywords);
+      }
+      writeNonEmptyString(gen, "image", value.getImage());
+      writeList(gen, provider, "licenses", value.getLicenses());
+      writeList(gen, provider, "sources", value.getSources());
+      writeAdditionalProperties(gen, provider, value.additionalPropertiesOrNull());
+    }
+  }
+
+  static final class ResourceSerializer extends ModelSerializer<FrictionlessResource<?, ?>> {
+
+    private static final long serialVersionUID = -1390841512064739805L;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ResourceSerializer(JsonSerializer<Object> beanSerializer) {
+      super((Class) FrictionlessResource.class, beanSerializer);
+    }
+
+    @Override
+    void writeProperties(FrictionlessResource<?, ?> value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeString(gen, "profile", value.getProfile());
+      CharSequence name = value.getName();
+      if (name == null || name instanceof String) {
+        writeString(gen, "name", (String) name);
+      } else {
+        writeValue(gen, provider, "name", name);
+      }
+      writeValue(gen, provider, "path", value.getPath());
+      writeValue(gen, provider, "data", value.getData());
+      writeString(gen, "schema", value.getSchema());
+      writeString(gen, "title", value.getTitle());
+      writeString(gen, "description", value.getDescription());
+      writeUri(gen, "homepage", value.getHomepage());
+      writeList(gen, provider, "sources", value.getSources());
+      writeList(gen, provider, "licenses", value.getLicenses());
+      writeString(gen, "format", value.getFormat());
+      writeString(gen, "mediatype", value.getMediatype());
+      writeString(gen, "encoding", value.getEncoding());
+      Long bytes = value.getBytes();
+      if (bytes == null) {
+        gen.writeNullField("bytes");
+      } else {
+        gen.writeNumberField("bytes", bytes);
+      }
+      writeString(gen, "hash", value.getHash());
+      writeAdditionalProperties(gen, provider, value.additionalPropertiesOrNull());
+    }
+  }
+
+  static final class ContributorSerializer extends ModelSerializer<FrictionlessContributor> {
+
+    private static final long serialVersionUID = 2271638457304722683L;
+
+    ContributorSerializer(JsonSerializer<Object> beanSerializer) {
+      super(FrictionlessContributor.class, beanSerializer);
+    }
+
+    @Override
+    void writeProperties(FrictionlessContributor value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeString(gen, "title", value.getTitle());
+      writeString(gen, "path", value.getPath());
+      writeNonEmptyString(gen, "email", value.getEmail());
+      writeNonEmptyString(gen, "organization", value.getOrganization());
+      writeString(gen, "role", value.getRole());
+      writeAdditionalProperties(gen, provider, value.additionalPropertiesOrNull());
+    }
+  }
+
+  static final class LicenseSerializer extends ModelSerializer<FrictionlessLicense> {
+
+    private static final long serialVersionUID = -4153779408470226351L;
+
+    LicenseSerializer(JsonSerializer<Object> beanSerializer) {
+      super(FrictionlessLicense.class, beanSerializer);
+    }
+
+    @Override
+    void writeProperties(FrictionlessLicense value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeString(gen, "name", value.getName());
+      writeString(gen, "path", value.getPath());
+      writeString(gen, "title", value.getTitle());
+      writeAdditionalProperties(gen, provider, value.additionalPropertiesOrNull());
+    }
+  }
+
+  static final class SourceSerializer extends ModelSerializer<FrictionlessSource> {
+
+    private static final long serialVersionUID = 8404226779021664187L;
+
+    SourceSerializer(JsonSerializer<Object> beanSerializer) {
+      super(FrictionlessSource.class, beanSerializer);
+    }
+
+    @Override
+    void writeProperties(FrictionlessSource value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeString(gen, "title", value.getTitle());
+      writeString(gen, "path", value.getPath());
+      writeString(gen, "email", value.getEmail());
+      writeAdditionalProperties(gen, provider, value.additionalPropertiesOrNull());
+    }
+  }
+
+  private static void writeString(JsonGenerator gen, String name, String value) throws IOException {
+    if (value == null) {
+      gen.writeNullField(name);
+    } else {
+      gen.writeStringField(name, value);
+    }
+  }
+
+  /**
+   * A string property included only when not empty.
+   */
+  private static void writeNonEmptyString(JsonGenerator gen, String name, String value) throws IOException {
+    if (value != null && !value.isEmpty()) {
+      gen.writeStringField(name, value);
+    }
+  }
+
+  private static void writeUri(JsonGenerator gen, String name, URI value) throws IOException {
+    if (value == null) {
+      gen.writeNullField(name);
+    } else {
+      gen.writeStringField(name, value.toString());
+    }
+  }
+
+  private static void writeValue(JsonGenerator gen, SerializerProvider provider, String name, Object value)
+      throws IOException {
+    gen.writeFieldName(name);
+    provider.defaultSerializeValue(value, gen);
+  }
+
+  private static void writeList(JsonGenerator gen, SerializerProvider provider, String name, List<?> list)
+      throws IOException {
+    gen.writeFieldName(name);
+    if (list == null) {
+      gen.writeNull();
+      return;
+    }
+    int size = list.size();
+    if (size == 1 && provider.isEnabled(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED)) {
+      writeElement(gen, provider, list.get(0));
+      return;
+    }
+    gen.writeStartArray(list, size);
+    for (Object element : list) {
+      writeElement(gen, provider, element);
+    }
+    gen.writeEndArray();
+  }
+
+  private static void writeElement(JsonGenerator gen, SerializerProvider provider, Object element)
+      throws IOException {
+    if (element == null) {
+      provider.defaultSerializeNull(gen);
+    } else if (element instanceof String) {
+      gen.writeString((String) element);
+    } else {
+      provider.findValueSerializer(element.getClass()).serialize(element, gen, provider);
+    }
+  }
+
+  private static void writeAdditionalProperties(JsonGenerator gen, SerializerProvider provider,
+                                                Map<String, Object> properties) throws IOException {
+    if (properties == null) {
+      return;
+    }
+    for (Map.Entry<String, Object> entry : properties.entrySet()) {
+      String name = entry.getKey();
+      if (name == null) {
+        provider.findNullKeySerializer(provider.constructType(String.class), null).serialize(null, gen, provider);
+      } else {
+        gen.writeFieldName(name);
+      }
+      provider.defaultSerializeValue(entry.getValue(), gen);
+    }
+  }
+
+  /**
+   * Formats the {@code created} timestamp with a cached {@link DateTimeFormatter} in the time zone of the mapper,
+   * like the {@link SimpleDateFormat} of the bean mapping would. Dates it would print differently, i.e. before the
+   * Gregorian calendar, after year 9999 or in locales not using ASCII digits, are left to a {@link SimpleDateFormat}.
+   */
+  static final class CreatedFormat {
+
+    private static final long MIN_MILLIS = -12219206400000L; // 1582-10-16T00:00:00Z
+    private static final long MAX_MILLIS = 253402214400000L; // 9999-12-31T00:00:00Z
+    private static final Date SAMPLE = new Date(1262401445000L); // 2010-01-02T03:04:05Z
+
+    private volatile Cached cached;
+
+    String format(Date date, SerializerProvider provider) {
+      TimeZone timeZone = provider.getTimeZone();
+      Locale locale = provider.getLocale();
+      Cached current = cached;
+      if (current == null || !current.timeZone.equals(timeZone) || !current.locale.equals(locale)) {
+        current = new Cached(timeZone, locale);
+        cached = current;
+      }
+      long millis = date.getTime();
+      if (current.formatter == null || millis < MIN_MILLIS || millis > MAX_MILLIS) {
+        return legacyFormat(timeZone, locale).format(date);
+      }
+      return current.formatter.format(Instant.ofEpochMilli(millis));
+    }
+
+    private static SimpleDateFormat legacyFormat(TimeZone timeZone, Locale locale) {
+      SimpleDateFormat format = new SimpleDateFormat(CREATED_PATTERN, locale);
+      format.setTimeZone(timeZone);
+      return format;
+    }
+
+    private static final class Cached {
+
+      private final TimeZone timeZone;
+      private final Locale locale;
+      private final DateTimeFormatter formatter;
+
+      Cached(TimeZone timeZone, Locale locale) {
+        this.timeZone = timeZone;
+        this.locale = locale;
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(CREATED_PATTERN, Locale.ROOT)
+            .withZone(timeZone.toZoneId());
+        // null when the locale of the mapper prints other digits or another calendar
+        this.formatter = formatter.format(SAMPLE.toInstant()).equals(legacyFormat(timeZone, locale).format(SAMPLE))
+            ? formatter : null;
+      }
+    }
+  }
+}
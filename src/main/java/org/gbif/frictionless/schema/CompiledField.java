@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A field of a {@link CompiledTableSchema}: the parser of its type and format and its constraints, prepared once so
+ * that checking a cell only runs precompiled code. Immutable and thread-safe.
+ */
+public final class CompiledField {
+
+  /**
+   * Result of a parser for a cell not matching the type of the field.
+   */
+  static final Object INVALID = new Object();
+
+  static final String TYPE = "validation.field.type";
+  static final String REQUIRED = "validation.field.required";
+  static final String MIN_LENGTH = "validation.field.minLength";
+  static final String MAX_LENGTH = "validation.field.maxLength";
+  static final String MINIMUM = "validation.field.minimum";
+  static final String MAXIMUM = "validation.field.maximum";
+  static final String PATTERN = "validation.field.pattern";
+  static final String ENUM = "validation.field.enum";
+
+  private final String name;
+  private final String type;
+  private final int index;
+  private final ValueParser parser;
+  private final boolean required;
+  private final boolean unique;
+  private final int minLength;
+  private final int maxLength;
+  private final Object minimum;
+  private final Object maximum;
+  private final Pattern pattern;
+  private final Set<Object> enumValues;
+
+  /**
+   * @throws IllegalArgumentException for unknown types and formats, and constraints not matching the type
+   */
+  CompiledField(TableSchemaField field, int index, boolean primaryKey) {
+    this.name = field.getName();
+    this.type = field.getType() == null ? "string" : field.getType();
+    this.index = index;
+    this.parser = ValueParsers.forField(field);
+    FieldConstraints constraints = field.getConstraints() == null ? new FieldConstraints() : field.getConstraints();
+    this.required = primaryKey || Boolean.TRUE.equals(constraints.getRequired());
+    this.unique = Boolean.TRUE.equals(constraints.getUnique());
+    this.minLength = constraints.getMinLength() == null ? -1 : constraints.getMinLength();
+    this.maxLength = constraints.getMaxLength() == null ? -1 : constraints.getMaxLength();
+    this.minimum = constraints.getMinimum() == null ? null : constraintValue(constraints.getMinimum(), "minimum");
+    this.maximum = constraints.getMaximum() == null ? null : constraintValue(constraints.getMaximum(), "maximum");
+    this.pattern = constraints.getPattern() == null ? null : Pattern.compile(constraints.getPattern());
+    if (constraints.getEnumValues() == null) {
+      this.enumValues = null;
+    } else {
+      this.enumValues = new HashSet<>();
+      for (Object value : constraints.getEnumValues()) {
+        enumValues.add(key(value instanceof Collection || value instanceof Map ? value : constraintValue(value, "enum")));
+      }
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * Position of the field in the schema, and of its column in the rows.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Whether the field must have a value, as stated by its constraints or because it is part of the primary key.
+   */
+  public boolean isRequired() {
+    return required;
+  }
+
+  public boolean isUnique() {
+    return unique;
+  }
+
+  /**
+   * Typed value of a cell: {@link String} for strings, durations and {@code any}, {@link BigDecimal} for numbers
+   * ({@link Double} for {@code NaN} and infinities), {@link Long} or {@link BigInteger} for integers,
+   * {@link Boolean}, {@link java.time.LocalDate}, {@link java.time.LocalTime}, {@link java.time.OffsetDateTime} or
+   * {@link java.time.LocalDateTime}, {@link Integer} for years, {@link java.time.YearMonth}, a list of longitude and
+   * latitude for geopoints, and maps or lists for JSON values. The cell must not be a missing value.
+   *
+   * @throws IllegalArgumentException if the cell doesn't match the type and format of the field
+   */
+  public Object parse(String cell) {
+    Object value = parser.parse(cell);
+    if (value == INVALID) {
+      throw new IllegalArgumentException("Invalid " + type + " value for field " + name + ": " + cell);
+    }
+    return value;
+  }
+
+  /**
+   * Parses a cell and checks the constraints of the field, apart from uniqueness.
+   *
+   * @param cell   cell, null when missing
+   * @param values receives the typed value at the index of this field, {@link #INVALID} for a malformed cell
+   * @return message of the first failed check, null if the cell is valid
+   */
+  String check(String cell, Object[] values) {
+    if (cell == null) {
+      values[index] = null;
+      return required ? REQUIRED : null;
+    }
+    Object parsed = parser.parse(cell);
+    values[index] = parsed;
+    if (parsed == INVALID) {
+      return TYPE;
+    }
+    if (minLength >= 0 && length(parsed) < minLength) {
+      return MIN_LENGTH;
+    }
+    if (maxLength >= 0 && length(parsed) > maxLength) {
+      return MAX_LENGTH;
+    }
+    if (minimum != null && compare(parsed, minimum) < 0) {
+      return MINIMUM;
+    }
+    if (maximum != null && compare(parsed, maximum) > 0) {
+      return MAXIMUM;
+    }
+    if (pattern != null && !pattern.matcher(cell).matches()) {
+      return PATTERN;
+    }
+    if (enumValues != null && !enumValues.contains(key(parsed))) {
+      return ENUM;
+    }
+    return null;
+  }
+
+  /**
+   * Value compared for uniqueness and enumerations: numbers are compared by value, so {@code 1.0} equals {@code 1}.
+   */
+  static Object key(Object value) {
+    if (value instanceof BigDecimal) {
+      BigDecimal decimal = ((BigDecimal) value).stripTrailingZeros();
+      return decimal.scale() <= 0 && decimal.precision() - decimal.scale() <= 18 ? (Object) decimal.longValue() : decimal;
+    } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+      return ((BigInteger) value).longValue();
+    }
+    return value;
+  }
+
+  /**
+   * A minimum, maximum or enumeration value given in the schema, as a value of the field type.
+   */
+  private Object constraintValue(Object value, String constraint) {
+    if (value instanceof Number && ("number".equals(type) || "integer".equals(type))) {
+      // JSON numbers don't use the separators of the field
+      BigDecimal decimal = new BigDecimal(value.toString());
+      return "integer".equals(type) ? key(decimal) : decimal;
+    }
+    Object parsed = parser.parse(String.valueOf(value));
+    if (parsed == INVALID) {
+      throw new IllegalArgumentException("Invalid " + constraint + " " + value + " for " + type + " field " + name);
+    }
+    if (!"enum".equals(constraint) && !(parsed instanceof Comparable)) {
+      throw new IllegalArgumentException("Constraint " + constraint + " is not supported by " + type + " field " + name);
+    }
+    return parsed;
+  }
+
+  private static int length(Object value) {
+    if (value instanceof CharSequence) {
+      return ((CharSequence) value).length();
+    } else if (value instanceof Collection) {
+      return ((Collection<?>) value).size();
+    } else if (value instanceof Map) {
+      return ((Map<?, ?>) value).size();
+    }
+    return String.valueOf(value).length();
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compare(Object value, Object bound) {
+    if (value instanceof Number && bound instanceof Number) {
+      if (value instanceof Long && bound instanceof Long) {
+        return Long.compare((Long) value, (Long) bound);
+      } else if (value instanceof Double || bound instanceof Double) {
+        return Double.compare(((Number) value).doubleValue(), ((Number) bound).doubleValue());
+      }
+      return decimal((Number) value).compareTo(decimal((Number) bound));
+    }
+    if (value.getClass() != bound.getClass()) {
+      // e.g. a datetime with an offset against a bound without one: not comparable, so not reported
+      return 0;
+    }
+    return ((Comparable) value).compareTo(bound);
+  }
+
+  private static BigDecimal decimal(Number number) {
+    if (number instanceof BigDecimal) {
+      return (BigDecimal) number;
+    } else if (number instanceof BigInteger) {
+      return new BigDecimal((BigInteger) number);
+    }
+    return BigDecimal.valueOf(number.longValue());
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledField(name=" + name + ", type=" + type + ")";
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.validation.Violation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link TableSchema} compiled for row processing: every field holds a parser built for its type and format
+ * (separators, date patterns) and its constraints (parsed bounds, enumeration sets, compiled patterns), so rows are
+ * checked without looking at the schema again. Foreign keys are not checked, they need the referenced resources.
+ * <p>
+ * Violations use the field name as property path, prefixed by the row path when one is given, and messages such as
+ * {@code validation.field.type} or {@code validation.field.required}. Immutable and thread-safe, see
+ * {@link #newRowValidator()} for the uniqueness checks.
+ */
+public final class CompiledTableSchema {
+
+  static final String ROW_LENGTH = "validation.row.length";
+
+  private final List<CompiledField> fields;
+  private final Map<String, CompiledField> fieldsByName;
+  private final int[] primaryKey;
+  private final Set<String> missingValues;
+  private final boolean onlyEmptyMissing;
+
+  private CompiledTableSchema(TableSchema schema) {
+    List<TableSchemaField> schemaFields = schema.getFields() == null ? Collections.emptyList() : schema.getFields();
+    List<String> keyNames = schema.getPrimaryKey() == null ? Collections.emptyList() : schema.getPrimaryKey();
+    List<CompiledField> compiled = new ArrayList<>(schemaFields.size());
+    Map<String, CompiledField> byName = new HashMap<>();
+    for (TableSchemaField field : schemaFields) {
+      CompiledField compiledField = new CompiledField(field, compiled.size(), keyNames.contains(field.getName()));
+      compiled.add(compiledField);
+      byName.putIfAbsent(field.getName(), compiledField);
+    }
+    this.fields = Collections.unmodifiableList(compiled);
+    this.fieldsByName = byName;
+    this.primaryKey = new int[keyNames.size()];
+    for (int i = 0; i < primaryKey.length; i++) {
+      CompiledField field = byName.get(keyNames.get(i));
+      if (field == null) {
+        throw new IllegalArgumentException("Primary key field " + keyNames.get(i) + " is not a field of the schema");
+      }
+      primaryKey[i] = field.getIndex();
+    }
+    this.missingValues = schema.getMissingValues() == null
+        ? Collections.singleton("")
+        : new HashSet<>(schema.getMissingValues());
+    this.onlyEmptyMissing = missingValues.size() == 1 && missingValues.contains("");
+  }
+
+  /**
+   * @throws IllegalArgumentException for unknown field types and formats, constraints not matching the field types
+   *                                  and primary keys naming unknown fields
+   */
+  public static CompiledTableSchema compile(TableSchema schema) {
+    return new CompiledTableSchema(schema);
+  }
+
+  public List<CompiledField> getFields() {
+    return fields;
+  }
+
+  /**
+   * Field with the given name, null if there is none.
+   */
+  public CompiledField getField(String name) {
+    return fieldsByName.get(name);
+  }
+
+  public boolean isMissing(String cell) {
+    return cell == null || (onlyEmptyMissing ? cell.isEmpty() : missingValues.contains(cell));
+  }
+
+  /**
+   * Parses and checks a row, apart from uniqueness.
+   *
+   * @param cells      cells of the row, in field order
+   * @param values     receives the typed values, must be at least as long as the fields, null for missing and
+   *                   malformed cells
+   * @param rowPath    prefix of the property paths of the violations, e.g. {@code rows[12]}, or null
+   * @param violations receives the violations
+   * @return whether the row is valid
+   */
+  public boolean parseRow(String[] cells, Object[] values, String rowPath, List<Violation> violations) {
+    boolean valid = true;
+    if (cells.length != fields.size()) {
+      violations.add(new Violation(rowPath == null ? "" : rowPath, ROW_LENGTH, cells.length));
+      valid = false;
+    }
+    for (int i = 0; i < fields.size(); i++) {
+      CompiledField field = fields.get(i);
+      String cell = i < cells.length && !isMissing(cells[i]) ? cells[i] : null;
+      String message = field.check(cell, values);
+      if (message != null) {
+        if (values[i] == CompiledField.INVALID) {
+          values[i] = null;
+        }
+        violations.add(new Violation(rowPath == null ? field.getName() : rowPath + "." + field.getName(), message, cell));
+        valid = false;
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Validator of the rows of one table, adding the uniqueness checks of unique fields and of the primary key.
+   */
+  public RowValidator newRowValidator() {
+    return new RowValidator(this);
+  }
+
+  int[] getPrimaryKey() {
+    return primaryKey;
+  }
+}
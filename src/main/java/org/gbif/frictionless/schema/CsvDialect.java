@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.metadata.CompactMap;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * CSV Dialect
+ * <p>
+ * How a CSV resource is written, see <a href="https://specs.frictionlessdata.io/csv-dialect/">...</a>. Every property
+ * has the default of the specification when not given.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CsvDialect implements Serializable {
+
+  private final static long serialVersionUID = 3617483990142475806L;
+
+  /**
+   * Field separator, {@code ,} when not given.
+   */
+  @JsonProperty("delimiter")
+  private String delimiter;
+
+  /**
+   * Line terminator, {@code \r\n} when not given. Rows may end with either {@code \r\n} or {@code \n}.
+   */
+  @JsonProperty("lineTerminator")
+  private String lineTerminator;
+
+  /**
+   * Character quoting fields, {@code "} when not given.
+   */
+  @JsonProperty("quoteChar")
+  private String quoteChar;
+
+  /**
+   * Whether a quote inside a quoted field is written twice. True when not given.
+   */
+  @JsonProperty("doubleQuote")
+  private Boolean doubleQuote;
+
+  /**
+   * Character escaping the next one, none when not given.
+   */
+  @JsonProperty("escapeChar")
+  private String escapeChar;
+
+  /**
+   * Cell value read as null, in addition to the missing values of the schema.
+   */
+  @JsonProperty("nullSequence")
+  private String nullSequence;
+
+  /**
+   * Whether spaces following the delimiter are ignored. False when not given.
+   */
+  @JsonProperty("skipInitialSpace")
+  private Boolean skipInitialSpace;
+
+  /**
+   * Whether the first row is a header row. True when not given.
+   */
+  @JsonProperty("header")
+  private Boolean header;
+
+  /**
+   * Character starting comment rows, none when not given.
+   */
+  @JsonProperty("commentChar")
+  private String commentChar;
+
+  /**
+   * Whether header names are compared with the field names case sensitively. False when not given.
+   */
+  @JsonProperty("caseSensitiveHeader")
+  private Boolean caseSensitiveHeader;
+
+  /**
+   * Properties not covered by the model. Only allocated once the first one is set, as most objects have none.
+   */
+  @JsonIgnore
+  @JsonAnyGetter
+  private Map<String, Object> additionalProperties;
+
+  @JsonIgnore
+  public Map<String, Object> getAdditionalProperties() {
+    if (additionalProperties == null) {
+      additionalProperties = new CompactMap<>();
+    }
+    return additionalProperties;
+  }
+
+  @JsonAnySetter
+  public void setAdditionalProperty(String name, Object value) {
+    getAdditionalProperties().put(name, value);
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Push parser of CSV text following a {@link CsvDialect}: characters are fed in blocks as they are decoded, and
+ * every complete record is handed to a {@link RecordHandler}. Rows end with {@code \n} or {@code \r\n}, quoted
+ * fields may span several lines. Not thread-safe.
+ */
+final class CsvParser {
+
+  private static final String[] EMPTY = new String[0];
+
+  private final char delimiter;
+  private final char quote;
+  private final char escape;
+  private final char comment;
+  private final boolean doubleQuote;
+  private final boolean skipInitialSpace;
+
+  private final StringBuilder field = new StringBuilder();
+  private final List<String> cells = new ArrayList<>();
+  private boolean recordStarted;
+  private boolean fieldQuoted;
+  private boolean inQuotes;
+  private boolean afterQuote;
+  private boolean escaped;
+  private boolean carriageReturn;
+  private boolean skippingSpace;
+  private boolean inComment;
+
+  CsvParser(CsvDialect dialect) {
+    this.delimiter = firstChar(dialect.getDelimiter(), ',');
+    this.quote = firstChar(dialect.getQuoteChar(), '"');
+    this.escape = firstChar(dialect.getEscapeChar(), (char) 0);
+    this.comment = firstChar(dialect.getCommentChar(), (char) 0);
+    this.doubleQuote = !Boolean.FALSE.equals(dialect.getDoubleQuote());
+    this.skipInitialSpace = Boolean.TRUE.equals(dialect.getSkipInitialSpace());
+  }
+
+  /**
+   * Parses a block of characters.
+   *
+   * @return false if the handler asked to stop
+   */
+  boolean feed(char[] chars, int offset, int length, RecordHandler handler) {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      char c = chars[i];
+      if (carriageReturn) {
+        carriageReturn = false;
+        if (c == '\n') {
+          if (!endRecord(handler)) {
+            return false;
+          }
+          continue;
+        }
+        field.append('\r');
+      }
+      if (inComment) {
+        inComment = c != '\n';
+        continue;
+      }
+      if (escaped) {
+        field.append(c);
+        escaped = false;
+        continue;
+      }
+      if (inQuotes) {
+        if (c == quote) {
+          inQuotes = false;
+          afterQuote = doubleQuote;
+        } else if (c == escape && escape != 0) {
+          escaped = true;
+        } else {
+          field.append(c);
+        }
+        continue;
+      }
+      if (afterQuote) {
+        afterQuote = false;
+        if (c == quote) {
+          field.append(quote);
+          inQuotes = true;
+          continue;
+        }
+      }
+      if (skippingSpace) {
+        if (c == ' ') {
+          continue;
+        }
+        skippingSpace = false;
+      }
+      if (c == delimiter) {
+        endField();
+        recordStarted = true;
+        skippingSpace = skipInitialSpace;
+      } else if (c == '\n') {
+        if (!endRecord(handler)) {
+          return false;
+        }
+      } else if (c == '\r') {
+        carriageReturn = true;
+      } else if (c == quote && quote != 0 && field.length() == 0 && !fieldQuoted) {
+        inQuotes = true;
+        fieldQuoted = true;
+        recordStarted = true;
+      } else if (c == escape && escape != 0) {
+        escaped = true;
+        recordStarted = true;
+      } else if (c == comment && comment != 0 && !recordStarted) {
+        inComment = true;
+      } else {
+        field.append(c);
+        recordStarted = true;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Ends the input, handing over the last record when it has no line break.
+   *
+   * @return false if the input ended inside a quoted field, whose record is not handed over
+   */
+  boolean finish(RecordHandler handler) {
+    if (inQuotes || escaped) {
+      return false;
+    }
+    if (carriageReturn || recordStarted || fieldQuoted || field.length() > 0) {
+      carriageReturn = false;
+      endRecord(handler);
+    }
+    return true;
+  }
+
+  private void endField() {
+    cells.add(field.toString());
+    field.setLength(0);
+    fieldQuoted = false;
+    afterQuote = false;
+  }
+
+  private boolean endRecord(RecordHandler handler) {
+    endField();
+    String[] record = cells.toArray(EMPTY);
+    cells.clear();
+    recordStarted = false;
+    skippingSpace = false;
+    return handler.record(record);
+  }
+
+  private static char firstChar(String value, char defaultValue) {
+    return value == null ? defaultValue : value.isEmpty() ? 0 : value.charAt(0);
+  }
+
+  @FunctionalInterface
+  interface RecordHandler {
+
+    /**
+     * @return false to stop parsing
+     */
+    boolean record(String[] cells);
+  }
+}
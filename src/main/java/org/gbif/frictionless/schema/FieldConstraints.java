@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.metadata.CompactMap;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Constraints
+ * <p>
+ * Constraints on the values of a field.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FieldConstraints implements Serializable {
+
+  private final static long serialVersionUID = 7394052166217315329L;
+
+  /**
+   * Whether every row must have a value.
+   */
+  @JsonProperty("required")
+  private Boolean required;
+
+  /**
+   * Whether values must be unique among the rows.
+   */
+  @JsonProperty("unique")
+  private Boolean unique;
+
+  /**
+   * Minimum length of strings, arrays and objects.
+   */
+  @JsonProperty("minLength")
+  private Integer minLength;
+
+  /**
+   * Maximum length of strings, arrays and objects.
+   */
+  @JsonProperty("maxLength")
+  private Integer maxLength;
+
+  /**
+   * Minimum of numbers, dates and times, as a value of the field type or its string form.
+   */
+  @JsonProperty("minimum")
+  private Object minimum;
+
+  /**
+   * Maximum of numbers, dates and times, as a value of the field type or its string form.
+   */
+  @JsonProperty("maximum")
+  private Object maximum;
+
+  /**
+   * Regular expression the whole cell value must match.
+   */
+  @JsonProperty("pattern")
+  private String pattern;
+
+  /**
+   * Allowed values.
+   */
+  @JsonProperty("enum")
+  private List<Object> enumValues;
+
+  /**
+   * Properties not covered by the model. Only allocated once the first one is set, as most objects have none.
+   */
+  @JsonIgnore
+  @JsonAnyGetter
+  private Map<String, Object> additionalProperties;
+
+  @JsonIgnore
+  public Map<String, Object> getAdditionalProperties() {
+    if (additionalProperties == null) {
+      additionalProperties = new CompactMap<>();
+    }
+    return additionalProperties;
+  }
+
+  @JsonAnySetter
+  public void setAdditionalProperty(String name, Object value) {
+    getAdditionalProperties().put(name, value);
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.validation.Violation;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Checks the rows of one table against a {@link CompiledTableSchema}, including the uniqueness of unique fields and
+ * of the primary key. The values seen so far are kept in memory. Not thread-safe, use one per table.
+ */
+public final class RowValidator {
+
+  static final String UNIQUE = "validation.field.unique";
+  static final String PRIMARY_KEY = "validation.row.primaryKey";
+
+  private final CompiledTableSchema schema;
+  private final CompiledField[] uniqueFields;
+  private final Set<Object>[] uniqueValues;
+  private final Set<List<Object>> primaryKeys = new HashSet<>();
+  private final int[] keyIndexes;
+
+  @SuppressWarnings("unchecked")
+  RowValidator(CompiledTableSchema schema) {
+    this.schema = schema;
+    this.uniqueFields = schema.getFields().stream().filter(CompiledField::isUnique).toArray(CompiledField[]::new);
+    this.uniqueValues = new Set[uniqueFields.length];
+    for (int i = 0; i < uniqueValues.length; i++) {
+      uniqueValues[i] = new HashSet<>();
+    }
+    this.keyIndexes = IntStream.concat(Arrays.stream(uniqueFields).mapToInt(CompiledField::getIndex),
+        Arrays.stream(schema.getPrimaryKey())).distinct().sorted().toArray();
+  }
+
+  /**
+   * Parses and checks a row, reporting violations under the path {@code rows[row]}.
+   *
+   * @param row        number of the row, in the property paths
+   * @param cells      cells of the row, in field order
+   * @param values     receives the typed values, must be at least as long as the fields
+   * @param violations receives the violations
+   * @return whether the row is valid
+   */
+  public boolean validate(long row, String[] cells, Object[] values, List<Violation> violations) {
+    String rowPath = "rows[" + row + "]";
+    boolean valid = schema.parseRow(cells, values, rowPath, violations);
+    return validateKeys(rowPath, cells, values, violations) && valid;
+  }
+
+  /**
+   * Checks the unique fields and the primary key of a parsed row. Only the cells and values of those fields are read.
+   */
+  boolean validateKeys(String rowPath, String[] cells, Object[] values, List<Violation> violations) {
+    boolean valid = true;
+    for (int i = 0; i < uniqueFields.length; i++) {
+      Object value = values[uniqueFields[i].getIndex()];
+      if (value != null && !uniqueValues[i].add(CompiledField.key(value))) {
+        violations.add(new Violation(rowPath + "." + uniqueFields[i].getName(), UNIQUE, cells[uniqueFields[i].getIndex()]));
+        valid = false;
+      }
+    }
+    int[] primaryKey = schema.getPrimaryKey();
+    if (primaryKey.length > 0) {
+      Object[] key = new Object[primaryKey.length];
+      for (int i = 0; i < primaryKey.length; i++) {
+        Object value = values[primaryKey[i]];
+        if (value == null) {
+          // already reported as required
+          return valid;
+        }
+        key[i] = CompiledField.key(value);
+      }
+      if (!primaryKeys.add(Arrays.asList(key))) {
+        String[] keyCells = new String[primaryKey.length];
+        for (int i = 0; i < primaryKey.length; i++) {
+          keyCells[i] = cells[primaryKey[i]];
+        }
+        violations.add(new Violation(rowPath, PRIMARY_KEY, Arrays.asList(keyCells)));
+        valid = false;
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Indexes of the fields read by {@link #validateKeys}, empty if the schema has no unique fields and no primary key.
+   */
+  int[] getKeyIndexes() {
+    return keyIndexes;
+  }
+}
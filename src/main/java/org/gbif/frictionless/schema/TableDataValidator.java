@@ -0,0 +1,488 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+import org.gbif.frictionless.io.MultipartResourceReader;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.validation.Violation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Checks the CSV data of a tabular resource against its {@link CompiledTableSchema}.
+ * <p>
+ * The parts of the resource are cut into line aligned {@link MultipartResourceReader.Split splits}, which are read
+ * through NIO buffers, decoded with the resource encoding, parsed with its dialect and checked on the executor, a
+ * few splits ahead of the caller. The violations are handed to the sink in row order from the calling thread, with
+ * the unique field and primary key checks done on the way, and validation stops once the maximum number of
+ * violations is reached, so memory use depends on the split size and the violation limit, not on the data size.
+ * A compressed part is one split, decompressed in parallel while it is parsed.
+ * <p>
+ * A split is parsed assuming it doesn't start inside a quoted field. When the previous split ends inside one, i.e.
+ * a quoted field spans the line break the split was cut at, the rest of that part is checked again sequentially.
+ * A header row is only expected at the start of the first part. Rows are numbered from 1, after the header, in
+ * violation paths such as {@code rows[12].date}.
+ */
+public final class TableDataValidator {
+
+  static final String HEADER = "validation.row.header";
+  static final String BLANK_ROW = "validation.row.blank";
+  static final String UNTERMINATED_QUOTE = "validation.row.unterminatedQuote";
+
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final CompiledTableSchema schema;
+  private final CsvDialect dialect;
+  private final Executor executor;
+  private final long splitSize;
+  private final int maxInFlight;
+
+  /**
+   * @param schema      schema of the rows
+   * @param dialect     dialect of the CSV files
+   * @param executor    executor parsing and checking the splits
+   * @param splitSize   approximate size of the splits in bytes
+   * @param maxInFlight maximum number of splits checked ahead of the sink
+   */
+  public TableDataValidator(CompiledTableSchema schema, CsvDialect dialect, Executor executor, long splitSize,
+                            int maxInFlight) {
+    if (splitSize <= 0 || maxInFlight <= 0) {
+      throw new IllegalArgumentException("Split size and maximum number of splits in flight must be positive");
+    }
+    this.schema = schema;
+    this.dialect = dialect == null ? new CsvDialect() : dialect;
+    this.executor = executor;
+    this.splitSize = splitSize;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Validator running on the common fork-join pool, with splits of {@link MultipartResourceReader#DEFAULT_SPLIT_SIZE}.
+   */
+  public static TableDataValidator create(CompiledTableSchema schema, CsvDialect dialect) {
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    return new TableDataValidator(schema, dialect, pool, MultipartResourceReader.DEFAULT_SPLIT_SIZE,
+        2 * pool.getParallelism());
+  }
+
+  /**
+   * The {@code dialect} property of a resource, the default dialect if it has none.
+   */
+  public static CsvDialect dialect(FrictionlessResource<?, ?> resource) {
+    Map<String, Object> properties = resource.additionalPropertiesOrNull();
+    Object dialect = properties == null ? null : properties.get("dialect");
+    return dialect == null ? new CsvDialect() : MAPPER.convertValue(dialect, CsvDialect.class);
+  }
+
+  /**
+   * Validates the parts of a resource.
+   *
+   * @param reader        parts of the resource and their encoding
+   * @param sink          consumer of the violations, called from the calling thread in row order
+   * @param maxViolations number of violations after which validation stops
+   */
+  public Summary validate(MultipartResourceReader reader, Consumer<? super Violation> sink, long maxViolations)
+      throws IOException {
+    long start = Instrumentation.start();
+    List<MultipartResourceReader.Split> splits = reader.splits(splitSize);
+    Path firstPart = reader.getParts().isEmpty() ? null : reader.getParts().get(0);
+    boolean header = !Boolean.FALSE.equals(dialect.getHeader());
+    RowValidator keys = schema.newRowValidator();
+    AtomicBoolean stopped = new AtomicBoolean();
+    Emitter emitter = new Emitter(sink, maxViolations, keys);
+
+    Deque<Pending> window = new ArrayDeque<>();
+    int next = 0;
+    long bytes = 0;
+    try {
+      while (next < splits.size() || !window.isEmpty()) {
+        while (window.size() < maxInFlight && next < splits.size()) {
+          MultipartResourceReader.Split split = splits.get(next++);
+          boolean withHeader = header && split.getStart() == 0 && split.getPart().equals(firstPart);
+          window.add(new Pending(split, CompletableFuture.supplyAsync(() -> process(split, reader.getCharset(),
+              withHeader, keys, maxViolations, stopped), executor)));
+        }
+        Pending pending = window.poll();
+        Chunk chunk = join(pending.result);
+        Path part = pending.split.getPart();
+        long end = pending.split.getEnd();
+        if (chunk.unterminated && end < Files.size(part)) {
+          // a quoted field spans the end of the split: the following splits of the part were cut wrongly
+          while (!window.isEmpty() && window.peek().split.getPart().equals(part)) {
+            window.poll().result.cancel(false);
+          }
+          while (next < splits.size() && splits.get(next).getPart().equals(part)) {
+            next++;
+          }
+          boolean withHeader = header && pending.split.getStart() == 0 && part.equals(firstPart);
+          MultipartResourceReader.Split extended = pending.split.toEndOfPart();
+          end = extended.getEnd();
+          chunk = process(extended, reader.getCharset(), withHeader, keys, maxViolations, stopped);
+        }
+        bytes += end - pending.split.getStart();
+        if (!emitter.emit(chunk)) {
+          break;
+        }
+      }
+    } finally {
+      stopped.set(true);
+      for (Pending pending : window) {
+        pending.result.cancel(false);
+      }
+    }
+    Instrumentation.record(Operation.VALIDATE_TABLE, start, bytes, emitter.rows, emitter.violations);
+    return new Summary(emitter.rows, emitter.violations, emitter.violations < maxViolations);
+  }
+
+  /**
+   * Parses and checks the rows of a split, apart from the uniqueness checks. A compressed split is read to its end
+   * through the decompressing stream, a plain one with positional reads of its byte range.
+   */
+  private Chunk process(MultipartResourceReader.Split split, Charset charset, boolean header, RowValidator keys,
+                        long maxViolations, AtomicBoolean stopped) {
+    long start = split.getStart();
+    long end = split.isCompressed() ? Long.MAX_VALUE : split.getEnd();
+    Chunk chunk = new Chunk(keys.getKeyIndexes());
+    CsvParser parser = new CsvParser(dialect);
+    RowHandler handler = new RowHandler(chunk, header, maxViolations, stopped);
+    CharsetDecoder decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    try (ReadableByteChannel channel = split.isCompressed()
+        ? Channels.newChannel(split.openStream())
+        : FileChannel.open(split.getPart(), StandardOpenOption.READ).position(start)) {
+      long position = start;
+      boolean endOfInput = false;
+      while (!endOfInput) {
+        int read = channel.read(bytes);
+        if (read > 0) {
+          position += read;
+        }
+        endOfInput = read < 0 || position >= end;
+        if (position > end) {
+          // drop what was read of the next split
+          bytes.position(bytes.position() - (int) (position - end));
+        }
+        bytes.flip();
+        CoderResult result;
+        do {
+          result = decoder.decode(bytes, chars, endOfInput);
+          if (!feed(parser, chars, start == 0, handler)) {
+            return chunk;
+          }
+        } while (result.isOverflow());
+        bytes.compact();
+      }
+      CoderResult result;
+      do {
+        result = decoder.flush(chars);
+        if (!feed(parser, chars, false, handler)) {
+          return chunk;
+        }
+      } while (result.isOverflow());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (!parser.finish(handler)) {
+      chunk.unterminated = true;
+      chunk.violationRows.add(++chunk.rows);
+      chunk.violations.add(new Violation("", UNTERMINATED_QUOTE, null));
+    }
+    return chunk;
+  }
+
+  /**
+   * Parses the decoded characters and clears the buffer.
+   *
+   * @param atStart whether the characters may be the first of the part, which are checked for a byte order mark
+   */
+  private static boolean feed(CsvParser parser, CharBuffer chars, boolean atStart, RowHandler handler) {
+    chars.flip();
+    if (atStart && chars.hasRemaining() && chars.get(0) == BYTE_ORDER_MARK && !handler.started) {
+      chars.position(1);
+    }
+    handler.started |= chars.hasRemaining();
+    boolean more = parser.feed(chars.array(), chars.position(), chars.remaining(), handler);
+    chars.clear();
+    return more;
+  }
+
+  private static Chunk join(CompletableFuture<Chunk> result) throws IOException {
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Outcome of a validation.
+   */
+  public static final class Summary {
+
+    private final long rows;
+    private final long violations;
+    private final boolean complete;
+
+    Summary(long rows, long violations, boolean complete) {
+      this.rows = rows;
+      this.violations = violations;
+      this.complete = complete;
+    }
+
+    /**
+     * Number of rows checked, without the header.
+     */
+    public long getRows() {
+      return rows;
+    }
+
+    /**
+     * Number of violations handed to the sink.
+     */
+    public long getViolations() {
+      return violations;
+    }
+
+    /**
+     * Whether the violation limit was not reached, i.e. all rows were checked and all violations reported.
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+
+    public boolean isValid() {
+      return violations == 0;
+    }
+
+    @Override
+    public String toString() {
+      return "Summary(rows=" + rows + ", violations=" + violations + ", complete=" + complete + ")";
+    }
+  }
+
+  private static final class Pending {
+
+    private final MultipartResourceReader.Split split;
+    private final CompletableFuture<Chunk> result;
+
+    private Pending(MultipartResourceReader.Split split, CompletableFuture<Chunk> result) {
+      this.split = split;
+      this.result = result;
+    }
+  }
+
+  /**
+   * Rows of a split: their number, their violations with split relative row numbers, and the cells and values of
+   * the key fields for the uniqueness checks.
+   */
+  private static final class Chunk {
+
+    private final int[] keyIndexes;
+    private final List<Long> violationRows = new ArrayList<>();
+    private final List<Violation> violations = new ArrayList<>();
+    private final List<Long> keyRows = new ArrayList<>();
+    private final List<String[]> keyCells = new ArrayList<>();
+    private final List<Object[]> keyValues = new ArrayList<>();
+    private long rows;
+    private boolean unterminated;
+
+    private Chunk(int[] keyIndexes) {
+      this.keyIndexes = keyIndexes;
+    }
+  }
+
+  private final class RowHandler implements CsvParser.RecordHandler {
+
+    private final Chunk chunk;
+    private final long maxViolations;
+    private final AtomicBoolean stopped;
+    private final Object[] values = new Object[schema.getFields().size()];
+    private final List<Violation> rowViolations = new ArrayList<>();
+    private final String nullSequence = dialect.getNullSequence();
+    private boolean header;
+    private boolean started;
+
+    private RowHandler(Chunk chunk, boolean header, long maxViolations, AtomicBoolean stopped) {
+      this.chunk = chunk;
+      this.header = header;
+      this.maxViolations = maxViolations;
+      this.stopped = stopped;
+    }
+
+    @Override
+    public boolean record(String[] cells) {
+      if (header) {
+        header = false;
+        if (!matchesFields(cells)) {
+          chunk.violationRows.add(0L);
+          chunk.violations.add(new Violation("header", HEADER, Arrays.asList(cells)));
+        }
+        return true;
+      }
+      long row = ++chunk.rows;
+      if (cells.length == 1 && cells[0].isEmpty() && schema.getFields().size() != 1) {
+        chunk.violationRows.add(row);
+        chunk.violations.add(new Violation("", BLANK_ROW, null));
+      } else {
+        if (nullSequence != null) {
+          for (int i = 0; i < cells.length; i++) {
+            if (nullSequence.equals(cells[i])) {
+              cells[i] = null;
+            }
+          }
+        }
+        rowViolations.clear();
+        schema.parseRow(cells, values, null, rowViolations);
+        for (Violation violation : rowViolations) {
+          chunk.violationRows.add(row);
+          chunk.violations.add(violation);
+        }
+        if (chunk.keyIndexes.length > 0) {
+          String[] keyCells = new String[chunk.keyIndexes.length];
+          Object[] keyValues = new Object[chunk.keyIndexes.length];
+          for (int i = 0; i < keyCells.length; i++) {
+            int index = chunk.keyIndexes[i];
+            keyCells[i] = index < cells.length ? cells[index] : null;
+            keyValues[i] = values[index];
+          }
+          chunk.keyRows.add(row);
+          chunk.keyCells.add(keyCells);
+          chunk.keyValues.add(keyValues);
+        }
+      }
+      // enough violations to reach the limit on their own, the rows after them will never be reported
+      return chunk.violations.size() < maxViolations && !stopped.get();
+    }
+
+    private boolean matchesFields(String[] cells) {
+      List<CompiledField> fields = schema.getFields();
+      if (cells.length != fields.size()) {
+        return false;
+      }
+      boolean caseSensitive = Boolean.TRUE.equals(dialect.getCaseSensitiveHeader());
+      for (int i = 0; i < cells.length; i++) {
+        String name = fields.get(i).getName();
+        if (caseSensitive ? !cells[i].equals(name) : !cells[i].equalsIgnoreCase(name)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Hands the violations of the chunks to the sink in row order, numbering the rows and checking the keys.
+   */
+  private final class Emitter {
+
+    private final Consumer<? super Violation> sink;
+    private final long maxViolations;
+    private final RowValidator keys;
+    private final List<Violation> keyViolations = new ArrayList<>();
+    private final String[] cells = new String[schema.getFields().size()];
+    private final Object[] values = new Object[schema.getFields().size()];
+    private long rows;
+    private long violations;
+
+    private Emitter(Consumer<? super Violation> sink, long maxViolations, RowValidator keys) {
+      this.sink = sink;
+      this.maxViolations = maxViolations;
+      this.keys = keys;
+    }
+
+    /**
+     * @return false once the violation limit is reached
+     */
+    boolean emit(Chunk chunk) {
+      int v = 0;
+      int k = 0;
+      while (v < chunk.violations.size() || k < chunk.keyRows.size()) {
+        long violationRow = v < chunk.violations.size() ? chunk.violationRows.get(v) : Long.MAX_VALUE;
+        long keyRow = k < chunk.keyRows.size() ? chunk.keyRows.get(k) : Long.MAX_VALUE;
+        if (violationRow <= keyRow) {
+          Violation violation = chunk.violations.get(v++);
+          if (!accept(violationRow == 0 ? violation : relocate(violation, rows + violationRow))) {
+            return false;
+          }
+        } else {
+          String[] keyCells = chunk.keyCells.get(k);
+          Object[] keyValues = chunk.keyValues.get(k);
+          for (int i = 0; i < chunk.keyIndexes.length; i++) {
+            cells[chunk.keyIndexes[i]] = keyCells[i];
+            values[chunk.keyIndexes[i]] = keyValues[i];
+          }
+          keyViolations.clear();
+          keys.validateKeys("rows[" + (rows + keyRow) + "]", cells, values, keyViolations);
+          k++;
+          for (Violation violation : keyViolations) {
+            if (!accept(violation)) {
+              return false;
+            }
+          }
+        }
+      }
+      rows += chunk.rows;
+      return violations < maxViolations;
+    }
+
+    private boolean accept(Violation violation) {
+      sink.accept(violation);
+      return ++violations < maxViolations;
+    }
+
+    private Violation relocate(Violation violation, long row) {
+      String path = violation.getPropertyPath();
+      return new Violation(path.isEmpty() ? "rows[" + row + "]" : "rows[" + row + "]." + path, violation.getMessage(),
+          violation.getInvalidValue());
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.metadata.CompactMap;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Table Schema
+ * <p>
+ * The fields, keys and missing values of a tabular resource, see <a href="https://specs.frictionlessdata.io/table-schema/">...</a>.
+ * Read with {@code FrictionlessJson.readerFor(TableSchema.class)} and compile with {@link CompiledTableSchema#compile}
+ * before processing rows.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TableSchema implements Serializable {
+
+  private final static long serialVersionUID = -4270993251722930870L;
+
+  /**
+   * Fields
+   * <p>
+   * The fields of the table, in column order.
+   */
+  @JsonProperty("fields")
+  private List<TableSchemaField> fields;
+
+  /**
+   * Missing values
+   * <p>
+   * Cell values read as null. A single empty string when not given.
+   */
+  @JsonProperty("missingValues")
+  private List<String> missingValues;
+
+  /**
+   * Primary key
+   * <p>
+   * Names of the fields uniquely identifying a row, a single name or a list of names.
+   */
+  @JsonProperty("primaryKey")
+  @JsonFormat(with = {JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY, JsonFormat.Feature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED})
+  private List<String> primaryKey;
+
+  /**
+   * Foreign keys
+   * <p>
+   * References to the rows of other resources, or of this one.
+   */
+  @JsonProperty("foreignKeys")
+  private List<ForeignKey> foreignKeys;
+
+  /**
+   * Properties not covered by the model. Only allocated once the first one is set, as most objects have none.
+   */
+  @JsonIgnore
+  @JsonAnyGetter
+  private Map<String, Object> additionalProperties;
+
+  @JsonIgnore
+  public Map<String, Object> getAdditionalProperties() {
+    if (additionalProperties == null) {
+      additionalProperties = new CompactMap<>();
+    }
+    return additionalProperties;
+  }
+
+  @JsonAnySetter
+  public void setAdditionalProperty(String name, Object value) {
+    getAdditionalProperties().put(name, value);
+  }
+
+}
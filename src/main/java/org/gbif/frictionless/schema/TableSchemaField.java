@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.metadata.CompactMap;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Field
+ * <p>
+ * A column of a table, with its type, format and constraints.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TableSchemaField implements Serializable {
+
+  private final static long serialVersionUID = 2837716530394466215L;
+
+  /**
+   * Name
+   * <p>
+   * Name of the field, matching the column header.
+   */
+  @JsonProperty("name")
+  private String name;
+
+  /**
+   * Title
+   * <p>
+   * A human-readable title.
+   */
+  @JsonProperty("title")
+  private String title;
+
+  /**
+   * Description
+   * <p>
+   * A text description.
+   */
+  @JsonProperty("description")
+  private String description;
+
+  /**
+   * Type
+   * <p>
+   * One of {@code string}, {@code number}, {@code integer}, {@code boolean}, {@code object}, {@code array},
+   * {@code date}, {@code time}, {@code datetime}, {@code year}, {@code yearmonth}, {@code duration},
+   * {@code geopoint}, {@code geojson} or {@code any}. {@code string} when not given.
+   */
+  @JsonProperty("type")
+  private String type;
+
+  /**
+   * Format
+   * <p>
+   * Type specific format, e.g. {@code email} for strings or {@code %d/%m/%Y} for dates. {@code default} when not given.
+   */
+  @JsonProperty("format")
+  private String format;
+
+  /**
+   * RDF type
+   * <p>
+   * URI of the RDF class of the values.
+   */
+  @JsonProperty("rdfType")
+  private String rdfType;
+
+  /**
+   * Constraints
+   * <p>
+   * Constraints on the values.
+   */
+  @JsonProperty("constraints")
+  private FieldConstraints constraints;
+
+  /**
+   * Values read as true by boolean fields.
+   */
+  @JsonProperty("trueValues")
+  private List<String> trueValues;
+
+  /**
+   * Values read as false by boolean fields.
+   */
+  @JsonProperty("falseValues")
+  private List<String> falseValues;
+
+  /**
+   * Decimal separator of number fields, {@code .} when not given.
+   */
+  @JsonProperty("decimalChar")
+  private String decimalChar;
+
+  /**
+   * Thousands separator of number and integer fields, none when not given.
+   */
+  @JsonProperty("groupChar")
+  private String groupChar;
+
+  /**
+   * Whether numbers are bare, or may have leading and trailing text such as currency symbols or percent signs.
+   * True when not given.
+   */
+  @JsonProperty("bareNumber")
+  private Boolean bareNumber;
+
+  /**
+   * Properties not covered by the model. Only allocated once the first one is set, as most objects have none.
+   */
+  @JsonIgnore
+  @JsonAnyGetter
+  private Map<String, Object> additionalProperties;
+
+  @JsonIgnore
+  public Map<String, Object> getAdditionalProperties() {
+    if (additionalProperties == null) {
+      additionalProperties = new CompactMap<>();
+    }
+    return additionalProperties;
+  }
+
+  @JsonAnySetter
+  public void setAdditionalProperty(String name, Object value) {
+    getAdditionalProperties().put(name, value);
+  }
+
+}
@@ -0,0 +1,27 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+/**
+ * Parser of the cells of one field, built once per field by {@link ValueParsers}.
+ */
+@FunctionalInterface
+interface ValueParser {
+
+  /**
+   * Typed value of a (non missing) cell, or {@link CompiledField#INVALID} when the cell doesn't match the type and
+   * format, so malformed rows don't cost an exception each.
+   */
+  Object parse(String cell);
+}
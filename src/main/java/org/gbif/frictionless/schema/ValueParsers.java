@@ -0,0 +1,493 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalQuery;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Builds the {@link ValueParser} of a field from its type and format.
+ */
+final class ValueParsers {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+  private static final Pattern UUID = Pattern.compile("^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+  private static final Pattern DURATION =
+      Pattern.compile("^P(?!$)(\\d+Y)?(\\d+M)?(\\d+W)?(\\d+D)?(T(?=\\d)(\\d+H)?(\\d+M)?(\\d+(\\.\\d+)?S)?)?$");
+
+  private static final List<String> TRUE_VALUES = Arrays.asList("true", "True", "TRUE", "1");
+  private static final List<String> FALSE_VALUES = Arrays.asList("false", "False", "FALSE", "0");
+
+  private static final DateTimeFormatter[] ANY_DATES = {
+      DateTimeFormatter.ISO_LOCAL_DATE,
+      strptime("%d/%m/%Y"),
+      strptime("%Y/%m/%d"),
+      strptime("%d.%m.%Y"),
+      strptime("%Y%m%d")
+  };
+
+  private static final TemporalQuery<?>[] DATE_TIME_QUERIES = {OffsetDateTime::from, LocalDateTime::from};
+
+  private ValueParsers() {
+  }
+
+  /**
+   * @throws IllegalArgumentException for unknown types and formats
+   */
+  static ValueParser forField(TableSchemaField field) {
+    String type = field.getType() == null ? "string" : field.getType();
+    String format = field.getFormat() == null ? "default" : field.getFormat();
+    switch (type) {
+      case "string":
+        return string(format);
+      case "number":
+        return number(field.getDecimalChar(), field.getGroupChar(), !Boolean.FALSE.equals(field.getBareNumber()));
+      case "integer":
+        return integer(field.getGroupChar(), !Boolean.FALSE.equals(field.getBareNumber()));
+      case "boolean":
+        return bool(field.getTrueValues() == null ? TRUE_VALUES : field.getTrueValues(),
+            field.getFalseValues() == null ? FALSE_VALUES : field.getFalseValues());
+      case "date":
+        return date(format);
+      case "time":
+        return time(format);
+      case "datetime":
+        return dateTime(format);
+      case "year":
+        return cell -> {
+          long year = parseLong(cell, 0, cell.length());
+          return year == Long.MIN_VALUE || Math.abs(year) > 999_999_999 ? CompiledField.INVALID : (Object) (int) year;
+        };
+      case "yearmonth":
+        return cell -> {
+          try {
+            return YearMonth.parse(cell);
+          } catch (DateTimeParseException e) {
+            return CompiledField.INVALID;
+          }
+        };
+      case "duration":
+        return cell -> DURATION.matcher(cell).matches() ? cell : CompiledField.INVALID;
+      case "geopoint":
+        return geoPoint(format);
+      case "object":
+      case "geojson":
+        return json(Map.class);
+      case "array":
+        return json(List.class);
+      case "any":
+        return cell -> cell;
+      default:
+        throw new IllegalArgumentException("Unknown type " + type + " of field " + field.getName());
+    }
+  }
+
+  private static ValueParser string(String format) {
+    switch (format) {
+      case "default":
+        return cell -> cell;
+      case "email":
+        return cell -> EMAIL.matcher(cell).matches() ? cell : CompiledField.INVALID;
+      case "uuid":
+        return cell -> UUID.matcher(cell).matches() ? cell : CompiledField.INVALID;
+      case "uri":
+        return cell -> {
+          try {
+            return new URI(cell).isAbsolute() ? cell : CompiledField.INVALID;
+          } catch (URISyntaxException e) {
+            return CompiledField.INVALID;
+          }
+        };
+      case "binary":
+        return cell -> {
+          try {
+            Base64.getDecoder().decode(cell);
+            return cell;
+          } catch (IllegalArgumentException e) {
+            return CompiledField.INVALID;
+          }
+        };
+      default:
+        throw new IllegalArgumentException("Unknown string format " + format);
+    }
+  }
+
+  private static ValueParser number(String decimalChar, String groupChar, boolean bare) {
+    char decimal = decimalChar == null || decimalChar.isEmpty() ? '.' : decimalChar.charAt(0);
+    char group = groupChar == null || groupChar.isEmpty() ? 0 : groupChar.charAt(0);
+    boolean plain = decimal == '.' && group == 0;
+    return cell -> {
+      String number = bare ? cell : stripText(cell, decimal);
+      switch (number) {
+        case "NaN":
+          return Double.NaN;
+        case "INF":
+        case "+INF":
+          return Double.POSITIVE_INFINITY;
+        case "-INF":
+          return Double.NEGATIVE_INFINITY;
+        default:
+      }
+      if (!plain) {
+        number = normalize(number, decimal, group);
+      }
+      if (!isNumeric(number)) {
+        return CompiledField.INVALID;
+      }
+      try {
+        return new BigDecimal(number);
+      } catch (NumberFormatException e) {
+        return CompiledField.INVALID;
+      }
+    };
+  }
+
+  private static ValueParser integer(String groupChar, boolean bare) {
+    char group = groupChar == null || groupChar.isEmpty() ? 0 : groupChar.charAt(0);
+    return cell -> {
+      String number = bare ? cell : stripText(cell, (char) 0);
+      if (group != 0) {
+        number = normalize(number, '.', group);
+      }
+      long value = parseLong(number, 0, number.length());
+      if (value != Long.MIN_VALUE) {
+        return value;
+      }
+      if (!isInteger(number)) {
+        return CompiledField.INVALID;
+      }
+      return new BigInteger(number);
+    };
+  }
+
+  private static ValueParser bool(List<String> trueValues, List<String> falseValues) {
+    Map<String, Boolean> values = new HashMap<>();
+    for (String value : trueValues) {
+      values.put(value, Boolean.TRUE);
+    }
+    for (String value : falseValues) {
+      values.put(value, Boolean.FALSE);
+    }
+    return cell -> {
+      Boolean value = values.get(cell);
+      return value == null ? CompiledField.INVALID : value;
+    };
+  }
+
+  private static ValueParser date(String format) {
+    if ("any".equals(format)) {
+      return cell -> {
+        for (DateTimeFormatter formatter : ANY_DATES) {
+          try {
+            return LocalDate.parse(cell, formatter);
+          } catch (DateTimeParseException e) {
+            // next
+          }
+        }
+        return CompiledField.INVALID;
+      };
+    }
+    DateTimeFormatter formatter = formatter(format, DateTimeFormatter.ISO_LOCAL_DATE);
+    return cell -> {
+      try {
+        return LocalDate.parse(cell, formatter);
+      } catch (DateTimeParseException e) {
+        return CompiledField.INVALID;
+      }
+    };
+  }
+
+  private static ValueParser time(String format) {
+    DateTimeFormatter formatter = formatter(format, DateTimeFormatter.ISO_LOCAL_TIME);
+    return cell -> {
+      try {
+        return LocalTime.parse(cell, formatter);
+      } catch (DateTimeParseException e) {
+        return CompiledField.INVALID;
+      }
+    };
+  }
+
+  private static ValueParser dateTime(String format) {
+    DateTimeFormatter formatter = formatter(format, DateTimeFormatter.ISO_DATE_TIME);
+    return cell -> {
+      try {
+        return formatter.parseBest(cell, DATE_TIME_QUERIES);
+      } catch (DateTimeParseException e) {
+        return CompiledField.INVALID;
+      }
+    };
+  }
+
+  private static ValueParser geoPoint(String format) {
+    switch (format) {
+      case "default":
+        return cell -> {
+          int comma = cell.indexOf(',');
+          return comma < 0 ? CompiledField.INVALID : point(cell.substring(0, comma).trim(), cell.substring(comma + 1).trim());
+        };
+      case "array":
+        return cell -> {
+          Object value = readJson(cell, List.class);
+          if (value instanceof List && ((List<?>) value).size() == 2) {
+            List<?> list = (List<?>) value;
+            return point(String.valueOf(list.get(0)), String.valueOf(list.get(1)));
+          }
+          return CompiledField.INVALID;
+        };
+      case "object":
+        return cell -> {
+          Object value = readJson(cell, Map.class);
+          if (value instanceof Map && ((Map<?, ?>) value).size() == 2) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            return point(String.valueOf(map.get("lon")), String.valueOf(map.get("lat")));
+          }
+          return CompiledField.INVALID;
+        };
+      default:
+        throw new IllegalArgumentException("Unknown geopoint format " + format);
+    }
+  }
+
+  private static ValueParser json(Class<?> type) {
+    return cell -> readJson(cell, type);
+  }
+
+  private static Object readJson(String cell, Class<?> type) {
+    try {
+      return MAPPER.readValue(cell, type);
+    } catch (IOException e) {
+      return CompiledField.INVALID;
+    }
+  }
+
+  /**
+   * Longitude and latitude as a list of two doubles.
+   */
+  private static Object point(String lon, String lat) {
+    try {
+      double longitude = Double.parseDouble(lon);
+      double latitude = Double.parseDouble(lat);
+      if (longitude < -180 || longitude > 180 || latitude < -90 || latitude > 90) {
+        return CompiledField.INVALID;
+      }
+      return Arrays.asList(longitude, latitude);
+    } catch (NumberFormatException e) {
+      return CompiledField.INVALID;
+    }
+  }
+
+  /**
+   * Formatter of a date or time format: {@code default}, a strptime pattern ({@code %d/%m/%Y}), or, as accepted by
+   * earlier versions of the specification, a pattern prefixed by {@code fmt:}.
+   */
+  private static DateTimeFormatter formatter(String format, DateTimeFormatter defaultFormatter) {
+    if ("default".equals(format)) {
+      return defaultFormatter;
+    }
+    String pattern = format.startsWith("fmt:") ? format.substring(4) : format;
+    if (pattern.indexOf('%') < 0) {
+      throw new IllegalArgumentException("Unsupported date or time format " + format);
+    }
+    return strptime(pattern);
+  }
+
+  /**
+   * Converts a strptime pattern, as used by the specification, to a strict {@link DateTimeFormatter}.
+   */
+  static DateTimeFormatter strptime(String pattern) {
+    DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c != '%') {
+        builder.appendLiteral(c);
+        continue;
+      }
+      if (++i == pattern.length()) {
+        throw new IllegalArgumentException("Incomplete directive in " + pattern);
+      }
+      switch (pattern.charAt(i)) {
+        case 'Y':
+          builder.appendPattern("uuuu");
+          break;
+        case 'y':
+          builder.appendPattern("uu");
+          break;
+        case 'm':
+          builder.appendPattern("MM");
+          break;
+        case 'd':
+          builder.appendPattern("dd");
+          break;
+        case 'j':
+          builder.appendPattern("DDD");
+          break;
+        case 'H':
+          builder.appendPattern("HH");
+          break;
+        case 'I':
+          builder.appendPattern("hh");
+          break;
+        case 'M':
+          builder.appendPattern("mm");
+          break;
+        case 'S':
+          builder.appendPattern("ss");
+          break;
+        case 'f':
+          builder.appendPattern("SSSSSS");
+          break;
+        case 'p':
+          builder.appendPattern("a");
+          break;
+        case 'z':
+          builder.appendPattern("xx");
+          break;
+        case 'Z':
+          builder.appendPattern("zzz");
+          break;
+        case 'b':
+          builder.appendPattern("MMM");
+          break;
+        case 'B':
+          builder.appendPattern("MMMM");
+          break;
+        case 'a':
+          builder.appendPattern("EEE");
+          break;
+        case 'A':
+          builder.appendPattern("EEEE");
+          break;
+        case '%':
+          builder.appendLiteral('%');
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported directive %" + pattern.charAt(i) + " in " + pattern);
+      }
+    }
+    return builder.toFormatter(Locale.ROOT).withResolverStyle(ResolverStyle.STRICT);
+  }
+
+  /**
+   * Removes the leading and trailing text around a number, e.g. currency symbols and percent signs.
+   */
+  private static String stripText(String cell, char decimal) {
+    int start = 0;
+    int end = cell.length();
+    while (start < end && !isNumberStart(cell.charAt(start), decimal)) {
+      start++;
+    }
+    while (end > start && !Character.isDigit(cell.charAt(end - 1))) {
+      end--;
+    }
+    return start == 0 && end == cell.length() ? cell : cell.substring(start, end);
+  }
+
+  private static boolean isNumberStart(char c, char decimal) {
+    return Character.isDigit(c) || c == '-' || c == '+' || (decimal != 0 && c == decimal);
+  }
+
+  /**
+   * Drops the group separators and replaces the decimal separator by a dot.
+   */
+  private static String normalize(String number, char decimal, char group) {
+    StringBuilder normalized = new StringBuilder(number.length());
+    for (int i = 0; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c == decimal) {
+        normalized.append('.');
+      } else if (c != group) {
+        normalized.append(c);
+      }
+    }
+    return normalized.toString();
+  }
+
+  /**
+   * Cheap check before {@link BigDecimal#BigDecimal(String)}, so most malformed values don't cost an exception.
+   */
+  private static boolean isNumeric(String number) {
+    boolean digit = false;
+    for (int i = 0; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digit = true;
+      } else if (c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') {
+        return false;
+      }
+    }
+    return digit;
+  }
+
+  private static boolean isInteger(String number) {
+    int start = !number.isEmpty() && (number.charAt(0) == '-' || number.charAt(0) == '+') ? 1 : 0;
+    if (start == number.length()) {
+      return false;
+    }
+    for (int i = start; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses an optionally signed integer of up to 18 digits, {@link Long#MIN_VALUE} for anything else.
+   */
+  static long parseLong(CharSequence chars, int start, int end) {
+    boolean negative = false;
+    if (start < end && (chars.charAt(start) == '-' || chars.charAt(start) == '+')) {
+      negative = chars.charAt(start) == '-';
+      start++;
+    }
+    if (start == end || end - start > 18) {
+      return Long.MIN_VALUE;
+    }
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      char c = chars.charAt(i);
+      if (c < '0' || c > '9') {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return negative ? -value : value;
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import lombok.Value;
+
+/**
+ * Outcome of a {@link BatchValidator} run: item counts, violation counts per message and per property path, and the
+ * results of the items which were invalid or could not be loaded.
+ * <p>
+ * Property paths are counted without their indexes, so {@code contributors[0].title} and
+ * {@code contributors[3].title} both count as {@code contributors[].title}.
+ *
+ * @param <T> item type
+ */
+@Value
+public class BatchReport<T> {
+
+  private static final Pattern INDEX = Pattern.compile("\\[[^\\]]*\\]");
+
+  /**
+   * Number of items processed.
+   */
+  private final long items;
+
+  /**
+   * Number of items loaded and free of violations.
+   */
+  private final long validItems;
+
+  /**
+   * Number of items loaded, having violations.
+   */
+  private final long invalidItems;
+
+  /**
+   * Number of items the loader failed on.
+   */
+  private final long failedItems;
+
+  /**
+   * Violations per message, most frequent first.
+   */
+  private final Map<String, Long> messageCounts;
+
+  /**
+   * Violations per property path without indexes, most frequent first.
+   */
+  private final Map<String, Long> pathCounts;
+
+  /**
+   * Invalid and failed items, in input order.
+   */
+  private final List<Item<T>> problems;
+
+  public boolean isValid() {
+    return invalidItems == 0 && failedItems == 0;
+  }
+
+  static String pathKey(String propertyPath) {
+    return propertyPath.indexOf('[') < 0 ? propertyPath : INDEX.matcher(propertyPath).replaceAll("[]");
+  }
+
+  /**
+   * Result of one item.
+   *
+   * @param <T> item type
+   */
+  public static final class Item<T> {
+
+    private final long index;
+    private final T source;
+    private final List<Violation> violations;
+    private final Exception error;
+
+    Item(long index, T source, List<Violation> violations, Exception error) {
+      this.index = index;
+      this.source = source;
+      this.violations = violations;
+      this.error = error;
+    }
+
+    /**
+     * Position of the item in the input.
+     */
+    public long getIndex() {
+      return index;
+    }
+
+    public T getSource() {
+      return source;
+    }
+
+    public List<Violation> getViolations() {
+      return violations;
+    }
+
+    /**
+     * Exception thrown loading the item, null if it was loaded.
+     */
+    public Exception getError() {
+      return error;
+    }
+
+    public boolean isValid() {
+      return error == null && violations.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return "Item(index=" + index + ", source=" + source + ", violations=" + violations + ", error=" + error + ")";
+    }
+  }
+
+  /**
+   * Thread-safe accumulator of item results.
+   */
+  static final class Builder<T> {
+
+    private final LongAdder items = new LongAdder();
+    private final LongAdder invalidItems = new LongAdder();
+    private final LongAdder failedItems = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> messageCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> pathCounts = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Item<T>> problems = new ConcurrentLinkedQueue<>();
+
+    void add(Item<T> item) {
+      items.increment();
+      if (item.getError() != null) {
+        failedItems.increment();
+        problems.add(item);
+      } else if (!item.getViolations().isEmpty()) {
+        invalidItems.increment();
+        problems.add(item);
+        for (Violation violation : item.getViolations()) {
+          messageCounts.computeIfAbsent(violation.getMessage(), k -> new LongAdder()).increment();
+          pathCounts.computeIfAbsent(pathKey(violation.getPropertyPath()), k -> new LongAdder()).increment();
+        }
+      }
+    }
+
+    BatchReport<T> build() {
+      List<Item<T>> sortedProblems = new ArrayList<>(problems);
+      sortedProblems.sort(Comparator.comparingLong(Item::getIndex));
+      long invalid = invalidItems.sum();
+      long failed = failedItems.sum();
+      long total = items.sum();
+      return new BatchReport<>(total, total - invalid - failed, invalid, failed, sorted(messageCounts),
+          sorted(pathCounts), Collections.unmodifiableList(sortedProblems));
+    }
+
+    private static Map<String, Long> sorted(Map<String, LongAdder> counts) {
+      Map<String, Long> sorted = new LinkedHashMap<>();
+      counts.entrySet().stream()
+          .sorted(Map.Entry.<String, LongAdder>comparingByValue(Comparator.comparingLong(LongAdder::sum)).reversed()
+              .thenComparing(Map.Entry.comparingByKey()))
+          .forEach(e -> sorted.put(e.getKey(), e.getValue().sum()));
+      return Collections.unmodifiableMap(sorted);
+    }
+  }
+}
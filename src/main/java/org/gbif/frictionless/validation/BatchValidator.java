@@ -0,0 +1,186 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Validates many descriptors in parallel with the {@link CompiledValidator}, aggregating the violations into a
+ * {@link BatchReport}.
+ * <p>
+ * Items are pulled from the input one at a time and handed to the executor, with at most {@code maxInFlight} of
+ * them loaded or being validated at any time, so a large or lazy input (e.g. descriptor files read on the way) is
+ * never held in memory at once. An executor given to the constructor is not owned, it is neither created per batch
+ * nor shut down. The one created by {@link #virtualThreads(int)} is owned and shut down by {@link #close()}.
+ * Thread-safe, one instance can run several batches concurrently.
+ */
+public final class BatchValidator implements AutoCloseable {
+
+  private final Executor executor;
+  // the executor created for this validator, shut down on close, null if it isn't owned
+  private final ExecutorService ownedExecutor;
+  private final int maxInFlight;
+  private final CompiledValidator validator = CompiledValidator.getInstance();
+
+  /**
+   * @param executor    executor running the loading and validation of the items
+   * @param maxInFlight maximum number of items submitted and not yet validated
+   */
+  public BatchValidator(Executor executor, int maxInFlight) {
+    this(executor, null, maxInFlight);
+  }
+
+  private BatchValidator(Executor executor, ExecutorService ownedExecutor, int maxInFlight) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("Maximum number of items in flight must be positive");
+    }
+    this.executor = executor;
+    this.ownedExecutor = ownedExecutor;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Validator running on the common fork-join pool, which has one thread per core.
+   */
+  public static BatchValidator forkJoin() {
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    return new BatchValidator(pool, 4 * pool.getParallelism());
+  }
+
+  /**
+   * Validator running every item on its own virtual thread, which suits items loaded from slow storage. Falls back
+   * to {@link #forkJoin()} on JVMs without virtual threads. Must be closed to shut its executor down.
+   *
+   * @param maxInFlight maximum number of items submitted and not yet validated
+   */
+  public static BatchValidator virtualThreads(int maxInFlight) {
+    ExecutorService executor = virtualThreadExecutor();
+    return executor == null ? forkJoin() : new BatchValidator(executor, executor, maxInFlight);
+  }
+
+  /**
+   * Validates beans, e.g. parsed descriptors.
+   */
+  public <T> BatchReport<T> validate(Iterator<? extends T> beans, Class<?>... groups) throws InterruptedException {
+    return validate(beans, bean -> bean, null, groups);
+  }
+
+  public <T> BatchReport<T> validate(Stream<? extends T> beans, Class<?>... groups) throws InterruptedException {
+    return validate(beans.iterator(), groups);
+  }
+
+  /**
+   * Loads and validates items, e.g. descriptor files, where the loader would parse a file. An item the loader fails
+   * on is reported as failed, with the exception, instead of failing the batch.
+   *
+   * @param sources  items to load
+   * @param loader   loader of the bean to validate from an item, called from the executor threads
+   * @param listener optional consumer of the result of every item, called from the executor threads
+   * @param groups   validation groups
+   */
+  public <T> BatchReport<T> validate(Iterator<? extends T> sources, Loader<? super T> loader,
+                                     Consumer<? super BatchReport.Item<T>> listener, Class<?>... groups)
+      throws InterruptedException {
+    long start = Instrumentation.start();
+    BatchReport.Builder<T> report = new BatchReport.Builder<>();
+    Semaphore permits = new Semaphore(maxInFlight);
+    long index = 0;
+    try {
+      while (sources.hasNext()) {
+        T source = sources.next();
+        long itemIndex = index++;
+        permits.acquire();
+        try {
+          executor.execute(() -> {
+            try {
+              BatchReport.Item<T> item = process(itemIndex, source, loader, groups);
+              report.add(item);
+              if (listener != null) {
+                listener.accept(item);
+              }
+            } finally {
+              permits.release();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          permits.release();
+          throw e;
+        }
+      }
+    } finally {
+      // wait for the submitted items, also when the input failed
+      permits.acquireUninterruptibly(maxInFlight);
+    }
+    BatchReport<T> result = report.build();
+    if (Instrumentation.isEnabled(start)) {
+      long violations = result.getMessageCounts().values().stream().mapToLong(Long::longValue).sum();
+      Instrumentation.record(Operation.VALIDATE_BATCH, start, -1, result.getItems(), violations);
+    }
+    return result;
+  }
+
+  private <T> BatchReport.Item<T> process(long index, T source, Loader<? super T> loader, Class<?>... groups) {
+    try {
+      Object bean = loader.load(source);
+      List<Violation> violations = bean == null ? Collections.emptyList() : validator.validate(bean, groups);
+      return new BatchReport.Item<>(index, source, violations, null);
+    } catch (Exception e) {
+      return new BatchReport.Item<>(index, source, Collections.emptyList(), e);
+    }
+  }
+
+  /**
+   * Shuts down the executor created by {@link #virtualThreads(int)}, does nothing for an executor given to the
+   * constructor.
+   */
+  @Override
+  public void close() {
+    if (ownedExecutor != null) {
+      ownedExecutor.shutdown();
+    }
+  }
+
+  /**
+   * {@code Executors.newVirtualThreadPerTaskExecutor()} on JVMs having it, null otherwise.
+   */
+  private static ExecutorService virtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Loads the bean to validate from a batch item.
+   */
+  @FunctionalInterface
+  public interface Loader<T> {
+
+    Object load(T source) throws Exception;
+  }
+}
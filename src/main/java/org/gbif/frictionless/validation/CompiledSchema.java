@@ -0,0 +1,694 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A JSON Schema (draft 4) compiled into a tree of nodes, validating a JSON token stream in a single pass.
+ * <p>
+ * Supports the keywords used by the Frictionless profiles: {@code type}, {@code enum}, {@code properties},
+ * {@code required}, {@code additionalProperties}, {@code items}, {@code minItems}, {@code maxItems},
+ * {@code uniqueItems} (of scalars), {@code minLength}, {@code maxLength}, {@code pattern}, {@code format},
+ * {@code minimum}, {@code maximum}, {@code allOf}, {@code anyOf}, {@code oneOf} and {@code $ref} to a definition of
+ * the same or another bundled document. The branches of {@code anyOf} and {@code oneOf} are evaluated side by side
+ * over the same tokens, so nothing is buffered.
+ * <p>
+ * A null property counts as absent, the model writes unset properties as null.
+ */
+final class CompiledSchema {
+
+  private static final int OBJECT = 1;
+  private static final int ARRAY = 1 << 1;
+  private static final int STRING = 1 << 2;
+  private static final int INTEGER = 1 << 3;
+  private static final int NUMBER = 1 << 4;
+  private static final int BOOLEAN = 1 << 5;
+  private static final int NULL = 1 << 6;
+
+  private final Node root;
+
+  private CompiledSchema(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Compiles a document and the documents it references.
+   *
+   * @param name   name of the document, as used in references
+   * @param loader loads a document by name, null if it doesn't exist
+   */
+  static CompiledSchema compile(String name, Function<String, JsonNode> loader) {
+    return new CompiledSchema(new Compiler(loader).compile(name, ""));
+  }
+
+  /**
+   * Validates the value at the current token, or the next one if there is no current token. Leaves the parser on
+   * the last token of the value.
+   */
+  List<Violation> validate(JsonParser parser) throws IOException {
+    if (!parser.hasCurrentToken() && parser.nextToken() == null) {
+      throw new IOException("No content to validate");
+    }
+    Result result = new Result();
+    List<Check> checks = new ArrayList<>(1);
+    checks.add(new Check(root, result));
+    evaluate(parser, Location.ROOT, checks);
+    return result.violations == null ? Collections.emptyList() : result.violations;
+  }
+
+  /**
+   * Evaluates the current value against the checks.
+   */
+  private static void evaluate(JsonParser parser, Location at, List<Check> checks) throws IOException {
+    List<Check> active = new ArrayList<>(checks.size() + 2);
+    List<Combination> combinations = null;
+    for (Check check : checks) {
+      combinations = expand(check.node, check.result, at, active, combinations);
+    }
+    JsonToken token = parser.currentToken();
+    for (Check check : active) {
+      if (!check.node.accepts(token)) {
+        check.result.typeMismatch = true;
+        check.result.add(at, "must be of type " + check.node.typeNames, value(parser, token));
+      }
+    }
+    if (token == JsonToken.START_OBJECT) {
+      object(parser, at, active);
+    } else if (token == JsonToken.START_ARRAY) {
+      array(parser, at, active);
+    } else {
+      scalar(parser, at, active, token);
+    }
+    if (combinations != null) {
+      // nested combinations were added after the ones containing them
+      for (int i = combinations.size() - 1; i >= 0; i--) {
+        combinations.get(i).resolve();
+      }
+    }
+  }
+
+  private static List<Combination> expand(Node node, Result result, Location at, List<Check> active,
+                                          List<Combination> combinations) {
+    active.add(new Check(node, result));
+    for (Node all : node.allOf) {
+      combinations = expand(all, result, at, active, combinations);
+    }
+    combinations = branch(node.anyOf, false, result, at, active, combinations);
+    return branch(node.oneOf, true, result, at, active, combinations);
+  }
+
+  private static List<Combination> branch(Node[] nodes, boolean exactlyOne, Result result, Location at,
+                                          List<Check> active, List<Combination> combinations) {
+    if (nodes.length == 0) {
+      return combinations;
+    }
+    if (combinations == null) {
+      combinations = new ArrayList<>(2);
+    }
+    Result[] branches = new Result[nodes.length];
+    combinations.add(new Combination(exactlyOne, result, branches, at));
+    for (int i = 0; i < nodes.length; i++) {
+      branches[i] = new Result();
+      combinations = expand(nodes[i], branches[i], at, active, combinations);
+    }
+    return combinations;
+  }
+
+  private static void object(JsonParser parser, Location at, List<Check> active) throws IOException {
+    Set<String> present = null;
+    for (Check check : active) {
+      if (check.node.required.length > 0) {
+        present = new HashSet<>();
+        break;
+      }
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      List<Check> children = null;
+      for (Check check : active) {
+        Node node = check.node;
+        Node child = node.properties.get(name);
+        if (child == null) {
+          if (node.additionalProperties != null) {
+            child = node.additionalProperties;
+          } else if (!node.additionalAllowed) {
+            check.result.add(at.child(name), "is not allowed", null);
+          }
+        }
+        if (child != null && !child.trivial) {
+          if (children == null) {
+            children = new ArrayList<>(active.size());
+          }
+          children.add(new Check(child, check.result));
+        }
+      }
+      if (children != null) {
+        evaluate(parser, at.child(name), children);
+      } else {
+        parser.skipChildren();
+      }
+      if (present != null) {
+        present.add(name);
+      }
+    }
+    if (present != null) {
+      for (Check check : active) {
+        for (String name : check.node.required) {
+          if (!present.contains(name)) {
+            check.result.add(at.child(name), "is required", null);
+          }
+        }
+      }
+    }
+  }
+
+  private static void array(JsonParser parser, Location at, List<Check> active) throws IOException {
+    List<Set<String>> unique = null;
+    int size = 0;
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      Location element = at.element(size);
+      List<Check> children = null;
+      for (int i = 0; i < active.size(); i++) {
+        Check check = active.get(i);
+        if (check.node.items != null && !check.node.items.trivial) {
+          if (children == null) {
+            children = new ArrayList<>(active.size());
+          }
+          children.add(new Check(check.node.items, check.result));
+        }
+        if (check.node.uniqueItems && token.isScalarValue()) {
+          if (unique == null) {
+            unique = new ArrayList<>(Collections.nCopies(active.size(), null));
+          }
+          if (unique.get(i) == null) {
+            unique.set(i, new HashSet<>());
+          }
+          if (!unique.get(i).add(token.name() + ':' + parser.getText())) {
+            check.result.add(element, "must not be a duplicate", value(parser, token));
+          }
+        }
+      }
+      if (children == null) {
+        parser.skipChildren();
+      } else {
+        evaluate(parser, element, children);
+      }
+      size++;
+    }
+    for (Check check : active) {
+      Node node = check.node;
+      if (size < node.minItems || size > node.maxItems) {
+        check.result.add(at, "size must be between " + node.minItems + " and " + node.maxItems, null);
+      }
+    }
+  }
+
+  private static void scalar(JsonParser parser, Location at, List<Check> active, JsonToken token) throws IOException {
+    for (Check check : active) {
+      Node node = check.node;
+      if (node.enumValues != null && !node.enumValues.contains(value(parser, token))) {
+        check.result.add(at, "must be one of " + node.enumValues, value(parser, token));
+      }
+      if (token == JsonToken.VALUE_STRING) {
+        String text = parser.getText();
+        if (node.minLength > 0 || node.maxLength < Integer.MAX_VALUE) {
+          int length = text.codePointCount(0, text.length());
+          if (length < node.minLength || length > node.maxLength) {
+            check.result.add(at, "length must be between " + node.minLength + " and " + node.maxLength, text);
+          }
+        }
+        if (node.pattern != null && !node.pattern.matcher(text).find()) {
+          check.result.add(at, "must match \"" + node.pattern.pattern() + "\"", text);
+        }
+        if (node.format != null && !node.format.isValid(text)) {
+          check.result.add(at, "must be a valid " + node.format.getName(), text);
+        }
+      } else if (token.isNumeric() && (node.minimum != null || node.maximum != null)) {
+        BigDecimal number = parser.getDecimalValue();
+        if (node.minimum != null && number.compareTo(node.minimum) < 0) {
+          check.result.add(at, "must be greater than or equal to " + node.minimum, parser.getNumberValue());
+        }
+        if (node.maximum != null && number.compareTo(node.maximum) > 0) {
+          check.result.add(at, "must be less than or equal to " + node.maximum, parser.getNumberValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * The value of a scalar token as compared with enumerated values, strings, booleans, null and numbers as
+   * {@link BigDecimal}s. Null for containers.
+   */
+  private static Object value(JsonParser parser, JsonToken token) throws IOException {
+    switch (token) {
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDecimalValue().stripTrailingZeros();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * A compiled schema, or subschema.
+   */
+  private static final class Node {
+
+    private int types;
+    private String typeNames;
+    private Map<String, Node> properties = Collections.emptyMap();
+    private String[] required = new String[0];
+    private boolean additionalAllowed = true;
+    private Node additionalProperties;
+    private Node items;
+    private int minItems;
+    private int maxItems = Integer.MAX_VALUE;
+    private boolean uniqueItems;
+    private int minLength;
+    private int maxLength = Integer.MAX_VALUE;
+    private Pattern pattern;
+    private Format format;
+    private Set<Object> enumValues;
+    private BigDecimal minimum;
+    private BigDecimal maximum;
+    private Node[] allOf = new Node[0];
+    private Node[] anyOf = new Node[0];
+    private Node[] oneOf = new Node[0];
+
+    /**
+     * No constraints at all, e.g. a schema with only a title and description.
+     */
+    private boolean trivial;
+
+    private boolean accepts(JsonToken token) {
+      if (types == 0) {
+        return true;
+      }
+      switch (token) {
+        case START_OBJECT:
+          return (types & OBJECT) != 0;
+        case START_ARRAY:
+          return (types & ARRAY) != 0;
+        case VALUE_STRING:
+          return (types & STRING) != 0;
+        case VALUE_NUMBER_INT:
+          return (types & (INTEGER | NUMBER)) != 0;
+        case VALUE_NUMBER_FLOAT:
+          return (types & NUMBER) != 0;
+        case VALUE_TRUE:
+        case VALUE_FALSE:
+          return (types & BOOLEAN) != 0;
+        case VALUE_NULL:
+          return (types & NULL) != 0;
+        default:
+          return false;
+      }
+    }
+  }
+
+  /**
+   * Compiles the nodes of one schema, once per referenced location so references share nodes and cycles end.
+   */
+  private static final class Compiler {
+
+    private final Function<String, JsonNode> loader;
+    private final Map<String, JsonNode> documents = new HashMap<>();
+    private final Map<String, Node> compiled = new HashMap<>();
+
+    private Compiler(Function<String, JsonNode> loader) {
+      this.loader = loader;
+    }
+
+    private Node compile(String document, String pointer) {
+      String key = document + '#' + pointer;
+      Node node = compiled.get(key);
+      if (node == null) {
+        JsonNode json = documents.computeIfAbsent(document, loader).at(pointer);
+        if (json.isMissingNode()) {
+          throw new IllegalArgumentException("Unresolvable schema reference " + key);
+        }
+        node = new Node();
+        compiled.put(key, node);
+        fill(node, json, document, pointer);
+      }
+      return node;
+    }
+
+    private Node compile(JsonNode json, String document, String pointer) {
+      JsonNode ref = json.get("$ref");
+      if (ref != null) {
+        String target = ref.asText();
+        int hash = target.indexOf('#');
+        String targetDocument = hash == 0 ? document : hash < 0 ? target : target.substring(0, hash);
+        return compile(targetDocument, hash < 0 ? "" : target.substring(hash + 1));
+      }
+      return compile(document, pointer);
+    }
+
+    private void fill(Node node, JsonNode json, String document, String pointer) {
+      if (json.has("$ref")) {
+        // a document or definition which is only a reference
+        Node target = compile(json, document, pointer);
+        node.allOf = new Node[] {target};
+        return;
+      }
+      JsonNode type = json.get("type");
+      if (type != null) {
+        List<String> names = new ArrayList<>();
+        for (JsonNode name : type.isArray() ? type : Collections.singletonList(type)) {
+          names.add(name.asText());
+          node.types |= type(name.asText());
+        }
+        node.typeNames = String.join(" or ", names);
+      }
+      JsonNode properties = json.get("properties");
+      if (properties != null) {
+        node.properties = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = properties.fields(); fields.hasNext(); ) {
+          Map.Entry<String, JsonNode> field = fields.next();
+          node.properties.put(field.getKey(), compile(field.getValue(), document,
+              pointer + "/properties/" + escape(field.getKey())));
+        }
+      }
+      JsonNode required = json.get("required");
+      if (required != null) {
+        node.required = new String[required.size()];
+        for (int i = 0; i < required.size(); i++) {
+          node.required[i] = required.get(i).asText();
+        }
+      }
+      JsonNode additional = json.get("additionalProperties");
+      if (additional != null) {
+        if (additional.isBoolean()) {
+          node.additionalAllowed = additional.asBoolean();
+        } else {
+          node.additionalProperties = compile(additional, document, pointer + "/additionalProperties");
+        }
+      }
+      JsonNode items = json.get("items");
+      if (items != null && items.isObject()) {
+        node.items = compile(items, document, pointer + "/items");
+      }
+      node.minItems = json.path("minItems").asInt(0);
+      node.maxItems = json.path("maxItems").asInt(Integer.MAX_VALUE);
+      node.uniqueItems = json.path("uniqueItems").asBoolean(false);
+      node.minLength = json.path("minLength").asInt(0);
+      node.maxLength = json.path("maxLength").asInt(Integer.MAX_VALUE);
+      if (json.has("pattern")) {
+        node.pattern = Pattern.compile(json.get("pattern").asText());
+      }
+      if (json.has("format")) {
+        node.format = Format.of(json.get("format").asText());
+      }
+      JsonNode values = json.get("enum");
+      if (values != null) {
+        node.enumValues = new HashSet<>();
+        for (JsonNode value : values) {
+          node.enumValues.add(value.isNumber() ? value.decimalValue().stripTrailingZeros()
+              : value.isBoolean() ? value.asBoolean() : value.isNull() ? null : value.asText());
+        }
+      }
+      if (json.has("minimum")) {
+        node.minimum = json.get("minimum").decimalValue();
+      }
+      if (json.has("maximum")) {
+        node.maximum = json.get("maximum").decimalValue();
+      }
+      node.allOf = compileAll(json.get("allOf"), document, pointer + "/allOf");
+      node.anyOf = compileAll(json.get("anyOf"), document, pointer + "/anyOf");
+      node.oneOf = compileAll(json.get("oneOf"), document, pointer + "/oneOf");
+      node.trivial = node.types == 0 && properties == null && required == null && additional == null
+          && node.items == null && node.minItems == 0 && node.maxItems == Integer.MAX_VALUE && !node.uniqueItems
+          && node.minLength == 0 && node.maxLength == Integer.MAX_VALUE && node.pattern == null
+          && node.format == null && values == null && node.minimum == null && node.maximum == null
+          && node.allOf.length == 0 && node.anyOf.length == 0 && node.oneOf.length == 0;
+    }
+
+    private Node[] compileAll(JsonNode schemas, String document, String pointer) {
+      if (schemas == null) {
+        return new Node[0];
+      }
+      Node[] nodes = new Node[schemas.size()];
+      for (int i = 0; i < nodes.length; i++) {
+        nodes[i] = compile(schemas.get(i), document, pointer + '/' + i);
+      }
+      return nodes;
+    }
+
+    private static int type(String name) {
+      switch (name) {
+        case "object":
+          return OBJECT;
+        case "array":
+          return ARRAY;
+        case "string":
+          return STRING;
+        case "integer":
+          return INTEGER;
+        case "number":
+          return NUMBER;
+        case "boolean":
+          return BOOLEAN;
+        case "null":
+          return NULL;
+        default:
+          throw new IllegalArgumentException("Unknown schema type " + name);
+      }
+    }
+
+    private static String escape(String name) {
+      return name.replace("~", "~0").replace("/", "~1");
+    }
+  }
+
+  /**
+   * String formats, unknown ones are not checked.
+   */
+  private enum Format {
+
+    URI("uri") {
+      @Override
+      boolean isValid(String value) {
+        try {
+          return new java.net.URI(value).isAbsolute();
+        } catch (URISyntaxException e) {
+          return false;
+        }
+      }
+    },
+
+    EMAIL("email") {
+      @Override
+      boolean isValid(String value) {
+        int at = value.indexOf('@');
+        return at > 0 && at == value.lastIndexOf('@') && at < value.length() - 1 && value.indexOf(' ') < 0;
+      }
+    },
+
+    DATE_TIME("date-time") {
+      @Override
+      boolean isValid(String value) {
+        try {
+          OffsetDateTime.parse(value);
+          return true;
+        } catch (DateTimeParseException e) {
+          return false;
+        }
+      }
+    },
+
+    DATE("date") {
+      @Override
+      boolean isValid(String value) {
+        try {
+          LocalDate.parse(value);
+          return true;
+        } catch (DateTimeParseException e) {
+          return false;
+        }
+      }
+    };
+
+    private final String name;
+
+    Format(String name) {
+      this.name = name;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    abstract boolean isValid(String value);
+
+    private static Format of(String name) {
+      for (Format format : values()) {
+        if (format.name.equals(name)) {
+          return format;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * A node to check the current value against, and where its violations go.
+   */
+  private static final class Check {
+
+    private final Node node;
+    private final Result result;
+
+    private Check(Node node, Result result) {
+      this.node = node;
+      this.result = result;
+    }
+  }
+
+  /**
+   * Violations of the whole schema or of one branch of a combination.
+   */
+  private static final class Result {
+
+    private List<Violation> violations;
+    private boolean typeMismatch;
+
+    private void add(Location at, String message, Object value) {
+      add(new Violation(at.toString(), message, value));
+    }
+
+    private void add(Violation violation) {
+      if (violations == null) {
+        violations = new ArrayList<>(2);
+      }
+      violations.add(violation);
+    }
+
+    private boolean isValid() {
+      return violations == null;
+    }
+  }
+
+  /**
+   * An {@code anyOf} or {@code oneOf}, resolved into its result once the value is consumed.
+   */
+  private static final class Combination {
+
+    private final boolean exactlyOne;
+    private final Result result;
+    private final Result[] branches;
+    private final Location at;
+
+    private Combination(boolean exactlyOne, Result result, Result[] branches, Location at) {
+      this.exactlyOne = exactlyOne;
+      this.result = result;
+      this.branches = branches;
+      this.at = at;
+    }
+
+    private void resolve() {
+      int valid = 0;
+      Result candidate = null;
+      int candidates = 0;
+      for (Result branch : branches) {
+        if (branch.isValid()) {
+          valid++;
+        } else if (!branch.typeMismatch) {
+          candidate = branch;
+          candidates++;
+        }
+      }
+      if (valid == 0 && candidates == 1) {
+        // only one branch is of the right type, its own violations say more
+        for (Violation violation : candidate.violations) {
+          result.add(violation);
+        }
+      } else if (valid == 0) {
+        result.add(at, exactlyOne ? "must match exactly one schema" : "must match at least one schema", null);
+      } else if (exactlyOne && valid > 1) {
+        result.add(at, "must match exactly one schema", null);
+      }
+    }
+  }
+
+  /**
+   * Path of the current value, rendered like the property paths of the {@link CompiledValidator} only when a
+   * violation is reported.
+   */
+  private static final class Location {
+
+    private static final Location ROOT = new Location(null, null, -1);
+
+    private final Location parent;
+    private final String property;
+    private final int index;
+
+    private Location(Location parent, String property, int index) {
+      this.parent = parent;
+      this.property = property;
+      this.index = index;
+    }
+
+    private Location child(String property) {
+      return new Location(this, property, -1);
+    }
+
+    private Location element(int index) {
+      return new Location(this, null, index);
+    }
+
+    @Override
+    public String toString() {
+      if (parent == null) {
+        return "";
+      }
+      String path = parent.toString();
+      if (property == null) {
+        return path + '[' + index + ']';
+      }
+      return path.isEmpty() ? property : path + '.' + property;
+    }
+  }
+}
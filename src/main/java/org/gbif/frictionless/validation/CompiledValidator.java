@@ -0,0 +1,358 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+import javax.validation.groups.Default;
+
+/**
+ * Validator for the constraint annotations used by the metadata model ({@link NotNull}, {@link NotBlank},
+ * {@link Pattern}, {@link Size} and {@link Valid}), reporting the same property paths and messages as
+ * Hibernate Validator.
+ * <p>
+ * The annotations of a class are read once, on first use, and compiled into plain rule objects with precompiled
+ * patterns and method handle accessors, so validating a bean does no reflection and no message interpolation.
+ * Thread-safe, use {@link #getInstance()}.
+ */
+public final class CompiledValidator {
+
+  private static final CompiledValidator INSTANCE = new CompiledValidator();
+
+  private static final Class<?>[] DEFAULT_GROUPS = {Default.class};
+
+  private static final String NOT_NULL_MESSAGE = "{javax.validation.constraints.NotNull.message}";
+  private static final String NOT_BLANK_MESSAGE = "{javax.validation.constraints.NotBlank.message}";
+  private static final String PATTERN_MESSAGE = "{javax.validation.constraints.Pattern.message}";
+  private static final String SIZE_MESSAGE = "{javax.validation.constraints.Size.message}";
+
+  private final ClassValue<BeanRules> rules = new ClassValue<BeanRules>() {
+    @Override
+    protected BeanRules computeValue(Class<?> type) {
+      return BeanRules.compile(type);
+    }
+  };
+
+  private CompiledValidator() {
+  }
+
+  public static CompiledValidator getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Validates the bean and, following {@link Valid}, its nested beans.
+   *
+   * @param bean   bean to validate
+   * @param groups groups to validate, {@link Default} if none
+   * @return violations, empty if the bean is valid
+   */
+  public List<Violation> validate(Object bean, Class<?>... groups) {
+    if (bean == null) {
+      throw new IllegalArgumentException("The object to be validated must not be null");
+    }
+    long start = Instrumentation.start();
+    List<Violation> violations = new ArrayList<>(0);
+    validateBean(bean, "", groups.length == 0 ? DEFAULT_GROUPS : groups, violations);
+    Instrumentation.record(Operation.VALIDATE, start, -1, 1, violations.size());
+    return violations.isEmpty() ? Collections.emptyList() : violations;
+  }
+
+  public boolean isValid(Object bean, Class<?>... groups) {
+    return validate(bean, groups).isEmpty();
+  }
+
+  /**
+   * Validates some properties of the bean only, e.g. the ones changed by an update, and following {@link Valid}
+   * their nested beans. Unlike {@code Validator.validateProperty} the nested beans are validated too.
+   *
+   * @param bean       bean to validate
+   * @param properties names of the fields to validate
+   * @param groups     groups to validate, {@link Default} if none
+   * @return violations, empty if the properties are valid
+   */
+  public List<Violation> validateProperties(Object bean, Collection<String> properties, Class<?>... groups) {
+    if (bean == null) {
+      throw new IllegalArgumentException("The object to be validated must not be null");
+    }
+    long start = Instrumentation.start();
+    List<Violation> violations = new ArrayList<>(0);
+    Class<?>[] requested = groups.length == 0 ? DEFAULT_GROUPS : groups;
+    for (PropertyRules property : rules.get(bean.getClass()).properties) {
+      if (properties.contains(property.name)) {
+        validateProperty(bean, property, "", requested, violations);
+      }
+    }
+    Instrumentation.record(Operation.VALIDATE, start, -1, 1, violations.size());
+    return violations.isEmpty() ? Collections.emptyList() : violations;
+  }
+
+  private void validateBean(Object bean, String path, Class<?>[] groups, List<Violation> violations) {
+    BeanRules beanRules = rules.get(bean.getClass());
+    for (PropertyRules property : beanRules.properties) {
+      validateProperty(bean, property, path, groups, violations);
+    }
+  }
+
+  private void validateProperty(Object bean, PropertyRules property, String path, Class<?>[] groups, List<Violation> violations) {
+    Object value = property.get(bean);
+    String propertyPath = path.isEmpty() ? property.name : path + '.' + property.name;
+    for (Constraint constraint : property.constraints) {
+      if (constraint.appliesTo(groups) && !constraint.isValid(value)) {
+        violations.add(new Violation(propertyPath, constraint.message, value));
+      }
+    }
+    if (property.cascade && value != null) {
+      cascade(value, propertyPath, groups, violations);
+    }
+  }
+
+  private void cascade(Object value, String path, Class<?>[] groups, List<Violation> violations) {
+    if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      for (int i = 0; i < list.size(); i++) {
+        validateElement(list.get(i), path + '[' + i + ']', groups, violations);
+      }
+    } else if (value instanceof Collection) {
+      for (Object element : (Collection<?>) value) {
+        validateElement(element, path + "[]", groups, violations);
+      }
+    } else if (value instanceof Map) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        validateElement(entry.getValue(), path + '[' + entry.getKey() + ']', groups, violations);
+      }
+    } else if (value.getClass().isArray()) {
+      for (int i = 0; i < Array.getLength(value); i++) {
+        validateElement(Array.get(value, i), path + '[' + i + ']', groups, violations);
+      }
+    } else {
+      validateElement(value, path, groups, violations);
+    }
+  }
+
+  private void validateElement(Object element, String path, Class<?>[] groups, List<Violation> violations) {
+    if (element != null && !rules.get(element.getClass()).properties.isEmpty()) {
+      validateBean(element, path, groups, violations);
+    }
+  }
+
+  /**
+   * The compiled rules of one class, including the inherited ones.
+   */
+  private static final class BeanRules {
+
+    private final List<PropertyRules> properties;
+
+    private BeanRules(List<PropertyRules> properties) {
+      this.properties = properties;
+    }
+
+    private static BeanRules compile(Class<?> type) {
+      List<PropertyRules> properties = new ArrayList<>();
+      if (!type.isPrimitive() && !type.isArray() && !type.getName().startsWith("java.")) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+          for (Field field : current.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+              PropertyRules property = PropertyRules.compile(field);
+              if (property != null) {
+                properties.add(property);
+              }
+            }
+          }
+        }
+      }
+      return new BeanRules(properties);
+    }
+  }
+
+  private static final class PropertyRules {
+
+    private final String name;
+    private final MethodHandle getter;
+    private final List<Constraint> constraints;
+    private final boolean cascade;
+
+    private PropertyRules(String name, MethodHandle getter, List<Constraint> constraints, boolean cascade) {
+      this.name = name;
+      this.getter = getter;
+      this.constraints = constraints;
+      this.cascade = cascade;
+    }
+
+    private static PropertyRules compile(Field field) {
+      List<Constraint> constraints = new ArrayList<>();
+      NotNull notNull = field.getAnnotation(NotNull.class);
+      if (notNull != null) {
+        constraints.add(new NotNullConstraint(notNull.groups(), message(notNull.message(), NOT_NULL_MESSAGE, "must not be null")));
+      }
+      NotBlank notBlank = field.getAnnotation(NotBlank.class);
+      if (notBlank != null) {
+        constraints.add(new NotBlankConstraint(notBlank.groups(), message(notBlank.message(), NOT_BLANK_MESSAGE, "must not be blank")));
+      }
+      Pattern pattern = field.getAnnotation(Pattern.class);
+      if (pattern != null) {
+        constraints.add(new PatternConstraint(pattern.groups(),
+            message(pattern.message(), PATTERN_MESSAGE, "must match \"" + pattern.regexp() + "\""), pattern.regexp()));
+      }
+      Size size = field.getAnnotation(Size.class);
+      if (size != null) {
+        constraints.add(new SizeConstraint(size.groups(),
+            message(size.message(), SIZE_MESSAGE, "size must be between " + size.min() + " and " + size.max()),
+            size.min(), size.max()));
+      }
+      boolean cascade = field.isAnnotationPresent(Valid.class);
+      if (constraints.isEmpty() && !cascade) {
+        return null;
+      }
+
+      try {
+        MethodHandle getter = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+            .unreflectGetter(field)
+            .asType(MethodType.methodType(Object.class, Object.class));
+        return new PropertyRules(field.getName(), getter, constraints, cascade);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Cannot access " + field, e);
+      }
+    }
+
+    private static String message(String message, String defaultTemplate, String defaultMessage) {
+      return defaultTemplate.equals(message) ? defaultMessage : message;
+    }
+
+    private Object get(Object bean) {
+      try {
+        return (Object) getter.invokeExact(bean);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException("Cannot read " + name, e);
+      }
+    }
+  }
+
+  private abstract static class Constraint {
+
+    private final Class<?>[] groups;
+    private final String message;
+
+    Constraint(Class<?>[] groups, String message) {
+      this.groups = groups.length == 0 ? DEFAULT_GROUPS : groups;
+      this.message = message;
+    }
+
+    /**
+     * A constraint is validated when one of the requested groups is, or extends, one of its groups.
+     */
+    boolean appliesTo(Class<?>[] requested) {
+      for (Class<?> group : groups) {
+        for (Class<?> candidate : requested) {
+          if (group.isAssignableFrom(candidate)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    abstract boolean isValid(Object value);
+  }
+
+  private static final class NotNullConstraint extends Constraint {
+
+    NotNullConstraint(Class<?>[] groups, String message) {
+      super(groups, message);
+    }
+
+    @Override
+    boolean isValid(Object value) {
+      return value != null;
+    }
+  }
+
+  private static final class NotBlankConstraint extends Constraint {
+
+    NotBlankConstraint(Class<?>[] groups, String message) {
+      super(groups, message);
+    }
+
+    @Override
+    boolean isValid(Object value) {
+      return value != null && !value.toString().trim().isEmpty();
+    }
+  }
+
+  private static final class PatternConstraint extends Constraint {
+
+    private final java.util.regex.Pattern pattern;
+
+    PatternConstraint(Class<?>[] groups, String message, String regexp) {
+      super(groups, message);
+      this.pattern = java.util.regex.Pattern.compile(regexp);
+    }
+
+    @Override
+    boolean isValid(Object value) {
+      return value == null || pattern.matcher((CharSequence) value).matches();
+    }
+  }
+
+  private static final class SizeConstraint extends Constraint {
+
+    private final int min;
+    private final int max;
+
+    SizeConstraint(Class<?>[] groups, String message, int min, int max) {
+      super(groups, message);
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    boolean isValid(Object value) {
+      if (value == null) {
+        return true;
+      }
+      int size;
+      if (value instanceof CharSequence) {
+        size = ((CharSequence) value).length();
+      } else if (value instanceof Collection) {
+        size = ((Collection<?>) value).size();
+      } else if (value instanceof Map) {
+        size = ((Map<?, ?>) value).size();
+      } else if (value.getClass().isArray()) {
+        size = Array.getLength(value);
+      } else {
+        throw new IllegalStateException("@Size is not supported on " + value.getClass());
+      }
+      return size >= min && size <= max;
+    }
+  }
+}
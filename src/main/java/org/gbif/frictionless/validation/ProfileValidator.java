@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import org.gbif.frictionless.instrumentation.Instrumentation;
+import org.gbif.frictionless.instrumentation.Operation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Validates descriptors against the JSON Schema of their Frictionless profile, e.g. {@code data-package} or
+ * {@code tabular-data-resource}, as opposed to the handful of rules of the model annotations checked by the
+ * {@link CompiledValidator}.
+ * <p>
+ * The profile schemas are bundled. Each one is compiled on first use into a tree of rule nodes and cached by profile
+ * name, and validation runs over the JSON tokens in a single pass, so a descriptor is neither bound to the model nor
+ * buffered. Serialized model objects are validated through a {@code TokenBuffer} without producing any text, see
+ * {@code FrictionlessJson#validatePackage} and {@code FrictionlessJson#validateResource}.
+ * <p>
+ * Violations use the property paths of the {@link CompiledValidator}, e.g. {@code resources[0].name}, with the
+ * offending value for scalars. Thread-safe, use {@link #getInstance()}.
+ */
+public final class ProfileValidator {
+
+  private static final ProfileValidator INSTANCE = new ProfileValidator();
+
+  private static final Set<String> PROFILES = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(
+      "data-package", "data-resource", "tabular-data-package", "tabular-data-resource", "table-schema")));
+
+  private static final String SUFFIX = ".json";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final JsonFactory factory = mapper.getFactory();
+  private final Map<String, CompiledSchema> schemas = new ConcurrentHashMap<>();
+
+  private ProfileValidator() {
+  }
+
+  public static ProfileValidator getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Names of the bundled profiles.
+   */
+  public Set<String> getProfiles() {
+    return PROFILES;
+  }
+
+  /**
+   * Whether a profile, given by name or by the URL of one of the official schemas, is bundled.
+   */
+  public boolean isSupported(String profile) {
+    return profile != null && PROFILES.contains(name(profile));
+  }
+
+  /**
+   * Validates a descriptor against a profile.
+   *
+   * @param profile profile name, or URL of one of the official profile schemas
+   * @param parser  parser on or before the descriptor, left on its last token
+   * @return violations, empty if the descriptor is valid
+   * @throws IllegalArgumentException if the profile isn't bundled
+   */
+  public List<Violation> validate(String profile, JsonParser parser) throws IOException {
+    CompiledSchema schema = schema(profile);
+    long start = Instrumentation.start();
+    List<Violation> violations = schema.validate(parser);
+    Instrumentation.record(Operation.VALIDATE_PROFILE, start, -1, 1, violations.size());
+    return violations;
+  }
+
+  public List<Violation> validate(String profile, byte[] json) throws IOException {
+    CompiledSchema schema = schema(profile);
+    long start = Instrumentation.start();
+    List<Violation> violations;
+    try (JsonParser parser = factory.createParser(json)) {
+      violations = schema.validate(parser);
+    }
+    Instrumentation.record(Operation.VALIDATE_PROFILE, start, json.length, 1, violations.size());
+    return violations;
+  }
+
+  /**
+   * Validates a descriptor against a profile, the stream is left open.
+   */
+  public List<Violation> validate(String profile, InputStream in) throws IOException {
+    try (JsonParser parser = factory.createParser(in)) {
+      parser.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+      return validate(profile, parser);
+    }
+  }
+
+  /**
+   * The compiled schema of a profile, compiled on first use.
+   */
+  private CompiledSchema schema(String profile) {
+    if (!isSupported(profile)) {
+      throw new IllegalArgumentException("Unsupported profile " + profile);
+    }
+    return schemas.computeIfAbsent(name(profile), name -> CompiledSchema.compile(name + SUFFIX, this::load));
+  }
+
+  private JsonNode load(String document) {
+    if (!document.endsWith(SUFFIX) || !PROFILES.contains(document.substring(0, document.length() - SUFFIX.length()))) {
+      throw new IllegalArgumentException("Unknown schema " + document);
+    }
+    try (InputStream in = ProfileValidator.class.getResourceAsStream("profiles/" + document)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing bundled schema " + document);
+      }
+      return mapper.readTree(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The profile name of a name or schema URL, e.g. {@code data-package} for
+   * {@code https://specs.frictionlessdata.io/schemas/data-package.json}.
+   */
+  private static String name(String profile) {
+    String name = profile.substring(profile.lastIndexOf('/') + 1);
+    return name.endsWith(SUFFIX) ? name.substring(0, name.length() - SUFFIX.length()) : name;
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import lombok.Value;
+
+/**
+ * A single constraint violation reported by the {@link CompiledValidator}.
+ * Mirrors the property path and the interpolated message of the matching {@code javax.validation.ConstraintViolation}.
+ */
+@Value
+public class Violation {
+
+  /**
+   * Property path, e.g. {@code contributors[0].title}.
+   */
+  private final String propertyPath;
+
+  /**
+   * Interpolated message, e.g. {@code validation.input.required} or {@code must match "^(.+)/(.+)$"}.
+   */
+  private final String message;
+
+  /**
+   * Value which failed the check.
+   */
+  private final Object invalidValue;
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.eml;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+import org.gbif.frictionless.metadata.MetadataInterner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmlConverterTest {
+
+  private static final String EML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<eml:eml xmlns:eml=\"https://eml.ecoinformatics.org/eml-2.2.0\" packageId=\"7c5f3b8a-0000-4d3e-9f0a-1\""
+      + " system=\"http://gbif.org\" scope=\"system\" xml:lang=\"eng\">\n"
+      + "  <dataset>\n"
+      + "    <alternateIdentifier>https://ipt.example.org/resource?r=birds</alternateIdentifier>\n"
+      + "    <shortName>birds</shortName>\n"
+      + "    <title xml:lang=\"eng\">Bird  counts\n of the valley</title>\n"
+      + "    <title xml:lang=\"fra\">Comptages d'oiseaux</title>\n"
+      + "    <creator>\n"
+      + "      <individualName><givenName>Jane</givenName><surName>Doe</surName></individualName>\n"
+      + "      <organizationName>Valley Museum</organizationName>\n"
+      + "      <address><city>Valley</city></address>\n"
+      + "      <electronicMailAddress>jane@example.org</electronicMailAddress>\n"
+      + "      <userId directory=\"https://orcid.org/\">0000-0002-1825-0097</userId>\n"
+      + "    </creator>\n"
+      + "    <metadataProvider><organizationName>Valley Museum</organizationName></metadataProvider>\n"
+      + "    <associatedParty>\n"
+      + "      <individualName><surName>Smith</surName></individualName>\n"
+      + "      <role>principalInvestigator</role>\n"
+      + "    </associatedParty>\n"
+      + "    <associatedParty><positionName>Data manager</positionName></associatedParty>\n"
+      + "    <pubDate>2023-05-17</pubDate>\n"
+      + "    <language>eng</language>\n"
+      + "    <abstract>\n"
+      + "      <para>Counts of <emphasis>birds</emphasis> along\n transects.</para>\n"
+      + "      <para><![CDATA[Observed <yearly> since 1990.]]></para>\n"
+      + "    </abstract>\n"
+      + "    <keywordSet>\n"
+      + "      <keyword>Occurrence</keyword><keyword>Aves</keyword>\n"
+      + "      <keywordThesaurus>GBIF Dataset Type Vocabulary</keywordThesaurus>\n"
+      + "    </keywordSet>\n"
+      + "    <keywordSet><keyword>Aves</keyword><keyword>Transects</keyword></keywordSet>\n"
+      + "    <intellectualRights>\n"
+      + "      <para>This work is licensed under a <ulink url=\"http://creativecommons.org/licenses/by/4.0/legalcode\">"
+      + "<citetitle>Creative Commons Attribution (CC-BY 4.0) License</citetitle></ulink>.</para>\n"
+      + "    </intellectualRights>\n"
+      + "    <distribution scope=\"document\"><online><url function=\"information\">https://example.org/birds</url>"
+      + "</online></distribution>\n"
+      + "    <coverage><geographicCoverage><geographicDescription>Valley</geographicDescription></geographicCoverage>"
+      + "</coverage>\n"
+      + "    <contact>\n"
+      + "      <individualName><givenName>Jane</givenName><surName>Doe</surName></individualName>\n"
+      + "      <electronicMailAddress>jane@example.org</electronicMailAddress>\n"
+      + "      <electronicMailAddress>doe@example.org</electronicMailAddress>\n"
+      + "    </contact>\n"
+      + "  </dataset>\n"
+      + "  <additionalMetadata>\n"
+      + "    <metadata>\n"
+      + "      <gbif>\n"
+      + "        <dateStamp>2023-05-17T10:00:00Z</dateStamp>\n"
+      + "        <bibliography>\n"
+      + "          <citation identifier=\"https://doi.org/10.1234/abc\">Doe J. (2020) Valley birds.</citation>\n"
+      + "          <citation>Smith A. (2010) Transects.</citation>\n"
+      + "        </bibliography>\n"
+      + "        <resourceLogoUrl>https://example.org/logo.png</resourceLogoUrl>\n"
+      + "      </gbif>\n"
+      + "    </metadata>\n"
+      + "  </additionalMetadata>\n"
+      + "</eml:eml>\n";
+
+  @Test
+  public void testRead() throws IOException {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata =
+        EmlConverter.getDefault().read(new StringReader(EML));
+
+    assertEquals("7c5f3b8a-0000-4d3e-9f0a-1", metadata.getId());
+    assertEquals("birds", metadata.getName());
+    assertEquals("Bird counts of the valley", metadata.getTitle());
+    assertEquals("Counts of birds along transects.\n\nObserved <yearly> since 1990.", metadata.getDescription());
+    assertEquals(URI.create("https://example.org/birds"), metadata.getHomepage());
+    assertEquals(Date.from(Instant.parse("2023-05-17T00:00:00Z")), metadata.getCreated());
+    assertEquals("https://example.org/logo.png", metadata.getImage());
+    assertEquals(Arrays.asList("Occurrence", "Aves", "Transects"), metadata.getKeywords());
+
+    assertEquals(5, metadata.getContributors().size());
+    FrictionlessContributor creator = metadata.getContributors().get(0);
+    assertEquals("Jane Doe", creator.getTitle());
+    assertEquals("Valley Museum", creator.getOrganization());
+    assertEquals("jane@example.org", creator.getEmail());
+    assertEquals("author", creator.getRole());
+    assertEquals("0000-0002-1825-0097", creator.getAdditionalProperties().get("orcid"));
+    FrictionlessContributor provider = metadata.getContributors().get(1);
+    assertEquals("Valley Museum", provider.getTitle());
+    assertEquals("wrangler", provider.getRole());
+    assertEquals("principalInvestigator", metadata.getContributors().get(2).getRole());
+    assertEquals("Data manager", metadata.getContributors().get(3).getTitle());
+    assertEquals("contributor", metadata.getContributors().get(3).getRole());
+    assertEquals("maintainer", metadata.getContributors().get(4).getRole());
+    assertEquals("jane@example.org", metadata.getContributors().get(4).getEmail());
+
+    assertEquals(1, metadata.getLicenses().size());
+    FrictionlessLicense license = metadata.getLicenses().get(0);
+    assertEquals("CC-BY-4.0", license.getName());
+    assertEquals("http://creativecommons.org/licenses/by/4.0/legalcode", license.getPath());
+    assertEquals("Creative Commons Attribution (CC-BY 4.0) License", license.getTitle());
+
+    assertEquals(2, metadata.getSources().size());
+    assertEquals("Doe J. (2020) Valley birds.", metadata.getSources().get(0).getTitle());
+    assertEquals("https://doi.org/10.1234/abc", metadata.getSources().get(0).getPath());
+    assertNull(metadata.getSources().get(1).getPath());
+  }
+
+  @Test
+  public void testLicenses() throws IOException {
+    String eml = "<eml:eml xmlns:eml=\"https://eml.ecoinformatics.org/eml-2.2.0\"><dataset>"
+        + "<intellectualRights><para>To the extent possible under law, the publisher has waived all rights to these data"
+        + " and has dedicated them to the Public Domain (CC0 1.0 https://creativecommons.org/publicdomain/zero/1.0/)."
+        + "</para></intellectualRights>"
+        + "<licensed><licenseName>Creative Commons Zero v1.0 Universal</licenseName>"
+        + "<url>https://creativecommons.org/publicdomain/zero/1.0/</url><identifier>CC0-1.0</identifier></licensed>"
+        + "<licensed><licenseName>Attribution-NonCommercial</licenseName>"
+        + "<url>https://creativecommons.org/licenses/by-nc/4.0/</url></licensed>"
+        + "</dataset></eml:eml>";
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata =
+        EmlConverter.getDefault().read(new StringReader(eml));
+
+    assertEquals(2, metadata.getLicenses().size());
+    assertEquals("CC0-1.0", metadata.getLicenses().get(0).getName());
+    assertEquals("Creative Commons Zero v1.0 Universal", metadata.getLicenses().get(0).getTitle());
+    assertEquals("CC-BY-NC-4.0", metadata.getLicenses().get(1).getName());
+    assertEquals("https://creativecommons.org/licenses/by-nc/4.0/", metadata.getLicenses().get(1).getPath());
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    EmlConverter<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> converter = EmlConverter.getDefault();
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata =
+        converter.read(new StringReader(EML));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    converter.write(out, metadata);
+    String written = out.toString(StandardCharsets.UTF_8);
+    assertTrue(written.contains("<eml:eml xmlns:eml=\"https://eml.ecoinformatics.org/eml-2.2.0\""));
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> copy =
+        converter.read(new ByteArrayInputStream(out.toByteArray()));
+
+    assertEquals(metadata.getId(), copy.getId());
+    assertEquals(metadata.getName(), copy.getName());
+    assertEquals(metadata.getTitle(), copy.getTitle());
+    assertEquals(metadata.getDescription(), copy.getDescription());
+    assertEquals(metadata.getHomepage(), copy.getHomepage());
+    assertEquals(metadata.getCreated(), copy.getCreated());
+    assertEquals(metadata.getImage(), copy.getImage());
+    assertEquals(metadata.getKeywords(), copy.getKeywords());
+    assertEquals(metadata.getLicenses(), copy.getLicenses());
+    assertEquals(metadata.getSources(), copy.getSources());
+    assertEquals(metadata.getContributors().size(), copy.getContributors().size());
+    for (FrictionlessContributor contributor : metadata.getContributors()) {
+      assertTrue(copy.getContributors().contains(contributor), contributor.toString());
+    }
+    assertEquals(written, converter.writeAsString(copy).replace("<?xml version=\"1.0\"?>",
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
+  }
+
+  @Test
+  public void testBatch() throws IOException {
+    MetadataInterner interner = new MetadataInterner();
+    EmlConverter<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> converter =
+        EmlConverter.builder().interner(interner).build();
+
+    StringBuilder large = new StringBuilder("<eml:eml xmlns:eml=\"https://eml.ecoinformatics.org/eml-2.2.0\"><dataset>");
+    for (int i = 0; i < 5_000; i++) {
+      large.append("<creator><individualName><givenName>Given</givenName><surName>Name ").append(i)
+          .append("</surName></individualName></creator><keywordSet><keyword>keyword ").append(i % 1000)
+          .append("</keyword></keywordSet>");
+    }
+    large.append("<intellectualRights><para><ulink url=\"http://creativecommons.org/licenses/by/4.0/legalcode\">")
+        .append("<citetitle>CC-BY 4.0</citetitle></ulink></para></intellectualRights></dataset></eml:eml>");
+    byte[] document = large.toString().getBytes(StandardCharsets.UTF_8);
+
+    FrictionlessLicense first = null;
+    for (int i = 0; i < 20; i++) {
+      FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata =
+          converter.read(new ByteArrayInputStream(document));
+      assertEquals(5_000, metadata.getContributors().size());
+      assertEquals(1000, metadata.getKeywords().size());
+      assertEquals("Given Name 4999", metadata.getContributors().get(4999).getTitle());
+      if (first == null) {
+        first = metadata.getLicenses().get(0);
+      }
+      // repeated licenses and roles are shared across documents
+      assertSame(first, metadata.getLicenses().get(0));
+      assertSame(interner.intern("author"), metadata.getContributors().get(0).getRole());
+    }
+  }
+
+  @Test
+  public void testInvalidDocuments() {
+    EmlConverter<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> converter = EmlConverter.getDefault();
+    assertThrows(IOException.class, () -> converter.read(new StringReader("<dataset><title>x</title></dataset>")));
+    assertThrows(IOException.class, () -> converter.read(new StringReader("<eml:eml xmlns:eml=\"x\"><dataset>")));
+    // external entities are never resolved
+    String entity = "<?xml version=\"1.0\"?><!DOCTYPE eml [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>"
+        + "<eml><dataset><title>&secret;</title></dataset></eml>";
+    assertThrows(IOException.class, () -> converter.read(new StringReader(entity)));
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.instrumentation;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+import org.gbif.frictionless.validation.CompiledValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InstrumentationTest {
+
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+
+  @Test
+  public void testHistogram() {
+    HistogramRecorder recorder = new HistogramRecorder();
+    for (long nanos = 1; nanos <= 1000; nanos++) {
+      recorder.onOperation(Operation.VALIDATE, nanos * 1000, -1, 1, nanos % 2);
+    }
+    HistogramRecorder.Snapshot snapshot = recorder.snapshot(Operation.VALIDATE);
+    assertEquals(1000, snapshot.getCount());
+    assertEquals(1000, snapshot.getMin());
+    assertEquals(1_000_000, snapshot.getMax());
+    assertEquals(500_500, snapshot.getMean(), 0.001);
+    assertEquals(0, snapshot.getBytes());
+    assertEquals(1000, snapshot.getObjects());
+    assertEquals(500, snapshot.getViolations());
+    assertWithin(500_000, snapshot.getPercentile(0.5));
+    assertWithin(990_000, snapshot.getPercentile(0.99));
+    assertEquals(1000, snapshot.getPercentile(0));
+    assertEquals(1_000_000, snapshot.getPercentile(1));
+    assertEquals(0, recorder.snapshot(Operation.WRITE_PACKAGE).getCount());
+
+    recorder.reset();
+    assertEquals(0, recorder.snapshot(Operation.VALIDATE).getCount());
+    assertEquals(0, recorder.snapshot(Operation.VALIDATE).getPercentile(0.5));
+  }
+
+  @Test
+  public void testBuckets() {
+    for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+      int bucket = HistogramRecorder.bucket(value);
+      assertTrue(HistogramRecorder.bucketMax(bucket) >= value, "upper bound of " + value);
+      assertTrue(bucket == 0 || HistogramRecorder.bucketMax(bucket - 1) < value, "lower bound of " + value);
+    }
+  }
+
+  @Test
+  public void testInstrumentedOperations() throws Exception {
+    List<String> events = new ArrayList<>();
+    HistogramRecorder recorder = new HistogramRecorder();
+    OperationListener listener = (operation, nanos, bytes, objects, violations) -> {
+      assertTrue(nanos >= 0);
+      events.add(operation + " " + bytes + " " + objects + " " + violations);
+    };
+    OperationListener failing = (operation, nanos, bytes, objects, violations) -> {
+      throw new IllegalStateException();
+    };
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = new FrictionlessMetadata<>();
+    metadata.setName("instrumented");
+    int violations = CompiledValidator.getInstance().validate(metadata).size();
+
+    Instrumentation.register(listener);
+    Instrumentation.register(listener);
+    Instrumentation.register(failing);
+    Instrumentation.register(recorder);
+    byte[] bytes;
+    try {
+      bytes = json.writeMetadataAsBytes(metadata);
+      json.readMetadata(bytes);
+      CompiledValidator.getInstance().validate(metadata);
+    } finally {
+      Instrumentation.unregister(listener);
+      Instrumentation.unregister(failing);
+      Instrumentation.unregister(recorder);
+    }
+    json.readMetadata(bytes);
+
+    assertEquals(List.of(
+        "WRITE_METADATA " + bytes.length + " 1 0",
+        "READ_METADATA " + bytes.length + " 1 0",
+        "VALIDATE -1 1 " + violations), events);
+    assertEquals(1, recorder.snapshot(Operation.READ_METADATA).getCount());
+    assertEquals(bytes.length, recorder.snapshot(Operation.READ_METADATA).getBytes());
+    assertEquals(Instrumentation.DISABLED, Instrumentation.start());
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(Math.abs(actual - expected) <= expected / 8, expected + " expected, was " + actual);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MultipartResourceReaderTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testSplitsAreLineAligned() throws Exception {
+    MultipartResourceReader reader = MultipartResourceReader.of(resource(), directory);
+
+    List<MultipartResourceReader.Split> splits = reader.splits(100);
+
+    assertTrue(splits.size() > 2, "Parts must be cut into several splits");
+    for (MultipartResourceReader.Split split : splits) {
+      byte[] bytes;
+      try (InputStream in = split.openStream()) {
+        bytes = in.readAllBytes();
+      }
+      assertEquals(split.length(), bytes.length);
+      boolean endOfPart = split.getEnd() == Files.size(split.getPart());
+      assertTrue(endOfPart || bytes[bytes.length - 1] == '\n', "Split must end with a line break: " + split);
+    }
+    assertEquals(reader.size(), splits.stream().mapToLong(MultipartResourceReader.Split::length).sum());
+  }
+
+  @Test
+  public void testParallelLinesInOrder() throws Exception {
+    MultipartResourceReader reader = MultipartResourceReader.of(resource(), directory);
+
+    List<String> sequential;
+    try (Stream<String> lines = reader.lines()) {
+      sequential = lines.collect(Collectors.toList());
+    }
+    List<String> parallel;
+    try (Stream<String> lines = reader.parallelLines(100)) {
+      parallel = lines.collect(Collectors.toList());
+    }
+
+    assertEquals(1500, sequential.size());
+    assertEquals(sequential, parallel);
+  }
+
+  @Test
+  public void testPartsWithoutTrailingLineBreak() throws Exception {
+    Files.writeString(directory.resolve("a.csv"), "id,name\n1,a");
+    Files.writeString(directory.resolve("b.csv"), "");
+    Files.writeString(directory.resolve("c.csv"), "2,b\r\n");
+    Files.writeString(directory.resolve("d.csv"), "3,c\n4,d");
+    Files.writeString(directory.resolve("e.csv"), "5,e");
+    MultipartResourceReader reader = new MultipartResourceReader(
+        Stream.of("a.csv", "b.csv", "c.csv", "d.csv", "e.csv").map(directory::resolve).collect(Collectors.toList()),
+        StandardCharsets.UTF_8);
+
+    List<String> expected = List.of("id,name", "1,a", "2,b", "3,c", "4,d", "5,e");
+    try (Stream<String> lines = reader.lines()) {
+      assertEquals(expected, lines.collect(Collectors.toList()));
+    }
+    try (Stream<String> lines = reader.parallelLines(4)) {
+      assertEquals(expected, lines.collect(Collectors.toList()));
+    }
+    // the last part is left as it is
+    try (InputStream in = reader.openStream()) {
+      assertEquals("id,name\n1,a\n2,b\r\n3,c\n4,d\n5,e", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    // line breaks of several bytes
+    Files.write(directory.resolve("f.csv"), "6,f".getBytes(StandardCharsets.UTF_16LE));
+    Files.write(directory.resolve("g.csv"), "7,g\n".getBytes(StandardCharsets.UTF_16LE));
+    MultipartResourceReader utf16 = new MultipartResourceReader(
+        List.of(directory.resolve("f.csv"), directory.resolve("g.csv")), StandardCharsets.UTF_16LE);
+    try (Stream<String> lines = utf16.lines()) {
+      assertEquals(List.of("6,f", "7,g"), lines.collect(Collectors.toList()));
+    }
+  }
+
+  private FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource() throws Exception {
+    Files.writeString(directory.resolve("part-0.csv"), lines(0, 1000) + "\n");
+    Files.writeString(directory.resolve("part-1.csv"), lines(1000, 1500));
+
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName("occurrence");
+    resource.setPath(List.of("part-0.csv", "part-1.csv"));
+    return resource;
+  }
+
+  private static String lines(int from, int to) {
+    return IntStream.range(from, to).mapToObj(i -> "occurrence-" + i).collect(Collectors.joining("\n"));
+  }
+}
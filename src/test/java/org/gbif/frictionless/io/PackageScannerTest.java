@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackageScannerTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testScan() throws Exception {
+    Path export = Files.createDirectory(directory.resolve("Nightly Export"));
+    Files.createDirectories(export.resolve("Occurrence Data"));
+    Files.writeString(export.resolve("Occurrence Data/Part 1.csv"), "id,name\n1,Puma concolor\n");
+    Files.writeString(export.resolve("Occurrence Data/Part 2.TXT"), "id\tname\n2,3\tPica pica\n");
+    Files.write(export.resolve("taxa.txt"), "id;name\n1;Müller\n".getBytes(StandardCharsets.ISO_8859_1));
+    Files.writeString(export.resolve("taxa.csv"), "id,name\n1,Müller\n");
+    Files.writeString(export.resolve("meta"), "<archive/>");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(export.resolve("dump.csv.gz")))) {
+      out.write("id\n1\n".getBytes(StandardCharsets.UTF_8));
+    }
+    Files.writeString(export.resolve(".hidden"), "x");
+    Files.writeString(export.resolve("datapackage.json"), "{}");
+
+    PackageScanner.ScannedPackage<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> scanned;
+    try (PackageScanner scanner = new PackageScanner(4)) {
+      scanned = scanner.scan(export, HashAlgorithm.SHA256);
+    }
+
+    assertEquals("nightly-export", scanned.getMetadata().getName());
+    assertEquals("Nightly Export", scanned.getMetadata().getTitle());
+    List<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> resources = scanned.getResources();
+    assertEquals(Arrays.asList("Occurrence Data/Part 1.csv", "Occurrence Data/Part 2.TXT", "dump.csv.gz", "meta",
+        "taxa.csv", "taxa.txt"), resources.stream().map(FrictionlessResource::getPath).collect(Collectors.toList()));
+    assertEquals(Arrays.asList("occurrence-data/part-1", "occurrence-data/part-2", "dump.csv", "meta", "taxa",
+        "taxa.txt"), resources.stream().map(r -> r.getName().toString()).collect(Collectors.toList()));
+
+    assertType(resources.get(0), "csv", "text/csv", "utf-8");
+    assertType(resources.get(1), "tsv", "text/tab-separated-values", "utf-8");
+    assertType(resources.get(2), "gz", "application/gzip", null);
+    assertType(resources.get(3), "xml", "application/xml", "utf-8");
+    assertType(resources.get(4), "csv", "text/csv", "utf-8");
+    assertType(resources.get(5), "csv", "text/csv", "iso-8859-1");
+
+    ResourceIntegrity integrity = new ResourceIntegrity(export, 1);
+    for (FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource : resources) {
+      assertTrue(resource.getName().toString().matches("^([-a-z0-9._/])+$"));
+      assertTrue(integrity.verify(resource).isValid(), resource.getName().toString());
+      assertEquals(Files.size(export.resolve(resource.getPath().toString())), resource.getBytes());
+    }
+    integrity.close();
+  }
+
+  @Test
+  public void testSniffing() {
+    assertType(FileSniffer.sniff("a.bin", new byte[] {'P', 'K', 3, 4, 0}, 5), "zip", "application/zip", null);
+    assertType(FileSniffer.sniff("a.xlsx", new byte[] {'P', 'K', 3, 4, 0}, 5), "xlsx",
+        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", null);
+    assertType(FileSniffer.sniff("a.bin", new byte[] {1, 0, 2}, 3), null, "application/octet-stream", null);
+    assertType(FileSniffer.sniff("a", " [1]".getBytes(StandardCharsets.UTF_8), 4), "json", "application/json", "utf-8");
+    byte[] utf16 = "\uFEFFa\tb\n".getBytes(StandardCharsets.UTF_16LE);
+    assertType(FileSniffer.sniff("a", utf16, utf16.length), "tsv", "text/tab-separated-values", "utf-16le");
+    byte[] windows = "a,“b”".getBytes(Charset.forName("windows-1252"));
+    assertType(FileSniffer.sniff("a.csv", windows, windows.length), "csv", "text/csv", "windows-1252");
+    // a multi-byte character cut at the end of the head is still UTF-8
+    byte[] cut = "abü".getBytes(StandardCharsets.UTF_8);
+    assertType(FileSniffer.sniff("a.txt", cut, cut.length - 1), "txt", "text/plain", "utf-8");
+    assertEquals("occurrence-data/part-1.csv", PackageScanner.name("Occurrence Data/Part 1.csv", "resource"));
+    assertEquals("resource", PackageScanner.name("", "resource"));
+  }
+
+  private static void assertType(FrictionlessResource<?, ?> resource, String format, String mediaType, String encoding) {
+    assertEquals(format, resource.getFormat(), resource.getPath().toString());
+    assertEquals(mediaType, resource.getMediatype(), resource.getPath().toString());
+    assertEquals(encoding, resource.getEncoding(), resource.getPath().toString());
+  }
+
+  private static void assertType(FileSniffer.FileType type, String format, String mediaType, String encoding) {
+    assertEquals(format, type.getFormat());
+    assertEquals(mediaType, type.getMediaType());
+    if (encoding == null) {
+      assertNull(type.getEncoding());
+    } else {
+      assertEquals(encoding, type.getEncoding());
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelGzipInputStreamTest {
+
+  private static final int CHUNK_SIZE = 4096;
+
+  @TempDir
+  Path directory;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcatenatedMembers() throws Exception {
+    byte[] data = csv(20_000);
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    for (int start = 0; start < data.length; start += 3000) {
+      file.write(gzip(Arrays.copyOfRange(data, start, Math.min(start + 3000, data.length))));
+    }
+    assertDecompresses(data, write("members.gz", file.toByteArray()));
+  }
+
+  @Test
+  public void testBlockGzip() throws Exception {
+    byte[] data = csv(20_000);
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    for (int start = 0; start < data.length; start += 5000) {
+      file.write(bgzfBlock(Arrays.copyOfRange(data, start, Math.min(start + 5000, data.length)), Deflater.DEFAULT_COMPRESSION));
+    }
+    file.write(bgzfBlock(new byte[0], Deflater.DEFAULT_COMPRESSION));
+    assertDecompresses(data, write("blocks.bgz", file.toByteArray()));
+  }
+
+  @Test
+  public void testSingleMember() throws Exception {
+    byte[] data = csv(20_000);
+    assertDecompresses(data, write("single.gz", gzip(data)));
+    assertDecompresses(new byte[0], write("empty.gz", gzip(new byte[0])));
+  }
+
+  @Test
+  public void testFalseHeadersAndTrailingGarbage() throws Exception {
+    // stored blocks carry member headers in clear at every offset of the chunks
+    byte[] header = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    byte[] data = new byte[40_000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = header[i % header.length];
+    }
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    for (int start = 0; start < data.length; start += 7000) {
+      file.write(bgzfBlock(Arrays.copyOfRange(data, start, Math.min(start + 7000, data.length)), Deflater.NO_COMPRESSION));
+    }
+    file.write(new byte[1000]);
+    assertDecompresses(data, write("stored.gz", file.toByteArray()));
+  }
+
+  @Test
+  public void testCorruption() throws Exception {
+    byte[] data = csv(20_000);
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    for (int start = 0; start < data.length; start += 3000) {
+      file.write(gzip(Arrays.copyOfRange(data, start, Math.min(start + 3000, data.length))));
+    }
+    byte[] corrupt = file.toByteArray();
+    corrupt[corrupt.length / 2] ^= 0x55;
+    Path path = write("corrupt.gz", corrupt);
+    for (int parallelism : new int[] {1, 4}) {
+      try (InputStream in = new ParallelGzipInputStream(path, executor, parallelism, CHUNK_SIZE)) {
+        assertThrows(IOException.class, in::readAllBytes);
+      }
+    }
+    assertThrows(IOException.class, () -> new ParallelGzipInputStream(write("plain.csv", data), executor, 4));
+
+    byte[] truncated = Arrays.copyOf(gzip(data), 5000);
+    try (InputStream in = new ParallelGzipInputStream(write("truncated.gz", truncated), executor, 4, CHUNK_SIZE)) {
+      assertThrows(IOException.class, in::readAllBytes);
+    }
+  }
+
+  @Test
+  public void testMultipartReader() throws Exception {
+    byte[] first = "id,name\n1,a\n2,b\n".getBytes(StandardCharsets.UTF_8);
+    byte[] second = "3,c\n4,d\n".getBytes(StandardCharsets.UTF_8);
+    Path gz = write("part-1.csv.gz", gzip(first));
+    Path plain = write("part-2.csv", second);
+    MultipartResourceReader reader = new MultipartResourceReader(Arrays.asList(gz, plain), StandardCharsets.UTF_8)
+        .withDecompression(executor, 4);
+
+    try (InputStream in = reader.openStream()) {
+      assertEquals("id,name\n1,a\n2,b\n3,c\n4,d\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    List<MultipartResourceReader.Split> splits = reader.splits(4);
+    assertTrue(splits.get(0).isCompressed());
+    assertEquals(gz, splits.get(0).getPart());
+    assertEquals(Files.size(gz), splits.get(0).getEnd());
+    assertEquals(2, splits.size());
+    try (var lines = reader.parallelLines(4)) {
+      assertEquals(Arrays.asList("id,name", "1,a", "2,b", "3,c", "4,d"), lines.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testDeclaredCompression() {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setPath(Arrays.asList("a.csv.gz", "b.csv.GZ"));
+    assertEquals(Compression.GZIP, Compression.of(resource));
+    resource.setPath(Arrays.asList("a.csv.gz", "b.csv"));
+    assertNull(Compression.of(resource));
+    resource.setMediatype("application/gzip");
+    assertEquals(Compression.GZIP, Compression.of(resource));
+    resource.setMediatype(null);
+    resource.setAdditionalProperty("compression", "no");
+    assertEquals(Compression.NONE, Compression.of(resource));
+  }
+
+  private void assertDecompresses(byte[] expected, Path file) throws IOException {
+    for (int parallelism : new int[] {1, 2, 4}) {
+      try (InputStream in = new ParallelGzipInputStream(file, executor, parallelism, CHUNK_SIZE)) {
+        assertArrayEquals(expected, in.readAllBytes());
+        assertEquals(-1, in.read());
+      }
+      // small and single byte reads
+      try (InputStream in = new ParallelGzipInputStream(file, executor, parallelism, CHUNK_SIZE)) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+          out.write(buffer, 0, n);
+          int b = in.read();
+          if (b >= 0) {
+            out.write(b);
+          }
+        }
+        assertArrayEquals(expected, out.toByteArray());
+      }
+    }
+    // closed half way
+    InputStream in = new ParallelGzipInputStream(file, executor, 4, CHUNK_SIZE);
+    in.read(new byte[100]);
+    in.close();
+    assertThrows(IOException.class, in::read);
+  }
+
+  private Path write(String name, byte[] content) throws IOException {
+    return Files.write(directory.resolve(name), content);
+  }
+
+  private static byte[] csv(int rows) {
+    Random random = new Random(42);
+    StringBuilder csv = new StringBuilder("id,value,label\n");
+    for (int i = 0; i < rows; i++) {
+      csv.append(i).append(',').append(random.nextInt(1000)).append(",label-").append(random.nextInt(50)).append('\n');
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(data);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * A BGZF block: a gzip member with the block size in a {@code BC} extra field.
+   */
+  private static byte[] bgzfBlock(byte[] data, int level) {
+    Deflater deflater = new Deflater(level, true);
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] compressed = new byte[data.length + 1024];
+    int length = deflater.deflate(compressed);
+    deflater.end();
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    int blockSize = 18 + length + 8;
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    block.writeBytes(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+        (byte) (blockSize - 1), (byte) ((blockSize - 1) >> 8)});
+    block.write(compressed, 0, length);
+    writeInt(block, (int) crc.getValue());
+    writeInt(block, data.length);
+    return block.toByteArray();
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    for (int i = 0; i < 4; i++) {
+      out.write(value >> (8 * i));
+    }
+  }
+}
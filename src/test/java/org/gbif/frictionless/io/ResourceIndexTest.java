@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResourceIndexTest {
+
+  @Test
+  public void testLookups() {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> occurrence = resource("occurrence", "occurrence.csv");
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> parts = resource(new StringBuilder("parts"),
+        Arrays.asList("x/part-0001.csv", "x/part-0042.csv"));
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> unnamed = resource(null, "unnamed.csv");
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> inline = resource("inline", null);
+    ResourceIndex<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> index =
+        ResourceIndex.of(Arrays.asList(occurrence, parts, unnamed, inline));
+
+    assertEquals(4, index.size());
+    assertSame(occurrence, index.byName("occurrence"));
+    assertSame(occurrence, index.byName(new StringBuilder("occurrence")));
+    assertSame(parts, index.byName("parts"));
+    assertSame(parts, index.byPath("x/part-0042.csv"));
+    assertSame(unnamed, index.byPath("unnamed.csv"));
+    assertSame(inline, index.byName("inline"));
+    assertNull(index.byName("missing"));
+    assertNull(index.byPath("x/part-0043.csv"));
+    assertNull(index.byName(null));
+    assertEquals(Arrays.asList(occurrence, parts, unnamed, inline), index.resources());
+  }
+
+  @Test
+  public void testModifications() {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> a = resource("a", "a.csv");
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> b = resource("b", Arrays.asList("b1.csv", "b2.csv"));
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> c = resource("c", "c.csv");
+    ResourceIndex<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> index = new ResourceIndex<>();
+    index.add(a);
+    index.add(b);
+    index.add(c);
+
+    // clashes leave the index unchanged
+    assertThrows(IllegalArgumentException.class, () -> index.add(a));
+    assertThrows(IllegalArgumentException.class, () -> index.add(resource("a", "other.csv")));
+    assertThrows(IllegalArgumentException.class, () -> index.add(resource("d", Arrays.asList("d.csv", "b2.csv"))));
+    assertThrows(IllegalArgumentException.class, () -> index.add(resource("e", Arrays.asList("e.csv", "e.csv"))));
+    assertNull(index.byPath("d.csv"));
+    assertNull(index.byPath("e.csv"));
+    assertEquals(3, index.size());
+
+    assertTrue(index.remove(b));
+    assertFalse(index.remove(b));
+    assertNull(index.byName("b"));
+    assertNull(index.byPath("b1.csv"));
+    assertEquals(Arrays.asList(a, c), index.resources());
+    index.add(resource("d", "b1.csv"));
+    assertSame(c, index.removeByName("c"));
+    assertNull(index.removeByName("c"));
+    assertEquals(2, index.size());
+
+    a.setName("renamed");
+    a.setPath("renamed.csv");
+    assertSame(a, index.byName("a"));
+    index.update(a);
+    assertSame(a, index.byName("renamed"));
+    assertSame(a, index.byPath("renamed.csv"));
+    assertNull(index.byName("a"));
+    assertNull(index.byPath("a.csv"));
+
+    a.setName("d");
+    assertThrows(IllegalArgumentException.class, () -> index.update(a));
+    assertSame(a, index.byName("renamed"));
+    assertEquals("d", index.resources().get(0).getName().toString());
+    assertThrows(IllegalArgumentException.class, () -> index.update(resource("x", "x.csv")));
+
+    Iterator<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> iterator = index.iterator();
+    iterator.next();
+    index.add(resource("f", "f.csv"));
+    assertThrows(ConcurrentModificationException.class, iterator::next);
+  }
+
+  @Test
+  public void testLargePackage() {
+    List<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> resources = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      resources.add(resource("r" + i, Arrays.asList("r" + i + "/part-0.csv", "r" + i + "/part-1.csv")));
+    }
+    ResourceIndex<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> index = ResourceIndex.of(resources);
+    for (int i = 0; i < 50_000; i += 2) {
+      assertTrue(index.remove(resources.get(i)));
+    }
+    assertEquals(25_000, index.size());
+    assertSame(resources.get(49_999), index.byPath("r49999/part-1.csv"));
+    assertNull(index.byName("r49998"));
+    assertSame(resources.get(1), index.iterator().next());
+  }
+
+  private static FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource(CharSequence name, Object path) {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName(name);
+    resource.setPath(path);
+    return resource;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResourceIntegrityTest {
+
+  private static final String CONTENT = "id,name\n1,a\n2,b\n";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testHashAlgorithms() {
+    byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+    String md5 = HashAlgorithm.MD5.format(HashAlgorithm.MD5.newDigest().digest(content));
+    String sha1 = HashAlgorithm.SHA1.format(HashAlgorithm.SHA1.newDigest().digest(content));
+    String sha256 = HashAlgorithm.SHA256.format(HashAlgorithm.SHA256.newDigest().digest(content));
+
+    // MD5 is a bare hex string, the others are prefixed
+    assertTrue(md5.matches("[0-9a-f]{32}"));
+    assertTrue(sha1.matches("sha1:[0-9a-f]{40}"));
+    assertTrue(sha256.matches("sha256:[0-9a-f]{64}"));
+    assertEquals(HashAlgorithm.MD5, HashAlgorithm.of(md5));
+    assertEquals(HashAlgorithm.MD5, HashAlgorithm.of("md5:" + md5));
+    assertEquals(HashAlgorithm.SHA1, HashAlgorithm.of(sha1));
+    assertEquals(HashAlgorithm.SHA256, HashAlgorithm.of("SHA256:" + sha256.substring(7)));
+    assertThrows(IllegalArgumentException.class, () -> HashAlgorithm.of("sha512:00"));
+
+    assertTrue(HashAlgorithm.matches("md5:" + md5.toUpperCase(), md5));
+    assertTrue(HashAlgorithm.matches(md5, "MD5:" + md5));
+    assertTrue(HashAlgorithm.matches(sha1.toUpperCase(), sha1));
+    assertFalse(HashAlgorithm.matches(sha1, "sha256:" + sha1.substring(5)));
+    assertFalse(HashAlgorithm.matches(md5, null));
+  }
+
+  @Test
+  public void testFillAndVerify() throws IOException {
+    Files.write(directory.resolve("single.csv"), CONTENT.getBytes(StandardCharsets.UTF_8));
+    Files.createDirectories(directory.resolve("parts"));
+    Files.write(directory.resolve("parts/1.csv"), "id,name\n1,a\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(directory.resolve("parts/2.csv"), "2,b\n".getBytes(StandardCharsets.UTF_8));
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> single = resource("single", "single.csv");
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> multipart =
+        resource("multipart", Arrays.asList("parts/1.csv", "parts/2.csv"));
+
+    try (ResourceIntegrity integrity = new ResourceIntegrity(directory, 2)) {
+      integrity.fill(single, HashAlgorithm.SHA256);
+      assertEquals(Long.valueOf(CONTENT.length()), single.getBytes());
+      assertEquals(HashAlgorithm.SHA256.format(HashAlgorithm.SHA256.newDigest()
+          .digest(CONTENT.getBytes(StandardCharsets.UTF_8))), single.getHash());
+
+      integrity.fillAll(Arrays.asList(multipart), HashAlgorithm.MD5);
+      // the parts of a multi-part resource are hashed as one concatenated file
+      assertEquals(single.getBytes(), multipart.getBytes());
+      assertEquals(integrity.hash(single, HashAlgorithm.MD5), multipart.getHash());
+      assertEquals(CONTENT.length(), integrity.size(multipart));
+
+      List<ResourceVerification> verifications = integrity.verifyAll(Arrays.asList(single, multipart));
+      assertTrue(verifications.get(0).isValid());
+      assertTrue(verifications.get(1).isValid());
+      assertEquals("multipart", verifications.get(1).getResourceName());
+
+      // only the size is checked without a declared hash
+      single.setHash(null);
+      ResourceVerification verification = integrity.verify(single);
+      assertTrue(verification.isValid());
+      assertNull(verification.getActualHash());
+    }
+  }
+
+  @Test
+  public void testMismatch() throws IOException {
+    Files.write(directory.resolve("data.csv"), CONTENT.getBytes(StandardCharsets.UTF_8));
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = resource("data", "data.csv");
+
+    try (ResourceIntegrity integrity = new ResourceIntegrity(directory, 1)) {
+      integrity.fill(resource, HashAlgorithm.SHA1);
+      Files.write(directory.resolve("data.csv"), "id,name\n1,a\n2,c\n".getBytes(StandardCharsets.UTF_8));
+      ResourceVerification verification = integrity.verify(resource);
+      assertTrue(verification.isBytesValid());
+      assertFalse(verification.isHashValid());
+      assertFalse(verification.isValid());
+
+      resource.setBytes(3L);
+      resource.setHash(verification.getActualHash().toUpperCase());
+      verification = integrity.verify(resource);
+      assertFalse(verification.isBytesValid());
+      assertTrue(verification.isHashValid());
+      assertEquals(Long.valueOf(3), verification.getExpectedBytes());
+      assertEquals(CONTENT.length(), verification.getActualBytes());
+    }
+  }
+
+  @Test
+  public void testPrefixedMd5() throws IOException {
+    byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+    Files.write(directory.resolve("data.csv"), content);
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = resource("data", "data.csv");
+    // the md5: prefix is optional in the spec
+    resource.setHash("md5:" + HashAlgorithm.MD5.format(HashAlgorithm.MD5.newDigest().digest(content)).toUpperCase());
+
+    try (ResourceIntegrity integrity = new ResourceIntegrity(directory, 1)) {
+      ResourceVerification verification = integrity.verify(resource);
+      assertTrue(verification.isHashValid());
+      assertTrue(verification.isValid());
+    }
+  }
+
+  @Test
+  public void testEscapingPaths() throws IOException {
+    Path base = Files.createDirectories(directory.resolve("package"));
+    Path outside = Files.write(directory.resolve("outside.csv"), CONTENT.getBytes(StandardCharsets.UTF_8));
+    Files.write(base.resolve("inside.csv"), CONTENT.getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(base.resolve("inside.csv"), ResourcePaths.resolveLocal(base, "inside.csv"));
+    assertEquals(base.resolve("inside.csv"), ResourcePaths.resolveLocal(base, base.resolve("inside.csv").toUri().toString()));
+    assertThrows(IllegalArgumentException.class, () -> ResourcePaths.resolveLocal(base, "../outside.csv"));
+    assertThrows(IllegalArgumentException.class, () -> ResourcePaths.resolveLocal(base, "sub/../../outside.csv"));
+    assertThrows(IllegalArgumentException.class, () -> ResourcePaths.resolveLocal(base, outside.toString()));
+    assertThrows(IllegalArgumentException.class, () -> ResourcePaths.resolveLocal(base, outside.toUri().toString()));
+    assertThrows(IllegalArgumentException.class, () -> ResourcePaths.resolveLocal(base, "file:///etc/passwd"));
+    assertThrows(IllegalArgumentException.class, () -> ResourcePaths.resolveLocal(base, "https://example.org/a.csv"));
+
+    try (ResourceIntegrity integrity = new ResourceIntegrity(base, 1)) {
+      assertThrows(IllegalArgumentException.class, () -> integrity.size(resource("x", "../outside.csv")));
+      assertThrows(IllegalArgumentException.class,
+          () -> integrity.hash(resource("x", "file:///etc/passwd"), HashAlgorithm.MD5));
+      assertThrows(IllegalArgumentException.class,
+          () -> integrity.verifyAll(Arrays.asList(resource("x", outside.toUri().toString()))));
+    }
+  }
+
+  private static FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource(String name, Object path) {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName(name);
+    resource.setPath(path);
+    return resource;
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResourceOpenerTest {
+
+  @TempDir
+  Path directory;
+
+  private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+  private volatile CountDownLatch gate;
+  private HttpServer server;
+  private URI root;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", exchange -> {
+      String path = exchange.getRequestURI().getPath();
+      requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+      byte[] content = files.get(path);
+      try {
+        CountDownLatch latch = gate;
+        if (latch != null && path.endsWith("/gated.csv")) {
+          latch.await(10, TimeUnit.SECONDS);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (content == null) {
+        exchange.sendResponseHeaders(404, -1);
+      } else {
+        exchange.sendResponseHeaders(200, content.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(content);
+        }
+      }
+      exchange.close();
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    root = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testLocalAndRemoteParts() throws Exception {
+    Files.write(directory.resolve("a.csv"), bytes("id\n1\n"));
+    files.put("/data/b.csv", bytes("2\n"));
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource =
+        resource(Arrays.asList("a.csv", root + "data/b.csv"), null);
+    ResourceCache cache = new ResourceCache(directory.resolve("cache"), 1 << 20);
+
+    try (ResourceOpener opener = new ResourceOpener(directory.toUri(), cache, 2)) {
+      assertEquals("id\n1\n2\n", read(opener.open(resource)));
+      assertEquals("id\n1\n2\n", read(opener.open(resource)));
+      try (MultipartResourceReader reader = opener.reader(resource)) {
+        assertEquals(Arrays.asList("id", "1", "2"), reader.lines().collect(Collectors.toList()));
+      }
+      assertThrows(IllegalArgumentException.class, () -> opener.resolve("../outside.csv"));
+      // file: URLs are confined to the package directory too
+      assertEquals(directory.resolve("a.csv").toUri(), opener.resolve(directory.resolve("a.csv").toUri().toString()));
+      assertThrows(IllegalArgumentException.class, () -> opener.resolve("file:///etc/passwd"));
+      assertThrows(IllegalArgumentException.class,
+          () -> opener.resolve(directory.resolve("../outside.csv").toUri().toString()));
+    }
+    assertEquals(1, requests.get("/data/b.csv").get());
+    assertEquals(1, cache.getStatistics().getMisses());
+    assertEquals(2, cache.getStatistics().getHits());
+
+    // entries are picked up by a new cache over the same directory
+    ResourceCache reopened = new ResourceCache(directory.resolve("cache"), 1 << 20);
+    assertEquals(1, reopened.size());
+    assertEquals(2, reopened.getBytes());
+    try (ResourceCache.Lease lease = reopened.getIfPresent(URI.create(root + "data/b.csv"), null)) {
+      assertTrue(Files.isRegularFile(lease.getFile()));
+    }
+  }
+
+  @Test
+  public void testRemoteDescriptor() throws Exception {
+    files.put("/pkg/x.csv", bytes("x\n"));
+    files.put("/pkg/sub/y.csv", bytes("y\n"));
+    ResourceCache cache = new ResourceCache(directory, 1 << 20);
+
+    try (ResourceOpener opener = new ResourceOpener(root.resolve("pkg"), cache, 2)) {
+      assertEquals("x\ny\n", read(opener.open(resource(Arrays.asList("x.csv", "sub/y.csv"), null))));
+      assertThrows(IllegalArgumentException.class, () -> opener.resolve("../secret.csv"));
+      assertThrows(IllegalArgumentException.class, () -> opener.resolve("file:///etc/passwd"));
+      assertThrows(FileNotFoundException.class, () -> read(opener.open(resource("missing.csv", null))));
+    }
+  }
+
+  @Test
+  public void testHashValidation() throws Exception {
+    files.put("/a.csv", bytes("a\n"));
+    files.put("/b.csv", bytes("b\n"));
+    String hashA = HashAlgorithm.SHA256.format(HashAlgorithm.SHA256.newDigest().digest(bytes("a\n")));
+    String hashAB = HashAlgorithm.MD5.format(HashAlgorithm.MD5.newDigest().digest(bytes("a\nb\n")));
+    ResourceCache cache = new ResourceCache(directory, 1 << 20);
+
+    try (ResourceOpener opener = new ResourceOpener(root, cache, 2)) {
+      // corrupt content is never cached
+      String wrong = "sha256:" + hashA.substring(7).replace('a', 'b').replace('0', '1');
+      assertThrows(IOException.class, () -> opener.open(resource("a.csv", wrong)));
+      assertEquals(0, cache.size());
+      assertEquals("a\n", read(opener.open(resource("a.csv", hashA.toUpperCase()))));
+      assertEquals(1, cache.size());
+
+      // multipart resources are checked once read, and dropped from the cache if they don't match
+      assertEquals("a\nb\n", read(opener.open(resource(Arrays.asList("a.csv", "b.csv"), hashAB))));
+      assertEquals(3, cache.size());
+      InputStream corrupt = opener.open(resource(Arrays.asList("b.csv", "a.csv"), hashAB));
+      assertThrows(IOException.class, () -> read(corrupt));
+      assertEquals(1, cache.size());
+      assertThrows(IOException.class, () -> opener.reader(resource(Arrays.asList("b.csv", "a.csv"), hashAB)));
+      assertEquals(1, cache.size());
+      // the md5: prefix is optional
+      String hashB = HashAlgorithm.MD5.format(HashAlgorithm.MD5.newDigest().digest(bytes("b\n")));
+      assertEquals("b\n", read(opener.open(resource("b.csv", "md5:" + hashB))));
+      assertEquals("a\nb\n", read(opener.open(resource(Arrays.asList("a.csv", "b.csv"), "MD5:" + hashAB))));
+      assertEquals(4, cache.size());
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    Map<String, byte[]> content = new ConcurrentHashMap<>();
+    Map<URI, AtomicInteger> fetches = new ConcurrentHashMap<>();
+    for (String name : Arrays.asList("a", "b", "c")) {
+      content.put(name, bytes(name + name + name + "\n"));
+    }
+    ResourceOpener.Fetcher fetcher = uri -> {
+      fetches.computeIfAbsent(uri, u -> new AtomicInteger()).incrementAndGet();
+      return new ByteArrayInputStream(content.get(uri.getHost()));
+    };
+    ResourceCache cache = new ResourceCache(directory, 10);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try (ResourceOpener opener = new ResourceOpener(root, cache, fetcher, executor, 1)) {
+      assertEquals("aaa\n", read(opener.open(resource("mem://a", null))));
+      assertEquals("bbb\n", read(opener.open(resource("mem://b", null))));
+      assertEquals("aaa\n", read(opener.open(resource("mem://a", null))));
+      // b is the least recently used
+      assertEquals("ccc\n", read(opener.open(resource("mem://c", null))));
+      assertEquals(8, cache.getBytes());
+      assertEquals(1, cache.getStatistics().getEvictions());
+      assertNull(cache.getIfPresent(URI.create("mem://b"), null));
+      assertEquals("bbb\n", read(opener.open(resource("mem://b", null))));
+      assertEquals(2, fetches.get(URI.create("mem://b")).get());
+      assertEquals(1, fetches.get(URI.create("mem://a")).get());
+
+      cache.invalidateAll();
+      assertEquals(0, cache.getBytes());
+      try (var listing = Files.list(directory)) {
+        assertEquals(0, listing.count());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConcurrentEviction() throws Exception {
+    ResourceOpener.Fetcher fetcher = uri -> new ByteArrayInputStream(bytes(uri.getHost() + "\n"));
+    // room for two entries only
+    ResourceCache cache = new ResourceCache(directory, 8);
+
+    // leased entries outlive the downloads which would evict them, and are evicted once released
+    ResourceCache.Lease lease = cache.get(URI.create("mem://aaa"), null, fetcher);
+    ResourceCache.Lease second = cache.get(URI.create("mem://bbb"), null, fetcher);
+    ResourceCache.Lease third = cache.get(URI.create("mem://ccc"), null, fetcher);
+    assertEquals("aaa\n", new String(Files.readAllBytes(lease.getFile()), StandardCharsets.UTF_8));
+    assertEquals(12, cache.getBytes());
+    lease.close();
+    lease.close();
+    assertEquals(8, cache.getBytes());
+    assertFalse(Files.exists(lease.getFile()));
+    second.close();
+    third.close();
+    assertEquals(8, cache.getBytes());
+
+    // an invalidated entry is deleted once released
+    lease = cache.get(URI.create("mem://bbb"), null, fetcher);
+    assertTrue(cache.invalidate(URI.create("mem://bbb"), null));
+    assertTrue(Files.exists(lease.getFile()));
+    lease.close();
+    assertFalse(Files.exists(lease.getFile()));
+
+    // cache hits are never deleted before they are read, however hard the entries are evicted meanwhile
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> readers = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int thread = t;
+        readers.add(executor.submit(() -> {
+          for (int i = 0; i < 500; i++) {
+            String name = "p" + (i + thread) % 6;
+            try (ResourceCache.Lease leased = cache.get(URI.create("mem://" + name), null, fetcher)) {
+              assertEquals(name + "\n", new String(Files.readAllBytes(leased.getFile()), StandardCharsets.UTF_8));
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> reader : readers) {
+        reader.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(cache.getStatistics().getEvictions() > 0);
+    assertFalse(cache.getBytes() > 8);
+    try (var listing = Files.list(directory)) {
+      assertEquals((long) cache.size(), listing.count());
+    }
+  }
+
+  @Test
+  public void testFailedReaderReleasesLateParts() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    ResourceOpener.Fetcher fetcher = uri -> {
+      if ("fail".equals(uri.getHost())) {
+        awaitUninterruptibly(started);
+        throw new FileNotFoundException(uri.toString());
+      }
+      // a download which goes on once the read is cancelled
+      started.countDown();
+      awaitUninterruptibly(proceed);
+      return new ByteArrayInputStream(bytes("slow\n"));
+    };
+    Path cacheDirectory = directory.resolve("cache");
+    ResourceCache cache = new ResourceCache(cacheDirectory, 1 << 20);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try (ResourceOpener opener = new ResourceOpener(directory.toUri(), cache, fetcher, executor, 2)) {
+      assertThrows(FileNotFoundException.class,
+          () -> opener.reader(resource(Arrays.asList("mem://fail/a.csv", "mem://slow/b.csv"), null)));
+      proceed.countDown();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (cache.size() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, cache.size());
+
+      // the late lease is closed, so the invalidated entry is deleted
+      cache.invalidateAll();
+      while (count(cacheDirectory) > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(0, count(cacheDirectory));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    for (int i = 0; i < 4; i++) {
+      files.put("/parts/" + i + ".csv", bytes(i + "\n"));
+    }
+    files.put("/parts/gated.csv", bytes("g\n"));
+    gate = new CountDownLatch(1);
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource =
+        resource(Arrays.asList("gated.csv", "0.csv", "1.csv", "2.csv", "3.csv"), null);
+    ResourceCache cache = new ResourceCache(directory, 1 << 20);
+
+    try (ResourceOpener opener = new ResourceOpener(root.resolve("parts/"), cache, 3)) {
+      try (InputStream in = opener.open(resource)) {
+        // the parts after the first are requested while the first one is still downloading
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((requests.get("/parts/0.csv") == null || requests.get("/parts/2.csv") == null)
+            && System.nanoTime() < deadline) {
+          Thread.sleep(5);
+        }
+        assertEquals(1, requests.get("/parts/2.csv").get());
+        assertNull(requests.get("/parts/3.csv"));
+        gate.countDown();
+        assertEquals("g\n0\n1\n2\n3\n", read(in));
+      }
+
+      // closing a stream half way leaves the remaining downloads to complete into the cache
+      InputStream partial = opener.open(resource);
+      assertEquals('g', (char) partial.read());
+      partial.close();
+      assertThrows(IOException.class, partial::read);
+    }
+    assertFalse(cache.size() > 5);
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    while (true) {
+      try {
+        latch.await();
+        return;
+      } catch (InterruptedException e) {
+        // dropped on purpose, like a download ignoring the cancellation
+      }
+    }
+  }
+
+  private static long count(Path directory) throws IOException {
+    try (var listing = Files.list(directory)) {
+      return listing.count();
+    }
+  }
+
+  private static FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource(Object path, String hash) {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName("test");
+    resource.setPath(path);
+    resource.setHash(hash);
+    return resource;
+  }
+
+  private static byte[] bytes(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String read(InputStream in) throws IOException {
+    try (InputStream stream = in) {
+      return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
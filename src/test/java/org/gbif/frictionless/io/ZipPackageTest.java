@@ -0,0 +1,260 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.io;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZipPackageTest {
+
+  private static final byte[] STORED = "id,name\n1,a\n2,b\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DEFLATED = "id,count\n1,10\n2,20\n3,30\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] NESTED = "3,c\n".getBytes(StandardCharsets.UTF_8);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Path zip = write();
+
+    try (ZipPackage zipPackage = ZipPackage.open(zip)) {
+      assertEquals(Arrays.asList("stored.csv", "deflated.csv", "data/parts/nested.csv"), zipPackage.getParts());
+      assertTrue(zipPackage.contains("data/parts/nested.csv"));
+      assertFalse(zipPackage.contains("missing.csv"));
+      assertEquals((long) STORED.length, zipPackage.size("stored.csv"));
+      assertEquals((long) DEFLATED.length, zipPackage.size("deflated.csv"));
+
+      assertArrayEquals(STORED, read(zipPackage.openPart("stored.csv")));
+      assertArrayEquals(DEFLATED, read(zipPackage.openPart("deflated.csv")));
+      assertArrayEquals(NESTED, read(zipPackage.openPart("data/parts/nested.csv")));
+
+      // the stored part is mapped straight from the archive
+      assertTrue(zipPackage.isStored("stored.csv"));
+      List<MappedByteBuffer> mapped = zipPackage.mapPart("stored.csv");
+      assertEquals(1, mapped.size());
+      byte[] content = new byte[mapped.get(0).remaining()];
+      mapped.get(0).get(content);
+      assertArrayEquals(STORED, content);
+      assertFalse(zipPackage.isStored("deflated.csv"));
+      assertThrows(ZipException.class, () -> zipPackage.mapPart("deflated.csv"));
+
+      // the multi-part resource is read as one stream, in order
+      FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = resource();
+      resource.setPath(Arrays.asList("stored.csv", "data/parts/nested.csv"));
+      assertEquals("id,name\n1,a\n2,b\n3,c\n",
+          new String(read(zipPackage.openResource(resource)), StandardCharsets.UTF_8));
+
+      String descriptor = new String(read(zipPackage.openDescriptor()), StandardCharsets.UTF_8);
+      assertTrue(descriptor.contains("\"name\":\"occurrence\""));
+      assertTrue(descriptor.contains("\"bytes\":" + NESTED.length));
+      assertTrue(descriptor.contains(HashAlgorithm.MD5.format(HashAlgorithm.MD5.newDigest().digest(NESTED))));
+      assertThrows(IOException.class, () -> zipPackage.openPart("missing.csv"));
+    }
+  }
+
+  @Test
+  public void testPartInfo() throws IOException {
+    Path file = Files.write(directory.resolve("stored.csv"), STORED);
+    Path zip = directory.resolve("parts.zip");
+    ZipPackageWriter.PartInfo stored;
+    ZipPackageWriter.PartInfo deflated;
+    try (OutputStream out = Files.newOutputStream(zip); ZipPackageWriter writer = new ZipPackageWriter(out)) {
+      stored = writer.addPart("stored.csv", file, HashAlgorithm.SHA256, true);
+      deflated = writer.addPart("deflated.csv", new ByteArrayInputStream(STORED), HashAlgorithm.SHA256);
+      assertThrows(ZipException.class, () -> writer.addPart("stored.csv", file, HashAlgorithm.MD5, false));
+    }
+
+    assertEquals((long) STORED.length, stored.getBytes());
+    assertEquals(HashAlgorithm.SHA256.format(HashAlgorithm.SHA256.newDigest().digest(STORED)), stored.getHash());
+    assertEquals(stored.getBytes(), deflated.getBytes());
+    assertEquals(stored.getHash(), deflated.getHash());
+  }
+
+  /**
+   * A ZIP64 archive with a stored part over 2 GiB, written as a sparse file so that only the headers take space.
+   */
+  @Test
+  public void testMapLargePart() throws IOException {
+    long window = ZipPackage.MAP_WINDOW;
+    long size = 2 * window + 100;
+    byte[] descriptor = "{\"name\": \"large\"}".getBytes(StandardCharsets.UTF_8);
+    byte[] descriptorName = ZipPackage.DESCRIPTOR.getBytes(StandardCharsets.UTF_8);
+    byte[] partName = "large.csv".getBytes(StandardCharsets.UTF_8);
+    CRC32 crc = new CRC32();
+    crc.update(descriptor);
+
+    Path zip = directory.resolve("large.zip");
+    try (FileChannel channel = FileChannel.open(zip, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+        StandardOpenOption.SPARSE)) {
+      ByteBuffer head = buffer(256);
+      localHeader(head, descriptorName, crc.getValue(), descriptor.length, false);
+      head.put(descriptor);
+      long partOffset = head.position();
+      localHeader(head, partName, 0, size, true);
+      long dataOffset = head.position();
+      write(channel, head, 0);
+      // marks at both ends of each region, the rest is a hole
+      for (long position : new long[] {0, window - 1, window, 2 * window - 1, 2 * window, size - 1}) {
+        write(channel, buffer(1).put(mark(position)), dataOffset + position);
+      }
+
+      long directoryOffset = dataOffset + size;
+      ByteBuffer tail = buffer(256);
+      centralHeader(tail, descriptorName, crc.getValue(), descriptor.length, 0, false);
+      centralHeader(tail, partName, 0, size, partOffset, true);
+      int directorySize = tail.position();
+      tail.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) 2).putShort((short) 2)
+          .putInt(directorySize).putInt((int) directoryOffset).putShort((short) 0);
+      write(channel, tail, directoryOffset);
+    }
+
+    try (ZipPackage zipPackage = ZipPackage.open(zip)) {
+      assertEquals(size, zipPackage.size("large.csv"));
+      List<MappedByteBuffer> regions = zipPackage.mapPart("large.csv");
+      assertEquals(3, regions.size());
+      long position = 0;
+      for (MappedByteBuffer region : regions) {
+        assertTrue(region.remaining() <= window);
+        assertEquals(mark(position), region.get(0));
+        position += region.remaining();
+        assertEquals(mark(position - 1), region.get(region.remaining() - 1));
+      }
+      assertEquals(size, position);
+    }
+  }
+
+  @Test
+  public void testInvalidArchives() throws IOException {
+    Path garbage = Files.write(directory.resolve("garbage.zip"), "not a zip archive".getBytes(StandardCharsets.UTF_8));
+    assertThrows(IOException.class, () -> ZipPackage.open(garbage));
+
+    byte[] archive = Files.readAllBytes(write());
+    Path truncated = Files.write(directory.resolve("truncated.zip"), Arrays.copyOf(archive, archive.length - 30));
+    assertThrows(IOException.class, () -> ZipPackage.open(truncated));
+
+    Path empty = directory.resolve("empty.zip");
+    try (OutputStream out = Files.newOutputStream(empty); ZipPackageWriter writer = new ZipPackageWriter(out)) {
+      writer.addPart("a.csv", new ByteArrayInputStream(STORED), HashAlgorithm.MD5);
+    }
+    // a valid archive without a descriptor
+    assertThrows(IOException.class, () -> ZipPackage.open(empty));
+  }
+
+  /**
+   * A package with a stored part, a deflated part and a part in a nested directory.
+   */
+  private Path write() throws IOException {
+    Path base = Files.createDirectories(directory.resolve("package"));
+    Files.write(base.resolve("stored.csv"), STORED);
+    Files.createDirectories(base.resolve("data/parts"));
+    Files.write(base.resolve("data/parts/nested.csv"), NESTED);
+
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata =
+        new FrictionlessMetadata<>();
+    metadata.setName("birds");
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = resource();
+    resource.setPath("data/parts/nested.csv");
+
+    Path zip = directory.resolve("package.zip");
+    try (OutputStream out = Files.newOutputStream(zip); ZipPackageWriter writer = new ZipPackageWriter(out)) {
+      writer.addPart("stored.csv", base.resolve("stored.csv"), HashAlgorithm.MD5, true);
+      writer.addPart("deflated.csv", new ByteArrayInputStream(DEFLATED), HashAlgorithm.MD5);
+      writer.addResource(resource, base, HashAlgorithm.MD5);
+      writer.writeDescriptor(json, metadata, Collections.singletonList(resource));
+    }
+    return zip;
+  }
+
+  private static FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource() {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName("occurrence");
+    return resource;
+  }
+
+  private static byte mark(long position) {
+    return (byte) ('a' + position % 26);
+  }
+
+  private static ByteBuffer buffer(int capacity) {
+    return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private static void localHeader(ByteBuffer out, byte[] name, long crc, long size, boolean zip64) {
+    out.putInt(0x04034b50).putShort((short) 45).putShort((short) 0).putShort((short) ZipEntry.STORED)
+        .putInt(0).putInt((int) crc)
+        .putInt(zip64 ? -1 : (int) size).putInt(zip64 ? -1 : (int) size)
+        .putShort((short) name.length).putShort((short) (zip64 ? 20 : 0)).put(name);
+    if (zip64) {
+      out.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(size);
+    }
+  }
+
+  private static void centralHeader(ByteBuffer out, byte[] name, long crc, long size, long offset, boolean zip64) {
+    out.putInt(0x02014b50).putShort((short) 45).putShort((short) 45).putShort((short) 0)
+        .putShort((short) ZipEntry.STORED).putInt(0).putInt((int) crc)
+        .putInt(zip64 ? -1 : (int) size).putInt(zip64 ? -1 : (int) size)
+        .putShort((short) name.length).putShort((short) (zip64 ? 20 : 0)).putShort((short) 0)
+        .putShort((short) 0).putShort((short) 0).putInt(0).putInt((int) offset).put(name);
+    if (zip64) {
+      out.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(size);
+    }
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    try (InputStream stream = in) {
+      return stream.readAllBytes();
+    }
+  }
+}
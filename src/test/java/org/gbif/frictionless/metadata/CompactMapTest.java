@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class CompactMapTest {
+
+  private static final int CONTRIBUTORS = 1_000_000;
+
+  @Test
+  public void testMapOperations() {
+    Map<String, Object> map = new CompactMap<>();
+    Map<String, Object> expected = new HashMap<>();
+    for (int i = 0; i < CompactMap.MAX_ARRAY_SIZE * 2; i++) {
+      assertNull(map.put("key" + i, i));
+      expected.put("key" + i, i);
+      assertEquals(expected, map);
+      assertEquals(expected.hashCode(), map.hashCode());
+    }
+    assertEquals(0, map.put("key0", "replaced"));
+    assertEquals("replaced", map.get("key0"));
+    assertEquals(1, map.remove("key1"));
+    assertFalse(map.containsKey("key1"));
+    assertEquals(CompactMap.MAX_ARRAY_SIZE * 2 - 1, map.size());
+
+    map.clear();
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testInsertionOrder() {
+    Map<String, Object> map = new CompactMap<>();
+    map.put("c", 1);
+    map.put("a", 2);
+    map.put("b", 3);
+    map.remove("a");
+    map.put("a", 4);
+
+    assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<>(map.keySet()));
+
+    Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+    iterator.next().setValue(5);
+    iterator.next();
+    iterator.remove();
+    assertEquals(5, map.get("c"));
+    assertEquals(Arrays.asList("c", "a"), new ArrayList<>(map.keySet()));
+  }
+
+  @Test
+  public void testInsertionOrderAboveArraySize() throws Exception {
+    Map<String, Object> map = new CompactMap<>();
+    List<String> keys = new ArrayList<>();
+    for (int i = CompactMap.MAX_ARRAY_SIZE * 2; i > 0; i--) {
+      map.put("key" + i, i);
+      keys.add("key" + i);
+    }
+    map.put("key3", "replaced");
+    assertEquals(keys, new ArrayList<>(map.keySet()));
+    map.remove("key5");
+    map.put("key5", 5);
+    keys.remove("key5");
+    keys.add("key5");
+    assertEquals(keys, new ArrayList<>(map.keySet()));
+
+    // extension properties are written back in the order of the descriptor
+    StringBuilder json = new StringBuilder("{\"name\": \"CC0-1.0\"");
+    for (int i = 20; i > 0; i--) {
+      json.append(", \"x").append(i).append("\": ").append(i);
+    }
+    json.append('}');
+    ObjectMapper mapper = new ObjectMapper();
+    FrictionlessLicense license = mapper.readValue(json.toString(), FrictionlessLicense.class);
+    assertEquals(json.toString().replace(" ", ""),
+        mapper.writeValueAsString(license).replace(",\"path\":null,\"title\":null", ""));
+  }
+
+  @Test
+  public void testAdditionalProperties() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    FrictionlessContributor contributor = mapper.readValue("{\"title\": \"Jane\", \"orcid\": \"0000\"}", FrictionlessContributor.class);
+
+    assertInstanceOf(CompactMap.class, contributor.getAdditionalProperties());
+    assertEquals("0000", contributor.getAdditionalProperties().get("orcid"));
+    assertEquals("{\"title\":\"Jane\",\"path\":null,\"role\":\"contributor\",\"orcid\":\"0000\"}", mapper.writeValueAsString(contributor));
+
+    FrictionlessContributor built = FrictionlessContributor.builder().title("Jane").build();
+    assertTrue(built.getAdditionalProperties().isEmpty());
+    assertEquals(new FrictionlessContributor(), new FrictionlessContributor());
+  }
+
+  @Test
+  public void testEqualityDoesNotAllocate() {
+    FrictionlessLicense unset = FrictionlessLicense.builder().name("CC0-1.0").build();
+    FrictionlessLicense empty = FrictionlessLicense.builder().name("CC0-1.0").build();
+    assertTrue(empty.getAdditionalProperties().isEmpty());
+
+    // unset additional properties are equal to empty ones, and reading them leaves them unset
+    assertEquals(unset, empty);
+    assertEquals(empty, unset);
+    assertEquals(unset.hashCode(), empty.hashCode());
+    assertTrue(unset.toString().contains("additionalProperties=null"));
+    assertNull(unset.additionalPropertiesOrNull());
+    empty.setAdditionalProperty("scope", "data");
+    assertNotEquals(unset, empty);
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = new FrictionlessMetadata<>();
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    metadata.getContributors().add(new FrictionlessContributor());
+    metadata.getSources().add(new FrictionlessSource());
+    assertEquals(metadata.hashCode(), ModelCopier.copy(metadata).hashCode());
+    assertEquals(metadata, ModelCopier.copy(metadata));
+    assertEquals(resource, ModelCopier.copy(resource));
+    metadata.toString();
+    resource.toString();
+    assertNull(metadata.additionalPropertiesOrNull());
+    assertNull(resource.additionalPropertiesOrNull());
+    assertNull(metadata.getContributors().get(0).additionalPropertiesOrNull());
+    assertNull(metadata.getSources().get(0).additionalPropertiesOrNull());
+  }
+
+  /**
+   * Every object allocated here stays reachable, so the bytes allocated are the retained size of the contributors.
+   */
+  @Test
+  public void testFootprint() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    Object[] retained = new Object[CONTRIBUTORS];
+    // the layout before, one hash map per contributor
+    long eager = allocated(threads, () -> {
+      for (int i = 0; i < CONTRIBUTORS; i++) {
+        FrictionlessContributor contributor = new FrictionlessContributor();
+        contributor.setAdditionalProperties(new HashMap<>());
+        retained[i] = contributor;
+      }
+    });
+    long lazy = allocated(threads, () -> {
+      for (int i = 0; i < CONTRIBUTORS; i++) {
+        retained[i] = new FrictionlessContributor();
+      }
+    });
+    assertTrue(eager - lazy >= 32L * CONTRIBUTORS, "saved " + (eager - lazy) / CONTRIBUTORS + " bytes per contributor");
+
+    long eagerTwo = allocated(threads, () -> {
+      for (int i = 0; i < CONTRIBUTORS; i++) {
+        FrictionlessContributor contributor = new FrictionlessContributor();
+        contributor.setAdditionalProperties(new HashMap<>());
+        contributor.setAdditionalProperty("orcid", "0000");
+        contributor.setAdditionalProperty("ror", "0001");
+        retained[i] = contributor;
+      }
+    });
+    long compactTwo = allocated(threads, () -> {
+      for (int i = 0; i < CONTRIBUTORS; i++) {
+        FrictionlessContributor contributor = new FrictionlessContributor();
+        contributor.setAdditionalProperty("orcid", "0000");
+        contributor.setAdditionalProperty("ror", "0001");
+        retained[i] = contributor;
+      }
+    });
+    assertTrue(compactTwo < eagerTwo * 3 / 4, compactTwo / CONTRIBUTORS + " against " + eagerTwo / CONTRIBUTORS + " bytes per contributor");
+  }
+
+  private static long allocated(com.sun.management.ThreadMXBean threads, Runnable runnable) {
+    long threadId = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(threadId);
+    runnable.run();
+    return threads.getThreadAllocatedBytes(threadId) - before;
+  }
+}
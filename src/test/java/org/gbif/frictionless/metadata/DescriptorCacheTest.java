@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DescriptorCacheTest {
+
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCopiesAreIndependent() throws Exception {
+    DescriptorCache<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> cache = new DescriptorCache<>(json, 1 << 20);
+    byte[] descriptor = descriptor(1);
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> first = cache.get(descriptor);
+    first.setName("changed");
+    first.getContributors().get(0).setTitle("changed");
+    ((Map<String, Object>) first.getAdditionalProperties().get("custom")).clear();
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> second = cache.get(descriptor);
+
+    assertNotSame(first, second);
+    assertEquals(json.readMetadata(descriptor), second);
+    assertEquals(1, cache.getStatistics().getHits());
+    assertEquals(1, cache.getStatistics().getMisses());
+  }
+
+  @Test
+  public void testWeightBound() throws Exception {
+    DescriptorCache<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> cache = new DescriptorCache<>(json, 10_000);
+
+    for (int i = 0; i < 100; i++) {
+      cache.get(descriptor(i));
+      assertTrue(cache.getWeight() <= cache.getMaxWeight());
+    }
+    assertTrue(cache.size() > 1);
+    assertEquals(100, cache.getStatistics().getMisses());
+    assertEquals(100 - cache.size(), cache.getStatistics().getEvictions() + cache.getStatistics().getRejections());
+  }
+
+  @Test
+  public void testPopularEntriesAreKept() throws Exception {
+    DescriptorCache<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> cache = new DescriptorCache<>(json, 10_000);
+    byte[] popular = descriptor(0);
+    for (int i = 0; i < 5; i++) {
+      cache.get(popular);
+    }
+
+    for (int i = 1; i < 100; i++) {
+      cache.get(descriptor(i));
+    }
+    long hits = cache.getStatistics().getHits();
+    cache.get(popular);
+
+    assertEquals(hits + 1, cache.getStatistics().getHits());
+  }
+
+  @Test
+  public void testModifiedFileIsReadAgain(@TempDir Path directory) throws Exception {
+    DescriptorCache<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> cache = new DescriptorCache<>(json, 1 << 20);
+    Path file = directory.resolve("datapackage.json");
+    Files.write(file, descriptor(1));
+
+    assertEquals("package-1", cache.get(file).getName());
+    assertEquals("package-1", cache.get(file).getName());
+    Files.write(file, descriptor(22));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+
+    assertEquals("package-22", cache.get(file).getName());
+    assertEquals(1, cache.getStatistics().getHits());
+    assertEquals(2, cache.getStatistics().getMisses());
+  }
+
+  private static byte[] descriptor(int index) {
+    return ("{\"name\": \"package-" + index + "\", \"contributors\": [{\"title\": \"Jane\"}],"
+        + "\"licenses\": [{\"name\": \"CC0-1.0\"}], \"custom\": {\"values\": [1, 2]}}").getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrictionlessBinaryTest {
+
+  private static final String DESCRIPTOR = "{\"name\": \"birds\", \"title\": \"Birds\", \"homepage\": \"https://example.org\","
+      + "\"created\": \"2020-01-02T03:04:05Z\", \"keywords\": [\"birds\"],"
+      + "\"contributors\": [{\"title\": \"Jane\", \"email\": \"jane@example.org\","
+      + "\"extra\": [1, 2.5, true, null, {\"big\": 12345678901, \"text\": \"été\"}]}],"
+      + "\"licenses\": [{\"name\": \"CC0-1.0\"}], \"sources\": [{\"title\": \"Survey\"}], \"custom\": {\"a\": -1}}";
+
+  private static final String RESOURCE = "{\"name\": \"observations\", \"path\": [\"a.csv\", \"b.csv\"],"
+      + "\"data\": [[1, \"x\"]], \"bytes\": 1234, \"hash\": \"sha256:ab\", \"licenses\": [{\"name\": \"CC-BY-4.0\"}], \"custom\": 1}";
+
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+  private final FrictionlessBinary<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> binary = json.binary();
+
+  @Test
+  public void testMetadataRoundTrip() throws Exception {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = json.readMetadata(DESCRIPTOR);
+
+    byte[] encoded = binary.writeMetadataAsBytes(metadata);
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> decoded = binary.readMetadata(encoded);
+
+    assertEquals(json.writeMetadataAsString(metadata), json.writeMetadataAsString(decoded));
+    assertEquals(metadata, decoded);
+    assertTrue(encoded.length < json.writeMetadataAsBytes(metadata).length / 2);
+  }
+
+  @Test
+  public void testResourcesRoundTrip() throws Exception {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = json.readResource(RESOURCE.getBytes(StandardCharsets.UTF_8));
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> raw =
+        InlineDataMode.RAW.applyTo(json.getResourceReader()).readValue(RESOURCE);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    binary.writeResource(out, resource);
+    binary.writeResource(out, raw);
+    InputStream in = new ByteArrayInputStream(out.toByteArray());
+
+    assertArrayEquals(json.writeResourceAsBytes(resource), json.writeResourceAsBytes(binary.readResource(in)));
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> decodedRaw = binary.readResource(in);
+    assertInstanceOf(InlineData.class, decodedRaw.getData());
+    assertArrayEquals(json.writeResourceAsBytes(raw), json.writeResourceAsBytes(decodedRaw));
+  }
+
+  @Test
+  public void testExtensionClasses() throws Exception {
+    FrictionlessJson<OrcidContributor, FrictionlessLicense, FrictionlessSource> extended =
+        FrictionlessJson.builder().contributor(OrcidContributor.class).build();
+    FrictionlessMetadata<OrcidContributor, FrictionlessLicense, FrictionlessSource> metadata =
+        extended.readMetadata("{\"name\": \"birds\", \"contributors\": [{\"title\": \"Jane\", \"orcid\": \"0000-0001\"}]}");
+
+    byte[] encoded = extended.binary().writeMetadataAsBytes(metadata);
+    FrictionlessMetadata<OrcidContributor, FrictionlessLicense, FrictionlessSource> decoded = extended.binary().readMetadata(encoded);
+
+    assertEquals("0000-0001", decoded.getContributors().get(0).getOrcid());
+    assertEquals(extended.writeMetadataAsString(metadata), extended.writeMetadataAsString(decoded));
+    assertThrows(InvalidClassException.class, () -> binary.readMetadata(encoded));
+  }
+
+  @Data
+  @EqualsAndHashCode(callSuper = true)
+  public static class OrcidContributor extends FrictionlessContributor {
+
+    private static final long serialVersionUID = 1L;
+
+    private String orcid;
+  }
+}
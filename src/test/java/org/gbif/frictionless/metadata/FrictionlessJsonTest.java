@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrictionlessJsonTest {
+
+  private static final String DESCRIPTOR = "{\"name\": \"birds\","
+      + " \"contributors\": [{\"title\": \"Jane\", \"orcid\": \"0000-0001\"}],"
+      + " \"licenses\": [{\"name\": \"CC0-1.0\", \"scope\": \"data\"}],"
+      + " \"sources\": [{\"title\": \"Survey\", \"doi\": \"10.1000/1\"}]}";
+
+  private static final String RESOURCE = "{\"name\": \"occurrence\", \"path\": \"occurrence.csv\","
+      + " \"licenses\": [{\"name\": \"CC-BY-4.0\", \"scope\": \"media\"}], \"sources\": [{\"title\": \"Museum\", \"doi\": \"10.1000/2\"}]}";
+
+  @Test
+  public void testSubclassBinding() throws Exception {
+    FrictionlessJson<OrcidContributor, ScopedLicense, DoiSource> json = FrictionlessJson.builder()
+        .contributor(OrcidContributor.class)
+        .license(ScopedLicense.class)
+        .source(DoiSource.class)
+        .build();
+
+    FrictionlessMetadata<OrcidContributor, ScopedLicense, DoiSource> metadata = json.readMetadata(DESCRIPTOR);
+    assertInstanceOf(OrcidContributor.class, metadata.getContributors().get(0));
+    assertEquals("0000-0001", metadata.getContributors().get(0).getOrcid());
+    assertEquals("data", metadata.getLicenses().get(0).getScope());
+    assertEquals("10.1000/1", metadata.getSources().get(0).getDoi());
+    // bound to properties, not collected as additional ones
+    assertTrue(metadata.getContributors().get(0).getAdditionalProperties().isEmpty());
+
+    FrictionlessResource<DoiSource, ScopedLicense> resource = json.readResource(RESOURCE.getBytes(StandardCharsets.UTF_8));
+    assertEquals("media", resource.getLicenses().get(0).getScope());
+    assertEquals("10.1000/2", resource.getSources().get(0).getDoi());
+
+    assertEquals(metadata, json.readMetadata(json.writeMetadataAsBytes(metadata)));
+    assertEquals(resource, json.readResource(json.writeResourceAsBytes(resource)));
+    List<FrictionlessResource<DoiSource, ScopedLicense>> resources =
+        json.readResources(json.writeResourcesAsBytes(Arrays.asList(resource, resource)));
+    assertEquals(Arrays.asList(resource, resource), resources);
+    assertInstanceOf(ScopedLicense.class, resources.get(1).getLicenses().get(0));
+    assertEquals(ScopedLicense.class, json.getResourceType().containedType(1).getRawClass());
+  }
+
+  @Test
+  public void testCachedReadersAndWriters() {
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.builder().build();
+
+    assertSame(json.readerFor(FrictionlessContributor.class), json.readerFor(FrictionlessContributor.class));
+    assertSame(json.writerFor(FrictionlessContributor.class), json.writerFor(FrictionlessContributor.class));
+    assertNotSame(json.readerFor(FrictionlessContributor.class), json.readerFor(FrictionlessLicense.class));
+    assertSame(json.getMetadataReader(), json.getMetadataReader());
+    assertSame(json.getMetadataWriter(), json.getMetadataWriter());
+    assertSame(json.getResourceReader(), json.getResourceReader());
+    assertSame(json.getResourceWriter(), json.getResourceWriter());
+    assertSame(json.getResourceListReader(), json.getResourceListReader());
+    assertSame(json.getResourceListWriter(), json.getResourceListWriter());
+    assertSame(json.getMetadataPatch(), json.getMetadataPatch());
+
+    assertSame(json, json.warmUp());
+    assertSame(json.readerFor(FrictionlessContributor.class), json.readerFor(FrictionlessContributor.class));
+    assertSame(FrictionlessJson.getDefault(), FrictionlessJson.getDefault());
+  }
+
+  @Test
+  public void testWarmUpKeepsOutput() throws Exception {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = new FrictionlessMetadata<>();
+    metadata.setName("birds");
+    metadata.setTitle("Birds");
+    metadata.setCreated(new Date(1_600_000_000_000L));
+    metadata.setKeywords(Arrays.asList("birds", "survey"));
+    FrictionlessContributor contributor = new FrictionlessContributor();
+    contributor.setTitle("Jane");
+    contributor.setRole("author");
+    metadata.getContributors().add(contributor);
+    FrictionlessLicense license = new FrictionlessLicense();
+    license.setName("CC0-1.0");
+    metadata.getLicenses().add(license);
+    metadata.setAdditionalProperty("custom", Arrays.asList(1, "x"));
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName("occurrence");
+    resource.setPath(Arrays.asList("a.csv", "b.csv"));
+    resource.setTitle("Occurrences");
+
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> cold = FrictionlessJson.builder().build();
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> warm = FrictionlessJson.builder().build().warmUp();
+    ObjectMapper plain = new ObjectMapper();
+
+    byte[] expectedMetadata = plain.writerFor(cold.getMetadataType()).writeValueAsBytes(metadata);
+    byte[] expectedResource = plain.writerFor(cold.getResourceType()).writeValueAsBytes(resource);
+    assertArrayEquals(expectedMetadata, warm.writeMetadataAsBytes(metadata));
+    assertArrayEquals(expectedMetadata, cold.writeMetadataAsBytes(metadata));
+    assertArrayEquals(expectedResource, warm.writeResourceAsBytes(resource));
+    assertArrayEquals(expectedResource, cold.writeResourceAsBytes(resource));
+  }
+
+  @Data
+  @EqualsAndHashCode(callSuper = true)
+  public static class OrcidContributor extends FrictionlessContributor {
+
+    private static final long serialVersionUID = 1L;
+
+    private String orcid;
+  }
+
+  @Data
+  @EqualsAndHashCode(callSuper = true)
+  public static class ScopedLicense extends FrictionlessLicense {
+
+    private static final long serialVersionUID = 1L;
+
+    private String scope;
+  }
+
+  @Data
+  @EqualsAndHashCode(callSuper = true)
+  public static class DoiSource extends FrictionlessSource {
+
+    private static final long serialVersionUID = 1L;
+
+    private String doi;
+  }
+}
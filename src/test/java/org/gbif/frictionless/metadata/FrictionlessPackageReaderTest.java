@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrictionlessPackageReaderTest {
+
+  private static final String DESCRIPTOR = "{"
+      + "\"name\": \"occurrences\","
+      + "\"resources\": ["
+      + "  {\"name\": \"occurrence\", \"path\": [\"occurrence-0.csv\", \"occurrence-1.csv\"]},"
+      + "  {\"name\": \"multimedia\", \"path\": \"multimedia.csv\", \"licenses\": [{\"name\": \"CC0-1.0\"}]}"
+      + "],"
+      + "\"title\": \"Occurrences\","
+      + "\"licenses\": [{\"name\": \"CC-BY-4.0\"}],"
+      + "\"custom\": \"value\""
+      + "}";
+
+  private final FrictionlessPackageReader<
+      FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource>,
+      FrictionlessResource<FrictionlessSource, FrictionlessLicense>> reader =
+      FrictionlessPackageReader.create(new ObjectMapper());
+
+  @Test
+  public void testMetadataBeforeResources() throws Exception {
+    try (FrictionlessPackageReader.PackageStream<
+        FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource>,
+        FrictionlessResource<FrictionlessSource, FrictionlessLicense>> stream = reader.open(() -> source(DESCRIPTOR))) {
+      FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = stream.getMetadata();
+
+      assertEquals("occurrences", metadata.getName());
+      assertEquals("Occurrences", metadata.getTitle());
+      assertEquals("CC-BY-4.0", metadata.getLicenses().get(0).getName());
+      assertEquals("value", metadata.getAdditionalProperties().get("custom"));
+      assertFalse(metadata.getAdditionalProperties().containsKey(FrictionlessPackageReader.RESOURCES));
+
+      List<FrictionlessResource<FrictionlessSource, FrictionlessLicense>> resources =
+          stream.resources().collect(Collectors.toList());
+
+      assertEquals(2, resources.size());
+      assertEquals("occurrence", resources.get(0).getName());
+      assertEquals(List.of("occurrence-0.csv", "occurrence-1.csv"), resources.get(0).getPath());
+      assertEquals("multimedia.csv", resources.get(1).getPath());
+      assertEquals("CC0-1.0", resources.get(1).getLicenses().get(0).getName());
+    }
+  }
+
+  @Test
+  public void testNoResources() throws Exception {
+    try (FrictionlessPackageReader.PackageStream<?, ?> stream = reader.open(() -> source("{\"title\": \"Empty\"}"))) {
+      assertFalse(stream.iterator().hasNext());
+    }
+  }
+
+  @Test
+  public void testIteratedOnce() throws Exception {
+    try (FrictionlessPackageReader.PackageStream<?, ?> stream = reader.open(() -> source(DESCRIPTOR))) {
+      Iterator<?> resources = stream.iterator();
+      assertTrue(resources.hasNext());
+      assertThrows(IllegalStateException.class, stream::iterator);
+    }
+  }
+
+  private static ByteArrayInputStream source(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FrozenMetadataTest {
+
+  private static final String METADATA = "{\"name\": \"birds\", \"title\": \"Birds\", \"created\": \"2020-01-02T03:04:05Z\","
+      + "\"keywords\": [\"birds\", null], \"contributors\": [{\"title\": \"Jane\", \"orcid\": \"0000\"}, null],"
+      + "\"licenses\": [{\"name\": \"CC0-1.0\", \"x\": [1]}], \"sources\": [{\"title\": \"Survey\"}],"
+      + "\"custom\": {\"a\": [1, {\"b\": null}]}}";
+
+  private static final String RESOURCE = "{\"name\": \"parts\", \"path\": [\"a.csv\", \"b.csv\"], \"data\": [[1, \"x\"], {\"k\": null}],"
+      + "\"licenses\": [{\"name\": \"CC-BY-4.0\"}, null], \"sources\": [{\"title\": \"Survey\"}], \"dialect\": {\"delimiter\": \";\"}}";
+
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+
+  @Test
+  public void testFreezeMetadata() throws Exception {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = json.readMetadata(METADATA);
+    FrozenMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> frozen = metadata.freeze();
+
+    assertEquals(metadata, frozen);
+    assertEquals(frozen, metadata);
+    assertEquals(metadata.hashCode(), frozen.hashCode());
+    assertSame(frozen, frozen.freeze());
+    assertArrayEquals(json.writeMetadataAsBytes(metadata), json.writeMetadataAsBytes(frozen));
+    assertEquals(metadata, json.binary().readMetadata(json.binary().writeMetadataAsBytes(frozen)));
+
+    // the snapshot doesn't see later changes of the original
+    metadata.setTitle("Changed");
+    metadata.getContributors().get(0).setTitle("Changed");
+    metadata.getCreated().setTime(0);
+    assertEquals("Birds", frozen.getTitle());
+    assertEquals("Jane", frozen.getContributors().get(0).getTitle());
+
+    assertThrows(UnsupportedOperationException.class, () -> frozen.setTitle("x"));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.getKeywords().add("x"));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.getContributors().set(0, null));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.getContributors().get(0).setTitle("x"));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.getContributors().get(0).getAdditionalProperties().clear());
+    assertThrows(UnsupportedOperationException.class, () -> frozen.getLicenses().get(0).setName("x"));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.getSources().get(0).setTitle("x"));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.setAdditionalProperty("x", 1));
+    Map<?, ?> custom = (Map<?, ?>) frozen.getAdditionalProperties().get("custom");
+    assertThrows(UnsupportedOperationException.class, () -> ((List<?>) custom.get("a")).remove(0));
+    assertThrows(UnsupportedOperationException.class, () -> ((Map<?, ?>) ((List<?>) custom.get("a")).get(1)).clear());
+    frozen.getCreated().setTime(0);
+    assertEquals(json.readMetadata(METADATA).getCreated(), frozen.getCreated());
+  }
+
+  @Test
+  public void testWith() throws Exception {
+    FrozenMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> frozen = json.readMetadata(METADATA).freeze();
+
+    FrozenMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> renamed = frozen.with(m -> m.setTitle("Renamed"));
+    assertEquals("Renamed", renamed.getTitle());
+    assertEquals("Birds", frozen.getTitle());
+    assertSame(frozen.getContributors(), renamed.getContributors());
+    assertSame(frozen.getKeywords(), renamed.getKeywords());
+    assertSame(frozen.getLicenses(), renamed.getLicenses());
+    assertSame(frozen.getAdditionalProperties(), renamed.getAdditionalProperties());
+
+    FrictionlessContributor john = new FrictionlessContributor();
+    john.setTitle("John");
+    FrozenMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> extended = renamed.with(m -> {
+      m.getContributors().add(john);
+      m.setAdditionalProperty("extra", 1);
+    });
+    assertNotSame(renamed.getContributors(), extended.getContributors());
+    assertSame(renamed.getContributors().get(0), extended.getContributors().get(0));
+    assertEquals("John", extended.getContributors().get(2).getTitle());
+    assertNotSame(john, extended.getContributors().get(2));
+    assertSame(renamed.getAdditionalProperties().get("custom"), extended.getAdditionalProperties().get("custom"));
+    assertEquals(2, renamed.getContributors().size());
+    assertEquals(1, extended.getAdditionalProperties().get("extra"));
+    assertEquals(null, renamed.getAdditionalProperties().get("extra"));
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> thawed = extended.thaw();
+    thawed.setTitle("Thawed");
+    assertEquals("Renamed", extended.getTitle());
+    assertEquals(extended.getContributors(), thawed.getContributors());
+  }
+
+  @Test
+  public void testFreezeResource() throws Exception {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = json.readResource(RESOURCE.getBytes("UTF-8"));
+    FrozenResource<FrictionlessSource, FrictionlessLicense> frozen = resource.freeze();
+
+    assertEquals(resource, frozen);
+    assertArrayEquals(json.writeResourceAsBytes(resource), json.writeResourceAsBytes(frozen));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.setBytes(1L));
+    assertThrows(UnsupportedOperationException.class, () -> ((List<?>) frozen.getPath()).remove(0));
+    assertThrows(UnsupportedOperationException.class, () -> ((List<?>) ((List<?>) frozen.getData()).get(0)).clear());
+    assertThrows(UnsupportedOperationException.class, () -> frozen.getLicenses().get(0).setName("x"));
+
+    StringBuilder name = new StringBuilder("mutable");
+    FrozenResource<FrictionlessSource, FrictionlessLicense> renamed = frozen.with(r -> r.setName(name));
+    name.append("-changed");
+    assertEquals("mutable", renamed.getName());
+    assertSame(frozen.getPath(), renamed.getPath());
+    assertSame(frozen.getData(), renamed.getData());
+    assertSame(frozen.getSources(), renamed.getSources());
+  }
+
+  @Test
+  public void testCopiesAndSerialization() throws Exception {
+    FrozenMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> frozen = json.readMetadata(METADATA).freeze();
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> copy = ModelCopier.copy(frozen);
+    assertEquals(FrictionlessMetadata.class, copy.getClass());
+    assertEquals(frozen, copy);
+    copy.getContributors().get(0).setTitle("Changed");
+    assertEquals("Jane", frozen.getContributors().get(0).getTitle());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(frozen);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Object read = in.readObject();
+      assertEquals(FrozenMetadata.class, read.getClass());
+      assertEquals(frozen, read);
+    }
+  }
+
+  @Test
+  public void testInternedValuesFrozen() throws Exception {
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> interning =
+        FrictionlessJson.builder().interner(new MetadataInterner()).build();
+    FrozenMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> frozen =
+        interning.readMetadata(METADATA).freeze();
+
+    // the shared license is kept, and is as immutable as the rest of the snapshot
+    FrictionlessLicense license = frozen.getLicenses().get(0);
+    assertInstanceOf(MetadataInterner.SharedLicense.class, license);
+    assertInstanceOf(MetadataInterner.SharedSource.class, frozen.getSources().get(0));
+    List<?> x = (List<?>) license.getAdditionalProperties().get("x");
+    assertThrows(UnsupportedOperationException.class, () -> x.clear());
+    assertThrows(UnsupportedOperationException.class, () -> license.getAdditionalProperties().remove("x"));
+  }
+
+  @Test
+  public void testExtensionsRejected() {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = new FrictionlessMetadata<>();
+    metadata.getContributors().add(new FrictionlessContributor() {
+    });
+    assertThrows(IllegalArgumentException.class, metadata::freeze);
+    assertThrows(IllegalArgumentException.class, () -> new FrictionlessMetadata<>() {
+    }.freeze());
+    assertEquals(new Date(0), new FrictionlessMetadata<>().freeze().with(m -> m.setCreated(new Date(0))).getCreated());
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InlineDataTest {
+
+  private static final String RESOURCE = "{\"name\": \"measurements\", \"data\": ["
+      + "[1, 2.5, \"first\", null, true],"
+      + "[2, 10, \"second\"]"
+      + "]}";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ObjectReader reader = mapper.readerFor(FrictionlessResource.class);
+
+  @Test
+  public void testDefaultMode() throws Exception {
+    FrictionlessResource<?, ?> resource = reader.readValue(RESOURCE);
+
+    assertInstanceOf(List.class, resource.getData());
+  }
+
+  @Test
+  public void testSkipMode() throws Exception {
+    FrictionlessResource<?, ?> resource = InlineDataMode.SKIP.applyTo(reader).readValue(RESOURCE);
+
+    assertEquals("measurements", resource.getName());
+    assertNull(resource.getData());
+  }
+
+  @Test
+  public void testRawMode() throws Exception {
+    FrictionlessResource<?, ?> resource = InlineDataMode.RAW.applyTo(reader).readValue(RESOURCE);
+    InlineData data = assertInstanceOf(InlineData.class, resource.getData());
+
+    try (InlineData.RowCursor rows = data.rows()) {
+      assertTrue(rows.next());
+      assertEquals(5, rows.getColumnCount());
+      assertEquals(1, rows.getInt(0));
+      assertEquals(2.5, rows.getDouble(1));
+      assertEquals("first", rows.getString(2));
+      assertTrue(rows.isNull(3));
+      assertTrue(rows.getBoolean(4));
+
+      assertTrue(rows.next());
+      assertEquals(3, rows.getColumnCount());
+      assertEquals(2L, rows.getLong(0));
+      assertEquals(10.0, rows.getDouble(1));
+      assertEquals("second", rows.getText(2).toString());
+      assertTrue(rows.isNull(4));
+
+      assertFalse(rows.next());
+    }
+
+    JsonNode written = mapper.valueToTree(resource);
+    assertEquals(mapper.readTree(RESOURCE).get("data"), written.get("data"));
+  }
+
+  @Test
+  public void testObjectRows() throws Exception {
+    InlineData data = InlineData.of("[{\"id\": 1, \"name\": \"a\"}, {\"name\": \"b\", \"id\": 2}]".getBytes());
+
+    try (InlineData.RowCursor rows = data.rows()) {
+      assertTrue(rows.next());
+      assertTrue(rows.next());
+      assertEquals(List.of("id", "name"), rows.getColumnNames());
+      assertEquals(2, rows.getInt(rows.getColumnIndex("id")));
+      assertEquals("b", rows.getString(rows.getColumnIndex("name")));
+    }
+  }
+}
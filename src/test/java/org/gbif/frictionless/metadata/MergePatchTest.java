@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import org.gbif.frictionless.validation.BasicMetadata;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MergePatchTest {
+
+  private static final String DESCRIPTOR = "{\"name\": \"birds\", \"title\": \"Birds\", \"version\": \"1.0\","
+      + "\"created\": \"2020-01-02T03:04:05Z\","
+      + "\"contributors\": [{\"title\": \"Jane\"}],"
+      + "\"licenses\": [{\"name\": \"CC0-1.0\"}],"
+      + "\"custom\": {\"a\": 1, \"b\": {\"c\": 2}}, \"obsolete\": true}";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+  private final MergePatch<FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource>> patch = json.getMetadataPatch();
+
+  /**
+   * The examples of RFC 7386, appendix A.
+   */
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', quoteCharacter = '"', value = {
+      "{'a':'b'}|{'a':'c'}|{'a':'c'}",
+      "{'a':'b'}|{'b':'c'}|{'a':'b','b':'c'}",
+      "{'a':'b'}|{'a':null}|{}",
+      "{'a':'b','b':'c'}|{'a':null}|{'b':'c'}",
+      "{'a':['b']}|{'a':'c'}|{'a':'c'}",
+      "{'a':'c'}|{'a':['b']}|{'a':['b']}",
+      "{'a':{'b':'c'}}|{'a':{'b':'d','c':null}}|{'a':{'b':'d'}}",
+      "{'a':[{'b':'c'}]}|{'a':[1]}|{'a':[1]}",
+      "['a','b']|['c','d']|['c','d']",
+      "{'a':'b'}|['c']|['c']",
+      "{'a':'foo'}|null|null",
+      "{'a':'foo'}|'bar'|'bar'",
+      "{'e':null}|{'a':1}|{'e':null,'a':1}",
+      "[1,2]|{'a':'b','c':null}|{'a':'b'}",
+      "{}|{'a':{'bb':{'ccc':null}}}|{'a':{'bb':{}}}"
+  })
+  public void testRfcExamples(String target, String patch, String expected) throws Exception {
+    JsonNode result = MergePatch.merge(tree(target), tree(patch));
+
+    assertEquals(tree(expected), result);
+  }
+
+  @Test
+  public void testApply() throws Exception {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = json.readMetadata(DESCRIPTOR);
+
+    MergePatch.Result result = patch.apply(metadata, tree("{'version': '1.1',"
+        + "'contributors': [{'title': 'Jane'}, {'title': 'John', 'role': 'author'}],"
+        + "'custom': {'b': {'c': null, 'd': 3}}, 'obsolete': null, 'sources': null}"), BasicMetadata.class);
+
+    assertTrue(result.isValid());
+    assertEquals(new HashSet<>(Arrays.asList("version", "contributors", "additionalProperties", "sources")),
+        result.getTouchedProperties());
+    assertEquals("1.1", metadata.getVersion());
+    assertEquals("Birds", metadata.getTitle());
+    assertEquals(2, metadata.getContributors().size());
+    assertEquals("author", metadata.getContributors().get(1).getRole());
+    assertEquals("CC0-1.0", metadata.getLicenses().get(0).getName());
+    assertTrue(metadata.getSources().isEmpty());
+    assertFalse(metadata.getAdditionalProperties().containsKey("obsolete"));
+    assertEquals(tree("{'a': 1, 'b': {'d': 3}}"), mapper.valueToTree(metadata.getAdditionalProperties().get("custom")));
+  }
+
+  @Test
+  public void testApplyValidatesTouchedPropertiesOnly() throws Exception {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = json.readMetadata(DESCRIPTOR);
+    metadata.setLicenses(null);
+
+    MergePatch.Result result = patch.apply(metadata, tree("{'name': 'Not a valid name'}"), BasicMetadata.class);
+
+    assertEquals(Collections.singleton("name"), result.getTouchedProperties());
+    assertEquals(1, result.getViolations().size());
+    assertEquals("name", result.getViolations().get(0).getPropertyPath());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDiff() throws Exception {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> source = json.readMetadata(DESCRIPTOR);
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> target = json.readMetadata(DESCRIPTOR);
+    target.setVersion("2.0");
+    target.getContributors().get(0).setRole("author");
+    target.getLicenses().clear();
+    target.getAdditionalProperties().remove("obsolete");
+    ((Map<String, Object>) target.getAdditionalProperties().get("custom")).put("a", 2);
+
+    JsonNode diff = patch.diff(source, target);
+
+    assertEquals(tree("{'version': '2.0', 'contributors': [{'title': 'Jane', 'path': null, 'role': 'author'}],"
+        + "'licenses': [], 'obsolete': null, 'custom': {'a': 2}}"), diff);
+    patch.merge(source, diff);
+    assertEquals(target, source);
+    assertEquals(0, patch.diff(source, target).size());
+  }
+
+  private JsonNode tree(String json) throws Exception {
+    return mapper.readTree(json.replace('\'', '"'));
+  }
+}
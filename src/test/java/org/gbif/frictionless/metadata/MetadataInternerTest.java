@@ -0,0 +1,182 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MetadataInternerTest {
+
+  private static final String METADATA = "{\"name\": \"%s\", \"profile\": \"data-package\","
+      + " \"contributors\": [{\"title\": \"Jane\", \"role\": \"author\"}],"
+      + " \"licenses\": [{\"name\": \"CC-BY-4.0\", \"path\": \"https://creativecommons.org/licenses/by/4.0/\"}],"
+      + " \"sources\": [{\"title\": \"Survey\"}],"
+      + " \"resources\": [{\"name\": \"occurrence\", \"path\": \"occurrence.csv\", \"mediatype\": \"text/csv\"}]}";
+
+  @Test
+  public void testSharedInstances() throws Exception {
+    MetadataInterner interner = new MetadataInterner();
+    // the interner is kept whatever the order of the builder calls
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.builder()
+        .interner(interner)
+        .mapper(new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS))
+        .build();
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> first =
+        json.readMetadata(String.format(METADATA, "first"));
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> second =
+        json.readMetadata(String.format(METADATA, "second"));
+
+    assertSame(first.getLicenses().get(0), second.getLicenses().get(0));
+    assertSame(first.getSources().get(0), second.getSources().get(0));
+    assertSame(first.getProfile(), second.getProfile());
+    assertSame(first.getContributors().get(0).getRole(), second.getContributors().get(0).getRole());
+    // contributors aren't shared, only their strings
+    assertNotSame(first.getContributors().get(0), second.getContributors().get(0));
+    assertEquals(1L, interner.getStatistics().get("licenses"));
+    assertEquals(1L, interner.getStatistics().get("sources"));
+
+    // same output as without the interner
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> plain = FrictionlessJson.getDefault();
+    assertEquals(plain.writeMetadataAsString(plain.readMetadata(String.format(METADATA, "second"))),
+        json.writeMetadataAsString(second));
+  }
+
+  @Test
+  public void testReadOnly() {
+    MetadataInterner interner = new MetadataInterner();
+    FrictionlessLicense license = new FrictionlessLicense();
+    license.setName("CC0-1.0");
+    license.setAdditionalProperty("x", 1);
+    FrictionlessLicense shared = interner.intern(license);
+
+    assertInstanceOf(MetadataInterner.SharedLicense.class, shared);
+    assertEquals(license, shared);
+    assertSame(shared, interner.intern(copy(license)));
+    assertThrows(UnsupportedOperationException.class, () -> shared.setName("CC-BY-4.0"));
+    assertThrows(UnsupportedOperationException.class, () -> shared.setAdditionalProperty("y", 2));
+    assertThrows(UnsupportedOperationException.class, () -> shared.getAdditionalProperties().put("y", 2));
+    // the original is left alone
+    license.setName("CC-BY-4.0");
+    assertEquals("CC0-1.0", shared.getName());
+
+    FrictionlessSource source = new FrictionlessSource();
+    source.setTitle("Survey");
+    FrictionlessSource sharedSource = interner.intern(source);
+    assertInstanceOf(MetadataInterner.SharedSource.class, sharedSource);
+    assertThrows(UnsupportedOperationException.class, () -> sharedSource.setTitle("Other"));
+    assertThrows(UnsupportedOperationException.class, () -> sharedSource.setEmail("jane@example.org"));
+
+    // nested values are shared too, so they are frozen as well
+    FrictionlessLicense nested = license("CC-BY-4.0");
+    List<Object> originalCountries = new ArrayList<>(Arrays.asList("DK", "SE"));
+    Map<String, Object> scope = new LinkedHashMap<>();
+    scope.put("countries", originalCountries);
+    nested.setAdditionalProperty("scope", scope);
+    FrictionlessLicense sharedNested = interner.intern(nested);
+    Map<?, ?> sharedScope = (Map<?, ?>) sharedNested.getAdditionalProperties().get("scope");
+    @SuppressWarnings("unchecked")
+    List<Object> countries = (List<Object>) sharedScope.get("countries");
+    assertThrows(UnsupportedOperationException.class, () -> countries.add("NO"));
+    assertThrows(UnsupportedOperationException.class, () -> sharedScope.remove("countries"));
+    originalCountries.add("NO");
+    assertEquals(Arrays.asList("DK", "SE"), countries);
+    assertSame(sharedNested, interner.intern(copy(sharedNested)));
+
+    // subclasses may carry more state and are never shared
+    FrictionlessLicense subclass = new FrictionlessLicense() {
+    };
+    subclass.setName("CC0-1.0");
+    assertSame(subclass, interner.canonicalize(subclass));
+  }
+
+  @Test
+  public void testMaxEntries() {
+    MetadataInterner interner = new MetadataInterner(2);
+    FrictionlessLicense first = interner.intern(license("a"));
+    interner.intern(license("b"));
+    FrictionlessLicense third = license("c");
+
+    // values seen once the pool is full are returned as they are
+    assertSame(third, interner.intern(third));
+    assertFalse(third instanceof MetadataInterner.SharedLicense);
+    assertSame(first, interner.intern(license("a")));
+    assertEquals(2L, interner.getStatistics().get("canonicalLicenses"));
+
+    MetadataInterner strings = new MetadataInterner(2);
+    strings.intern("x");
+    strings.intern("y");
+    String z = new String("z");
+    assertSame(z, strings.intern(z));
+    assertEquals(2L, strings.getStatistics().get("canonicalStrings"));
+  }
+
+  @Test
+  public void testStatistics() {
+    MetadataInterner interner = new MetadataInterner();
+    for (int i = 0; i < 3; i++) {
+      interner.intern(license("a"));
+      interner.intern(new String("author"));
+    }
+    FrictionlessSource source = new FrictionlessSource();
+    source.setTitle("Survey");
+    interner.intern(source);
+    // the canonical string itself isn't counted as saved
+    String canonical = interner.intern("author");
+    assertSame(canonical, interner.intern(canonical));
+
+    Map<String, Long> statistics = interner.getStatistics();
+    assertEquals(2L, statistics.get("licenses"));
+    assertEquals(0L, statistics.get("sources"));
+    assertEquals(3L, statistics.get("strings"));
+    assertEquals(1L, statistics.get("canonicalLicenses"));
+    assertEquals(1L, statistics.get("canonicalSources"));
+    // "author", and the name of the shared license
+    assertEquals(2L, statistics.get("canonicalStrings"));
+    assertEquals(5L, interner.getSavedObjects());
+
+    interner.clear();
+    assertEquals(0L, interner.getSavedObjects());
+    assertEquals(0L, interner.getStatistics().get("canonicalLicenses"));
+    assertNotSame(canonical, interner.intern(new String("author")));
+  }
+
+  private static FrictionlessLicense license(String name) {
+    FrictionlessLicense license = new FrictionlessLicense();
+    license.setName(name);
+    return license;
+  }
+
+  private static FrictionlessLicense copy(FrictionlessLicense license) {
+    FrictionlessLicense copy = license(license.getName());
+    copy.setPath(license.getPath());
+    copy.setTitle(license.getTitle());
+    license.getAdditionalProperties().forEach(copy::setAdditionalProperty);
+    return copy;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.metadata;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks the hand-written (de)serializers against the bean mapping of a plain mapper, which they replace.
+ */
+public class ModelModuleTest {
+
+  private static final String[] METADATA = {
+      "{}",
+      "{\"title\": \"Birds\", \"description\": \"Bird survey\"}",
+      "{\"title\": null, \"version\": null, \"profile\": null, \"contributors\": null, \"keywords\": null,"
+          + "\"licenses\": null, \"sources\": null, \"created\": null, \"homepage\": null}",
+      "{\"name\": \"birds\", \"id\": \"b1\", \"title\": \"Birds\", \"version\": \"2.1\", \"homepage\": \"https://example.org/birds\","
+          + "\"created\": \"2020-01-02T03:04:05Z\", \"keywords\": [\"birds\", null, \"\"], \"image\": \"\","
+          + "\"contributors\": [{\"title\": \"Jane\", \"email\": \"\", \"organization\": \"GBIF\", \"role\": \"author\","
+          + "\"orcid\": \"0000\"}, null, {}],"
+          + "\"licenses\": [{\"name\": \"CC0-1.0\", \"path\": \"https://example.org/cc0\", \"title\": \"CC0\", \"x\": [1]}],"
+          + "\"sources\": [{\"title\": \"Survey\", \"email\": \"s@example.org\", \"y\": {\"z\": null}}],"
+          + "\"custom\": {\"a\": [1, 2.5, true, null, \"\\u00e9t\\u00e9\"]}, \"nothing\": null, \"additionalProperties\": 1}",
+      "{\"custom\": 1, \"title\": \"Order\", \"created\": \"1999-12-31T23:59:59Z\", \"contributors\": [],"
+          + "\"keywords\": [], \"image\": \"logo.png\", \"resources\": [{\"name\": \"r\"}], \"version\": 3}",
+      "{\"created\": \"1200-06-01T12:00:00Z\", \"title\": \"Julian\"}",
+      "{\"created\": \"12000-06-01T12:00:00Z\", \"title\": \"Far future\"}",
+      "{\"created\": 0, \"homepage\": \"\", \"title\": true, \"description\": 12.5}"
+  };
+
+  private static final String[] RESOURCES = {
+      "{}",
+      "{\"name\": \"observations\", \"path\": \"observations.csv\", \"format\": \"csv\", \"mediatype\": \"text/csv\","
+          + "\"encoding\": \"iso-8859-1\", \"bytes\": 1234, \"hash\": \"sha256:ab\", \"schema\": \"schema.json\"}",
+      "{\"name\": \"parts\", \"path\": [\"a.csv\", \"b.csv\"], \"data\": [[1, \"x\"], {\"k\": null}],"
+          + "\"title\": \"Parts\", \"description\": \"Split\", \"homepage\": \"https://example.org\","
+          + "\"licenses\": [{\"name\": \"CC-BY-4.0\"}, null], \"sources\": [{\"title\": \"Survey\"}],"
+          + "\"dialect\": {\"delimiter\": \";\"}, \"nothing\": null}",
+      "{\"profile\": null, \"name\": null, \"path\": null, \"data\": null, \"licenses\": null, \"sources\": null,"
+          + "\"encoding\": null, \"bytes\": null}",
+      "{\"bytes\": \"42\", \"name\": 7, \"data\": \"inline\", \"path\": 3.5}"
+  };
+
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+  private final ObjectMapper beanMapper = new ObjectMapper();
+
+  @Test
+  public void testMetadataCorpus() throws Exception {
+    ObjectReader beanReader = beanMapper.readerFor(json.getMetadataType());
+    ObjectWriter beanWriter = beanMapper.writerFor(json.getMetadataType());
+    for (String descriptor : METADATA) {
+      FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> expected = beanReader.readValue(descriptor);
+      FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> actual = json.readMetadata(descriptor);
+      assertEquals(expected, actual, descriptor);
+
+      byte[] bytes = json.writeMetadataAsBytes(actual);
+      assertArrayEquals(beanWriter.writeValueAsBytes(expected), bytes, descriptor);
+      assertArrayEquals(bytes, json.writeMetadataAsBytes(json.readMetadata(bytes)), descriptor);
+    }
+  }
+
+  @Test
+  public void testResourceCorpus() throws Exception {
+    ObjectReader beanReader = beanMapper.readerFor(json.getResourceType());
+    ObjectWriter beanWriter = beanMapper.writerFor(json.getResourceType());
+    for (String descriptor : RESOURCES) {
+      FrictionlessResource<FrictionlessSource, FrictionlessLicense> expected = beanReader.readValue(descriptor);
+      FrictionlessResource<FrictionlessSource, FrictionlessLicense> actual = json.readResource(descriptor.getBytes("UTF-8"));
+      assertEquals(expected, actual, descriptor);
+
+      byte[] bytes = json.writeResourceAsBytes(actual);
+      assertArrayEquals(beanWriter.writeValueAsBytes(expected), bytes, descriptor);
+      assertArrayEquals(bytes, json.writeResourceAsBytes(json.readResource(bytes)), descriptor);
+    }
+  }
+
+  @Test
+  public void testInlineDataMode() throws Exception {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> raw =
+        InlineDataMode.RAW.applyTo(json.getResourceReader()).readValue(RESOURCES[2]);
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> skipped =
+        InlineDataMode.SKIP.applyTo(json.getResourceReader()).readValue(RESOURCES[2]);
+
+    assertInstanceOf(InlineData.class, raw.getData());
+    assertEquals(null, skipped.getData());
+    assertEquals("parts", skipped.getName());
+    assertArrayEquals(beanMapper.writeValueAsBytes(raw), json.writeResourceAsBytes(raw));
+  }
+
+  @Test
+  public void testTimeZoneAndDates() throws Exception {
+    ObjectMapper berlin = new ObjectMapper().setTimeZone(TimeZone.getTimeZone("Europe/Berlin"));
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> berlinJson =
+        FrictionlessJson.builder().mapper(berlin).build();
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = new FrictionlessMetadata<>();
+    for (long millis : new long[] {0L, 1593561600000L, -12219292800001L, 253402300800000L, -62135596800000L}) {
+      metadata.setCreated(new Date(millis));
+      assertEquals(beanMapper.writeValueAsString(metadata), json.writeMetadataAsString(metadata));
+      assertEquals(berlin.writeValueAsString(metadata), berlinJson.writeMetadataAsString(metadata));
+    }
+  }
+
+  @Test
+  public void testMergePatch() throws Exception {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> target = json.readMetadata(METADATA[3]);
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> expected = json.readMetadata(METADATA[3]);
+    String patch = "{\"title\": \"Patched\", \"keywords\": [\"new\"], \"custom\": 2}";
+
+    beanMapper.readerForUpdating(expected).readValue(patch);
+    json.getMetadataReader().withValueToUpdate(target).readValue(patch);
+
+    assertEquals(expected, target);
+    assertEquals("Patched", target.getTitle());
+  }
+
+  @Test
+  public void testCoercionsFollowTheMapper() throws Exception {
+    ObjectMapper lenient = JsonMapper.builder()
+        .enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+        .enable(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED)
+        .build();
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> lenientJson =
+        FrictionlessJson.builder().mapper(lenient).build();
+    String descriptor = "{\"keywords\": \"birds\", \"licenses\": {\"name\": \"CC0-1.0\"}, \"contributors\": [{\"title\": \"Jane\"}]}";
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = lenientJson.readMetadata(descriptor);
+
+    assertEquals(Arrays.asList("birds"), metadata.getKeywords());
+    assertEquals("CC0-1.0", metadata.getLicenses().get(0).getName());
+    assertEquals(lenient.readerFor(json.getMetadataType()).readValue(descriptor), metadata);
+    assertEquals(lenient.writeValueAsString(metadata), lenientJson.writeMetadataAsString(metadata));
+  }
+
+  @Test
+  public void testOtherMappingsKeepTheBeanMapping() throws Exception {
+    ObjectMapper sorted = JsonMapper.builder().enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY).build();
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> sortedJson =
+        FrictionlessJson.builder().mapper(sorted).build();
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = json.readMetadata(METADATA[3]);
+
+    assertEquals(sorted.writeValueAsString(metadata), sortedJson.writeMetadataAsString(metadata));
+    assertEquals(beanMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValueAsString(metadata),
+        json.getMetadataWriter().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValueAsString(metadata));
+  }
+
+  @Test
+  public void testInterner() throws Exception {
+    MetadataInterner interner = new MetadataInterner();
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> interning =
+        FrictionlessJson.builder().interner(interner).build();
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> first = interning.readMetadata(METADATA[3]);
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> second = interning.readMetadata(METADATA[3]);
+
+    assertSame(first.getLicenses().get(0), second.getLicenses().get(0));
+    assertSame(first.getSources().get(0), second.getSources().get(0));
+    assertEquals(json.writeMetadataAsString(json.readMetadata(METADATA[3])), interning.writeMetadataAsString(second));
+  }
+}
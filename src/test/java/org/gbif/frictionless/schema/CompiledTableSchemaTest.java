@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.validation.Violation;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledTableSchemaTest {
+
+  private static final String SCHEMA = "{"
+      + "\"fields\": ["
+      + "  {\"name\": \"id\", \"type\": \"integer\"},"
+      + "  {\"name\": \"price\", \"type\": \"number\", \"decimalChar\": \",\", \"groupChar\": \".\", \"bareNumber\": false,"
+      + "   \"constraints\": {\"minimum\": 0.5, \"maximum\": \"10.000,00\"}},"
+      + "  {\"name\": \"date\", \"type\": \"date\", \"format\": \"%d/%m/%Y\"},"
+      + "  {\"name\": \"status\", \"constraints\": {\"enum\": [\"open\", \"closed\"]}},"
+      + "  {\"name\": \"code\", \"constraints\": {\"required\": true, \"unique\": true, \"pattern\": \"[A-Z]{3}\"}},"
+      + "  {\"name\": \"flag\", \"type\": \"boolean\", \"trueValues\": [\"y\"], \"falseValues\": [\"n\"]}"
+      + "],"
+      + "\"missingValues\": [\"\", \"NA\"],"
+      + "\"primaryKey\": \"id\","
+      + "\"x-custom\": 1"
+      + "}";
+
+  private final FrictionlessJson<?, ?, ?> json = FrictionlessJson.getDefault();
+
+  @Test
+  public void testReadAndWrite() throws Exception {
+    TableSchema schema = json.readerFor(TableSchema.class).readValue(SCHEMA);
+
+    assertEquals(6, schema.getFields().size());
+    assertEquals(Collections.singletonList("id"), schema.getPrimaryKey());
+    assertEquals(Arrays.asList("open", "closed"), schema.getFields().get(3).getConstraints().getEnumValues());
+    assertEquals(1, schema.getAdditionalProperties().get("x-custom"));
+    String written = json.writerFor(TableSchema.class).writeValueAsString(schema);
+    assertTrue(written.contains("\"primaryKey\":\"id\""), written);
+    assertEquals(schema, json.readerFor(TableSchema.class).readValue(written));
+  }
+
+  @Test
+  public void testParseRow() throws Exception {
+    CompiledTableSchema schema = CompiledTableSchema.compile(json.readerFor(TableSchema.class).readValue(SCHEMA));
+    Object[] values = new Object[schema.getFields().size()];
+    List<Violation> violations = new ArrayList<>();
+
+    assertTrue(schema.parseRow(new String[] {"7", "EUR 1.234,50", "31/12/2023", "open", "ABC", "y"}, values, null, violations),
+        violations.toString());
+    assertEquals(Arrays.asList(7L, new BigDecimal("1234.50"), LocalDate.of(2023, 12, 31), "open", "ABC", true),
+        Arrays.asList(values));
+
+    assertTrue(schema.parseRow(new String[] {"8", "NA", "", "closed", "DEF", "n"}, values, null, violations));
+    assertNull(values[1]);
+    assertNull(values[2]);
+  }
+
+  @Test
+  public void testConstraints() throws Exception {
+    CompiledTableSchema schema = CompiledTableSchema.compile(json.readerFor(TableSchema.class).readValue(SCHEMA));
+    RowValidator validator = schema.newRowValidator();
+    Object[] values = new Object[schema.getFields().size()];
+    List<Violation> violations = new ArrayList<>();
+
+    assertTrue(validator.validate(1, new String[] {"1", "5", "01/01/2020", "open", "ABC", "y"}, values, violations));
+    assertFalse(validator.validate(2, new String[] {"1", "-5", "2020-01-01", "pending", "ABC", "x"}, values, violations));
+    assertFalse(validator.validate(3, new String[] {"", "10.000,01", "31/02/2020", "closed", "abc", "n"}, values, violations));
+    assertFalse(validator.validate(4, new String[] {"4", "1"}, values, violations));
+
+    assertEquals(Arrays.asList(
+        "rows[2].price: validation.field.minimum",
+        "rows[2].date: validation.field.type",
+        "rows[2].status: validation.field.enum",
+        "rows[2].flag: validation.field.type",
+        "rows[2].code: validation.field.unique",
+        "rows[2]: validation.row.primaryKey",
+        "rows[3].id: validation.field.required",
+        "rows[3].price: validation.field.maximum",
+        "rows[3].date: validation.field.type",
+        "rows[3].code: validation.field.pattern",
+        "rows[4]: validation.row.length",
+        "rows[4].code: validation.field.required"
+    ), violations.stream().map(v -> v.getPropertyPath() + ": " + v.getMessage()).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testTypes() {
+    assertEquals(new BigDecimal("-1.5E3"), parse("number", null, "-1.5E3"));
+    assertEquals(Double.NEGATIVE_INFINITY, parse("number", null, "-INF"));
+    assertEquals(123456789012345678L, parse("integer", null, "123456789012345678"));
+    assertEquals(new java.math.BigInteger("12345678901234567890"), parse("integer", null, "12345678901234567890"));
+    assertEquals(LocalTime.of(10, 15, 30), parse("time", null, "10:15:30"));
+    assertEquals(OffsetDateTime.parse("2020-01-01T10:00:00Z"), parse("datetime", null, "2020-01-01T10:00:00Z"));
+    assertEquals(LocalDate.of(2020, 3, 1), parse("date", "any", "2020/03/01"));
+    assertEquals(2020, parse("year", null, "2020"));
+    assertEquals(YearMonth.of(2020, 3), parse("yearmonth", null, "2020-03"));
+    assertEquals("P1Y2M3DT4H", parse("duration", null, "P1Y2M3DT4H"));
+    assertEquals(Arrays.asList(12.5, -45.0), parse("geopoint", null, "12.5, -45"));
+    assertEquals(Arrays.asList(12.5, -45.0), parse("geopoint", "object", "{\"lon\": 12.5, \"lat\": -45}"));
+    assertEquals(Collections.singletonMap("a", 1), parse("object", null, "{\"a\": 1}"));
+    assertEquals(Arrays.asList(1, 2), parse("array", null, "[1, 2]"));
+    assertEquals("jane@example.org", parse("string", "email", "jane@example.org"));
+
+    assertThrows(IllegalArgumentException.class, () -> parse("integer", null, "1.5"));
+    assertThrows(IllegalArgumentException.class, () -> parse("geopoint", null, "200, 0"));
+    assertThrows(IllegalArgumentException.class, () -> parse("string", "uri", "relative/path"));
+    assertThrows(IllegalArgumentException.class, () -> parse("array", null, "{}"));
+  }
+
+  @Test
+  public void testInvalidSchemas() {
+    assertThrows(IllegalArgumentException.class, () -> compile(TableSchemaField.builder().name("a").type("money").build()));
+    assertThrows(IllegalArgumentException.class, () -> compile(TableSchemaField.builder().name("a").type("date").format("dd/MM").build()));
+    assertThrows(IllegalArgumentException.class, () -> compile(TableSchemaField.builder().name("a").type("integer")
+        .constraints(FieldConstraints.builder().minimum("one").build()).build()));
+    assertThrows(IllegalArgumentException.class, () -> CompiledTableSchema.compile(TableSchema.builder()
+        .fields(Collections.singletonList(TableSchemaField.builder().name("a").build()))
+        .primaryKey(Collections.singletonList("b")).build()));
+  }
+
+  private static Object parse(String type, String format, String cell) {
+    return compile(TableSchemaField.builder().name("field").type(type).format(format).build()).getFields().get(0).parse(cell);
+  }
+
+  private static CompiledTableSchema compile(TableSchemaField field) {
+    return CompiledTableSchema.compile(TableSchema.builder().fields(Collections.singletonList(field)).build());
+  }
+}
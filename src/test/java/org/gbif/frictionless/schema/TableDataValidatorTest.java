@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.schema;
+
+import org.gbif.frictionless.io.MultipartResourceReader;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.validation.Violation;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TableDataValidatorTest {
+
+  private static final CompiledTableSchema SCHEMA = CompiledTableSchema.compile(TableSchema.builder()
+      .fields(Arrays.asList(
+          TableSchemaField.builder().name("id").type("integer").build(),
+          TableSchemaField.builder().name("name").build(),
+          TableSchemaField.builder().name("count").type("integer")
+              .constraints(FieldConstraints.builder().minimum(0).build()).build()))
+      .primaryKey(Collections.singletonList("id"))
+      .build());
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void testValidFile(@TempDir Path directory) throws Exception {
+    StringBuilder csv = new StringBuilder("\uFEFFid,name,count\r\n");
+    for (int i = 1; i <= 10_000; i++) {
+      csv.append(i).append(",\"name, with \"\"quotes\"\" ").append(i).append("\",").append(i % 7).append("\r\n");
+    }
+    Path file = write(directory, "data.csv", csv.toString(), StandardCharsets.UTF_8);
+
+    List<Violation> violations = new ArrayList<>();
+    TableDataValidator.Summary summary = validator(null, 4096).validate(reader(file), violations::add, 100);
+
+    assertEquals(Collections.emptyList(), violations);
+    assertEquals(10_000, summary.getRows());
+    assertTrue(summary.isValid());
+    assertTrue(summary.isComplete());
+  }
+
+  @Test
+  public void testViolationsInRowOrder(@TempDir Path directory) throws Exception {
+    StringBuilder csv = new StringBuilder("id,name,count\n");
+    for (int i = 1; i <= 5_000; i++) {
+      int id = i == 4_000 ? 10 : i;
+      String count = i % 1_000 == 0 ? "-1" : i % 1_500 == 0 ? "x" : "1";
+      csv.append(id).append(",row ").append(i).append(',').append(count).append('\n');
+    }
+    csv.append("\n5001,,\n");
+    Path file = write(directory, "data.csv", csv.toString(), StandardCharsets.UTF_8);
+
+    List<String> expected = Arrays.asList(
+        "rows[1000].count: validation.field.minimum",
+        "rows[1500].count: validation.field.type",
+        "rows[2000].count: validation.field.minimum",
+        "rows[3000].count: validation.field.minimum",
+        "rows[4000].count: validation.field.minimum",
+        "rows[4000]: validation.row.primaryKey",
+        "rows[4500].count: validation.field.type",
+        "rows[5000].count: validation.field.minimum",
+        "rows[5001]: validation.row.blank");
+    for (long splitSize : new long[] {1 << 20, 1000, 64}) {
+      List<Violation> violations = new ArrayList<>();
+      TableDataValidator.Summary summary = validator(null, splitSize).validate(reader(file), violations::add, 100);
+
+      assertEquals(5_002, summary.getRows());
+      assertEquals(expected, violations.stream().map(TableDataValidatorTest::describe).collect(Collectors.toList()),
+          "Split size " + splitSize);
+    }
+  }
+
+  @Test
+  public void testQuotedLineBreaksAcrossSplits(@TempDir Path directory) throws Exception {
+    StringBuilder csv = new StringBuilder("id,name,count\n");
+    for (int i = 1; i <= 500; i++) {
+      csv.append(i).append(",\"multi\nline\n\nname ").append(i).append("\",").append(i == 400 ? "-1" : "0").append('\n');
+    }
+    Path file = write(directory, "data.csv", csv.toString(), StandardCharsets.UTF_8);
+
+    List<Violation> violations = new ArrayList<>();
+    TableDataValidator.Summary summary = validator(null, 100).validate(reader(file), violations::add, 100);
+
+    assertEquals(500, summary.getRows());
+    assertEquals(Collections.singletonList("rows[400].count: validation.field.minimum"),
+        violations.stream().map(TableDataValidatorTest::describe).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testDialectAndEncoding(@TempDir Path directory) throws Exception {
+    FrictionlessResource<?, ?> resource = new FrictionlessResource<>();
+    Map<String, Object> dialect = new HashMap<>();
+    dialect.put("delimiter", ";");
+    dialect.put("header", false);
+    dialect.put("commentChar", "#");
+    dialect.put("skipInitialSpace", true);
+    resource.setAdditionalProperty("dialect", dialect);
+    Path file = write(directory, "data.csv", "# comment\n1; J\u00fcrgen; 2\n2;'x';3\n3; Ana; nope\n",
+        StandardCharsets.ISO_8859_1);
+
+    List<Violation> violations = new ArrayList<>();
+    TableDataValidator.Summary summary = validator(TableDataValidator.dialect(resource), 1 << 20)
+        .validate(new MultipartResourceReader(Collections.singletonList(file), StandardCharsets.ISO_8859_1), violations::add, 100);
+
+    assertEquals(3, summary.getRows());
+    assertEquals(Collections.singletonList("rows[3].count: validation.field.type"),
+        violations.stream().map(TableDataValidatorTest::describe).collect(Collectors.toList()));
+    assertEquals("nope", violations.get(0).getInvalidValue());
+  }
+
+  @Test
+  public void testViolationLimit(@TempDir Path directory) throws Exception {
+    StringBuilder csv = new StringBuilder("id,name\n");
+    for (int i = 1; i <= 10_000; i++) {
+      csv.append(i).append(",x,-1\n");
+    }
+    Path file = write(directory, "data.csv", csv.toString(), StandardCharsets.UTF_8);
+
+    List<Violation> violations = new ArrayList<>();
+    TableDataValidator.Summary summary = validator(null, 512).validate(reader(file), violations::add, 25);
+
+    assertEquals(25, violations.size());
+    assertEquals(25, summary.getViolations());
+    assertFalse(summary.isComplete());
+    assertEquals("header: validation.row.header", describe(violations.get(0)));
+    assertEquals("rows[24].count: validation.field.minimum", describe(violations.get(24)));
+  }
+
+  @Test
+  public void testCompressedPart(@TempDir Path directory) throws Exception {
+    StringBuilder csv = new StringBuilder("id,name,count\n");
+    for (int i = 1; i <= 5_000; i++) {
+      csv.append(i).append(",row ").append(i).append(',').append(i == 3_000 ? "-1" : "1").append('\n');
+    }
+    Path compressed = directory.resolve("part-1.csv.gz");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+      out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    Path plain = write(directory, "part-2.csv", "5001,last,x\n", StandardCharsets.UTF_8);
+
+    List<Violation> violations = new ArrayList<>();
+    TableDataValidator.Summary summary = validator(null, 512)
+        .validate(new MultipartResourceReader(Arrays.asList(compressed, plain), StandardCharsets.UTF_8), violations::add,
+            100);
+
+    assertEquals(5_001, summary.getRows());
+    assertEquals(Arrays.asList("rows[3000].count: validation.field.minimum", "rows[5001].count: validation.field.type"),
+        violations.stream().map(TableDataValidatorTest::describe).collect(Collectors.toList()));
+  }
+
+  private TableDataValidator validator(CsvDialect dialect, long splitSize) {
+    return new TableDataValidator(SCHEMA, dialect, executor, splitSize, 8);
+  }
+
+  private static MultipartResourceReader reader(Path file) {
+    return new MultipartResourceReader(Collections.singletonList(file), StandardCharsets.UTF_8);
+  }
+
+  private static Path write(Path directory, String name, String content, Charset charset) throws Exception {
+    return Files.write(directory.resolve(name), content.getBytes(charset));
+  }
+
+  private static String describe(Violation violation) {
+    return violation.getPropertyPath() + ": " + violation.getMessage();
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchValidatorTest {
+
+  private final FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+
+  @Test
+  public void testAggregatedReport() throws Exception {
+    // every third descriptor lacks contributor titles, every fifth is not JSON
+    Iterator<String> descriptors = IntStream.range(0, 1000).mapToObj(BatchValidatorTest::descriptor).iterator();
+
+    BatchReport<String> report = BatchValidator.forkJoin().validate(descriptors,
+        descriptor -> json.readMetadata(descriptor.getBytes(StandardCharsets.UTF_8)), null, BasicMetadata.class);
+
+    long failed = IntStream.range(0, 1000).filter(i -> i % 5 == 0).count();
+    long invalid = IntStream.range(0, 1000).filter(i -> i % 5 != 0 && i % 3 == 0).count();
+    assertEquals(1000, report.getItems());
+    assertEquals(failed, report.getFailedItems());
+    assertEquals(invalid, report.getInvalidItems());
+    assertEquals(1000 - failed - invalid, report.getValidItems());
+    assertFalse(report.isValid());
+    assertEquals(2 * invalid, report.getMessageCounts().get("validation.input.required"));
+    assertEquals(2 * invalid, report.getPathCounts().get("contributors[].title"));
+
+    assertEquals(failed + invalid, report.getProblems().size());
+    assertEquals(0, report.getProblems().get(0).getIndex());
+    assertTrue(report.getProblems().get(0).getError() instanceof IOException);
+    assertEquals(3, report.getProblems().get(1).getIndex());
+    assertEquals("contributors[1].title", report.getProblems().get(1).getViolations().get(1).getPropertyPath());
+  }
+
+  @Test
+  public void testBackPressure() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    AtomicInteger listened = new AtomicInteger();
+    try {
+      Iterator<Integer> items = new Iterator<Integer>() {
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+          return next < 200;
+        }
+
+        @Override
+        public Integer next() {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          return next++;
+        }
+      };
+
+      BatchReport<Integer> report = new BatchValidator(executor, 8).validate(items, item -> {
+        Thread.sleep(1);
+        inFlight.decrementAndGet();
+        return new FrictionlessMetadata<>();
+      }, item -> listened.incrementAndGet());
+
+      assertEquals(200, report.getItems());
+      assertEquals(200, report.getValidItems());
+      assertTrue(report.isValid());
+      assertEquals(200, listened.get());
+      // the item pulled while waiting for a permit is the only one beyond the bound
+      assertTrue(maxInFlight.get() <= 9, "Pulled " + maxInFlight.get() + " items ahead");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testVirtualThreads() throws Exception {
+    List<FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource>> descriptors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      descriptors.add(json.readMetadata(descriptor(1).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    BatchReport<Object> report;
+    try (BatchValidator validator = BatchValidator.virtualThreads(16)) {
+      report = validator.validate(descriptors.stream(), BasicMetadata.class);
+    }
+
+    assertEquals(100, report.getValidItems());
+    assertEquals(Collections.emptyList(), report.getProblems());
+
+    // an executor given to the validator is left running
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      new BatchValidator(executor, 4).close();
+      assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static String descriptor(int index) {
+    if (index % 5 == 0) {
+      return "{\"name\": ";
+    }
+    String title = index % 3 == 0 ? "" : "\"title\": \"Jane\"";
+    return "{\"name\": \"package-" + index + "\", \"title\": \"Package\", \"description\": \"Test\","
+        + "\"contributors\": [{" + title + "}, {" + title + "}]}";
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.groups.Default;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.hibernate.validator.HibernateValidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the compiled validator reports exactly what Hibernate Validator reports.
+ */
+public class CompiledValidatorTest {
+
+  private static final Class<?>[][] GROUPS = {
+      {BasicMetadata.class},
+      {KeywordsMetadata.class},
+      {InternalField.class},
+      {Default.class},
+      {BasicMetadata.class, KeywordsMetadata.class, InternalField.class}
+  };
+
+  private static Validator validator;
+
+  @BeforeAll
+  public static void beforeAll() {
+    try (ValidatorFactory validatorFactory = Validation.byProvider(HibernateValidator.class).configure().buildValidatorFactory()) {
+      validator = validatorFactory.getValidator();
+    }
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("getCorpus")
+  public void testSameAsHibernate(String testCaseName, Object bean) {
+    for (Class<?>[] groups : GROUPS) {
+      Set<String> expected = validator.validate(bean, groups).stream()
+          .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+          .collect(Collectors.toSet());
+      List<String> actual = CompiledValidator.getInstance().validate(bean, groups).stream()
+          .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+          .collect(Collectors.toList());
+
+      assertEquals(expected.size(), actual.size(), "Duplicated violations for " + Arrays.toString(groups));
+      assertEquals(expected, Set.copyOf(actual), "Groups " + Arrays.toString(groups));
+    }
+  }
+
+  public static Stream<Arguments> getCorpus() {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> valid = metadata();
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> empty = new FrictionlessMetadata<>();
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> nulls = metadata();
+    nulls.setTitle(null);
+    nulls.setDescription(null);
+    nulls.setContributors(null);
+    nulls.setKeywords(null);
+    nulls.setLicenses(null);
+    nulls.setSources(null);
+
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> nested = metadata();
+    nested.setName("Not-Lower-Case");
+    nested.getContributors().add(FrictionlessContributor.builder().title(" ").path("../escape").build());
+    nested.getContributors().add(null);
+    nested.getContributors().add(FrictionlessContributor.builder().title(null).path("~home").build());
+    nested.getLicenses().add(FrictionlessLicense.builder().name(null).path(".hidden").build());
+    nested.getLicenses().add(FrictionlessLicense.builder().name("$CC0$").build());
+    nested.getSources().add(FrictionlessSource.builder().title(null).path("a/../b").build());
+
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = resource();
+
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> invalidResource = resource();
+    invalidResource.setName("Occurrence Data");
+    invalidResource.setMediatype("text");
+    invalidResource.setHash("sha256");
+    invalidResource.setLicenses(new ArrayList<>());
+    invalidResource.getSources().add(FrictionlessSource.builder().title(null).build());
+
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> emptyHash = resource();
+    emptyHash.setHash("");
+    emptyHash.setName(new StringBuilder("occurrence"));
+
+    return Stream.of(
+        Arguments.of("Valid metadata", valid),
+        Arguments.of("Empty metadata", empty),
+        Arguments.of("Null metadata properties", nulls),
+        Arguments.of("Invalid nested beans", nested),
+        Arguments.of("Valid resource", resource),
+        Arguments.of("Invalid resource", invalidResource),
+        Arguments.of("Empty hash", emptyHash),
+        Arguments.of("Blank contributor", FrictionlessContributor.builder().title("").build()),
+        Arguments.of("Invalid license", FrictionlessLicense.builder().name("a b").path("/root").build())
+    );
+  }
+
+  private static FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata() {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = new FrictionlessMetadata<>();
+    metadata.setTitle("Title");
+    metadata.setName("occurrences");
+    metadata.setDescription("Description");
+    metadata.setKeywords(new ArrayList<>(List.of("birds")));
+    metadata.getContributors().add(FrictionlessContributor.builder().title("GBIF").path("https://www.gbif.org").build());
+    metadata.getLicenses().add(FrictionlessLicense.builder().name("CC-BY-4.0").build());
+    metadata.getSources().add(FrictionlessSource.builder().title("Source").build());
+    return metadata;
+  }
+
+  private static FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource() {
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName("occurrence");
+    resource.setPath("occurrence.csv");
+    resource.setMediatype("text/csv");
+    resource.setHash("sha256:0123456789abcdef");
+    resource.getLicenses().add(FrictionlessLicense.builder().name("CC0-1.0").build());
+    return resource;
+  }
+}
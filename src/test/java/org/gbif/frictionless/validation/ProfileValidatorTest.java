@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.frictionless.validation;
+
+import org.gbif.frictionless.metadata.FrictionlessContributor;
+import org.gbif.frictionless.metadata.FrictionlessJson;
+import org.gbif.frictionless.metadata.FrictionlessLicense;
+import org.gbif.frictionless.metadata.FrictionlessMetadata;
+import org.gbif.frictionless.metadata.FrictionlessResource;
+import org.gbif.frictionless.metadata.FrictionlessSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProfileValidatorTest {
+
+  private final ProfileValidator validator = ProfileValidator.getInstance();
+
+  @Test
+  public void testValidPackage() throws IOException {
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = metadata();
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName("occurrence");
+    resource.setPath(Arrays.asList("occurrence-1.csv", "https://example.org/occurrence-2.csv"));
+    resource.setMediatype("text/csv");
+    resource.setBytes(120L);
+
+    assertEquals(Collections.emptyList(), json.validatePackage(metadata, Collections.singletonList(resource)));
+    assertEquals(Collections.emptyList(), json.validateResource(resource));
+
+    resource.setName("Occurrence");
+    resource.setMediatype("csv");
+    assertEquals(Arrays.asList(
+        new Violation("resources[0].name", "must match \"^([-a-z0-9._/])+$\"", "Occurrence"),
+        new Violation("resources[0].mediatype", "must match \"^(.+)/(.+)$\"", "csv")),
+        json.validatePackage(metadata, Collections.singletonList(resource)));
+    // the model writes unset lists as empty arrays, which count as absent on the model path only
+    metadata.getSources().clear();
+    resource.setName("occurrence");
+    resource.setMediatype("text/csv");
+    assertEquals(Collections.emptyList(), json.validatePackage(metadata, Collections.singletonList(resource)));
+    assertEquals(Arrays.asList(new Violation("resources", "is required", null)),
+        json.validatePackage(metadata, Collections.emptyList()));
+    assertEquals(Arrays.asList(new Violation("resources", "size must be between 1 and 2147483647", null)),
+        validator.validate("data-package", bytes("{\"name\": \"birds\", \"resources\": []}")));
+    assertEquals(Arrays.asList(new Violation("fields", "size must be between 1 and 2147483647", null)),
+        validator.validate("table-schema", bytes("{\"fields\": [], \"missingValues\": []}")));
+  }
+
+  @Test
+  public void testEmptyArraysSetOnPurpose() throws IOException {
+    FrictionlessJson<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> json = FrictionlessJson.getDefault();
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata = metadata();
+    FrictionlessResource<FrictionlessSource, FrictionlessLicense> resource = new FrictionlessResource<>();
+    resource.setName("occurrence");
+    resource.setData(Collections.emptyList());
+    resource.setAdditionalProperty("x-tags", Collections.emptyList());
+
+    // empty inline data is still data, the resource doesn't need a path
+    assertEquals(Collections.emptyList(), json.validateResource(resource));
+    assertEquals(Collections.emptyList(), json.validatePackage(metadata, Collections.singletonList(resource)));
+
+    resource.setData(null);
+    resource.setPath(Collections.emptyList());
+    assertEquals(Arrays.asList("path: size must be between 1 and 2147483647"), summary(json.validateResource(resource)));
+    assertEquals(Arrays.asList("resources[0].path: size must be between 1 and 2147483647"),
+        summary(json.validatePackage(metadata, Collections.singletonList(resource))));
+  }
+
+  @Test
+  public void testViolations() throws IOException {
+    String descriptor = "{\"name\": \"birds\", \"homepage\": \"example.org\", \"created\": \"yesterday\","
+        + " \"keywords\": \"birds\","
+        + " \"contributors\": [{\"title\": \"Jane\", \"role\": \"principalInvestigator\", \"email\": \"jane\"}, {\"path\": null}],"
+        + " \"licenses\": [{\"title\": \"Unnamed\"}, {\"name\": \"CC-BY-4.0\"}],"
+        + " \"sources\": [],"
+        + " \"resources\": [{\"name\": \"a\"}, {\"name\": \"b\", \"path\": \"b.csv\", \"data\": [[1]]},"
+        + " {\"name\": \"c\", \"path\": [\"../c.csv\"], \"bytes\": 1.5}, {\"name\": \"d\", \"data\": [[1, 2]]}]}";
+    List<Violation> violations = validator.validate("data-package", bytes(descriptor));
+
+    assertEquals(Arrays.asList(
+        "homepage: must be a valid uri",
+        "created: must be a valid date-time",
+        "keywords: must be of type array",
+        "contributors[0].role: must be one of",
+        "contributors[0].email: must be a valid email",
+        "contributors[1].title: is required",
+        "licenses[0]: must match at least one schema",
+        "resources[0]: must match exactly one schema",
+        "resources[1]: must match exactly one schema",
+        "resources[2].path[0]: must match \"^(?=^[^./~])(^((?!\\.{2}).)*$).*$\"",
+        "resources[2].bytes: must be of type integer"), summary(violations));
+    assertEquals("principalInvestigator", violations.get(3).getInvalidValue());
+    assertEquals(new BigDecimal("1.5"), violations.get(10).getInvalidValue());
+  }
+
+  @Test
+  public void testTabularProfiles() throws IOException {
+    String descriptor = "{\"profile\": \"tabular-data-package\", \"resources\": [{"
+        + "\"name\": \"a\", \"profile\": \"tabular-data-resource\", \"path\": \"a.csv\","
+        + " \"dialect\": {\"delimiter\": \"\", \"header\": true},"
+        + " \"schema\": {\"fields\": [{\"name\": \"id\", \"type\": \"integer\"}, {\"type\": \"text\"}],"
+        + " \"primaryKey\": [\"id\", \"id\"], \"foreignKeys\": [{\"fields\": \"id\", \"reference\": {\"resource\": \"\"}}]}},"
+        + " {\"name\": \"b\", \"profile\": \"tabular-data-resource\", \"path\": \"b.csv\", \"schema\": \"schema.json\"},"
+        + " {\"name\": \"c\", \"path\": \"c.csv\"}]}";
+    List<Violation> violations =
+        validator.validate("https://specs.frictionlessdata.io/schemas/tabular-data-package.json", bytes(descriptor));
+
+    assertEquals(Arrays.asList(
+        "resources[0].dialect.delimiter: length must be between 1 and 2147483647",
+        "resources[0].schema.fields[1].type: must be one of",
+        "resources[0].schema.fields[1].name: is required",
+        "resources[0].schema.primaryKey[1]: must not be a duplicate",
+        "resources[0].schema.foreignKeys[0].reference.fields: is required",
+        "resources[2].schema: is required",
+        "resources[2].profile: is required"), summary(violations));
+
+    // the same resource is valid on its own as a plain data resource
+    assertEquals(Collections.emptyList(), validator.validate("data-resource",
+        new ByteArrayInputStream(bytes("{\"name\": \"c\", \"path\": \"c.csv\"}"))));
+  }
+
+  @Test
+  public void testProfiles() {
+    assertTrue(validator.isSupported("data-package"));
+    assertTrue(validator.isSupported("https://specs.frictionlessdata.io/schemas/data-resource.json"));
+    assertFalse(validator.isSupported("https://example.org/custom-profile.json"));
+    assertFalse(validator.isSupported(null));
+    assertEquals(5, validator.getProfiles().size());
+    assertThrows(IllegalArgumentException.class, () -> validator.validate("fiscal-data-package", bytes("{}")));
+    assertThrows(IOException.class, () -> validator.validate("data-package", bytes("")));
+  }
+
+  private static FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata() {
+    FrictionlessMetadata<FrictionlessContributor, FrictionlessLicense, FrictionlessSource> metadata =
+        new FrictionlessMetadata<>();
+    metadata.setName("birds");
+    metadata.setTitle("Bird counts");
+    metadata.setDescription("Counts of birds along transects.");
+    metadata.setHomepage(URI.create("https://example.org/birds"));
+    metadata.setCreated(new Date(0));
+    metadata.setKeywords(Arrays.asList("birds", "transects"));
+    FrictionlessContributor contributor = new FrictionlessContributor();
+    contributor.setTitle("Jane Doe");
+    contributor.setRole("author");
+    contributor.setEmail("jane@example.org");
+    metadata.getContributors().add(contributor);
+    FrictionlessLicense license = new FrictionlessLicense();
+    license.setName("CC-BY-4.0");
+    license.setPath("https://creativecommons.org/licenses/by/4.0/");
+    metadata.getLicenses().add(license);
+    FrictionlessSource source = new FrictionlessSource();
+    source.setTitle("Field notes");
+    metadata.getSources().add(source);
+    return metadata;
+  }
+
+  /**
+   * Path and message of each violation, without the listed values of enumerations.
+   */
+  private static List<String> summary(List<Violation> violations) {
+    return violations.stream()
+        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage().replaceAll(" \\[.*]$", ""))
+        .collect(Collectors.toList());
+  }
+
+  private static byte[] bytes(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}